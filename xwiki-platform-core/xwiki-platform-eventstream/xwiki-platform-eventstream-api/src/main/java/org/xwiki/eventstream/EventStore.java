@@ -19,14 +19,18 @@
  */
 package org.xwiki.eventstream;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.eventstream.query.SimpleEventQuery;
+import org.xwiki.stability.Unstable;
 
 /**
  * Save and access store events.
@@ -67,6 +71,52 @@
      */
     CompletableFuture<EventStatus> saveMailEntityEvent(EntityEvent event);
 
+    /**
+     * Asynchronously save in the storage the given statuses. Stores supporting it save them with fewer requests than
+     * when calling {@link #saveEventStatus(EventStatus)} for each status.
+     * 
+     * @param statuses the statuses to save
+     * @return the new {@link CompletableFuture} providing the added {@link EventStatus}es
+     * @since 15.7RC1
+     * @see #saveEventStatus(EventStatus)
+     */
+    @Unstable
+    default CompletableFuture<List<EventStatus>> saveEventStatuses(Collection<EventStatus> statuses)
+    {
+        List<CompletableFuture<EventStatus>> futures = new ArrayList<>(statuses.size());
+        for (EventStatus status : statuses) {
+            futures.add(saveEventStatus(status));
+        }
+
+        return allOf(futures);
+    }
+
+    /**
+     * Asynchronously save in the storage the given mail statuses. Stores supporting it save them with fewer requests
+     * than when calling {@link #saveMailEntityEvent(EntityEvent)} for each mail status.
+     * 
+     * @param events the mail statuses to save
+     * @return the new {@link CompletableFuture} providing the added {@link EntityEvent}s
+     * @since 15.7RC1
+     * @see #saveMailEntityEvent(EntityEvent)
+     */
+    @Unstable
+    default CompletableFuture<List<EntityEvent>> saveMailEntityEvents(Collection<EntityEvent> events)
+    {
+        List<CompletableFuture<EntityEvent>> futures = new ArrayList<>(events.size());
+        for (EntityEvent event : events) {
+            futures.add(saveMailEntityEvent(event).thenApply(status -> event));
+        }
+
+        return allOf(futures);
+    }
+
+    private static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures)
+    {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
     /**
      * Asynchronously deleted the event matching the passed identifier and all associated statuses.
      * 
@@ -173,4 +223,53 @@ default List<EventStatus> getEventStatuses(Collection<Event> events, Collection<
     {
         return List.of();
     }
+
+    /**
+     * Get the list of mail statuses concerning the given events and the given entities.
+     *
+     * @param events a list of events
+     * @param entityIds a list of ids of entities (users and groups)
+     * @return the list of mail statuses corresponding to each pair or event/entity
+     * @throws Exception if an error occurs
+     * @since 15.7RC1
+     */
+    @Unstable
+    default List<EntityEvent> getMailEntityEvents(Collection<Event> events, Collection<String> entityIds)
+        throws Exception
+    {
+        List<EntityEvent> mailEntityEvents = new ArrayList<>();
+        for (Event event : events) {
+            for (String entityId : entityIds) {
+                SimpleEventQuery query = new SimpleEventQuery(0, 0);
+                query.eq(Event.FIELD_ID, event.getId());
+                query.withMail(entityId);
+
+                try (EventSearchResult result = search(query)) {
+                    if (result.getTotalHits() > 0) {
+                        mailEntityEvents.add(entityEvent(event, entityId));
+                    }
+                }
+            }
+        }
+
+        return mailEntityEvents;
+    }
+
+    private static EntityEvent entityEvent(Event event, String entityId)
+    {
+        return new EntityEvent()
+        {
+            @Override
+            public Event getEvent()
+            {
+                return event;
+            }
+
+            @Override
+            public String getEntityId()
+            {
+                return entityId;
+            }
+        };
+    }
 }
@@ -25,10 +25,16 @@
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -102,7 +108,14 @@ public abstract class AbstractAsynchronousEventStore implements EventStore, Init
         /**
          * @since 12.6
          */
-        PREFILTER_EVENT
+        PREFILTER_EVENT,
+
+        /**
+         * Make a processing thread wait for the removal of the statuses of an entity handled by another thread.
+         * 
+         * @since 15.7RC1
+         */
+        DELETE_STATUSES_BARRIER
     }
 
     /**
@@ -127,6 +140,8 @@ public abstract class AbstractAsynchronousEventStore implements EventStore, Init
 
         private final Map<String, Serializable> context;
 
+        private final long creationTime = System.nanoTime();
+
         private O output;
 
         protected EventStoreTask(I input, EventStoreTaskType type, Map<String, Serializable> contextStore)
@@ -161,6 +176,16 @@ public EventStoreTaskType getType()
 
         private final Date date;
 
+        /**
+         * Completed by each of the other processing threads when it reaches the removal.
+         */
+        private final List<CompletableFuture<Void>> barriers = new ArrayList<>();
+
+        /**
+         * Completed once the statuses have been removed.
+         */
+        private final CompletableFuture<Void> deleted = new CompletableFuture<>();
+
         DeleteStatusesData(String entityId, Date date)
         {
             this.entityId = entityId;
@@ -183,11 +208,20 @@ public EventStoreTaskType getType()
     @Inject
     private Execution execution;
 
-    private Thread thread;
+    private List<Thread> threads;
 
     private int queueCapacity;
 
-    private BlockingQueue<EventStoreTask<?, ?>> queue;
+    /**
+     * One queue per processing thread. The tasks are partitioned by event so that the tasks targeting the same event
+     * are always executed in order by the same thread. The removal of the statuses of an entity is a barrier across all
+     * the queues.
+     */
+    private List<BlockingQueue<EventStoreTask<?, ?>>> queues;
+
+    private final LongAdder processedTasks = new LongAdder();
+
+    private final LongAdder processedTasksLatency = new LongAdder();
 
     private boolean notifyEach;
 
@@ -207,26 +241,63 @@ public EventStoreTaskType getType()
     public int getQueueSize()
     {
         int size = 0;
-        for (EventStoreTask<?, ?> task : this.queue) {
-            switch (task.type) {
-                case DELETE_EVENT:
-                case DELETE_EVENT_BY_ID:
-                    --size;
-                    break;
+        for (BlockingQueue<EventStoreTask<?, ?>> queue : this.queues) {
+            for (EventStoreTask<?, ?> task : queue) {
+                switch (task.type) {
+                    case DELETE_EVENT:
+                    case DELETE_EVENT_BY_ID:
+                        --size;
+                        break;
 
-                case SAVE_EVENT:
-                    ++size;
-                    break;
+                    case SAVE_EVENT:
+                        ++size;
+                        break;
 
-                default:
-                    break;
+                    default:
+                        break;
+                }
             }
         }
 
         return size;
     }
 
+    /**
+     * @return the number of tasks (of any type) waiting to be processed
+     */
+    int getPendingTasks()
+    {
+        return this.queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * @return the number of tasks successfully processed since the store was initialized
+     */
+    long getProcessedTasks()
+    {
+        return this.processedTasks.sum();
+    }
+
+    /**
+     * @return the average time, in milliseconds, between the moment a task is queued and the moment it's processed
+     */
+    long getAverageLatency()
+    {
+        long count = this.processedTasks.sum();
+
+        return count > 0 ? TimeUnit.NANOSECONDS.toMillis(this.processedTasksLatency.sum() / count) : 0;
+    }
+
     private <O, I> CompletableFuture<O> addTask(I input, EventStoreTaskType type)
+    {
+        EventStoreTask<O, I> task = createTask(input, type);
+
+        addTask(task);
+
+        return task.future;
+    }
+
+    private <O, I> EventStoreTask<O, I> createTask(I input, EventStoreTaskType type)
     {
         // Remember a few standard things from the context
         Map<String, Serializable> context;
@@ -238,17 +309,18 @@ private <O, I> CompletableFuture<O> addTask(I input, EventStoreTaskType type)
             context = null;
         }
 
-        EventStoreTask<O, I> task = new EventStoreTask<>(input, type, context);
-
-        addTask(task);
-
-        return task.future;
+        return new EventStoreTask<>(input, type, context);
     }
 
     private <O, I> void addTask(EventStoreTask<O, I> task)
+    {
+        addTask(task, getQueue(task));
+    }
+
+    private <O, I> void addTask(EventStoreTask<O, I> task, BlockingQueue<EventStoreTask<?, ?>> queue)
     {
         try {
-            this.queue.put(task);
+            queue.put(task);
         } catch (InterruptedException e) {
             task.future.completeExceptionally(e);
 
@@ -256,6 +328,44 @@ private <O, I> void addTask(EventStoreTask<O, I> task)
         }
     }
 
+    private BlockingQueue<EventStoreTask<?, ?>> getQueue(EventStoreTask<?, ?> task)
+    {
+        if (this.queues.size() == 1) {
+            return this.queues.get(0);
+        }
+
+        return this.queues.get(Math.floorMod(Objects.hashCode(getPartitionKey(task)), this.queues.size()));
+    }
+
+    /**
+     * @param task the task
+     * @return the key used to decide which thread executes the task
+     */
+    private String getPartitionKey(EventStoreTask<?, ?> task)
+    {
+        switch (task.type) {
+            case SAVE_EVENT:
+            case DELETE_EVENT:
+            case PREFILTER_EVENT:
+                return ((Event) task.input).getId();
+
+            case DELETE_EVENT_BY_ID:
+                return (String) task.input;
+
+            case SAVE_STATUS:
+            case DELETE_STATUS:
+                return ((EventStatus) task.input).getEvent().getId();
+
+            case SAVE_MAIL_ENTITY:
+            case DELETE_MAIL_ENTITY:
+                return ((EntityEvent) task.input).getEvent().getId();
+
+            default:
+                // Not associated to a specific event
+                return null;
+        }
+    }
+
     @Override
     public CompletableFuture<Event> saveEvent(Event event)
     {
@@ -295,7 +405,28 @@ public CompletableFuture<Optional<EventStatus>> deleteEventStatus(EventStatus st
     @Override
     public CompletableFuture<Void> deleteEventStatuses(String entityId, Date date)
     {
-        return addTask(new DeleteStatusesData(entityId, date), EventStoreTaskType.DELETE_STATUSES);
+        DeleteStatusesData data = new DeleteStatusesData(entityId, date);
+
+        if (this.queues.size() == 1) {
+            return addTask(data, EventStoreTaskType.DELETE_STATUSES);
+        }
+
+        // The statuses of the entity are partitioned by event so the removal must wait for the tasks queued before it
+        // in all the queues, and the tasks queued after it must wait for the removal. The removals are always
+        // executed by the first thread and queued atomically so that two removals cannot wait for each other.
+        EventStoreTask<Void, DeleteStatusesData> task = createTask(data, EventStoreTaskType.DELETE_STATUSES);
+        synchronized (this.queues) {
+            for (BlockingQueue<EventStoreTask<?, ?>> queue : this.queues.subList(1, this.queues.size())) {
+                EventStoreTask<Void, DeleteStatusesData> barrier =
+                    new EventStoreTask<>(data, EventStoreTaskType.DELETE_STATUSES_BARRIER, null);
+                data.barriers.add(barrier.future);
+                addTask(barrier, queue);
+            }
+
+            addTask(task, this.queues.get(0));
+        }
+
+        return task.future;
     }
 
     @Override
@@ -310,51 +441,77 @@ public CompletableFuture<Event> prefilterEvent(Event event)
         return addTask(event, EventStoreTaskType.PREFILTER_EVENT);
     }
 
-    private void run()
+    private void run(BlockingQueue<EventStoreTask<?, ?>> queue)
     {
+        EventStoreTask<?, ?> nextTask = null;
         while (!this.disposed) {
-            EventStoreTask<?, ?> firstTask;
-            try {
-                firstTask = this.queue.take();
-            } catch (InterruptedException e) {
-                this.logger.warn("The thread handling asynchronous storage for event store [{}] has been interrupted",
-                    this.descriptor.getRoleHint(), e);
+            EventStoreTask<?, ?> firstTask = nextTask;
+            if (firstTask == null) {
+                try {
+                    firstTask = queue.take();
+                } catch (InterruptedException e) {
+                    this.logger.warn(
+                        "The thread handling asynchronous storage for event store [{}] has been interrupted",
+                        this.descriptor.getRoleHint(), e);
 
-                Thread.currentThread().interrupt();
-                break;
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
 
-            processTasks(firstTask);
+            nextTask = processTasks(firstTask, queue);
         }
     }
 
-    private void processTasks(EventStoreTask<?, ?> firstTask)
+    private boolean isBarrier(EventStoreTask<?, ?> task)
     {
-        this.execution.setContext(new ExecutionContext());
+        return task.type == EventStoreTaskType.DELETE_STATUSES
+            || task.type == EventStoreTaskType.DELETE_STATUSES_BARRIER;
+    }
+
+    /**
+     * @return the task taken from the queue which should start the next batch
+     */
+    private EventStoreTask<?, ?> processTasks(EventStoreTask<?, ?> firstTask,
+        BlockingQueue<EventStoreTask<?, ?>> queue)
+    {
+        EventStoreTask<?, ?> nextTask = null;
 
         // Make sure to not treat more than the queue capacity in a single batch
-        List<EventStoreTask<?, ?>> tasks = new ArrayList<>(this.queueCapacity);
-        try {
-            for (EventStoreTask<?, ?> task = firstTask; task != null; task = this.queue.poll()) {
-                if (task == EventStoreTask.STOP) {
-                    break;
-                }
+        List<EventStoreTask<?, ?>> batch = new ArrayList<>(this.queueCapacity);
+        for (EventStoreTask<?, ?> task = firstTask; task != null && task != EventStoreTask.STOP;
+            task = queue.poll()) {
+            // The removal of the statuses of an entity is based on what is already stored, so the previous tasks need
+            // to be complete (and committed) first
+            if (isBarrier(task) && !batch.isEmpty()) {
+                nextTask = task;
+                break;
+            }
 
-                try {
-                    // Execute the task
-                    processTask(task);
+            batch.add(task);
+
+            // Stop if the batch has been reached
+            if (batch.size() == this.queueCapacity || isBarrier(task)) {
+                break;
+            }
+        }
 
-                    // Add a successful task to the batch
-                    tasks.add(task);
+        this.execution.setContext(new ExecutionContext());
 
-                    // Stop if the batch has been reached
-                    if (tasks.size() == this.queueCapacity) {
-                        break;
-                    }
-                } catch (Exception e) {
-                    // Indicate that the task failed
-                    task.future.completeExceptionally(e);
+        List<EventStoreTask<?, ?>> tasks = new ArrayList<>(batch.size());
+        try {
+            // Consecutive tasks of the same type are executed together
+            int start = 0;
+            while (start < batch.size()) {
+                EventStoreTaskType type = batch.get(start).type;
+                int end = start + 1;
+                while (end < batch.size() && batch.get(end).type == type) {
+                    ++end;
                 }
+
+                processTasks(batch.subList(start, end), tasks);
+
+                start = end;
             }
         } finally {
             // Give a chance to the extended class to do something before the tasks are declared complete
@@ -362,6 +519,76 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
 
             this.execution.removeContext();
         }
+
+        return nextTask;
+    }
+
+    private void processTasks(List<EventStoreTask<?, ?>> group, List<EventStoreTask<?, ?>> tasks)
+    {
+        if (group.size() > 1) {
+            try {
+                if (processBulkTasks(group)) {
+                    // Add the successful tasks to the batch
+                    tasks.addAll(group);
+
+                    return;
+                }
+            } catch (Exception e) {
+                this.logger.debug("Failed to execute [{}] tasks of type [{}] at once, executing them one by one",
+                    group.size(), group.get(0).type, e);
+            }
+        }
+
+        for (EventStoreTask<?, ?> task : group) {
+            try {
+                // Execute the task
+                processTask(task);
+
+                // Add a successful task to the batch
+                tasks.add(task);
+            } catch (Exception e) {
+                // Indicate that the task failed
+                task.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * @param group tasks of the same type
+     * @return true if the tasks have been executed, false if they need to be executed one by one
+     */
+    private boolean processBulkTasks(List<EventStoreTask<?, ?>> group) throws EventStreamException
+    {
+        switch (group.get(0).type) {
+            case SAVE_EVENT:
+                processTaskOutputs(group, syncSaveEvents(getInputs(group)));
+                break;
+
+            case SAVE_STATUS:
+                processTaskOutputs(group, syncSaveEventStatuses(getInputs(group)));
+                break;
+
+            case SAVE_MAIL_ENTITY:
+                processTaskOutputs(group, syncSaveMailEntityEvents(getInputs(group)));
+                break;
+
+            default:
+                return false;
+        }
+
+        return true;
+    }
+
+    private <I> List<I> getInputs(List<EventStoreTask<?, ?>> group)
+    {
+        return group.stream().map(task -> (I) task.input).collect(Collectors.toList());
+    }
+
+    private <O> void processTaskOutputs(List<EventStoreTask<?, ?>> group, List<O> outputs)
+    {
+        for (int i = 0; i < group.size(); ++i) {
+            processTaskOutput((EventStoreTask<O, ?>) group.get(i), outputs.get(i));
+        }
     }
 
     private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamException
@@ -385,10 +612,14 @@ private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamExcepti
                 break;
 
             case DELETE_STATUSES:
-                EventStoreTask<Void, DeleteStatusesData> deleteStatusesTask =
-                    (EventStoreTask<Void, DeleteStatusesData>) task;
-                processTaskOutput(deleteStatusesTask,
-                    syncDeleteEventStatuses(deleteStatusesTask.input.entityId, deleteStatusesTask.input.date));
+                processDeleteStatuses((EventStoreTask<Void, DeleteStatusesData>) task);
+                break;
+
+            case DELETE_STATUSES_BARRIER:
+                DeleteStatusesData barrierData = (DeleteStatusesData) task.input;
+                // Let the removal proceed and wait for it
+                task.future.complete(null);
+                await(barrierData.deleted);
                 break;
 
             case SAVE_STATUS:
@@ -417,10 +648,48 @@ private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamExcepti
         return false;
     }
 
+    private void processDeleteStatuses(EventStoreTask<Void, DeleteStatusesData> task) throws EventStreamException
+    {
+        DeleteStatusesData data = task.input;
+
+        try {
+            // Wait for the other threads to execute the tasks queued before the removal
+            await(CompletableFuture.allOf(data.barriers.toArray(new CompletableFuture[0])));
+
+            processTaskOutput(task, syncDeleteEventStatuses(data.entityId, data.date));
+        } finally {
+            // Release the other threads
+            data.deleted.complete(null);
+        }
+    }
+
+    private void await(CompletableFuture<?> future)
+    {
+        // Don't wait for a thread which won't process its queue anymore
+        while (!this.disposed) {
+            try {
+                future.get(100, TimeUnit.MILLISECONDS);
+
+                return;
+            } catch (TimeoutException e) {
+                // Check again
+            } catch (ExecutionException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return;
+            }
+        }
+    }
+
     private <O, I> void processTaskOutput(EventStoreTask<O, I> task, O output)
     {
         task.output = output;
 
+        this.processedTasks.increment();
+        this.processedTasksLatency.add(System.nanoTime() - task.creationTime);
+
         if (this.notifyEach) {
             complete(task, output);
         }
@@ -520,6 +789,60 @@ private <O, I> void complete(EventStoreTask<O, I> task, O output)
      */
     protected abstract Optional<EntityEvent> syncDeleteMailEntityEvent(EntityEvent event) throws EventStreamException;
 
+    /**
+     * Save several events at once. The default implementation saves the events one by one.
+     * 
+     * @param events the events to save
+     * @return the saved events, in the same order
+     * @throws EventStreamException when failing to save the events
+     * @since 15.7RC1
+     */
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        List<Event> result = new ArrayList<>(events.size());
+        for (Event event : events) {
+            result.add(syncSaveEvent(event));
+        }
+
+        return result;
+    }
+
+    /**
+     * Save several event statuses at once. The default implementation saves the statuses one by one.
+     * 
+     * @param statuses the event statuses to save
+     * @return the saved event statuses, in the same order
+     * @throws EventStreamException when failing to save the event statuses
+     * @since 15.7RC1
+     */
+    protected List<EventStatus> syncSaveEventStatuses(List<EventStatus> statuses) throws EventStreamException
+    {
+        List<EventStatus> result = new ArrayList<>(statuses.size());
+        for (EventStatus status : statuses) {
+            result.add(syncSaveEventStatus(status));
+        }
+
+        return result;
+    }
+
+    /**
+     * Save several event/entity relations at once. The default implementation saves the relations one by one.
+     * 
+     * @param events the event/entity relations to save
+     * @return the saved event/entity relations, in the same order
+     * @throws EventStreamException when failing to save the event/entity relations
+     * @since 15.7RC1
+     */
+    protected List<EntityEvent> syncSaveMailEntityEvents(List<EntityEvent> events) throws EventStreamException
+    {
+        List<EntityEvent> result = new ArrayList<>(events.size());
+        for (EntityEvent event : events) {
+            result.add(syncSaveMailEntityEvent(event));
+        }
+
+        return result;
+    }
+
     /**
      * @param eventId the id of the event to delete
      */
@@ -540,17 +863,39 @@ protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
     }
 
     protected void initialize(int queueCapacity, boolean notifyEach, boolean notifyAll)
+    {
+        initialize(queueCapacity, notifyEach, notifyAll, 1);
+    }
+
+    /**
+     * @param queueCapacity the maximum number of tasks waiting in each queue
+     * @param notifyEach true if the tasks should be declared complete as soon as they are executed
+     * @param notifyAll true if the tasks should be declared complete after the execution of each batch
+     * @param threadCount the number of threads writing in the store, each one with its own queue
+     * @since 15.7RC1
+     */
+    protected void initialize(int queueCapacity, boolean notifyEach, boolean notifyAll, int threadCount)
     {
         this.notifyEach = notifyEach;
         this.notifyAll = !notifyEach && notifyAll;
 
         this.queueCapacity = queueCapacity;
-        this.queue = new LinkedBlockingQueue<>(this.queueCapacity);
 
-        this.thread = new Thread(this::run);
-        this.thread.setName("Asynchronous handler for event store [" + descriptor.getRoleHint() + "]");
-        this.thread.setPriority(Thread.NORM_PRIORITY - 1);
-        this.thread.start();
+        int count = Math.max(1, threadCount);
+        this.queues = new ArrayList<>(count);
+        this.threads = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            BlockingQueue<EventStoreTask<?, ?>> queue = new LinkedBlockingQueue<>(this.queueCapacity);
+            this.queues.add(queue);
+
+            Thread thread = new Thread(() -> run(queue));
+            String name = "Asynchronous handler for event store [" + descriptor.getRoleHint() + "]";
+            thread.setName(count > 1 ? name + " #" + i : name);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            this.threads.add(thread);
+        }
+
+        this.threads.forEach(Thread::start);
     }
 
     @Override
@@ -558,17 +903,24 @@ public void dispose() throws ComponentLifecycleException
     {
         this.disposed = true;
 
-        // Make sure to wake up the thread
-        addTask(EventStoreTask.STOP);
+        // Make sure to wake up the threads
+        for (BlockingQueue<EventStoreTask<?, ?>> queue : this.queues) {
+            addTask(EventStoreTask.STOP, queue);
+        }
 
         // Wait for the processing to be over but not more than 10s in case it's stuck for some reason
-        try {
-            this.thread.join(10000);
-        } catch (InterruptedException e) {
-            this.logger.warn("The thread handling asynchronous storage for event store [{}] has been interrupted",
-                this.descriptor.getRoleHint(), e);
+        long deadline = System.currentTimeMillis() + 10000;
+        for (Thread thread : this.threads) {
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                this.logger.warn("The thread handling asynchronous storage for event store [{}] has been interrupted",
+                    this.descriptor.getRoleHint(), e);
 
-            this.thread.interrupt();
+                thread.interrupt();
+                Thread.currentThread().interrupt();
+                break;
+            }
         }
     }
 }
@@ -268,6 +268,50 @@ public CompletableFuture<EventStatus> saveMailEntityEvent(EntityEvent event)
         return future;
     }
 
+    @Override
+    public CompletableFuture<List<EventStatus>> saveEventStatuses(Collection<EventStatus> statuses)
+    {
+        CompletableFuture<List<EventStatus>> future = null;
+
+        if (this.legacyStore != null) {
+            future = this.legacyStore.saveEventStatuses(statuses);
+        }
+
+        if (this.store != null) {
+            // Forget about legacy store result if new store is enabled
+            future = this.store.saveEventStatuses(statuses);
+        }
+
+        if (future == null) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(new EventStreamException(NO_STORE));
+        }
+
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<List<EntityEvent>> saveMailEntityEvents(Collection<EntityEvent> events)
+    {
+        CompletableFuture<List<EntityEvent>> future = null;
+
+        if (this.legacyStore != null) {
+            future = this.legacyStore.saveMailEntityEvents(events);
+        }
+
+        if (this.store != null) {
+            // Forget about legacy store result if new store is enabled
+            future = this.store.saveMailEntityEvents(events);
+        }
+
+        if (future == null) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(new EventStreamException(NO_STORE));
+        }
+
+        return future;
+    }
+
     @Override
     public CompletableFuture<Optional<EventStatus>> deleteEventStatus(EventStatus status)
     {
@@ -452,4 +496,19 @@ public List<EventStatus> getEventStatuses(Collection<Event> events, Collection<S
 
         return List.of();
     }
+
+    @Override
+    public List<EntityEvent> getMailEntityEvents(Collection<Event> events, Collection<String> entityIds)
+        throws Exception
+    {
+        if (this.store != null) {
+            return this.store.getMailEntityEvents(events, entityIds);
+        }
+
+        if (this.legacyStore != null) {
+            return this.legacyStore.getMailEntityEvents(events, entityIds);
+        }
+
+        return List.of();
+    }
 }
@@ -64,4 +64,13 @@ public boolean isEventStoreEnabled()
     {
         return this.configuration.getProperty("eventstream.store.enabled", true);
     }
+
+    /**
+     * @return the number of threads writing in the {@link EventStore}
+     * @since 15.7RC1
+     */
+    public int getEventStoreThreads()
+    {
+        return this.configuration.getProperty("eventstream.store.threads", 1);
+    }
 }
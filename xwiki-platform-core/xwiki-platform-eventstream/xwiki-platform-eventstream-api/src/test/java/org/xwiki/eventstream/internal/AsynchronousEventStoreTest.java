@@ -19,12 +19,14 @@
  */
 package org.xwiki.eventstream.internal;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.locks.ReentrantLock;
@@ -259,12 +261,24 @@ protected Optional<Event> syncDeleteEvent(Event event) throws EventStreamExcepti
         }
     }
 
+    public static class TestParallelAsynchronousEventStore extends TestAbstractAsynchronousEventStore
+    {
+        @Override
+        public void initialize() throws InitializationException
+        {
+            initialize(10, true, false, 4);
+        }
+    }
+
     @InjectComponentManager
     private MockitoComponentManager componentManager;
 
     @InjectMockComponents
     private TestAbstractAsynchronousEventStore store;
 
+    @InjectMockComponents
+    private TestParallelAsynchronousEventStore parallelStore;
+
     private DefaultEvent event(String id)
     {
         DefaultEvent event = new DefaultEvent();
@@ -429,4 +443,60 @@ void prefilter() throws InterruptedException, ExecutionException, EventStreamExc
         assertTrue(this.store.getEvent(event1.getId()).get().isPrefiltered());
         assertFalse(this.store.getEvent(event2.getId()).get().isPrefiltered());
     }
+
+    @Test
+    void parallel() throws InterruptedException, ExecutionException, EventStreamException
+    {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            DefaultEvent event = event("id" + i);
+            DefaultEventStatus status = eventStatus(event, "entity", true);
+
+            futures.add(this.parallelStore.saveEvent(event));
+            futures.add(this.parallelStore.saveEventStatus(status));
+            futures.add(this.parallelStore.saveEventStatus(eventStatus(event, "otherentity", true)));
+            // The tasks targeting the same event are executed in order
+            futures.add(this.parallelStore.deleteEventStatus(status));
+        }
+        for (CompletableFuture<?> future : futures) {
+            future.get();
+        }
+
+        for (int i = 0; i < 100; ++i) {
+            String eventId = "id" + i;
+            assertEquals(eventId, this.parallelStore.getEvent(eventId).get().getId());
+            assertEquals(Set.of("otherentity"), this.parallelStore.events.get(eventId).statuses.keySet());
+        }
+
+        assertEquals(0, this.parallelStore.getPendingTasks());
+        assertEquals(400, this.parallelStore.getProcessedTasks());
+    }
+
+    @Test
+    void parallelDeleteEventStatuses() throws InterruptedException, ExecutionException, EventStreamException
+    {
+        Date date = new Date();
+        for (int i = 0; i < 100; ++i) {
+            DefaultEvent event = event("id" + i);
+            event.setDate(date);
+
+            this.parallelStore.saveEvent(event);
+            this.parallelStore.saveEventStatus(eventStatus(event, "entity", true));
+            this.parallelStore.saveEventStatus(eventStatus(event, "otherentity", true));
+        }
+
+        // The removal waits for the statuses queued before it, whatever the thread handling them
+        this.parallelStore.deleteEventStatuses("entity", date).get();
+
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(Set.of("otherentity"), this.parallelStore.events.get("id" + i).statuses.keySet());
+        }
+
+        // The tasks queued after the removal are not affected by it
+        DefaultEvent event = event("id0");
+        this.parallelStore.saveEventStatus(eventStatus(event, "entity", true)).get();
+
+        assertEquals(Set.of("entity", "otherentity"), this.parallelStore.events.get("id0").statuses.keySet());
+        assertEquals(0, this.parallelStore.getPendingTasks());
+    }
 }
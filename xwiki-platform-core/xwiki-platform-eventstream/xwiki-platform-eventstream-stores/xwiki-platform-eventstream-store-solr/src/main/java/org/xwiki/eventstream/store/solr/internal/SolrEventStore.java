@@ -60,8 +60,10 @@
 import org.xwiki.eventstream.EventStore;
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.internal.AbstractAsynchronousEventStore;
+import org.xwiki.eventstream.internal.DefaultEntityEvent;
 import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.eventstream.internal.StreamEventSearchResult;
 import org.xwiki.eventstream.query.AbstractPropertyQueryCondition;
 import org.xwiki.eventstream.query.CompareQueryCondition;
@@ -148,12 +150,15 @@ public class SolrEventStore extends AbstractAsynchronousEventStore
     @Named("compactwiki")
     private EntityReferenceSerializer<String> compactwiki;
 
+    @Inject
+    private EventStreamConfiguration configuration;
+
     private SolrClient client;
 
     @Override
     public void initialize() throws InitializationException
     {
-        initialize(100, false, true);
+        initialize(100, false, true, this.configuration.getEventStoreThreads());
 
         try {
             this.client = this.solr.getClient(EventsSolrCoreInitializer.NAME);
@@ -186,6 +191,14 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
         return event;
     }
 
+    @Override
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        add(events.stream().map(this::toSolrInputDocument).collect(Collectors.toList()), "events");
+
+        return events;
+    }
+
     @Override
     protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStreamException
     {
@@ -194,6 +207,32 @@ protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStream
         return status;
     }
 
+    @Override
+    protected List<EventStatus> syncSaveEventStatuses(List<EventStatus> statuses) throws EventStreamException
+    {
+        // Consecutive statuses of the same event are merged in a single atomic update
+        List<SolrInputDocument> documents = new ArrayList<>();
+        int start = 0;
+        while (start < statuses.size()) {
+            EventStatus status = statuses.get(start);
+            List<String> entityIds = new ArrayList<>();
+            int end = start;
+            for (; end < statuses.size() && statuses.get(end).isRead() == status.isRead()
+                && statuses.get(end).getEvent().getId().equals(status.getEvent().getId()); ++end) {
+                entityIds.add(statuses.get(end).getEntityId());
+            }
+
+            documents.add(toEventStatusDocument(status.getEvent().getId(), entityIds, status.isRead(),
+                !status.isRead()));
+
+            start = end;
+        }
+
+        add(documents, "event statuses");
+
+        return statuses;
+    }
+
     @Override
     protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStreamException
     {
@@ -202,6 +241,39 @@ protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStr
         return event;
     }
 
+    @Override
+    protected List<EntityEvent> syncSaveMailEntityEvents(List<EntityEvent> events) throws EventStreamException
+    {
+        // Consecutive mail statuses of the same event are merged in a single atomic update
+        List<SolrInputDocument> documents = new ArrayList<>();
+        int start = 0;
+        while (start < events.size()) {
+            String eventId = events.get(start).getEvent().getId();
+            List<String> entityIds = new ArrayList<>();
+            int end = start;
+            for (; end < events.size() && events.get(end).getEvent().getId().equals(eventId); ++end) {
+                entityIds.add(events.get(end).getEntityId());
+            }
+
+            documents.add(toMailEntityEventDocument(eventId, entityIds, true));
+
+            start = end;
+        }
+
+        add(documents, "event mail statuses");
+
+        return events;
+    }
+
+    private void add(List<SolrInputDocument> documents, String type) throws EventStreamException
+    {
+        try {
+            this.client.add(documents);
+        } catch (Exception e) {
+            throw new EventStreamException(String.format("Failed to save [%s] %s", documents.size(), type), e);
+        }
+    }
+
     @Override
     protected Optional<EventStatus> syncDeleteEventStatus(EventStatus status) throws EventStreamException
     {
@@ -264,16 +336,7 @@ protected Event syncPrefilterEvent(Event event) throws EventStreamException
     private void saveEventStatus(String eventId, String entityId, boolean read, boolean unread)
         throws EventStreamException
     {
-        SolrInputDocument document = new SolrInputDocument();
-
-        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, eventId, document);
-
-        this.utils.setAtomic(
-            read ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
-            EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS, entityId, document);
-        this.utils.setAtomic(
-            unread ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
-            EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS, entityId, document);
+        SolrInputDocument document = toEventStatusDocument(eventId, entityId, read, unread);
 
         try {
             this.client.add(document);
@@ -284,15 +347,28 @@ private void saveEventStatus(String eventId, String entityId, boolean read, bool
         }
     }
 
-    private void saveMailEntityEvent(String eventId, String entityId, boolean add) throws EventStreamException
+    /**
+     * @param entityIds the identifier of the entity, or a collection of entity identifiers
+     */
+    private SolrInputDocument toEventStatusDocument(String eventId, Object entityIds, boolean read, boolean unread)
     {
         SolrInputDocument document = new SolrInputDocument();
 
         this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, eventId, document);
 
         this.utils.setAtomic(
-            add ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
-            EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, entityId, document);
+            read ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
+            EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS, entityIds, document);
+        this.utils.setAtomic(
+            unread ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
+            EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS, entityIds, document);
+
+        return document;
+    }
+
+    private void saveMailEntityEvent(String eventId, String entityId, boolean add) throws EventStreamException
+    {
+        SolrInputDocument document = toMailEntityEventDocument(eventId, entityId, add);
 
         try {
             this.client.add(document);
@@ -302,6 +378,22 @@ private void saveMailEntityEvent(String eventId, String entityId, boolean add) t
         }
     }
 
+    /**
+     * @param entityIds the identifier of the entity, or a collection of entity identifiers
+     */
+    private SolrInputDocument toMailEntityEventDocument(String eventId, Object entityIds, boolean add)
+    {
+        SolrInputDocument document = new SolrInputDocument();
+
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, eventId, document);
+
+        this.utils.setAtomic(
+            add ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
+            EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, entityIds, document);
+
+        return document;
+    }
+
     private SolrInputDocument toSolrInputDocument(Event event)
     {
         if (event == null) {
@@ -452,6 +544,46 @@ public List<EventStatus> getEventStatuses(Collection<Event> events, Collection<S
         return statuses;
     }
 
+    @Override
+    public List<EntityEvent> getMailEntityEvents(Collection<Event> events, Collection<String> entityIds)
+        throws Exception
+    {
+        SolrQuery solrQuery = new SolrQuery();
+
+        solrQuery.addFilterQuery(serializeInCondition(EventsSolrCoreInitializer.SOLR_FIELD_ID,
+            events.stream().map(Event::getId).collect(Collectors.toList())));
+
+        solrQuery.addFilterQuery(serializeInCondition(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, entityIds));
+
+        // Without it the query will only return 10 first results.
+        solrQuery.setRows(events.size());
+
+        QueryResponse response;
+        try {
+            response = this.client.query(solrQuery);
+        } catch (Exception e) {
+            throw new EventStreamException("Failed to execute Solr query", e);
+        }
+
+        SolrDocumentList documents = response.getResults();
+
+        List<EntityEvent> mailEntityEvents = new ArrayList<>();
+        for (SolrDocument solrDocument : documents) {
+            Event event = toEvent(solrDocument);
+
+            Set<String> mailListeners =
+                this.utils.getSet(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, solrDocument);
+
+            for (String entityId : entityIds) {
+                if (mailListeners != null && mailListeners.contains(entityId)) {
+                    mailEntityEvents.add(new DefaultEntityEvent(event, entityId));
+                }
+            }
+        }
+
+        return mailEntityEvents;
+    }
+
     private Event toEvent(SolrDocument document)
     {
         if (document == null) {
@@ -394,6 +394,36 @@ void eventStatuses() throws Exception
             EVENT13, EVENT14, EVENT15), new SimpleEventQuery().withStatus("entity1"));
     }
 
+    @Test
+    void bulkStatuses() throws Exception
+    {
+        this.eventStore.saveEvent(EVENT1);
+        this.eventStore.saveEvent(EVENT2).get();
+
+        this.eventStore.saveEventStatuses(List.of(eventstatus(EVENT1, "entity1", false),
+            eventstatus(EVENT1, "entity2", false), eventstatus(EVENT1, "entity3", true),
+            eventstatus(EVENT2, "entity1", false))).get();
+
+        SolrDocument document1 = this.eventStore.getEventDocument(EVENT1.getId());
+        assertEquals(Arrays.asList("entity3"), document1.get(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS));
+        assertEquals(Arrays.asList("entity1", "entity2"),
+            document1.get(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS));
+
+        assertEquals(
+            Set.of(eventstatus(EVENT1, "entity1", false), eventstatus(EVENT1, "entity3", true),
+                eventstatus(EVENT2, "entity1", false)),
+            new HashSet<>(
+                this.eventStore.getEventStatuses(List.of(EVENT1, EVENT2), List.of("entity1", "entity3"))));
+
+        this.eventStore.saveMailEntityEvents(
+            List.of(entityevent(EVENT1, "entity1"), entityevent(EVENT1, "entity2"), entityevent(EVENT2, "entity3")))
+            .get();
+
+        assertEquals(Set.of(entityevent(EVENT1, "entity1"), entityevent(EVENT2, "entity3")),
+            new HashSet<>(this.eventStore.getMailEntityEvents(List.of(EVENT1, EVENT2), List.of("entity1", "entity3"))));
+        assertEquals(List.of(), this.eventStore.getMailEntityEvents(List.of(EVENT2), List.of("entity1")));
+    }
+
     @Test
     void allSearch()
         throws EventStreamException, InterruptedException, ExecutionException, SolrServerException, IOException
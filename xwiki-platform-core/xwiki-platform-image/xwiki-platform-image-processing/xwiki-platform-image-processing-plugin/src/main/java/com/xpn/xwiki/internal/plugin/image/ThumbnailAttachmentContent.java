@@ -0,0 +1,140 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.io.input.AutoCloseInputStream;
+
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+
+/**
+ * The content of a thumbnail stored on the filesystem. The file is streamed when the thumbnail is downloaded instead
+ * of being loaded in memory.
+ * <p>
+ * The file can be evicted or deleted by the {@link ThumbnailStore} at any time, in which case it's written again when
+ * the content is accessed.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+class ThumbnailAttachmentContent extends XWikiAttachmentContent
+{
+    private static final String READ_ERROR = "Failed to read the thumbnail";
+
+    private final File file;
+
+    private final Callable<?> restore;
+
+    /**
+     * @param file the file containing the thumbnail
+     * @param restore writes the file again when it's missing
+     */
+    ThumbnailAttachmentContent(File file, Callable<?> restore)
+    {
+        this.file = file;
+        this.restore = restore;
+    }
+
+    @Override
+    public ThumbnailAttachmentContent clone()
+    {
+        ThumbnailAttachmentContent clone = new ThumbnailAttachmentContent(this.file, this.restore);
+        clone.setAttachment(getAttachment());
+
+        return clone;
+    }
+
+    private File getFile()
+    {
+        if (!this.file.exists()) {
+            restore();
+        }
+
+        return this.file;
+    }
+
+    private void restore()
+    {
+        try {
+            this.restore.call();
+        } catch (IOException e) {
+            throw new UncheckedIOException(READ_ERROR, e);
+        } catch (Exception e) {
+            throw new UncheckedIOException(READ_ERROR, new IOException(e));
+        }
+    }
+
+    @Override
+    public boolean exists()
+    {
+        return getFile().exists();
+    }
+
+    @Override
+    @Deprecated
+    public byte[] getContent()
+    {
+        try {
+            return Files.readAllBytes(getFile().toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(READ_ERROR, e);
+        }
+    }
+
+    @Override
+    public InputStream getContentInputStream()
+    {
+        try {
+            InputStream stream;
+            try {
+                stream = Files.newInputStream(getFile().toPath());
+            } catch (NoSuchFileException e) {
+                // The file was removed by the store in the meantime
+                restore();
+                stream = Files.newInputStream(this.file.toPath());
+            }
+
+            return new AutoCloseInputStream(stream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(READ_ERROR, e);
+        }
+    }
+
+    @Override
+    public long getLongSize()
+    {
+        return getFile().length();
+    }
+
+    @Override
+    public Optional<Path> getContentPath()
+    {
+        return Optional.of(getFile().toPath());
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+
+/**
+ * Stores the thumbnails computed by the image plugin in the permanent directory.
+ * <p>
+ * The thumbnails of an attachment are stored in the same directory and the ones of the previous versions of the
+ * attachment are deleted when a thumbnail is created for a new version. The total size and the number of stored
+ * thumbnails are limited, the least recently used thumbnails being deleted first.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = ThumbnailStore.class)
+@Singleton
+public class ThumbnailStore implements Initializable
+{
+    /**
+     * Writes the content of a thumbnail.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface ThumbnailWriter
+    {
+        /**
+         * @param output the stream where to write the thumbnail; nothing should be written when the original image
+         *     should be used instead
+         * @throws Exception if computing or writing the thumbnail fails
+         */
+        void write(OutputStream output) throws Exception;
+    }
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final char SEPARATOR = '-';
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    private File directory;
+
+    private long maxSize;
+
+    private int maxEntries;
+
+    /**
+     * The stored thumbnails and their size, in access order.
+     */
+    private final LinkedHashMap<File, Long> sizes = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long totalSize;
+
+    /**
+     * The thumbnails being written, used to write each thumbnail only once when it's requested concurrently.
+     */
+    private final ConcurrentMap<File, CompletableFuture<Void>> pendingThumbnails = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize()
+    {
+        this.directory = new File(this.environment.getPermanentDirectory(), "image/thumbnails");
+        this.maxSize = this.configuration.getProperty("xwiki.plugin.image.cache.disk.maxSize", 1024L) * MEGABYTE;
+        this.maxEntries = this.configuration.getProperty("xwiki.plugin.image.cache.disk.maxEntries", 100000);
+
+        load();
+    }
+
+    private synchronized void load()
+    {
+        if (!this.directory.isDirectory()) {
+            return;
+        }
+
+        List<File> files = new ArrayList<>();
+        for (File file : FileUtils.listFiles(this.directory, null, true)) {
+            if (isTemporary(file.getName())) {
+                // Left over by a thumbnail which was still being written when the previous instance stopped
+                FileUtils.deleteQuietly(file);
+            } else {
+                files.add(file);
+            }
+        }
+
+        // Consider the oldest thumbnails as the least recently used ones
+        files.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            track(file);
+        }
+
+        evict(null);
+    }
+
+    /**
+     * @return the total number of bytes used by the stored thumbnails
+     */
+    public synchronized long getSize()
+    {
+        return this.totalSize;
+    }
+
+    /**
+     * @return the number of stored thumbnails
+     */
+    public synchronized int getEntries()
+    {
+        return this.sizes.size();
+    }
+
+    /**
+     * Return the stored thumbnail, after writing it if it's not stored yet. Concurrent requests for a thumbnail which
+     * is not stored yet share the same writing. The returned content writes the thumbnail again if it's evicted or
+     * deleted before being read.
+     *
+     * @param wikiId the identifier of the wiki of the attachment
+     * @param attachmentId the identifier of the attachment
+     * @param version the identifier of the version of the attachment
+     * @param variant the identifier of the thumbnail among the ones of this version of the attachment
+     * @param writer used to write the thumbnail when it's not stored yet
+     * @return the content of the thumbnail, {@code null} if the original image should be used
+     * @throws Exception if writing the thumbnail fails
+     */
+    public XWikiAttachmentContent getThumbnail(String wikiId, long attachmentId, String version, String variant,
+        ThumbnailWriter writer) throws Exception
+    {
+        File file = new File(getDirectory(wikiId, attachmentId), version + SEPARATOR + variant);
+
+        long size = getStoredSize(file);
+        if (size < 0) {
+            writeOnce(file, version, writer);
+            size = getStoredSize(file);
+        }
+
+        // An empty file indicates that the original image should be used
+        if (size == 0) {
+            return null;
+        }
+
+        // The file can be evicted or deleted as soon as the lock is released, so it's written again if it's missing
+        // when the content is accessed
+        return new ThumbnailAttachmentContent(file, () -> {
+            writeOnce(file, version, writer);
+            return null;
+        });
+    }
+
+    /**
+     * Delete all the thumbnails of an attachment.
+     *
+     * @param wikiId the identifier of the wiki of the attachment
+     * @param attachmentId the identifier of the attachment
+     */
+    public synchronized void delete(String wikiId, long attachmentId)
+    {
+        deleteDirectory(getDirectory(wikiId, attachmentId));
+    }
+
+    /**
+     * Delete all the thumbnails of a wiki.
+     *
+     * @param wikiId the identifier of the wiki
+     */
+    public synchronized void delete(String wikiId)
+    {
+        File wikiDirectory = new File(this.directory, wikiId);
+        File[] attachmentDirectories = wikiDirectory.listFiles(File::isDirectory);
+        if (attachmentDirectories != null) {
+            for (File attachmentDirectory : attachmentDirectories) {
+                deleteDirectory(attachmentDirectory);
+            }
+        }
+        deleteDirectory(wikiDirectory);
+    }
+
+    private File getDirectory(String wikiId, long attachmentId)
+    {
+        return new File(new File(this.directory, wikiId), String.valueOf(attachmentId));
+    }
+
+    /**
+     * @param file a thumbnail file
+     * @return the size of the stored thumbnail, -1 if it's not stored
+     */
+    private synchronized long getStoredSize(File file)
+    {
+        // Also update the access order
+        Long size = this.sizes.get(file);
+        if (size != null) {
+            if (file.exists()) {
+                return size;
+            }
+
+            // The file was deleted by someone else
+            untrack(file);
+        }
+
+        return -1;
+    }
+
+    private void writeOnce(File file, String version, ThumbnailWriter writer) throws Exception
+    {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> pendingFuture = this.pendingThumbnails.putIfAbsent(file, future);
+        if (pendingFuture != null) {
+            try {
+                pendingFuture.get();
+            } catch (ExecutionException e) {
+                throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+            }
+
+            return;
+        }
+
+        try {
+            if (getStoredSize(file) < 0) {
+                write(file, version, writer);
+            }
+            future.complete(null);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.pendingThumbnails.remove(file, future);
+        }
+    }
+
+    private void write(File file, String version, ThumbnailWriter writer) throws Exception
+    {
+        File attachmentDirectory = file.getParentFile();
+        Files.createDirectories(attachmentDirectory.toPath());
+
+        // Write in a temporary file first so that an incomplete thumbnail is never served
+        File temporaryFile = File.createTempFile(file.getName(), TEMPORARY_SUFFIX, attachmentDirectory);
+        try {
+            try (OutputStream output = Files.newOutputStream(temporaryFile.toPath())) {
+                writer.write(output);
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+
+        synchronized (this) {
+            track(file);
+
+            // Forget the thumbnails of the previous versions of the attachment
+            String versionPrefix = version + SEPARATOR;
+            deleteFiles(attachmentDirectory, (dir, name) -> !name.startsWith(versionPrefix));
+
+            evict(file);
+        }
+    }
+
+    private void deleteDirectory(File attachmentDirectory)
+    {
+        deleteFiles(attachmentDirectory, (dir, name) -> true);
+
+        try {
+            Files.deleteIfExists(attachmentDirectory.toPath());
+        } catch (IOException e) {
+            // A thumbnail is still being written in this directory, which is kept
+        }
+    }
+
+    private void deleteFiles(File attachmentDirectory, FilenameFilter filter)
+    {
+        // Never touch the thumbnails still being written: they are moved to their final name once complete
+        File[] files =
+            attachmentDirectory.listFiles((dir, name) -> !isTemporary(name) && filter.accept(dir, name));
+        if (files != null) {
+            for (File file : files) {
+                untrack(file);
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    private void track(File file)
+    {
+        long size = file.length();
+        Long previousSize = this.sizes.put(file, size);
+        this.totalSize += previousSize != null ? size - previousSize : size;
+    }
+
+    private void untrack(File file)
+    {
+        Long size = this.sizes.remove(file);
+        if (size != null) {
+            this.totalSize -= size;
+        }
+    }
+
+    private void evict(File currentFile)
+    {
+        while (this.totalSize > this.maxSize || this.sizes.size() > this.maxEntries) {
+            File eldestFile = getEldestFile(currentFile);
+            if (eldestFile == null) {
+                return;
+            }
+
+            untrack(eldestFile);
+            FileUtils.deleteQuietly(eldestFile);
+        }
+    }
+
+    private File getEldestFile(File currentFile)
+    {
+        // Never evict the thumbnail which was just written, even if it's bigger than the whole capacity
+        for (File file : this.sizes.keySet()) {
+            if (!file.equals(currentFile)) {
+                return file;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isTemporary(String fileName)
+    {
+        return fileName.endsWith(TEMPORARY_SUFFIX);
+    }
+}
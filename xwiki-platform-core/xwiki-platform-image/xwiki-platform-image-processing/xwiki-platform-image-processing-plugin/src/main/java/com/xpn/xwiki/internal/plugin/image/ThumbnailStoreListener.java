@@ -0,0 +1,89 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.AbstractAttachmentEvent;
+import com.xpn.xwiki.internal.event.AttachmentDeletedEvent;
+
+/**
+ * Delete the stored thumbnails of the deleted attachments.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component
+@Named(ThumbnailStoreListener.NAME)
+@Singleton
+public class ThumbnailStoreListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "com.xpn.xwiki.internal.plugin.image.ThumbnailStoreListener";
+
+    /**
+     * Lazily loaded so that the existing thumbnails are not scanned before the first deletion.
+     */
+    @Inject
+    private Provider<ThumbnailStore> storeProvider;
+
+    /**
+     * Default constructor.
+     */
+    public ThumbnailStoreListener()
+    {
+        super(NAME, new AttachmentDeletedEvent(), new DocumentDeletedEvent(), new WikiDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof WikiDeletedEvent) {
+            this.storeProvider.get().delete(((WikiDeletedEvent) event).getWikiId());
+        } else {
+            XWikiDocument document = ((XWikiDocument) source).getOriginalDocument();
+            String wikiId = document.getDocumentReference().getWikiReference().getName();
+
+            if (event instanceof AttachmentDeletedEvent) {
+                XWikiAttachment attachment = document.getAttachment(((AbstractAttachmentEvent) event).getName());
+                if (attachment != null) {
+                    this.storeProvider.get().delete(wikiId, attachment.getId());
+                }
+            } else {
+                for (XWikiAttachment attachment : document.getAttachmentList()) {
+                    this.storeProvider.get().delete(wikiId, attachment.getId());
+                }
+            }
+        }
+    }
+}
@@ -40,6 +40,8 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.api.Api;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.internal.plugin.image.ThumbnailStore;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
 import com.xpn.xwiki.web.Utils;
@@ -73,6 +75,12 @@ public class ImagePlugin extends XWikiDefaultPlugin
      */
     private int capacity = 50;
 
+    /**
+     * The store of the thumbnails when the disk cache is enabled (see {@code xwiki.plugin.image.cache.disk}),
+     * {@code null} otherwise.
+     */
+    private ThumbnailStore thumbnailStore;
+
     /**
      * Default JPEG image quality.
      */
@@ -115,7 +123,11 @@ public void init(XWikiContext context)
     {
         super.init(context);
 
-        initCache(context);
+        if (context.getWiki().ParamAsLong("xwiki.plugin.image.cache.disk", 1) == 1) {
+            this.thumbnailStore = Utils.getComponent(ThumbnailStore.class);
+        } else {
+            initCache(context);
+        }
 
         String imageProcessorHint = context.getWiki().Param("xwiki.plugin.image.processorHint", "thumbnailator");
         this.imageProcessor = Utils.getComponent(ImageProcessor.class, imageProcessorHint);
@@ -138,7 +150,7 @@ public void init(XWikiContext context)
      */
     private void initCache(XWikiContext context)
     {
-        if (this.imageCache == null) {
+        if (this.imageCache == null && this.thumbnailStore == null) {
             CacheConfiguration configuration = new CacheConfiguration();
 
             configuration.setConfigurationId("xwiki.plugin.image");
@@ -248,9 +260,14 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
 
         boolean keepAspectRatio = Boolean.valueOf(context.getRequest().getParameter("keepAspectRatio"));
 
-        XWikiAttachment thumbnail = (this.imageCache == null)
-            ? shrinkImage(image, width, height, keepAspectRatio, quality, context)
-            : downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
+        XWikiAttachment thumbnail;
+        if (this.thumbnailStore != null) {
+            thumbnail = downloadImageFromDisk(image, width, height, keepAspectRatio, quality, context);
+        } else if (this.imageCache != null) {
+            thumbnail = downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
+        } else {
+            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
+        }
 
         // If the image has been transformed, update the file name extension to match the image format.
         String fileName = thumbnail.getFilename();
@@ -291,6 +308,45 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
         return thumbnail;
     }
 
+    /**
+     * Downloads the given image from the thumbnails stored on the filesystem.
+     *
+     * @param image the image to be downloaded
+     * @param width the desired image width; this value is taken into account only if it is greater than zero and
+     *     less than the current image width
+     * @param height the desired image height; this value is taken into account only if it is greater than zero and
+     *     less than the current image height
+     * @param keepAspectRatio {@code true} to preserve aspect ratio when resizing the image, {@code false}
+     *     otherwise
+     * @param quality the desired compression quality
+     * @param context the XWiki context
+     * @return the transformed image
+     * @throws Exception if transforming the image fails
+     */
+    private XWikiAttachment downloadImageFromDisk(XWikiAttachment image, int width, int height,
+        boolean keepAspectRatio, float quality, XWikiContext context) throws Exception
+    {
+        String version = String.format("%s-%s", image.getVersion(), image.getDate().getTime());
+        String variant = String.format("%s-%s-%s-%s", width, height, keepAspectRatio, quality);
+
+        XWikiAttachmentContent content =
+            this.thumbnailStore.getThumbnail(context.getWikiId(), image.getId(), version, variant, output -> {
+                RenderedImage shrunkImage = scaleImage(image, width, height, keepAspectRatio, quality, context);
+                if (shrunkImage != null) {
+                    this.imageProcessor.writeImage(shrunkImage, image.getMimeType(context), getQuality(quality),
+                        output);
+                }
+            });
+
+        if (content == null) {
+            return image;
+        }
+
+        XWikiAttachment thumbnail = image.clone();
+        thumbnail.setAttachment_content(content);
+        return thumbnail;
+    }
+
     /**
      * Reduces the size (i.e. the number of bytes) of an image by scaling its width and height and by reducing its
      * compression quality. This helps decreasing the time needed to download the image attachment.
@@ -311,26 +367,12 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
     private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
         boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
     {
-        Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
-
-        // Compute the new image dimension.
-        int currentWidth = image.getWidth(null);
-        int currentHeight = image.getHeight(null);
-        int[] dimensions =
-            reduceImageDimensions(currentWidth, currentHeight, requestedWidth, requestedHeight, keepAspectRatio);
-
-        float quality = requestedQuality;
-        if (quality < 0) {
-            // If no scaling is needed and the quality parameter is not specified, return the original image.
-            if (dimensions[0] == currentWidth && dimensions[1] == currentHeight) {
-                return attachment;
-            }
-            quality = this.defaultQuality;
+        RenderedImage shrunkImage =
+            scaleImage(attachment, requestedWidth, requestedHeight, keepAspectRatio, requestedQuality, context);
+        if (shrunkImage == null) {
+            return attachment;
         }
 
-        // Scale the image to the new dimensions.
-        RenderedImage shrunkImage = this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
-
         // Create an image attachment for the shrunk image.
         XWikiAttachment thumbnail = attachment.clone();
         thumbnail.loadAttachmentContent(context);
@@ -338,7 +380,7 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream();
         this.imageProcessor.writeImage(shrunkImage,
             attachment.getMimeType(context),
-            quality,
+            getQuality(requestedQuality),
             acos);
 
         IOUtils.closeQuietly(acos);
@@ -346,6 +388,50 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         return thumbnail;
     }
 
+    /**
+     * Scales the given image.
+     *
+     * @param attachment the image to be shrunk
+     * @param requestedWidth the desired image width; this value is taken into account only if it is greater than
+     *     zero and less than the current image width
+     * @param requestedHeight the desired image height; this value is taken into account only if it is greater than
+     *     zero and less than the current image height
+     * @param keepAspectRatio {@code true} to preserve the image aspect ratio even when both requested dimensions
+     *     are properly specified, {@code false} otherwise
+     * @param requestedQuality the desired compression quality
+     * @param context the XWiki context
+     * @return the scaled image, {@code null} if the original image should be used
+     * @throws Exception if scaling the image fails
+     */
+    private RenderedImage scaleImage(XWikiAttachment attachment, int requestedWidth,
+        int requestedHeight, boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
+    {
+        Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
+
+        // Compute the new image dimension.
+        int currentWidth = image.getWidth(null);
+        int currentHeight = image.getHeight(null);
+        int[] dimensions =
+            reduceImageDimensions(currentWidth, currentHeight, requestedWidth, requestedHeight, keepAspectRatio);
+
+        // If no scaling is needed and the quality parameter is not specified, return the original image.
+        if (requestedQuality < 0 && dimensions[0] == currentWidth && dimensions[1] == currentHeight) {
+            return null;
+        }
+
+        // Scale the image to the new dimensions.
+        return this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
+    }
+
+    /**
+     * @param requestedQuality the desired compression quality
+     * @return the compression quality to use when writing a scaled image
+     */
+    private float getQuality(float requestedQuality)
+    {
+        return requestedQuality < 0 ? this.defaultQuality : requestedQuality;
+    }
+
     /**
      * Computes the new image dimension which:
      * <ul>
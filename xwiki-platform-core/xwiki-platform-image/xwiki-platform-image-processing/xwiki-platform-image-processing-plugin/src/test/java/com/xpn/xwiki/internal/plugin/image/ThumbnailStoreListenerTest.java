@@ -0,0 +1,102 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.AttachmentDeletedEvent;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ThumbnailStoreListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class ThumbnailStoreListenerTest
+{
+    private static final String WIKI = "wiki";
+
+    @InjectMockComponents
+    private ThumbnailStoreListener listener;
+
+    @MockComponent
+    private ThumbnailStore store;
+
+    private XWikiDocument document;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        XWikiDocument originalDocument = mock(XWikiDocument.class);
+        when(originalDocument.getDocumentReference()).thenReturn(new DocumentReference(WIKI, "Space", "Page"));
+
+        XWikiAttachment image1 = mock(XWikiAttachment.class);
+        when(image1.getId()).thenReturn(1L);
+        when(originalDocument.getAttachment("image1.png")).thenReturn(image1);
+        XWikiAttachment image2 = mock(XWikiAttachment.class);
+        when(image2.getId()).thenReturn(2L);
+        when(originalDocument.getAttachmentList()).thenReturn(Arrays.asList(image1, image2));
+
+        this.document = mock(XWikiDocument.class);
+        when(this.document.getOriginalDocument()).thenReturn(originalDocument);
+    }
+
+    @Test
+    void onAttachmentDeleted()
+    {
+        this.listener.onEvent(new AttachmentDeletedEvent(WIKI + ":Space.Page", "image1.png"), this.document, null);
+
+        verify(this.store).delete(WIKI, 1L);
+        verifyNoMoreInteractions(this.store);
+    }
+
+    @Test
+    void onDocumentDeleted()
+    {
+        this.listener.onEvent(new DocumentDeletedEvent(), this.document, null);
+
+        verify(this.store).delete(WIKI, 1L);
+        verify(this.store).delete(WIKI, 2L);
+    }
+
+    @Test
+    void onWikiDeleted()
+    {
+        this.listener.onEvent(new WikiDeletedEvent(WIKI), null, null);
+
+        verify(this.store).delete(WIKI);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.inject.Named;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.internal.plugin.image.ThumbnailStore.ThumbnailWriter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ThumbnailStore}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({ ThumbnailStore.class })
+class ThumbnailStoreTest
+{
+    private static final String WIKI = "wiki";
+
+    private static final long ATTACHMENT_ID = 42;
+
+    private static final byte[] THUMBNAIL_CONTENT = "thumbnail".getBytes();
+
+    @XWikiTempDir
+    private File permanentDirectory;
+
+    @MockComponent
+    private Environment environment;
+
+    @MockComponent
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private File attachmentDirectory;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+        when(this.configuration.getProperty("xwiki.plugin.image.cache.disk.maxSize", 1024L)).thenReturn(1L);
+        when(this.configuration.getProperty("xwiki.plugin.image.cache.disk.maxEntries", 100000)).thenReturn(2);
+
+        this.attachmentDirectory = new File(this.permanentDirectory, "image/thumbnails/wiki/42");
+    }
+
+    private ThumbnailStore getStore() throws Exception
+    {
+        return this.componentManager.getInstance(ThumbnailStore.class);
+    }
+
+    private XWikiAttachmentContent getThumbnail(ThumbnailStore store, String version, String variant)
+        throws Exception
+    {
+        return store.getThumbnail(WIKI, ATTACHMENT_ID, version, variant,
+            output -> output.write(THUMBNAIL_CONTENT));
+    }
+
+    private File createFile(String name, long lastModified) throws IOException
+    {
+        File file = new File(this.attachmentDirectory, name);
+        FileUtils.writeByteArrayToFile(file, THUMBNAIL_CONTENT);
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    @Test
+    void getThumbnail() throws Exception
+    {
+        ThumbnailStore store = getStore();
+        ThumbnailWriter writer = mock(ThumbnailWriter.class);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(THUMBNAIL_CONTENT);
+            return null;
+        }).when(writer).write(any());
+
+        XWikiAttachmentContent content = store.getThumbnail(WIKI, ATTACHMENT_ID, "1.1-0", "a", writer);
+        assertArrayEquals(THUMBNAIL_CONTENT, IOUtils.toByteArray(content.getContentInputStream()));
+        assertEquals(THUMBNAIL_CONTENT.length, content.getLongSize());
+        assertTrue(new File(this.attachmentDirectory, "1.1-0-a").exists());
+
+        // Load again, this time from the disk.
+        content = store.getThumbnail(WIKI, ATTACHMENT_ID, "1.1-0", "a", writer);
+        assertArrayEquals(THUMBNAIL_CONTENT, IOUtils.toByteArray(content.getContentInputStream()));
+        verify(writer, times(1)).write(any());
+
+        assertEquals(1, store.getEntries());
+        assertEquals(THUMBNAIL_CONTENT.length, store.getSize());
+    }
+
+    @Test
+    void getThumbnailDeletedBeforeBeingRead() throws Exception
+    {
+        ThumbnailStore store = getStore();
+
+        XWikiAttachmentContent content = getThumbnail(store, "1.1-0", "a");
+        store.delete(WIKI, ATTACHMENT_ID);
+        assertFalse(new File(this.attachmentDirectory, "1.1-0-a").exists());
+
+        // The thumbnail is written again when it's read
+        assertArrayEquals(THUMBNAIL_CONTENT, IOUtils.toByteArray(content.getContentInputStream()));
+        assertEquals(1, store.getEntries());
+
+        store.delete(WIKI, ATTACHMENT_ID);
+
+        assertEquals(THUMBNAIL_CONTENT.length, content.getLongSize());
+        assertTrue(new File(this.attachmentDirectory, "1.1-0-a").exists());
+    }
+
+    @Test
+    void getThumbnailWhenOriginalShouldBeUsed() throws Exception
+    {
+        ThumbnailStore store = getStore();
+
+        assertNull(store.getThumbnail(WIKI, ATTACHMENT_ID, "1.1-0", "a", output -> { }));
+        assertTrue(new File(this.attachmentDirectory, "1.1-0-a").exists());
+        assertEquals(1, store.getEntries());
+    }
+
+    @Test
+    void previousVersionsAreDeletedButNotTheTemporaryFiles() throws Exception
+    {
+        ThumbnailStore store = getStore();
+
+        getThumbnail(store, "1.1-0", "a");
+        File temporaryFile = createFile("1.1-0-b123.tmp", System.currentTimeMillis());
+
+        getThumbnail(store, "1.2-0", "a");
+
+        assertFalse(new File(this.attachmentDirectory, "1.1-0-a").exists());
+        assertTrue(new File(this.attachmentDirectory, "1.2-0-a").exists());
+        assertTrue(temporaryFile.exists());
+        assertEquals(1, store.getEntries());
+    }
+
+    @Test
+    void leastRecentlyUsedThumbnailsAreEvicted() throws Exception
+    {
+        ThumbnailStore store = getStore();
+
+        getThumbnail(store, "1.1-0", "a");
+        getThumbnail(store, "1.1-0", "b");
+        // Use the first thumbnail again so that the second one is the least recently used
+        getThumbnail(store, "1.1-0", "a");
+        getThumbnail(store, "1.1-0", "c");
+
+        assertTrue(new File(this.attachmentDirectory, "1.1-0-a").exists());
+        assertFalse(new File(this.attachmentDirectory, "1.1-0-b").exists());
+        assertTrue(new File(this.attachmentDirectory, "1.1-0-c").exists());
+        assertEquals(2, store.getEntries());
+        assertEquals(2L * THUMBNAIL_CONTENT.length, store.getSize());
+    }
+
+    @Test
+    void delete() throws Exception
+    {
+        ThumbnailStore store = getStore();
+
+        getThumbnail(store, "1.1-0", "a");
+        File temporaryFile = createFile("1.1-0-b123.tmp", System.currentTimeMillis());
+
+        store.delete(WIKI, ATTACHMENT_ID);
+
+        assertFalse(new File(this.attachmentDirectory, "1.1-0-a").exists());
+        assertTrue(temporaryFile.exists());
+        assertEquals(0, store.getEntries());
+        assertEquals(0, store.getSize());
+
+        store.delete(WIKI);
+
+        assertTrue(temporaryFile.exists());
+    }
+
+    @Test
+    void initializeLoadsTheStoredThumbnails() throws Exception
+    {
+        File oldestFile = createFile("1.1-0-a", 1000);
+        File file1 = createFile("1.1-0-b", 2000);
+        File file2 = createFile("1.1-0-c", 3000);
+        File temporaryFile = createFile("1.1-0-d123.tmp", 4000);
+
+        ThumbnailStore store = getStore();
+
+        // The oldest thumbnail is evicted to respect the maximum number of entries
+        assertFalse(oldestFile.exists());
+        assertTrue(file1.exists());
+        assertTrue(file2.exists());
+        // The thumbnails which were being written when the previous instance stopped are deleted
+        assertFalse(temporaryFile.exists());
+        assertEquals(2, store.getEntries());
+        assertEquals(2L * THUMBNAIL_CONTENT.length, store.getSize());
+    }
+}
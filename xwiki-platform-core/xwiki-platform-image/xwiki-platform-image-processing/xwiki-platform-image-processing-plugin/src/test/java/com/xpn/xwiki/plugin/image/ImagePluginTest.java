@@ -22,11 +22,13 @@
 import java.awt.Image;
 import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -34,20 +36,27 @@
 import org.mockito.ArgumentMatchers;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
+import org.xwiki.test.annotation.ComponentList;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.internal.plugin.image.ThumbnailStore;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 import com.xpn.xwiki.web.XWikiServletRequest;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -61,6 +70,7 @@
  * @version $Id$
  */
 @OldcoreTest
+@ComponentList({ ThumbnailStore.class })
 class ImagePluginTest
 {
     private static final byte[] IMAGE_CONTENT =
@@ -101,6 +111,8 @@
             + "bwl+otAu7U4p4/Hv5kPqQhwJx0cWWWSRRRZZZNH4DzmZwO7NW2cKAAAAAElFTkSu"
             + "QmCC");
 
+    private static final byte[] THUMBNAIL_CONTENT = "thumbnail".getBytes();
+
     @InjectMockitoOldcore
     private MockitoOldcore oldCore;
 
@@ -113,6 +125,7 @@ void configure() throws Exception
     {
         XWiki xwiki = this.oldCore.getSpyXWiki();
         doReturn("10").when(xwiki).Param("xwiki.plugin.image.cache.capacity");
+        doReturn(0L).when(xwiki).ParamAsLong("xwiki.plugin.image.cache.disk", 1);
         doReturn("test").when(xwiki).Param(eq("xwiki.plugin.image.processorHint"),
             ArgumentMatchers.anyString());
 
@@ -181,6 +194,64 @@ void cacheOfScaledAttachment() throws Exception
         verify(imageCache, times(1)).set(cacheKey, attachment);
     }
 
+    @Test
+    void diskCacheOfScaledAttachment() throws Exception
+    {
+        doReturn(1L).when(this.oldCore.getSpyXWiki()).ParamAsLong("xwiki.plugin.image.cache.disk", 1);
+        this.plugin = new ImagePlugin("image", ImagePlugin.class.getName(), this.oldCore.getXWikiContext());
+
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getId()).thenReturn(42L);
+        when(attachment.getVersion()).thenReturn("1.1");
+        when(attachment.getDate()).thenReturn(new Date(0));
+        when(attachment.getMimeType(xcontext)).thenReturn("image/png");
+        InputStream attachmentInputStream = new ByteArrayInputStream(IMAGE_CONTENT);
+        when(attachment.getContentInputStream(xcontext)).thenReturn(attachmentInputStream);
+        XWikiAttachment clone = new XWikiAttachment();
+        clone.setFilename("image.png");
+        when(attachment.clone()).thenReturn(clone);
+
+        XWikiServletRequest request = mock(XWikiServletRequest.class);
+        when(request.getParameter("width")).thenReturn("30");
+        when(request.getParameter("height")).thenReturn("30");
+        xcontext.setRequest(request);
+
+        Image image = mock(Image.class);
+        when(image.getWidth(null)).thenReturn(400);
+        when(image.getHeight(null)).thenReturn(300);
+        when(this.imageProcessor.readImage(attachmentInputStream)).thenReturn(image);
+        RenderedImage renderedImage = mock(RenderedImage.class);
+        when(this.imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(THUMBNAIL_CONTENT);
+            return null;
+        }).when(this.imageProcessor).writeImage(eq(renderedImage), eq("image/png"), eq(.5F), any());
+
+        XWikiAttachment scaled = this.plugin.downloadAttachment(attachment, xcontext);
+        assertSame(clone, scaled);
+        assertArrayEquals(THUMBNAIL_CONTENT, IOUtils.toByteArray(scaled.getContentInputStream(xcontext)));
+        assertEquals(THUMBNAIL_CONTENT.length, scaled.getLongSize());
+
+        File thumbnail =
+            new File(this.oldCore.getPermanentDirectory(), "image/thumbnails/xwiki/42/1.1-0-30-30-false--1.0");
+        assertTrue(thumbnail.exists());
+
+        // Load again, this time from the disk.
+        scaled = this.plugin.downloadAttachment(attachment, xcontext);
+        assertArrayEquals(THUMBNAIL_CONTENT, IOUtils.toByteArray(scaled.getContentInputStream(xcontext)));
+        verify(this.imageProcessor, times(1)).scaleImage(image, 30, 30);
+
+        // The thumbnails of the previous version are removed when the image is modified.
+        when(attachment.getVersion()).thenReturn("1.2");
+        when(attachment.getContentInputStream(xcontext)).thenReturn(new ByteArrayInputStream(IMAGE_CONTENT));
+        when(this.imageProcessor.readImage(any())).thenReturn(image);
+        this.plugin.downloadAttachment(attachment, xcontext);
+        assertFalse(thumbnail.exists());
+        assertTrue(new File(thumbnail.getParentFile(), "1.2-0-30-30-false--1.0").exists());
+    }
+
     @ParameterizedTest
     @CsvSource({
         "100, 500, false, 60, 300",
@@ -19,20 +19,28 @@
  */
 package org.xwiki.index.internal;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
@@ -41,6 +49,7 @@
 import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextManager;
@@ -70,6 +79,29 @@ public class DefaultTasksManager implements TaskManager, Initializable, Disposab
 {
     private static final String MBEAN_NAME = "name=index";
 
+    private static final String CONSUMERS_PROPERTY = "index.tasks.consumers";
+
+    private static final String CONSUMER_THREAD_NAME = "task-manager-consumer";
+
+    /**
+     * The number of consumed tasks after which the deletion of the tasks from the database is flushed, even if the
+     * queue is not empty.
+     */
+    private static final int DELETE_BATCH_SIZE = 100;
+
+    /**
+     * The processing statistics of a type of tasks.
+     */
+    private static final class TypeStatistics
+    {
+        private final LongAdder processed = new LongAdder();
+
+        /**
+         * The total processing time, in nanoseconds.
+         */
+        private final LongAdder duration = new LongAdder();
+    }
+
     private PriorityBlockingQueue<TaskData> queue;
 
     /**
@@ -96,13 +128,39 @@ public class DefaultTasksManager implements TaskManager, Initializable, Disposab
     @Inject
     private ExecutionContextManager executionContextManager;
 
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
     @Inject
     private Logger logger;
 
     /**
-     * When {@code true}, indicates that the {@link #run()} method should stop.
+     * The number of threads consuming the queue.
+     */
+    private int consumers = 1;
+
+    /**
+     * The documents for which a task is currently being executed. Two tasks of the same document are never executed
+     * concurrently. Also used as the lock protecting {@link #deferredTasks}.
+     */
+    private final Set<String> busyDocuments = new HashSet<>();
+
+    /**
+     * The tasks taken from the queue while another task of the same document was executed. They are put back in the
+     * queue once the document is released.
+     */
+    private final Map<String, List<TaskData>> deferredTasks = new HashMap<>();
+
+    /**
+     * The consumed tasks waiting to be removed from the database.
+     */
+    private final Queue<TaskData> pendingDeletions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The processing statistics, per type of tasks.
      */
-    private boolean halt;
+    private final Map<String, TypeStatistics> statistics = new ConcurrentHashMap<>();
 
     /**
      * Lock used to ensure that no thread is in a state where a task has been added to the database but not to the
@@ -156,7 +214,8 @@ public CompletableFuture<TaskData> addTask(String wikiId, long docId, String ver
     public void initialize()
     {
         this.jmxRegistration.registerMBean(new JMXTasks(this::getQueueSize,
-                () -> this.queue.stream().collect(Collectors.groupingBy(TaskData::getType, Collectors.counting()))),
+                () -> getTasks().collect(Collectors.groupingBy(TaskData::getType, Collectors.counting())),
+                this::getProcessedTasksPerType, this::getAverageProcessingTimePerType),
             MBEAN_NAME);
         this.queue = new PriorityBlockingQueue<>(11, Comparator.comparingLong(TaskData::getTimestamp));
         this.latestTimestampTasksMap = new ConcurrentHashMap<>();
@@ -166,16 +225,26 @@ public void initialize()
     public void dispose()
     {
         this.jmxRegistration.unregisterMBean(MBEAN_NAME);
-        this.queue.add(TaskData.STOP);
+        // One stop task per consumer thread.
+        for (int i = 0; i < this.consumers; i++) {
+            this.queue.add(TaskData.STOP);
+        }
     }
 
     /**
-     * Start the consumer thread.
+     * Start the consumer threads. The first thread initializes the queue with the tasks stored in database before
+     * starting the other consumers, whose number is configured with the {@value #CONSUMERS_PROPERTY} property.
      */
     public void startThread()
     {
-        Thread thread = new Thread(this);
-        thread.setName("task-manager-consumer");
+        this.consumers = Math.max(1, this.configuration.getProperty(CONSUMERS_PROPERTY, 1));
+        startConsumer(this, CONSUMER_THREAD_NAME);
+    }
+
+    private void startConsumer(Runnable runnable, String name)
+    {
+        Thread thread = new Thread(runnable);
+        thread.setName(name);
         thread.setPriority(NORM_PRIORITY - 1);
         thread.start();
     }
@@ -183,19 +252,19 @@ public void startThread()
     @Override
     public long getQueueSize()
     {
-        return this.queue.size();
+        return getTasks().count();
     }
 
     @Override
     public long getQueueSize(String type)
     {
-        return this.queue.stream().filter(taskData -> Objects.equals(taskData.getType(), type)).count();
+        return getTasks().filter(taskData -> Objects.equals(taskData.getType(), type)).count();
     }
 
     @Override
     public Map<String, Long> getQueueSizePerType(String wikiId)
     {
-        return this.queue.stream()
+        return getTasks()
             .filter(taskData -> Objects.equals(taskData.getWikiId(), wikiId))
             .collect(Collectors.groupingBy(TaskData::getType, Collectors.counting()));
     }
@@ -205,25 +274,52 @@ public void run()
     {
         try {
             initQueue();
-            while (!this.halt) {
-                consume();
+            // The other consumers are started only once the queue is initialized, to make sure that the tasks loaded
+            // from the database are not consumed while the queue is still being initialized.
+            for (int i = 1; i < this.consumers; i++) {
+                startConsumer(this::consumeTasks, CONSUMER_THREAD_NAME + '-' + i);
             }
+            consumeTasks();
         } catch (InitializationException e) {
             this.logger.error("Failed to initialize the tasks consumer thread.", e);
         }
     }
 
-    private void consume()
+    private void consumeTasks()
+    {
+        boolean halt = false;
+        while (!halt) {
+            halt = consume();
+        }
+    }
+
+    /**
+     * Consume the next task of the queue.
+     *
+     * @return {@code true} if the consumer must stop, {@code false} otherwise
+     */
+    private boolean consume()
     {
         TaskData task = null;
+        boolean acquired = false;
         try {
-            task = this.queue.take();
-            task.increaseAttempts();
+            task = this.queue.poll();
+            if (task == null) {
+                // Nothing to do for now, take the opportunity to remove the consumed tasks from the database.
+                flushDeletions();
+                task = this.queue.take();
+            }
             if (task.isStop()) {
-                this.halt = true;
-            } else {
+                flushDeletions();
+                return true;
+            }
+            acquired = acquireDocument(task);
+            if (acquired) {
+                task.increaseAttempts();
                 if (isTimestampValid(task)) {
+                    long start = System.nanoTime();
                     this.taskExecutor.execute(task);
+                    updateStatistics(task, System.nanoTime() - start);
                     task.getFuture().complete(task);
                 } else {
                     task.getFuture().cancel(false);
@@ -254,7 +350,88 @@ private void consume()
             } else if (task != null) {
                 task.getFuture().cancel(false);
             }
-        } 
+        } finally {
+            if (acquired) {
+                releaseDocument(task);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Mark the document of the task as busy. If the document is already busy, the task is deferred until the
+     * document is released.
+     *
+     * @param task the task to execute
+     * @return {@code true} if the task can be executed, {@code false} if it has been deferred
+     */
+    private boolean acquireDocument(TaskData task)
+    {
+        String documentKey = getDocumentKey(task);
+        synchronized (this.busyDocuments) {
+            if (this.busyDocuments.add(documentKey)) {
+                return true;
+            }
+            this.deferredTasks.computeIfAbsent(documentKey, key -> new ArrayList<>()).add(task);
+            return false;
+        }
+    }
+
+    private void releaseDocument(TaskData task)
+    {
+        String documentKey = getDocumentKey(task);
+        List<TaskData> tasks;
+        synchronized (this.busyDocuments) {
+            this.busyDocuments.remove(documentKey);
+            tasks = this.deferredTasks.remove(documentKey);
+        }
+        if (tasks != null) {
+            // The deferred tasks keep their timestamp and are therefore put back at their original position.
+            this.queue.addAll(tasks);
+        }
+    }
+
+    private String getDocumentKey(TaskData task)
+    {
+        return task.getWikiId() + ':' + task.getDocId();
+    }
+
+    /**
+     * @return the queued tasks, including the ones deferred because a task of the same document is being executed
+     */
+    private Stream<TaskData> getTasks()
+    {
+        List<TaskData> tasks;
+        synchronized (this.busyDocuments) {
+            tasks = this.deferredTasks.values().stream().flatMap(List::stream).collect(Collectors.toList());
+        }
+        return Stream.concat(this.queue.stream(), tasks.stream());
+    }
+
+    private void updateStatistics(TaskData task, long duration)
+    {
+        TypeStatistics typeStatistics = this.statistics.computeIfAbsent(task.getType(), type -> new TypeStatistics());
+        typeStatistics.processed.increment();
+        typeStatistics.duration.add(duration);
+    }
+
+    private Map<String, Long> getProcessedTasksPerType()
+    {
+        return this.statistics.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().processed.sum()));
+    }
+
+    private Map<String, Long> getAverageProcessingTimePerType()
+    {
+        Map<String, Long> averages = new HashMap<>();
+        this.statistics.forEach((type, typeStatistics) -> {
+            long count = typeStatistics.processed.sum();
+            if (count > 0) {
+                averages.put(type, TimeUnit.NANOSECONDS.toMillis(typeStatistics.duration.sum() / count));
+            }
+        });
+        return averages;
     }
 
     private void initQueue() throws InitializationException
@@ -338,25 +515,64 @@ private boolean isTimestampValid(TaskData task)
         return task.getTimestamp() == this.latestTimestampTasksMap.getOrDefault(task, 0L);
     }
 
+    /**
+     * Schedule the removal of a task from the database. The removals are flushed in batches, when the queue is empty
+     * or when {@link #DELETE_BATCH_SIZE} removals are pending.
+     *
+     * @param task the consumed task
+     */
     private void deleteTask(TaskData task)
     {
         this.writeLock.lock();
         try {
             if (isTimestampValid(task)) {
-                try {
-                    this.tasksStore.get()
-                        .deleteTask(task.getWikiId(), task.getDocId(), task.getVersion(), task.getType());
-                } catch (XWikiException e) {
-                    this.logger.error("Failed to delete task [{}] from the queue. It will be reloaded on restart.",
-                        task, e);
-                }
                 this.latestTimestampTasksMap.remove(task);
+                this.pendingDeletions.add(task);
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+
+        if (this.pendingDeletions.size() >= DELETE_BATCH_SIZE) {
+            flushDeletions();
+        }
+    }
+
+    private void flushDeletions()
+    {
+        this.writeLock.lock();
+        try {
+            Map<String, List<TaskData>> tasksPerWiki = new HashMap<>();
+            TaskData task;
+            while ((task = this.pendingDeletions.poll()) != null) {
+                // A task queued again since its consumption must stay in the database. Its row is removed once the
+                // new task is consumed.
+                List<TaskData> wikiTasks = tasksPerWiki.computeIfAbsent(task.getWikiId(), key -> new ArrayList<>());
+                if (!this.latestTimestampTasksMap.containsKey(task) && !wikiTasks.contains(task)) {
+                    wikiTasks.add(task);
+                }
+            }
+
+            for (Map.Entry<String, List<TaskData>> entry : tasksPerWiki.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    deleteTasks(entry.getKey(), entry.getValue());
+                }
             }
         } finally {
             this.writeLock.unlock();
         }
     }
 
+    private void deleteTasks(String wikiId, List<TaskData> tasks)
+    {
+        try {
+            this.tasksStore.get().deleteTasks(wikiId, tasks);
+        } catch (Exception e) {
+            this.logger.error("Failed to delete tasks [{}] from the queue. They will be reloaded on restart.", tasks,
+                e);
+        }
+    }
+
     private DocumentReference getTaskDocumentReferenceForLogging(TaskData taskData)
     {
         DocumentReference result;
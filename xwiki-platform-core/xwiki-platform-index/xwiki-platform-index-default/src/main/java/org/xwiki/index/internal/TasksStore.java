@@ -103,19 +103,28 @@ public void deleteTask(String wikiId, long docId, String version, String type) t
     {
         initWikiContext(xWikiContext -> {
             executeWrite(xWikiContext, session -> {
-                String query = "delete from XWikiDocumentIndexingTask t where t.docId = :docId ";
-                if (StringUtils.isEmpty(version)) {
-                    // The is null part is required for Oracle.
-                    query += "and (t.version = :version or t.version is null)";
-                } else {
-                    query += "and t.version = :version ";
+                innerDeleteTask(docId, version, type, session);
+                return null;
+            });
+            return null;
+        }, wikiId);
+    }
+
+    /**
+     * Remove a set of tasks from the queue, in a single transaction.
+     *
+     * @param wikiId the wiki in which to execute the queries
+     * @param tasks the tasks to remove
+     * @throws XWikiException in case of error when removing the tasks
+     * @since 15.7RC1
+     */
+    public void deleteTasks(String wikiId, List<TaskData> tasks) throws XWikiException
+    {
+        initWikiContext(xWikiContext -> {
+            executeWrite(xWikiContext, session -> {
+                for (TaskData task : tasks) {
+                    innerDeleteTask(task.getDocId(), task.getVersion(), task.getType(), session);
                 }
-                query = query + "and t.type = :type";
-                session.createQuery(query)
-                    .setParameter("docId", docId)
-                    .setParameter("version", version)
-                    .setParameter("type", type)
-                    .executeUpdate();
                 return null;
             });
             return null;
@@ -179,6 +188,23 @@ private <T> T initWikiContext(Lambda<T> r, String wikiId) throws XWikiException
         }
     }
 
+    private void innerDeleteTask(long docId, String version, String type, Session session)
+    {
+        String query = "delete from XWikiDocumentIndexingTask t where t.docId = :docId ";
+        if (StringUtils.isEmpty(version)) {
+            // The is null part is required for Oracle.
+            query += "and (t.version = :version or t.version is null)";
+        } else {
+            query += "and t.version = :version ";
+        }
+        query = query + "and t.type = :type";
+        session.createQuery(query)
+            .setParameter("docId", docId)
+            .setParameter("version", version)
+            .setParameter("type", type)
+            .executeUpdate();
+    }
+
     private void innerAddTask(XWikiDocumentIndexingTask task, Session session)
     {
         // In case of inconsistent data. But the timestamp is expected to be initialized by the caller.
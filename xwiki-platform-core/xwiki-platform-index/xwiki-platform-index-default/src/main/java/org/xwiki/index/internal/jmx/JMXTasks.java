@@ -35,16 +35,25 @@ public class JMXTasks implements JMXTasksMBean
 
     private final Supplier<Map<String, Long>> queueSizePerType;
 
+    private final Supplier<Map<String, Long>> processedTasksPerType;
+
+    private final Supplier<Map<String, Long>> averageProcessingTimePerType;
+
     /**
      * Default constructor, let the method initializing the MBean provide the suppliers for the MBean operations.
      *
      * @param queueSize the queue size supplier
      * @param queueSizePerType the queue size per type supplier
+     * @param processedTasksPerType the number of processed tasks per type supplier
+     * @param averageProcessingTimePerType the average processing time per type supplier
      */
-    public JMXTasks(LongSupplier queueSize, Supplier<Map<String, Long>> queueSizePerType)
+    public JMXTasks(LongSupplier queueSize, Supplier<Map<String, Long>> queueSizePerType,
+        Supplier<Map<String, Long>> processedTasksPerType, Supplier<Map<String, Long>> averageProcessingTimePerType)
     {
         this.queueSize = queueSize;
         this.queueSizePerType = queueSizePerType;
+        this.processedTasksPerType = processedTasksPerType;
+        this.averageProcessingTimePerType = averageProcessingTimePerType;
     }
 
     @Override
@@ -58,4 +67,16 @@ public Map<String, Long> getQueueSizePerType()
     {
         return this.queueSizePerType.get();
     }
+
+    @Override
+    public Map<String, Long> getProcessedTasksPerType()
+    {
+        return this.processedTasksPerType.get();
+    }
+
+    @Override
+    public Map<String, Long> getAverageProcessingTimePerType()
+    {
+        return this.averageProcessingTimePerType.get();
+    }
 }
@@ -39,4 +39,16 @@
      * @return the total number of tasks in the queue, grouped per type of tasks
      */
     Map<String, Long> getQueueSizePerType();
+
+    /**
+     * @return the number of tasks successfully processed since the server started, grouped per type of tasks
+     * @since 15.7RC1
+     */
+    Map<String, Long> getProcessedTasksPerType();
+
+    /**
+     * @return the average time, in milliseconds, taken to process a task, grouped per type of tasks
+     * @since 15.7RC1
+     */
+    Map<String, Long> getAverageProcessingTimePerType();
 }
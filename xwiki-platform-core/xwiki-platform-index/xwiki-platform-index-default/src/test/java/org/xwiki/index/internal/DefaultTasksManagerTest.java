@@ -24,14 +24,17 @@
 import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.inject.Named;
 import javax.inject.Provider;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.mockito.Mock;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.doc.tasks.XWikiDocumentIndexingTask;
 import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.reference.DocumentReference;
@@ -51,9 +54,11 @@
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.matchesPattern;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -98,6 +103,10 @@
     @MockComponent
     private TaskExecutor taskExecutor;
 
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
     @Mock
     private TasksStore tasksStore;
 
@@ -109,6 +118,7 @@ void setUp() throws Exception
     {
         when(this.tasksStoreProvider.get()).thenReturn(this.tasksStore);
         when(this.remoteObservationManagerConfiguration.getId()).thenReturn(INSTANCE_ID);
+        when(this.configuration.getProperty("index.tasks.consumers", 1)).thenReturn(1);
 
         XWikiDocument documentWikiId42 = mock(XWikiDocument.class);
         when(this.tasksStore.getDocument("wikiId", 42)).thenReturn(documentWikiId42);
@@ -240,7 +250,7 @@ void addTaskDuringTaskExecution() throws Exception
             return null;
         })
             .doAnswer(invocation -> {
-                verify(this.tasksStore, never()).deleteTask("wikiA", 42, "1.2", "concurrent");
+                verify(this.tasksStore, never()).deleteTasks(eq("wikiA"), any());
                 return null;
             })
             .doAnswer(invocation -> null)
@@ -255,7 +265,7 @@ void addTaskDuringTaskExecution() throws Exception
         // not be called before the end of the test. 
         this.tasksManager.addTask("wikiA", 42, "1.3", "concurrent").get();
 
-        verify(this.tasksStore).deleteTask("wikiA", 42, "1.2", "concurrent");
+        verify(this.tasksStore).deleteTasks("wikiA", List.of(new TaskData(42, "1.2", "concurrent", "wikiA")));
     }
 
     @Test
@@ -277,7 +287,44 @@ void addTaskConcurrently() throws Exception
         // not be called before the end of the test.
         this.tasksManager.addTask("wikiA", 42, "1.3", "concurrent").get();
 
-        verify(this.tasksStore).deleteTask("wikiA", 42, "1.2", "concurrent");
+        verify(this.tasksStore).deleteTasks("wikiA", List.of(new TaskData(42, "1.2", "concurrent", "wikiA")));
+    }
+
+    @Test
+    void consumeTasksInParallel() throws Exception
+    {
+        when(this.configuration.getProperty("index.tasks.consumers", 1)).thenReturn(2);
+
+        CountDownLatch startedTask = new CountDownLatch(1);
+        CountDownLatch blockedTask = new CountDownLatch(1);
+        // Block the execution of the "blocking" task until the end of the test.
+        doAnswer(invocation -> {
+            TaskData taskData = invocation.getArgument(0);
+            if (taskData.getType().equals("blocking")) {
+                startedTask.countDown();
+                blockedTask.await();
+            }
+            return null;
+        }).when(this.taskExecutor).execute(any());
+
+        this.tasksManager.startThread();
+
+        CompletableFuture<TaskData> blockingFuture = this.tasksManager.addTask("wikiId", 42, "1.3", "blocking");
+        startedTask.await();
+        CompletableFuture<TaskData> sameDocumentFuture = this.tasksManager.addTask("wikiId", 42, "1.3", "other");
+        CompletableFuture<TaskData> otherDocumentFuture = this.tasksManager.addTask("wikiId", 43, "1.3", "other");
+
+        // The task of another document is consumed by the second consumer while the first one is blocked, but the
+        // task of the same document must wait.
+        assertNotNull(otherDocumentFuture.get());
+        assertFalse(sameDocumentFuture.isDone());
+        verify(this.taskExecutor, never()).execute(new TaskData(42, "1.3", "other", "wikiId"));
+        assertEquals(Map.of("other", 1L), this.tasksManager.getQueueSizePerType("wikiId"));
+
+        blockedTask.countDown();
+        assertNotNull(blockingFuture.get());
+        assertNotNull(sameDocumentFuture.get());
+        verify(this.taskExecutor).execute(new TaskData(42, "1.3", "other", "wikiId"));
     }
 
     @Test
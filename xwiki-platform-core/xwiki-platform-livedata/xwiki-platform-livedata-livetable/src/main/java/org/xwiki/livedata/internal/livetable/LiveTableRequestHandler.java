@@ -66,7 +66,7 @@
     static final String CONTEXT_DOC = "$doc";
 
     @SuppressWarnings("serial")
-    private static final Map<String, String> MATCH_TYPE = new HashMap<String, String>()
+    static final Map<String, String> MATCH_TYPE = new HashMap<String, String>()
     {
         {
             put("equals", "exact");
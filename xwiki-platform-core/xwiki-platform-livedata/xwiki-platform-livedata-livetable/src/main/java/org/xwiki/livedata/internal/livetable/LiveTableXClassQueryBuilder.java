@@ -0,0 +1,565 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Constraint;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.ListClass;
+import com.xpn.xwiki.objects.classes.NumberClass;
+import com.xpn.xwiki.objects.classes.PropertyClass;
+
+/**
+ * Builds the HQL query that retrieves the documents having an object of a given XClass, directly from a live data
+ * query. This is the Java counterpart of the {@code #gridresultwithfilter_buildQuery} Velocity macro used by the
+ * default {@code XWiki.LiveTableResults} page, limited to the column types, filters and sort it can reproduce
+ * exactly.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = LiveTableXClassQueryBuilder.class)
+@Singleton
+public class LiveTableXClassQueryBuilder
+{
+    static final String DOC_PREFIX = "doc.";
+
+    static final String PASSWORD_TYPE = "Password";
+
+    /**
+     * The columns computed by the live table results macros from something else than the document or the object.
+     */
+    private static final Set<String> SPECIAL_COLUMNS =
+        Set.of("_action", "_attachments", "_avatar", "_images", "_likes");
+
+    private static final String DOC_LOCATION = "doc.location";
+
+    private static final String EMAIL = "email";
+
+    private static final String EMAIL_TYPE = "Email";
+
+    private static final String PROPERTY_ALIAS_PREFIX = "prop_";
+
+    private static final String NON_WORD = "\\W";
+
+    private static final String STRING_PROPERTY = "StringProperty";
+
+    private static final String LARGE_STRING_PROPERTY = "LargeStringProperty";
+
+    private static final String INTEGER_PROPERTY = "IntegerProperty";
+
+    private static final String LONG_PROPERTY = "LongProperty";
+
+    private static final String FLOAT_PROPERTY = "FloatProperty";
+
+    private static final String DOUBLE_PROPERTY = "DoubleProperty";
+
+    private static final String DATE_PROPERTY = "DateProperty";
+
+    private static final String STRING_LIST_PROPERTY = "StringListProperty";
+
+    private static final String DB_STRING_LIST_PROPERTY = "DBStringListProperty";
+
+    private static final String NUMBER_CLASS = "NumberClass";
+
+    private static final String BOOLEAN_CLASS = "BooleanClass";
+
+    private static final String DATE_CLASS = "DateClass";
+
+    private static final String TEMPLATE = "Template";
+
+    private static final String EMPTY = "empty";
+
+    private static final String PARTIAL = "partial";
+
+    private static final String PREFIX = "prefix";
+
+    private static final String AND = "AND";
+
+    private static final String WHERE_AND = " and ";
+
+    private static final String WHERE_AND_GROUP = " and (";
+
+    private static final String COMMA = ", ";
+
+    private static final String JOIN_OBJECT = ".id.id and ";
+
+    private static final String VALUE = ".value";
+
+    /**
+     * The document fields that are sorted on their raw value rather than as strings.
+     */
+    private static final Set<String> RAW_DOCUMENT_FIELDS =
+        Set.of("translation", "date", "contentUpdateDate", "creationDate", "elements", "minorEdit1", "hidden");
+
+    /**
+     * The property types that have unique values by design and thus are sorted on their raw value.
+     */
+    private static final Set<String> RAW_PROPERTY_TYPES =
+        Set.of(NUMBER_CLASS, BOOLEAN_CLASS, DATE_CLASS, "LevelsClass");
+
+    /**
+     * The tables where the values of the (single value) property types are stored, when not {@code StringProperty}.
+     */
+    private static final Map<String, String> TABLE_NAMES = Map.of(BOOLEAN_CLASS, INTEGER_PROPERTY, DATE_CLASS,
+        DATE_PROPERTY, "TextAreaClass", LARGE_STRING_PROPERTY, "UsersClass", LARGE_STRING_PROPERTY, "GroupsClass",
+        LARGE_STRING_PROPERTY);
+
+    /**
+     * The list property types which can store multiple values.
+     */
+    private static final Set<String> LIST_TYPES = Set.of("StaticListClass", "DBListClass", "DBTreeListClass",
+        "PageClass");
+
+    /**
+     * The document fields that are filtered using a location or a date range, which is not supported here.
+     */
+    private static final Set<String> UNSUPPORTED_DOCUMENT_FILTERS =
+        Set.of(DOC_LOCATION, "doc.date", "doc.creationDate", "doc.contentUpdateDate");
+
+    @Inject
+    private QueryManager queryManager;
+
+    /**
+     * The from and where clauses of the query being built, with their parameters.
+     */
+    private static final class QueryParts
+    {
+        private final StringBuilder from = new StringBuilder();
+
+        private final StringBuilder where = new StringBuilder();
+
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        private final Set<String> filteredColumns = new HashSet<>();
+
+        private String order = "";
+    }
+
+    /**
+     * @param column a live data property (live table column)
+     * @param xclass the XClass displayed by the live table
+     * @return {@code true} if the values of the given column can be computed without the live table results macros
+     */
+    public boolean isSupportedColumn(String column, BaseClass xclass)
+    {
+        if (column.startsWith(DOC_PREFIX)) {
+            // The location is displayed as an HTML breadcrumb rendered by a Velocity macro.
+            return !DOC_LOCATION.equals(column);
+        }
+
+        // Email values are obfuscated depending on the mail configuration.
+        return !SPECIAL_COLUMNS.contains(column) && !EMAIL.equals(column)
+            && !isPropertyType(xclass, column, EMAIL_TYPE);
+    }
+
+    /**
+     * Build the query that returns the (local) full names of the documents matching the given live data query.
+     *
+     * @param query the live data query
+     * @param className the name of the XClass, as specified in the live data source parameters
+     * @param xclass the XClass displayed by the live table
+     * @return the query, or {@link Optional#empty()} if one of the columns, filters or sort is not supported
+     * @throws QueryException if creating the query fails
+     */
+    public Optional<Query> build(LiveDataQuery query, String className, BaseClass xclass) throws QueryException
+    {
+        QueryParts parts = new QueryParts();
+
+        for (String column : query.getProperties()) {
+            if (!isSupportedColumn(column, xclass)) {
+                return Optional.empty();
+            }
+            // Password properties are not filtered.
+            if (!isPropertyType(xclass, column, PASSWORD_TYPE) && !addColumnToQuery(column, query, xclass, parts)) {
+                return Optional.empty();
+            }
+        }
+
+        if (!addOrder(query, xclass, parts)) {
+            return Optional.empty();
+        }
+
+        String statement = ", BaseObject as obj" + parts.from
+            + " where obj.name=doc.fullName and obj.className = :className"
+            + " and doc.fullName not in (:classTemplate1, :classTemplate2)" + parts.where + parts.order;
+
+        Query hqlQuery = this.queryManager.createQuery(statement, Query.HQL);
+        hqlQuery.bindValue("className", className);
+        hqlQuery.bindValue("classTemplate1", className + TEMPLATE);
+        hqlQuery.bindValue("classTemplate2", className.replaceAll("Class$", TEMPLATE));
+        for (Map.Entry<String, Object> parameter : parts.parameters.entrySet()) {
+            hqlQuery.bindValue(parameter.getKey(), parameter.getValue());
+        }
+
+        return Optional.of(hqlQuery);
+    }
+
+    private boolean addColumnToQuery(String column, LiveDataQuery query, BaseClass xclass, QueryParts parts)
+    {
+        Filter filter = getFilter(column, query);
+        List<Constraint> constraints = filter != null ? filter.getConstraints().stream()
+            .filter(constraint -> constraint != null && constraint.getValue() != null).collect(Collectors.toList())
+            : List.of();
+        if (constraints.isEmpty()) {
+            return true;
+        }
+
+        // Same conversion as the one done by LiveTableRequestHandler.
+        List<String> matchTypes = constraints.stream()
+            .map(constraint -> LiveTableRequestHandler.MATCH_TYPE.getOrDefault(constraint.getOperator(),
+                StringUtils.defaultString(constraint.getOperator())))
+            .collect(Collectors.toList());
+        List<String> values = IntStream.range(0, constraints.size())
+            .mapToObj(i -> EMPTY.equals(matchTypes.get(i)) ? "-" : constraints.get(i).getValue().toString())
+            .collect(Collectors.toList());
+        if (values.get(0).isEmpty()) {
+            // The live table results macros ignore the filter when its first value is empty.
+            return true;
+        }
+        String joinOperator = filter.isMatchAll() ? AND : "OR";
+
+        parts.filteredColumns.add(column);
+
+        boolean supported;
+        if (column.startsWith(DOC_PREFIX)) {
+            supported = filterDocumentField(column, values, parts);
+        } else if (xclass.get(column) instanceof PropertyClass) {
+            supported = filterProperty(column, (PropertyClass) xclass.get(column), values, matchTypes, joinOperator,
+                parts);
+        } else {
+            supported = false;
+        }
+
+        return supported;
+    }
+
+    private Filter getFilter(String column, LiveDataQuery query)
+    {
+        Filter filter = null;
+        if (query.getFilters() != null) {
+            // The last filter wins, as when the filters are converted to request parameters.
+            for (Filter candidate : query.getFilters()) {
+                if (Objects.equals(column, candidate.getProperty())) {
+                    filter = candidate;
+                }
+            }
+        }
+
+        return filter;
+    }
+
+    private boolean filterDocumentField(String column, List<String> values, QueryParts parts)
+    {
+        if (UNSUPPORTED_DOCUMENT_FILTERS.contains(column)) {
+            return false;
+        }
+
+        String safeColumn = column.replaceAll("[^a-zA-Z0-9_.]", "").replace('_', '.');
+        String parameter = safeColumn.replace('.', '_') + "_filter";
+        parts.where.append(" and upper(str(").append(safeColumn).append(")) like upper(:").append(parameter)
+            .append(')');
+        parts.parameters.put(parameter, '%' + values.get(0) + '%');
+
+        return true;
+    }
+
+    private boolean filterProperty(String column, PropertyClass propertyClass, List<String> values,
+        List<String> matchTypes, String joinOperator, QueryParts parts)
+    {
+        String alias = getPropertyAlias(column);
+        String tableName = getTableName(propertyClass);
+        String nameParameter = alias + "_id_name";
+        parts.from.append(COMMA).append(tableName).append(" as ").append(alias);
+        parts.where.append(" and obj.id = ").append(alias).append(JOIN_OBJECT).append(alias)
+            .append(".id.name = :").append(nameParameter);
+        parts.parameters.put(nameParameter, column);
+
+        boolean supported = true;
+        switch (tableName) {
+            case INTEGER_PROPERTY:
+            case LONG_PROPERTY:
+            case FLOAT_PROPERTY:
+            case DOUBLE_PROPERTY:
+                supported = filterNumberProperty(alias, tableName, values.get(0), parts);
+                break;
+            case DATE_PROPERTY:
+                // Date ranges are parsed by a Velocity macro.
+                supported = false;
+                break;
+            case DB_STRING_LIST_PROPERTY:
+                filterDBStringListProperty(alias, values, matchTypes.get(0), joinOperator, parts);
+                break;
+            case STRING_LIST_PROPERTY:
+                filterStringListProperty(alias, values, matchTypes, joinOperator, parts);
+                break;
+            default:
+                filterStringProperty(alias, values, matchTypes, joinOperator, parts);
+        }
+
+        return supported;
+    }
+
+    private boolean filterNumberProperty(String alias, String tableName, String value, QueryParts parts)
+    {
+        if (!NumberUtils.isCreatable(value)) {
+            return false;
+        }
+
+        Number number = NumberUtils.createNumber(value);
+        String parameter = alias + "_value";
+        if (INTEGER_PROPERTY.equals(tableName) || LONG_PROPERTY.equals(tableName)) {
+            parts.where.append(WHERE_AND).append(alias).append(VALUE).append(" = :").append(parameter);
+            parts.parameters.put(parameter,
+                LONG_PROPERTY.equals(tableName) ? (Object) number.longValue() : (Object) number.intValue());
+        } else {
+            parts.where.append(" and abs(:").append(parameter).append(" - ").append(alias)
+                .append(".value) <= 0.000001");
+            parts.parameters.put(parameter,
+                FLOAT_PROPERTY.equals(tableName) ? (Object) number.floatValue() : (Object) number.doubleValue());
+        }
+
+        return true;
+    }
+
+    private void filterDBStringListProperty(String alias, List<String> values, String firstMatchType,
+        String joinOperator, QueryParts parts)
+    {
+        String matchType = firstMatchType;
+        String matchTarget;
+        String parameterPrefix;
+        if (PARTIAL.equals(matchType) || PREFIX.equals(matchType)) {
+            // Join with the list of values in order to be able to use the like operator.
+            matchTarget = alias + "_item";
+            parameterPrefix = alias + "_item_";
+            parts.from.append(" join ").append(alias).append(".list as ").append(matchTarget);
+        } else {
+            // Fall-back on exact matching when the match type is not supported.
+            matchType = "exact";
+            matchTarget = alias + ".list";
+            parameterPrefix = alias + "_list_";
+        }
+
+        parts.where.append(WHERE_AND_GROUP).append(getFilterQuery(matchTarget, matchType, true, values.size(),
+            parameterPrefix, 1, joinOperator)).append(')');
+        for (int i = 0; i < values.size(); i++) {
+            parts.parameters.put(parameterPrefix + (i + 1), getFilterParameter(values.get(i), matchType));
+        }
+    }
+
+    private void filterStringListProperty(String alias, List<String> values, List<String> matchTypes,
+        String joinOperator, QueryParts parts)
+    {
+        // The values are stored concatenated so we have to use the like operator even for exact matching.
+        String matchTarget = "concat('|', concat(" + alias + ".textValue, '|'))";
+        String parameterPrefix = alias + "_textValue_";
+
+        parts.where.append(WHERE_AND_GROUP).append(getFilterQuery(matchTarget, PARTIAL, false, values.size(),
+            parameterPrefix, 1, joinOperator)).append(')');
+        for (int i = 0; i < values.size(); i++) {
+            String value = EMPTY.equals(matchTypes.get(i)) ? "" : values.get(i);
+            parts.parameters.put(parameterPrefix + (i + 1), "%|" + value + "|%");
+        }
+    }
+
+    private void filterStringProperty(String alias, List<String> values, List<String> matchTypes,
+        String joinOperator, QueryParts parts)
+    {
+        // Group the filter values by match type so that we can optimize the query.
+        Map<String, List<String>> valuesByMatchType = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            valuesByMatchType.computeIfAbsent(matchTypes.get(i), key -> new ArrayList<>()).add(values.get(i));
+        }
+
+        String parameterPrefix = alias + "_value_";
+        List<String> constraints = new ArrayList<>();
+        int parameterOffset = 1;
+        for (Map.Entry<String, List<String>> entry : valuesByMatchType.entrySet()) {
+            constraints.add(getFilterQuery(alias + VALUE, entry.getKey(), false, entry.getValue().size(),
+                parameterPrefix, parameterOffset, joinOperator));
+            for (String value : entry.getValue()) {
+                parts.parameters.put(parameterPrefix + parameterOffset++, getFilterParameter(value, entry.getKey()));
+            }
+        }
+
+        parts.where.append(WHERE_AND_GROUP).append(StringUtils.join(constraints, ' ' + joinOperator + ' '))
+            .append(')');
+    }
+
+    private String getFilterQuery(String column, String matchType, boolean isList, int valueCount,
+        String parameterPrefix, int parameterOffset, String joinOperator)
+    {
+        String separator = ' ' + joinOperator + ' ';
+        IntFunction<String> parameter = i -> ':' + parameterPrefix + (parameterOffset + i);
+        String filterQuery;
+        if (PARTIAL.equals(matchType) || PREFIX.equals(matchType)) {
+            filterQuery = repeat(i -> "upper(" + column + ") like upper(" + parameter.apply(i) + ')', separator,
+                valueCount);
+        } else if (EMPTY.equals(matchType)) {
+            // Oracle stores the empty string as a NULL value.
+            filterQuery = repeat(i -> '(' + column + " like " + parameter.apply(i) + " or " + column + " is null)",
+                separator, valueCount);
+        } else if (isList) {
+            filterQuery = repeat(i -> parameter.apply(i) + " in elements(" + column + ')', separator, valueCount);
+        } else if (valueCount > 1 && !AND.equals(joinOperator)) {
+            filterQuery = column + " in (" + repeat(parameter, COMMA, valueCount) + ')';
+        } else {
+            filterQuery = repeat(i -> column + " = " + parameter.apply(i), " AND ", valueCount);
+        }
+
+        return filterQuery;
+    }
+
+    private String repeat(IntFunction<String> constraint, String separator, int count)
+    {
+        return IntStream.range(0, count).mapToObj(constraint).collect(Collectors.joining(separator));
+    }
+
+    private Object getFilterParameter(String value, String matchType)
+    {
+        Object parameter;
+        if (PARTIAL.equals(matchType)) {
+            parameter = '%' + value + '%';
+        } else if (PREFIX.equals(matchType)) {
+            parameter = value + '%';
+        } else if (EMPTY.equals(matchType)) {
+            parameter = "";
+        } else {
+            parameter = value;
+        }
+
+        return parameter;
+    }
+
+    private boolean addOrder(LiveDataQuery query, BaseClass xclass, QueryParts parts)
+    {
+        if (query.getSort() == null || query.getSort().isEmpty()) {
+            return true;
+        }
+
+        // The live table results macros support only one sort entry.
+        SortEntry sortEntry = query.getSort().get(0);
+        String order = StringUtils.defaultString(sortEntry.getProperty());
+        if (DOC_LOCATION.equals(order)) {
+            order = "doc.fullName";
+        }
+        if (order.isEmpty()) {
+            return true;
+        }
+        String direction = sortEntry.isDescending() ? "desc" : "asc";
+
+        if (order.startsWith(DOC_PREFIX)) {
+            String documentField = StringUtils.removeStart(order, DOC_PREFIX);
+            String field = DOC_PREFIX + documentField.replaceAll(NON_WORD, "").replace('_', '.');
+            parts.order = getOrderClause(field, direction, RAW_DOCUMENT_FIELDS.contains(documentField));
+        } else if (!EMAIL.equals(order) && xclass.get(order) instanceof PropertyClass) {
+            PropertyClass propertyClass = (PropertyClass) xclass.get(order);
+            // Multiple values can't be sorted.
+            if (!(propertyClass instanceof ListClass && ((ListClass) propertyClass).isMultiSelect())) {
+                String alias = getPropertyAlias(order);
+                if (!parts.filteredColumns.contains(order)) {
+                    String nameParameter = alias + "_name";
+                    parts.from.append(COMMA).append(getTableName(propertyClass)).append(' ').append(alias);
+                    parts.where.append(" and obj.id=").append(alias).append(JOIN_OBJECT).append(alias)
+                        .append(".name = :").append(nameParameter);
+                    parts.parameters.put(nameParameter, order);
+                }
+                parts.order = getOrderClause(alias + VALUE, direction,
+                    RAW_PROPERTY_TYPES.contains(propertyClass.getClass().getSimpleName()));
+            }
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    private String getOrderClause(String field, String direction, boolean useRawValue)
+    {
+        if (useRawValue) {
+            return " order by " + field + ' ' + direction;
+        } else {
+            // Ignore the case first (so that 'aaa' equals 'AAA') but then consider it for equal values (so that 'AAA'
+            // comes before 'aaa').
+            return " order by lower(" + field + ") " + direction + COMMA + field + ' ' + direction;
+        }
+    }
+
+    private String getPropertyAlias(String column)
+    {
+        // Force a prefix to avoid the cases when the column name is a reserved SQL keyword.
+        return PROPERTY_ALIAS_PREFIX + column.replaceAll(NON_WORD, "");
+    }
+
+    private String getTableName(PropertyClass propertyClass)
+    {
+        String propertyType = propertyClass.getClass().getSimpleName();
+        String tableName;
+        if (NUMBER_CLASS.equals(propertyType)) {
+            String numberType = ((NumberClass) propertyClass).getNumberType();
+            if ("integer".equals(numberType)) {
+                tableName = INTEGER_PROPERTY;
+            } else if ("float".equals(numberType)) {
+                tableName = FLOAT_PROPERTY;
+            } else if ("double".equals(numberType)) {
+                tableName = DOUBLE_PROPERTY;
+            } else {
+                tableName = LONG_PROPERTY;
+            }
+        } else if (LIST_TYPES.contains(propertyType) && ((ListClass) propertyClass).isMultiSelect()) {
+            tableName = ((ListClass) propertyClass).isRelationalStorage() ? DB_STRING_LIST_PROPERTY
+                : STRING_LIST_PROPERTY;
+        } else {
+            tableName = TABLE_NAMES.getOrDefault(propertyType, STRING_PROPERTY);
+        }
+
+        return tableName;
+    }
+
+    private boolean isPropertyType(BaseClass xclass, String column, String classType)
+    {
+        return xclass.get(column) instanceof PropertyClass
+            && classType.equals(((PropertyClass) xclass.get(column)).getClassType());
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveData;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.localization.ContextualLocalizationManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.user.CurrentUserReference;
+import org.xwiki.user.UserPropertiesResolver;
+import org.xwiki.user.UserType;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.ListClass;
+import com.xpn.xwiki.objects.classes.PropertyClass;
+
+/**
+ * Computes the live data of a table listing the objects of an XClass directly in Java, without rendering the default
+ * {@code XWiki.LiveTableResults} page and parsing the JSON it produces. The entries have the same properties as the
+ * rows produced by the {@code #gridresult_buildRowJSON} Velocity macro, with the {@code doc_} prefix replaced by
+ * {@code doc.}.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = LiveTableXClassResultsProvider.class)
+@Singleton
+public class LiveTableXClassResultsProvider
+{
+    static final String CLASS_NAME = "className";
+
+    static final String TRANSLATION_PREFIX = "translationPrefix";
+
+    /**
+     * The source parameters understood by the default live table results page (apart from the ones used by the
+     * filters, which are not supported here).
+     */
+    private static final Set<String> SUPPORTED_SOURCE_PARAMETERS = Set.of(CLASS_NAME, TRANSLATION_PREFIX);
+
+    private static final int DEFAULT_LIMIT = 15;
+
+    private static final String VIEW = "view";
+
+    private static final String DOC_VIEWABLE = "doc.viewable";
+
+    private static final String DOC_FULL_NAME = "doc.fullName";
+
+    @Inject
+    private LiveTableXClassQueryBuilder queryBuilder;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("count")
+    private QueryFilter countFilter;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Inject
+    private ContextualLocalizationManager localization;
+
+    @Inject
+    @Named("all")
+    private UserPropertiesResolver userPropertiesResolver;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    /**
+     * The information shared by all the rows.
+     */
+    private static final class RowsContext
+    {
+        private BaseClass xclass;
+
+        private Set<DocumentReference> editable;
+
+        private Set<DocumentReference> deletable;
+
+        private boolean hasAdmin;
+
+        private boolean isAdvancedUser;
+
+        private String emptyValue;
+    }
+
+    /**
+     * @param query the live data query, with the source parameters of the live data source
+     * @return the live data, or {@link Optional#empty()} if the query is not targeting the objects of an XClass or if
+     *     it uses a column, a filter or a sort that requires the live table results macros
+     * @throws XWikiException if loading the documents fails
+     * @throws QueryException if executing the query fails
+     */
+    public Optional<LiveData> get(LiveDataQuery query) throws XWikiException, QueryException
+    {
+        Map<String, Object> parameters = query.getSource().getParameters();
+        Object className = parameters.get(CLASS_NAME);
+        Object translationPrefix = parameters.getOrDefault(TRANSLATION_PREFIX, "");
+        if (query.getProperties() == null || !SUPPORTED_SOURCE_PARAMETERS.containsAll(parameters.keySet())
+            || !(className instanceof String) || StringUtils.isBlank((String) className)
+            || !(translationPrefix instanceof String)) {
+            return Optional.empty();
+        }
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        XWikiDocument classDocument =
+            xcontext.getWiki().getDocument(this.currentDocumentReferenceResolver.resolve((String) className), xcontext);
+        if (classDocument.isNew()) {
+            return Optional.empty();
+        }
+
+        Optional<Query> hqlQuery = this.queryBuilder.build(query, (String) className, classDocument.getXClass());
+        if (hqlQuery.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(getLiveData(hqlQuery.get(), query, classDocument.getXClass(), (String) translationPrefix));
+    }
+
+    private LiveData getLiveData(Query hqlQuery, LiveDataQuery query, BaseClass xclass, String translationPrefix)
+        throws XWikiException, QueryException
+    {
+        Query countQuery =
+            this.queryManager.createQuery(hqlQuery.getStatement(), Query.HQL).addFilter(this.countFilter);
+        for (Map.Entry<String, Object> parameter : hqlQuery.getNamedParameters().entrySet()) {
+            countQuery.bindValue(parameter.getKey(), parameter.getValue());
+        }
+
+        int offset = query.getOffset() != null ? Math.max(query.getOffset().intValue(), 0) : 0;
+        int limit = query.getLimit() != null ? query.getLimit() : DEFAULT_LIMIT;
+        List<String> items = hqlQuery.setOffset(offset).setLimit(limit).<String>execute();
+        long count = countQuery.<Long>execute().get(0);
+
+        List<DocumentReference> references = items.stream().map(this.currentDocumentReferenceResolver::resolve)
+            .collect(Collectors.toList());
+        // Check the rights in bulk so that the evaluation of the documents sharing the same space is shared.
+        List<DocumentReference> viewable = this.authorization.filterAccessible(Right.VIEW, references);
+        RowsContext rowsContext = getRowsContext(xclass, viewable, translationPrefix);
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        Set<DocumentReference> viewableSet = new HashSet<>(viewable);
+        for (DocumentReference reference : references) {
+            if (viewableSet.contains(reference)) {
+                entries.add(getEntry(reference, query.getProperties(), rowsContext));
+            } else {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put(DOC_VIEWABLE, false);
+                entry.put(DOC_FULL_NAME, "obfuscated");
+                entries.add(entry);
+            }
+        }
+
+        // Remove the obfuscated entries when this has no impact on the pagination, like #livetable_filterObfuscated.
+        int returnedRows = limit > 0 ? Math.min(items.size(), limit) : items.size();
+        if (count <= returnedRows) {
+            entries.removeIf(entry -> Boolean.FALSE.equals(entry.get(DOC_VIEWABLE)));
+            count = (long) entries.size() + offset;
+        }
+
+        LiveData liveData = new LiveData();
+        liveData.setCount(count);
+        liveData.getEntries().addAll(entries);
+
+        return liveData;
+    }
+
+    private RowsContext getRowsContext(BaseClass xclass, List<DocumentReference> viewable, String translationPrefix)
+    {
+        RowsContext rowsContext = new RowsContext();
+        rowsContext.xclass = xclass;
+        rowsContext.editable = new HashSet<>(this.authorization.filterAccessible(Right.EDIT, viewable));
+        rowsContext.deletable = new HashSet<>(this.authorization.filterAccessible(Right.DELETE, viewable));
+        rowsContext.hasAdmin = this.authorization.hasAccess(Right.ADMIN);
+        // Same as the $isAdvancedUser variable from xwikivars.vm.
+        rowsContext.isAdvancedUser = (this.xcontextProvider.get().getUserReference() == null && rowsContext.hasAdmin)
+            || this.userPropertiesResolver.resolve(CurrentUserReference.INSTANCE).getType() == UserType.ADVANCED;
+        rowsContext.emptyValue = this.localization.getTranslationPlain(translationPrefix + "emptyvalue");
+
+        return rowsContext;
+    }
+
+    private Map<String, Object> getEntry(DocumentReference reference, List<String> columns, RowsContext rowsContext)
+        throws XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        XWiki xwiki = xcontext.getWiki();
+        boolean hasEdit = rowsContext.editable.contains(reference);
+        boolean hasDelete = rowsContext.deletable.contains(reference);
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put(DOC_VIEWABLE, true);
+        entry.put(DOC_FULL_NAME, this.localSerializer.serialize(reference));
+        entry.put("doc.space", this.localSerializer.serialize(reference.getParent()));
+        entry.put("doc.url", xwiki.getURL(reference, VIEW, xcontext));
+        entry.put("doc.space_url", xwiki.getURL(reference.getParent(), VIEW, xcontext));
+        entry.put("doc.wiki", reference.getWikiReference().getName());
+        entry.put("doc.wiki_url", xwiki.getURL(reference.getWikiReference(), VIEW, xcontext));
+        entry.put("doc.hasadmin", rowsContext.hasAdmin);
+        entry.put("doc.hasedit", hasEdit);
+        entry.put("doc.hasdelete", hasDelete);
+        entry.put("doc.copy_url", xwiki.getURL(reference, VIEW, "xpage=copy", null, xcontext));
+        entry.put("doc.delete_url", xwiki.getURL(reference, "delete", xcontext));
+        entry.put("doc.rename_url", xwiki.getURL(reference, VIEW, "xpage=rename&step=1", null, xcontext));
+        entry.put("doc.name", reference.getName());
+        entry.put("doc.hascopy", true);
+        entry.put("doc.hasrename", hasDelete);
+        entry.put("doc.hasrights", hasEdit && rowsContext.isAdvancedUser);
+        String rightsURL;
+        if ("WebHome".equals(reference.getName())) {
+            // For nested pages, use the page administration.
+            DocumentReference webPreferencesReference =
+                new DocumentReference("WebPreferences", reference.getLastSpaceReference());
+            rightsURL = xwiki.getURL(webPreferencesReference, "admin", "editor=spaceadmin&section=PageRights", null,
+                xcontext);
+        } else {
+            // For terminal pages, use the old rights editor.
+            rightsURL = xwiki.getURL(reference, "edit", "editor=rights", null, xcontext);
+        }
+        entry.put("doc.rights_url", rightsURL);
+
+        XWikiDocument document = xwiki.getDocument(reference, xcontext);
+        addDocumentProperties(document, rowsContext.xclass.getDocumentReference(), entry, xcontext);
+
+        BaseObject object = document.getXObject(rowsContext.xclass.getDocumentReference());
+        for (String column : columns) {
+            if (!column.startsWith(LiveTableXClassQueryBuilder.DOC_PREFIX)) {
+                addProperty(column, document, object, rowsContext, entry, xcontext);
+            }
+        }
+
+        return entry;
+    }
+
+    private void addDocumentProperties(XWikiDocument document, DocumentReference classReference,
+        Map<String, Object> entry, XWikiContext xcontext) throws XWikiException
+    {
+        XWiki xwiki = xcontext.getWiki();
+        XWikiDocument translatedDocument = document.getTranslatedDocument(xcontext);
+
+        entry.put("doc.objectCount", document.getXObjectSize(classReference));
+        entry.put("doc.edit_url", document.getURL(document.getDefaultEditMode(xcontext), xcontext));
+        entry.put("doc.date", xwiki.formatDate(translatedDocument.getDate(), null, xcontext));
+        String title = translatedDocument.getRenderedTitle(Syntax.PLAIN_1_0, xcontext);
+        entry.put("doc.title", title);
+        if (!Objects.equals(translatedDocument.getTitle(), title)) {
+            entry.put("doc.title_raw", translatedDocument.getTitle());
+        }
+        // The guest author is displayed as an unknown user.
+        DocumentReference authorReference = translatedDocument.getAuthorReference();
+        entry.put("doc.author", xwiki.getPlainUserName(authorReference, xcontext));
+        entry.put("doc.author_url", authorReference != null ? xwiki.getURL(authorReference, VIEW, xcontext) : null);
+        entry.put("doc.creationDate", xwiki.formatDate(translatedDocument.getCreationDate(), null, xcontext));
+        entry.put("doc.creator", xwiki.getPlainUserName(translatedDocument.getCreatorReference(), xcontext));
+        entry.put("doc.hidden", translatedDocument.isHidden());
+    }
+
+    private void addProperty(String column, XWikiDocument document, BaseObject object, RowsContext rowsContext,
+        Map<String, Object> entry, XWikiContext xcontext)
+    {
+        PropertyClass propertyClass = rowsContext.xclass.get(column) instanceof PropertyClass
+            ? (PropertyClass) rowsContext.xclass.get(column) : null;
+        BaseProperty<?> property = object != null ? (BaseProperty<?>) object.safeget(column) : null;
+
+        String value;
+        if (property == null) {
+            value = "";
+        } else if (propertyClass != null
+            && LiveTableXClassQueryBuilder.PASSWORD_TYPE.equals(propertyClass.getClassType())) {
+            value = "********";
+        } else {
+            value = Objects.toString(property.getValue(), "");
+        }
+
+        // We are not in the rendering engine so the displayed value is not wrapped in an HTML macro.
+        String displayValue = object != null ? document.display(column, VIEW, object, xcontext) : "";
+        if (displayValue.isEmpty()) {
+            displayValue = rowsContext.emptyValue;
+        }
+
+        // Only retrieve an URL for a single value DBListClass or PageClass item.
+        String url = "";
+        if (propertyClass != null && !value.isEmpty()
+            && ("DBListClass".equals(propertyClass.getClass().getSimpleName())
+                || "PageClass".equals(propertyClass.getClass().getSimpleName()))
+            && !((ListClass) propertyClass).isMultiSelect()) {
+            url = xcontext.getWiki().getURL(this.currentDocumentReferenceResolver.resolve(value), VIEW, xcontext);
+        }
+
+        entry.put(column, displayValue);
+        entry.put(column + "_value", value);
+        entry.put(column + "_url", url);
+    }
+}
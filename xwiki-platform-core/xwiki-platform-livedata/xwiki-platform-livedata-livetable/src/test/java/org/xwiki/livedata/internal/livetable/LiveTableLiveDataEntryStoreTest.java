@@ -50,11 +50,14 @@
 
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -75,6 +78,9 @@
     @MockComponent
     private LiveTableLiveDataResultsRenderer resultsRenderer;
 
+    @MockComponent
+    private LiveTableXClassResultsProvider xclassResultsProvider;
+
     @MockComponent
     @Named("current")
     private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
@@ -177,6 +183,26 @@ void getFromDefaultResultPage() throws Exception
         assertEquals(expectedLiveData, this.entryStore.get(new LiveDataQuery()));
     }
 
+    @Test
+    void getFromXClass() throws Exception
+    {
+        this.entryStore.getParameters().put("className", "Space.StatusClass");
+
+        LiveDataQuery query = new LiveDataQuery();
+        LiveData liveData = new LiveData();
+        liveData.setCount(5);
+        when(this.xclassResultsProvider.get(any())).then(invocation -> {
+            // The source parameters are merged with the query source parameters.
+            assertEquals("Space.StatusClass", query.getSource().getParameters().get("className"));
+            return Optional.of(liveData);
+        });
+
+        assertSame(liveData, this.entryStore.get(query));
+        // The original query source is restored.
+        assertNull(query.getSource());
+        verifyNoInteractions(this.resultsRenderer);
+    }
+
     @Test
     void getFromDefaultResultPageWithInvalidJSON() throws Exception
     {
@@ -0,0 +1,182 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.DateClass;
+import com.xpn.xwiki.objects.classes.EmailClass;
+import com.xpn.xwiki.objects.classes.NumberClass;
+import com.xpn.xwiki.objects.classes.PasswordClass;
+import com.xpn.xwiki.objects.classes.StaticListClass;
+import com.xpn.xwiki.objects.classes.StringClass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link LiveTableXClassQueryBuilder}.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@ComponentTest
+class LiveTableXClassQueryBuilderTest
+{
+    private static final String CLASS_NAME = "Space.StatusClass";
+
+    private static final String FROM_WHERE = ", BaseObject as obj%s where obj.name=doc.fullName"
+        + " and obj.className = :className and doc.fullName not in (:classTemplate1, :classTemplate2)%s";
+
+    @InjectMockComponents
+    private LiveTableXClassQueryBuilder queryBuilder;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @Mock
+    private BaseClass xclass;
+
+    @Mock
+    private Query query;
+
+    private final LiveDataQuery liveDataQuery = new LiveDataQuery();
+
+    @BeforeEach
+    void configure() throws Exception
+    {
+        this.liveDataQuery.initialize();
+        when(this.queryManager.createQuery(any(), any())).thenReturn(this.query);
+
+        when(this.xclass.get("status")).thenReturn(new StringClass());
+        NumberClass countClass = new NumberClass();
+        countClass.setNumberType("integer");
+        when(this.xclass.get("count")).thenReturn(countClass);
+        StaticListClass tagsClass = new StaticListClass();
+        tagsClass.setMultiSelect(true);
+        when(this.xclass.get("tags")).thenReturn(tagsClass);
+        when(this.xclass.get("deadline")).thenReturn(new DateClass());
+        when(this.xclass.get("secret")).thenReturn(new PasswordClass());
+        when(this.xclass.get("contact")).thenReturn(new EmailClass());
+    }
+
+    @Test
+    void buildWithFiltersAndSort() throws Exception
+    {
+        this.liveDataQuery.setProperties(List.of("doc.title", "status", "count", "secret", "_actions"));
+        this.liveDataQuery.getFilters().add(new Filter("doc.title", "contains", "Release"));
+        this.liveDataQuery.getFilters().add(new Filter("status", "startsWith", "pub"));
+        this.liveDataQuery.getFilters().add(new Filter("count", "equals", "3"));
+        this.liveDataQuery.getFilters().add(new Filter("secret", "equals", "ignored"));
+        this.liveDataQuery.getSort().add(new SortEntry("count", true));
+
+        assertSame(this.query, this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass).get());
+
+        verify(this.queryManager).createQuery(String.format(FROM_WHERE,
+            ", StringProperty as prop_status, IntegerProperty as prop_count",
+            " and upper(str(doc.title)) like upper(:doc_title_filter)"
+                + " and obj.id = prop_status.id.id and prop_status.id.name = :prop_status_id_name"
+                + " and (upper(prop_status.value) like upper(:prop_status_value_1))"
+                + " and obj.id = prop_count.id.id and prop_count.id.name = :prop_count_id_name"
+                + " and prop_count.value = :prop_count_value order by prop_count.value desc"),
+            Query.HQL);
+        verify(this.query).bindValue("className", CLASS_NAME);
+        verify(this.query).bindValue("classTemplate1", "Space.StatusClassTemplate");
+        verify(this.query).bindValue("classTemplate2", "Space.StatusTemplate");
+        verify(this.query).bindValue("doc_title_filter", "%Release%");
+        verify(this.query).bindValue("prop_status_id_name", "status");
+        verify(this.query).bindValue("prop_status_value_1", "pub%");
+        verify(this.query).bindValue("prop_count_id_name", "count");
+        verify(this.query).bindValue("prop_count_value", 3);
+    }
+
+    @Test
+    void buildWithMultipleValuesAndUnfilteredSort() throws Exception
+    {
+        this.liveDataQuery.setProperties(List.of("tags", "status"));
+        this.liveDataQuery.getFilters().add(new Filter("tags", "equals", false, "a", "b"));
+        this.liveDataQuery.getSort().add(new SortEntry("status"));
+
+        assertTrue(this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass).isPresent());
+
+        String tags = "upper(concat('|', concat(prop_tags.textValue, '|'))) like upper(:prop_tags_textValue_%s)";
+        verify(this.queryManager).createQuery(String.format(FROM_WHERE,
+            ", StringListProperty as prop_tags, StringProperty prop_status",
+            " and obj.id = prop_tags.id.id and prop_tags.id.name = :prop_tags_id_name"
+                + " and (" + String.format(tags, 1) + " OR " + String.format(tags, 2) + ")"
+                + " and obj.id=prop_status.id.id and prop_status.name = :prop_status_name"
+                + " order by lower(prop_status.value) asc, prop_status.value asc"),
+            Query.HQL);
+        verify(this.query).bindValue("prop_tags_textValue_1", "%|a|%");
+        verify(this.query).bindValue("prop_tags_textValue_2", "%|b|%");
+        verify(this.query).bindValue("prop_status_name", "status");
+    }
+
+    @Test
+    void buildWithUnsupportedColumns() throws Exception
+    {
+        this.liveDataQuery.setProperties(List.of("doc.location"));
+        assertEquals(Optional.empty(), this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass));
+
+        this.liveDataQuery.setProperties(List.of("contact"));
+        assertEquals(Optional.empty(), this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass));
+
+        this.liveDataQuery.setProperties(List.of("_avatar"));
+        assertEquals(Optional.empty(), this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass));
+
+        verifyNoInteractions(this.queryManager);
+        assertFalse(this.queryBuilder.isSupportedColumn("email", this.xclass));
+        assertTrue(this.queryBuilder.isSupportedColumn("_actions", this.xclass));
+    }
+
+    @Test
+    void buildWithUnsupportedFilters() throws Exception
+    {
+        this.liveDataQuery.setProperties(List.of("deadline", "doc.date"));
+        this.liveDataQuery.getFilters().add(new Filter("deadline", "before", "2023-07-01"));
+        assertEquals(Optional.empty(), this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass));
+
+        this.liveDataQuery.getFilters().clear();
+        this.liveDataQuery.getFilters().add(new Filter("doc.date", "between", "2023-06-01/2023-07-01"));
+        assertEquals(Optional.empty(), this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass));
+
+        verifyNoInteractions(this.queryManager);
+    }
+}
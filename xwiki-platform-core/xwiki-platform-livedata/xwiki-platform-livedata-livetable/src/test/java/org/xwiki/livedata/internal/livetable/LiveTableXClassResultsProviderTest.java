@@ -0,0 +1,260 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.livedata.LiveData;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Source;
+import org.xwiki.localization.ContextualLocalizationManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.CurrentUserReference;
+import org.xwiki.user.UserProperties;
+import org.xwiki.user.UserPropertiesResolver;
+import org.xwiki.user.UserType;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.StringProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.StringClass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link LiveTableXClassResultsProvider}.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@ComponentTest
+class LiveTableXClassResultsProviderTest
+{
+    private static final String CLASS_NAME = "Space.StatusClass";
+
+    private static final DocumentReference CLASS_REFERENCE = new DocumentReference("wiki", "Space", "StatusClass");
+
+    private static final DocumentReference FIRST_REFERENCE = new DocumentReference("wiki", "Space", "First");
+
+    private static final DocumentReference SECOND_REFERENCE = new DocumentReference("wiki", "Space", "Second");
+
+    @InjectMockComponents
+    private LiveTableXClassResultsProvider resultsProvider;
+
+    @MockComponent
+    private LiveTableXClassQueryBuilder queryBuilder;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("count")
+    private QueryFilter countFilter;
+
+    @MockComponent
+    private ContextualAuthorizationManager authorization;
+
+    @MockComponent
+    private ContextualLocalizationManager localization;
+
+    @MockComponent
+    @Named("all")
+    private UserPropertiesResolver userPropertiesResolver;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
+    @MockComponent
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Mock
+    private XWikiContext xcontext;
+
+    @Mock
+    private XWiki xwiki;
+
+    @Mock
+    private XWikiDocument classDocument;
+
+    @Mock
+    private BaseClass xclass;
+
+    @Mock
+    private XWikiDocument document;
+
+    @Mock
+    private BaseObject object;
+
+    @Mock
+    private Query query;
+
+    @Mock
+    private Query countQuery;
+
+    @Mock
+    private UserProperties userProperties;
+
+    private final LiveDataQuery liveDataQuery = new LiveDataQuery();
+
+    @BeforeEach
+    void configure() throws Exception
+    {
+        this.liveDataQuery.initialize();
+        this.liveDataQuery.setSource(new Source(LiveTableLiveDataEntryStore.ROLE_HINT));
+        this.liveDataQuery.getSource().setParameter("className", CLASS_NAME);
+        this.liveDataQuery.getSource().setParameter("translationPrefix", "status.");
+        this.liveDataQuery.setProperties(List.of("doc.title", "status"));
+
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+
+        when(this.currentDocumentReferenceResolver.resolve(CLASS_NAME)).thenReturn(CLASS_REFERENCE);
+        when(this.currentDocumentReferenceResolver.resolve("Space.First")).thenReturn(FIRST_REFERENCE);
+        when(this.currentDocumentReferenceResolver.resolve("Space.Second")).thenReturn(SECOND_REFERENCE);
+        when(this.localSerializer.serialize(FIRST_REFERENCE)).thenReturn("Space.First");
+
+        when(this.xwiki.getDocument(CLASS_REFERENCE, this.xcontext)).thenReturn(this.classDocument);
+        when(this.classDocument.getXClass()).thenReturn(this.xclass);
+        when(this.xclass.getDocumentReference()).thenReturn(CLASS_REFERENCE);
+        when(this.xclass.get("status")).thenReturn(new StringClass());
+
+        when(this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass)).thenReturn(Optional.of(this.query));
+        when(this.query.getStatement()).thenReturn("statement");
+        when(this.query.getNamedParameters()).thenReturn(Map.of("className", CLASS_NAME));
+        when(this.query.setOffset(0)).thenReturn(this.query);
+        when(this.query.setLimit(15)).thenReturn(this.query);
+        when(this.query.execute()).thenReturn(List.of("Space.First", "Space.Second"));
+        when(this.queryManager.createQuery("statement", Query.HQL)).thenReturn(this.countQuery);
+        when(this.countQuery.addFilter(this.countFilter)).thenReturn(this.countQuery);
+        when(this.countQuery.execute()).thenReturn(List.of(2L));
+
+        when(this.userPropertiesResolver.resolve(CurrentUserReference.INSTANCE)).thenReturn(this.userProperties);
+        when(this.userProperties.getType()).thenReturn(UserType.ADVANCED);
+        when(this.localization.getTranslationPlain("status.emptyvalue")).thenReturn("(empty)");
+    }
+
+    @Test
+    void get() throws Exception
+    {
+        when(this.authorization.filterAccessible(eq(Right.VIEW), any())).thenReturn(List.of(FIRST_REFERENCE));
+        when(this.authorization.filterAccessible(Right.EDIT, List.of(FIRST_REFERENCE)))
+            .thenReturn(List.of(FIRST_REFERENCE));
+        when(this.authorization.filterAccessible(Right.DELETE, List.of(FIRST_REFERENCE))).thenReturn(List.of());
+
+        when(this.xwiki.getDocument(FIRST_REFERENCE, this.xcontext)).thenReturn(this.document);
+        when(this.document.getTranslatedDocument(this.xcontext)).thenReturn(this.document);
+        when(this.document.getTitle()).thenReturn("First");
+        when(this.document.getRenderedTitle(any(), any())).thenReturn("First");
+        when(this.document.getXObject(CLASS_REFERENCE)).thenReturn(this.object);
+        StringProperty status = new StringProperty();
+        status.setValue("published");
+        when(this.object.safeget("status")).thenReturn(status);
+        when(this.document.display("status", "view", this.object, this.xcontext)).thenReturn("<em>published</em>");
+
+        LiveData liveData = this.resultsProvider.get(this.liveDataQuery).get();
+
+        // The second document is not viewable and, since all the results fit in the page, it's not counted.
+        assertEquals(1, liveData.getCount());
+        assertEquals(1, liveData.getEntries().size());
+        Map<String, Object> entry = liveData.getEntries().get(0);
+        assertEquals(true, entry.get("doc.viewable"));
+        assertEquals("Space.First", entry.get("doc.fullName"));
+        assertEquals("First", entry.get("doc.title"));
+        assertFalse(entry.containsKey("doc.title_raw"));
+        assertEquals(true, entry.get("doc.hasedit"));
+        assertEquals(true, entry.get("doc.hasrights"));
+        assertEquals(false, entry.get("doc.hasdelete"));
+        assertEquals("<em>published</em>", entry.get("status"));
+        assertEquals("published", entry.get("status_value"));
+        assertEquals("", entry.get("status_url"));
+
+        verify(this.countQuery).bindValue("className", CLASS_NAME);
+    }
+
+    @Test
+    void getEmptyValue() throws Exception
+    {
+        when(this.authorization.filterAccessible(eq(Right.VIEW), any()))
+            .thenReturn(List.of(FIRST_REFERENCE, SECOND_REFERENCE));
+        when(this.xwiki.getDocument(any(DocumentReference.class), eq(this.xcontext))).thenReturn(this.document);
+        when(this.xwiki.getDocument(CLASS_REFERENCE, this.xcontext)).thenReturn(this.classDocument);
+        when(this.document.getTranslatedDocument(this.xcontext)).thenReturn(this.document);
+        when(this.document.getXObject(CLASS_REFERENCE)).thenReturn(this.object);
+        when(this.document.display("status", "view", this.object, this.xcontext)).thenReturn("");
+
+        LiveData liveData = this.resultsProvider.get(this.liveDataQuery).get();
+
+        assertEquals(2, liveData.getCount());
+        assertEquals("(empty)", liveData.getEntries().get(1).get("status"));
+        assertEquals("", liveData.getEntries().get(1).get("status_value"));
+    }
+
+    @Test
+    void getWithUnsupportedSourceParameters() throws Exception
+    {
+        this.liveDataQuery.getSource().setParameter("queryFilters", "hidden");
+
+        assertEquals(Optional.empty(), this.resultsProvider.get(this.liveDataQuery));
+
+        verifyNoInteractions(this.queryBuilder);
+    }
+
+    @Test
+    void getWhenTheQueryIsNotSupported() throws Exception
+    {
+        when(this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), this.resultsProvider.get(this.liveDataQuery));
+
+        verifyNoInteractions(this.queryManager);
+    }
+}
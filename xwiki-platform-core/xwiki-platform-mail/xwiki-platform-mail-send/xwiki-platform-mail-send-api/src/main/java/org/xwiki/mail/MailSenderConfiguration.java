@@ -23,6 +23,7 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents all XWiki configuration options for the Mail Sending feature.
@@ -121,4 +122,16 @@ default int getSendQueueCapacity()
     {
         return 1000;
     }
+
+    /**
+     * @return the number of threads sending the mails of the send queue in parallel, each thread keeping its own
+     *         connections to the SMTP servers open. Note that the {@link #getSendWaitTime() send wait time} applies to
+     *         each thread.
+     * @since 15.7RC1
+     */
+    @Unstable
+    default int getSendThreadCount()
+    {
+        return 1;
+    }
 }
@@ -103,6 +103,7 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
 
     private static final String PREPARE_QUEUE_CAPACITY_PROPERTY = "prepareQueueCapacity";
     private static final String SEND_QUEUE_CAPACITY_PROPERTY = "sendQueueCapacity";
+    private static final String SEND_THREADS_PROPERTY = "sendThreads";
 
     /**
      * The default size of the prepare queue.
@@ -114,6 +115,11 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
      */
     private static final int SEND_QUEUE_CAPACITY_DEFAULT = 1000;
 
+    /**
+     * The default number of threads sending the mails.
+     */
+    private static final int SEND_THREADS_DEFAULT = 1;
+
     @Inject
     private Logger logger;
 
@@ -349,6 +355,12 @@ public int getSendQueueCapacity()
             SEND_QUEUE_CAPACITY_DEFAULT);
     }
 
+    @Override
+    public int getSendThreadCount()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_THREADS_PROPERTY, SEND_THREADS_DEFAULT);
+    }
+
     private boolean isMainWiki()
     {
         return this.wikiDescriptorManager.isMainWiki(this.wikiDescriptorManager.getCurrentWikiId());
@@ -93,4 +93,39 @@ default boolean addMessageToQueue(T mailQueueItem, long timeout, TimeUnit unit)
      * @return true if the removal was successful, false otherwise
      */
     boolean removeMessageFromQueue(T mailQueueItem);
+
+    /**
+     * Retrieves and removes the next mail on the queue, waiting up to the specified timeout for a mail to become
+     * available.
+     *
+     * @param timeout how long to wait before giving up, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return the next mail on the queue or {@code null} if the timeout elapsed before a mail became available
+     * @throws InterruptedException if interrupted while waiting
+     * @since 15.7RC1
+     */
+    @Unstable
+    default T pollMessage(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        if (!hasMessage()) {
+            Thread.sleep(unit.toMillis(timeout));
+        }
+
+        T mailQueueItem = peekMessage();
+        if (mailQueueItem != null && removeMessageFromQueue(mailQueueItem)) {
+            return mailQueueItem;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the number of mails waiting on the queue to be processed
+     * @since 15.7RC1
+     */
+    @Unstable
+    default int getMessageCount()
+    {
+        return hasMessage() ? 1 : 0;
+    }
 }
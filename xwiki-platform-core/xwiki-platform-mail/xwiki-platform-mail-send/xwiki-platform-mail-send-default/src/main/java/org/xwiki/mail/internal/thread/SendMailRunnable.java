@@ -19,7 +19,14 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -37,11 +44,14 @@
 import org.xwiki.mail.ExtendedMimeMessage;
 import org.xwiki.mail.MailContentStore;
 import org.xwiki.mail.MailListener;
+import org.xwiki.mail.MailStatusResult;
 
 import com.xpn.xwiki.XWikiContext;
 
 /**
- * Runnable that regularly check for mails on a Queue, and for each mail tries to send it.
+ * Runnable that regularly check for mails on a Queue, and for each mail tries to send it. The mails can be sent by
+ * several threads in parallel (see {@link org.xwiki.mail.MailSenderConfiguration#getSendThreadCount()}), each of them
+ * keeping its own SMTP connection open between two mails.
  *
  * @version $Id$
  * @since 6.4
@@ -51,6 +61,16 @@
 @Singleton
 public class SendMailRunnable extends AbstractMailRunnable
 {
+    /**
+     * How long a send thread waits for a new mail to be available before checking if it should stop.
+     */
+    private static final long POLL_TIMEOUT = 1000L;
+
+    /**
+     * The number of mails sent over the same connection before reconnecting.
+     */
+    private static final int RECONNECT_INTERVAL = 100;
+
     @Inject
     private MailQueueManager<SendMailQueueItem> sendMailQueueManager;
 
@@ -64,14 +84,59 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private Provider<XWikiContext> contextProvider;
 
-    private Transport currentTransport;
+    private final ThreadLocal<SendMailConnection> connection = ThreadLocal.withInitial(SendMailConnection::new);
 
-    private Session currentSession;
+    private final Map<String, BatchStatistics> batchStatistics = new ConcurrentHashMap<>();
 
-    private int count;
+    private final LongAdder sentMailCount = new LongAdder();
+
+    private final LongAdder failedMailCount = new LongAdder();
+
+    /**
+     * The SMTP connection of a send thread.
+     */
+    private static final class SendMailConnection
+    {
+        private Transport transport;
+
+        private Session session;
+
+        private int count;
+    }
+
+    /**
+     * Statistics about the mails of a batch sent so far.
+     */
+    private static final class BatchStatistics
+    {
+        private final long start = System.currentTimeMillis();
+
+        private final AtomicLong count = new AtomicLong();
+    }
 
     @Override
     public void run()
+    {
+        int threadCount = Math.max(1, this.configuration.getSendThreadCount());
+
+        // The current thread is one of the send threads so we only need to start the additional ones.
+        List<Thread> threads = new ArrayList<>(threadCount - 1);
+        for (int i = 1; i < threadCount; i++) {
+            Thread thread = new Thread(this::runWorker);
+            thread.setName(Thread.currentThread().getName() + " " + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        try {
+            runWorker();
+        } finally {
+            stopWorkers(threads);
+        }
+    }
+
+    private void runWorker()
     {
         try {
             // Make sure we initialize an execution context.
@@ -83,6 +148,23 @@ public void run()
             logger.error("Failed to initialize the send mail thread's execution context", e);
         } finally {
             closeTransport();
+            this.connection.remove();
+        }
+    }
+
+    private void stopWorkers(List<Thread> threads)
+    {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.logger.debug("Interrupted while waiting for the send mail threads to stop", e);
+                break;
+            }
         }
     }
 
@@ -105,24 +187,17 @@ private void runInternal()
     {
         do {
             try {
-                // Handle next message in the queue
-                if (this.sendMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item from the queue after the mail has been sent as
-                    // otherwise, MailSender.waitTillSent() may return before the mail is actually sent!
-                    SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
-                    try {
-                        sendMail(mailItem);
-                    } finally {
-                        this.sendMailQueueManager.removeMessageFromQueue(mailItem);
-                    }
+                // Wait for the next message in the queue. Note that it's safe to remove the mail item from the queue
+                // before it's sent since MailStatusResult#waitTillProcessed() relies on the listener being notified.
+                SendMailQueueItem mailItem = this.sendMailQueueManager.pollMessage(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (mailItem != null) {
+                    sendMail(mailItem);
                     // Email throttling: Wait before processing the next mail queue item
-                    // Note: it's important that we wait after the previous item has been removed from the queue in
-                    // order to let users know as soon as possible that their mail has been sent (otherwise when sending
-                    // a synchronous mail, the user would have to wait the send wait time!).
+                    // Note: it's important that we wait after the listener has been notified in order to let users
+                    // know as soon as possible that their mail has been sent (otherwise when sending a synchronous
+                    // mail, the user would have to wait the send wait time!).
                     waitSendWaitTime();
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(50L);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 // Thread has been interrupted, exit
@@ -151,31 +226,35 @@ protected void sendMail(SendMailQueueItem item)
             // Step 1: Load the message from the filesystem store
             message = this.mailContentStore.load(item.getSession(), item.getBatchId(), item.getUniqueMessageId());
         } catch (Exception e) {
+            this.failedMailCount.increment();
             if (listener != null) {
                 listener.onSendMessageFatalError(item.getUniqueMessageId(), e, Collections.emptyMap());
             }
+            updateStatistics(item);
             return;
         }
 
+        SendMailConnection currentConnection = this.connection.get();
         try {
             // Step 2: If the current Session in use is different from the one passed then close
             // the current Transport, get a new one and reconnect.
-            // Also do that every 100 mails sent.
-            // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
+            // Also do that every 100 mails sent since some SMTP servers limit the number of mails that can be sent
+            // over a single connection.
+            if (item.getSession() != currentConnection.session || (currentConnection.count % RECONNECT_INTERVAL) == 0) {
                 closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
+                currentConnection.session = item.getSession();
+                currentConnection.transport = currentConnection.session.getTransport("smtp");
+                currentConnection.transport.connect();
+            } else if (!currentConnection.transport.isConnected()) {
+                currentConnection.transport.connect();
             }
 
             // Step 3: Send the mail
             // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
             // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+            currentConnection.transport.sendMessage(message, message.getAllRecipients());
+            currentConnection.count++;
+            this.sentMailCount.increment();
 
             // Step 4: Notify the user of the success if a listener has been provided
             // Note that the listener is in charge of deleting the message from the mail content store.
@@ -183,11 +262,52 @@ protected void sendMail(SendMailQueueItem item)
                 listener.onSendMessageSuccess(message, Collections.emptyMap());
             }
         } catch (Exception e) {
+            this.failedMailCount.increment();
             // An error occurred, notify the user if a listener has been provided.
             if (listener != null) {
                 listener.onSendMessageError(message, e, Collections.emptyMap());
             }
         }
+
+        updateStatistics(item);
+    }
+
+    private void updateStatistics(SendMailQueueItem item)
+    {
+        BatchStatistics statistics =
+            this.batchStatistics.computeIfAbsent(item.getBatchId(), batchId -> new BatchStatistics());
+        long count = statistics.count.incrementAndGet();
+
+        MailStatusResult result = item.getListener() != null ? item.getListener().getMailStatusResult() : null;
+        boolean processed = result == null || result.isProcessed();
+        if (processed) {
+            this.batchStatistics.remove(item.getBatchId());
+        }
+
+        if (this.logger.isDebugEnabled() && (processed || count % RECONNECT_INTERVAL == 0)) {
+            long duration = Math.max(1L, System.currentTimeMillis() - statistics.start);
+            this.logger.debug("Sent [{}] mails of batch [{}] in [{}] ms ([{}] mails/s), [{}] mails in the send queue",
+                count, item.getBatchId(), duration, count * 1000L / duration,
+                this.sendMailQueueManager.getMessageCount());
+        }
+    }
+
+    /**
+     * @return the number of mails successfully sent since the mail sender threads have been started
+     * @since 15.7RC1
+     */
+    public long getSentMailCount()
+    {
+        return this.sentMailCount.sum();
+    }
+
+    /**
+     * @return the number of mails which failed to be sent since the mail sender threads have been started
+     * @since 15.7RC1
+     */
+    public long getFailedMailCount()
+    {
+        return this.failedMailCount.sum();
     }
 
     private void waitSendWaitTime() throws InterruptedException
@@ -198,9 +318,10 @@ private void waitSendWaitTime() throws InterruptedException
 
     private void closeTransport()
     {
-        if (this.currentTransport != null) {
+        SendMailConnection currentConnection = this.connection.get();
+        if (currentConnection.transport != null) {
             try {
-                this.currentTransport.close();
+                currentConnection.transport.close();
             } catch (MessagingException e) {
                 this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
                     ExceptionUtils.getRootCauseMessage(e));
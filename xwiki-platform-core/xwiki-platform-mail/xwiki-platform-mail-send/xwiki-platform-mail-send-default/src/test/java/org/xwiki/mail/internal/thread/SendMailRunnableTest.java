@@ -73,12 +73,13 @@
     @InjectComponentManager
     private MockitoComponentManager componentManager;
 
+    private MailSenderConfiguration configuration;
+
     @BeforeComponent
     public void beforeInitializable() throws Exception
     {
-        MailSenderConfiguration configuration =
-            this.componentManager.registerMockComponent(MailSenderConfiguration.class);
-        when(configuration.getSendQueueCapacity()).thenReturn(10);
+        this.configuration = this.componentManager.registerMockComponent(MailSenderConfiguration.class);
+        when(this.configuration.getSendQueueCapacity()).thenReturn(10);
     }
 
     @BeforeEach
@@ -220,4 +221,47 @@ public void sendMailWhenMailRetrievalFails() throws Exception
         }
         assertEquals(2, errorCount);
     }
+
+    @Test
+    public void sendMailWithSeveralThreads() throws Exception
+    {
+        when(this.configuration.getSendThreadCount()).thenReturn(3);
+
+        Session session = Session.getDefaultInstance(new Properties());
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(5);
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+
+        for (int i = 0; i < 5; i++) {
+            MimeMessage msg = new MimeMessage(session);
+            msg.setText("Content" + i);
+            ExtendedMimeMessage message = new ExtendedMimeMessage(msg);
+            String id = message.getUniqueMessageId();
+            listener.onPrepareMessageSuccess(message, Collections.emptyMap());
+            when(contentStore.load(session, batchId, id)).thenThrow(new MailStoreException("Store failure"));
+            mailQueueManager.addToQueue(new SendMailQueueItem(id, session, listener, batchId, "xwiki"));
+        }
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.start();
+
+        // Wait for the mails to have been processed.
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        assertEquals(5, listener.getMailStatusResult().getProcessedMailCount());
+        assertEquals(5, this.sendMailRunnable.getFailedMailCount());
+        assertEquals(0, this.sendMailRunnable.getSentMailCount());
+    }
 }
@@ -87,4 +87,35 @@ default String getEmailGroupingStrategyHint()
     {
         return "default";
     }
+
+    /**
+     * @return the number of threads to use for searching the notifications of the users receiving the periodic emails
+     * @since 15.7RC1
+     */
+    @Unstable
+    default int getEmailPoolSize()
+    {
+        return 1;
+    }
+
+    /**
+     * @return {@code true} if the number of unread notifications should be pushed to the connected users through a
+     *         WebSocket instead of being requested by the notifications menu
+     * @since 15.7RC1
+     */
+    @Unstable
+    default boolean isWebSocketEnabled()
+    {
+        return false;
+    }
+
+    /**
+     * @return the maximum number of WebSocket connections used to push the notifications
+     * @since 15.7RC1
+     */
+    @Unstable
+    default int getWebSocketMaxConnections()
+    {
+        return 1000;
+    }
 }
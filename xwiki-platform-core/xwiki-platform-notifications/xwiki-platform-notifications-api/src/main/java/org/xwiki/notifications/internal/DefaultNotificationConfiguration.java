@@ -84,4 +84,22 @@ public String getEmailGroupingStrategyHint()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "emailGroupingStrategyHint", "default");
     }
+
+    @Override
+    public int getEmailPoolSize()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "emails.poolSize", 1);
+    }
+
+    @Override
+    public boolean isWebSocketEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "websocket.enabled", false);
+    }
+
+    @Override
+    public int getWebSocketMaxConnections()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "websocket.maxConnections", 1000);
+    }
 }
@@ -19,7 +19,11 @@
  */
 package org.xwiki.notifications.notifiers.internal;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -36,6 +40,7 @@
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.notifications.CompositeEvent;
 import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.filters.internal.status.ForUserEventFilter;
 import org.xwiki.notifications.sources.NotificationParameters;
 
 /**
@@ -45,6 +50,11 @@
  * computed with an instance of {@link NotificationParameters}.
  *
  * Note that this component is useless if the property {@code notifications.rest.cache} is set to true.
+ * <p>
+ * Each key also contains a generation number of the user targeted by the parameters, and, when the result is not
+ * computed from the prefiltered event statuses of the user, a generation number of the events. Invalidating the
+ * results of a user (or the results depending on the new events) is done by increasing the corresponding generation:
+ * the previous entries are not used anymore and are eventually evicted from the caches.
  *
  * @since 12.2
  * @version $Id$
@@ -55,6 +65,13 @@ public class DefaultNotificationCacheManager implements Initializable, Disposabl
 {
     private static final String CACHE_KEY_SEPARATOR = "/";
 
+    private static final String CACHE_KEY_EVENT_GENERATION = "e";
+
+    /**
+     * The identifier used for the generation of the results computed for guest users.
+     */
+    private static final String GUEST = "";
+
     @Inject
     private NotificationConfiguration configuration;
 
@@ -88,6 +105,16 @@ public class DefaultNotificationCacheManager implements Initializable, Disposabl
      */
     private Cache<Integer> longCompositeEventCountCache;
 
+    /**
+     * The generation of the cached results of each user.
+     */
+    private final Map<String, Long> userGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * The generation of the cached results which are not computed from the prefiltered event statuses.
+     */
+    private final AtomicLong eventGeneration = new AtomicLong();
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -132,9 +159,17 @@ public String createCacheKey(NotificationParameters notificationParameters)
         addCacheKeyElement(cacheKeyBuilder, notificationParameters.format.name());
         cacheKeyBuilder.append(CACHE_KEY_SEPARATOR);
 
-        addCacheKeyElement(cacheKeyBuilder, this.entityReferenceSerializer.serialize(notificationParameters.user));
+        String user = this.entityReferenceSerializer.serialize(notificationParameters.user);
+        addCacheKeyElement(cacheKeyBuilder, user);
         cacheKeyBuilder.append(CACHE_KEY_SEPARATOR);
 
+        cacheKeyBuilder.append(this.userGenerations.getOrDefault(user != null ? user : GUEST, 0L))
+            .append(CACHE_KEY_SEPARATOR);
+        if (!isPrefiltered(notificationParameters)) {
+            cacheKeyBuilder.append(CACHE_KEY_EVENT_GENERATION).append(this.eventGeneration.get())
+                .append(CACHE_KEY_SEPARATOR);
+        }
+
         if (notificationParameters.endDate != null) {
             cacheKeyBuilder.append(notificationParameters.endDate.getTime())
                 .append(CACHE_KEY_SEPARATOR);
@@ -152,6 +187,13 @@ public String createCacheKey(NotificationParameters notificationParameters)
         return cacheKeyBuilder.toString();
     }
 
+    private boolean isPrefiltered(NotificationParameters notificationParameters)
+    {
+        // The result only depends on the event statuses of the user when the user preferences are used
+        return notificationParameters.user != null && notificationParameters.filters != null
+            && notificationParameters.filters.stream().anyMatch(ForUserEventFilter.class::isInstance);
+    }
+
     /**
      * @param cacheKey the key where the event are stored.
      * @param count {@code true} if the value to return is a count instead of a list of events
@@ -198,6 +240,30 @@ public void setInCache(String cacheKey, List<Object> events, boolean count, bool
         }
     }
 
+    /**
+     * Invalidate the cached results of the passed users.
+     *
+     * @param users the serialized references of the users for which the results might have changed
+     * @since 15.7RC1
+     */
+    public void flushUserCache(Collection<String> users)
+    {
+        for (String user : users) {
+            this.userGenerations.merge(user, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Invalidate the cached results which are not computed from the prefiltered event statuses (for example the
+     * results computed for guest users), which might have changed because of a new event.
+     *
+     * @since 15.7RC1
+     */
+    public void flushEventCache()
+    {
+        this.eventGeneration.incrementAndGet();
+    }
+
     /**
      * Empty the long cache.
      */
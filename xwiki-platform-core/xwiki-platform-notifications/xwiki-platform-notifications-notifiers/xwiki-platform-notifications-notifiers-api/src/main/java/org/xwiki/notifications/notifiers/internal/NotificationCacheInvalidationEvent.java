@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import org.xwiki.observation.event.Event;
+
+/**
+ * Event generated when some of the results cached by {@link DefaultNotificationCacheManager} might not be valid
+ * anymore. This event is sent to the other members of the cluster so that each of them only drops the entries which
+ * might have changed.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class NotificationCacheInvalidationEvent implements Event, Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final Set<String> users;
+
+    private final boolean newEvent;
+
+    /**
+     * Matches any {@link NotificationCacheInvalidationEvent}, also used to invalidate all the cached results.
+     */
+    public NotificationCacheInvalidationEvent()
+    {
+        this(null, false);
+    }
+
+    /**
+     * @param users the serialized references of the users for which the cached results might have changed,
+     *            {@code null} if the results of all the users might have changed
+     * @param newEvent {@code true} if the invalidation is caused by a new event
+     */
+    public NotificationCacheInvalidationEvent(Set<String> users, boolean newEvent)
+    {
+        this.users = users;
+        this.newEvent = newEvent;
+    }
+
+    /**
+     * @return the serialized references of the users for which the cached results might have changed, {@code null} if
+     *         the results of all the users might have changed
+     */
+    public Set<String> getUsers()
+    {
+        return this.users;
+    }
+
+    /**
+     * @return {@code true} if the invalidation is caused by a new event
+     */
+    public boolean isNewEvent()
+    {
+        return this.newEvent;
+    }
+
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        return otherEvent instanceof NotificationCacheInvalidationEvent;
+    }
+}
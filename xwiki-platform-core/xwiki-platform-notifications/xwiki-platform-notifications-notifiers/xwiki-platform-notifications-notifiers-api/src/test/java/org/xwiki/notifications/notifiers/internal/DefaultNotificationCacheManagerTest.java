@@ -34,6 +34,7 @@
 import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.internal.status.ForUserEventFilter;
 import org.xwiki.notifications.sources.NotificationParameters;
 import org.xwiki.test.annotation.BeforeComponent;
 import org.xwiki.test.junit5.mockito.ComponentTest;
@@ -152,7 +153,7 @@ public void createCacheKey()
         notificationParameters.onlyUnread = true;
 
         int hashCode = notificationParameters.hashCode();
-        assertEquals("5ALERT/18xwiki:XWiki.Foobar/42/true/22/true/" + hashCode,
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/0/e0/42/true/22/true/" + hashCode,
             this.defaultNotificationCacheManager.createCacheKey(notificationParameters));
 
         NotificationParameters notificationParameters2 = new NotificationParameters();
@@ -163,7 +164,7 @@ public void createCacheKey()
         notificationParameters2.onlyUnread = true;
 
         hashCode = notificationParameters2.hashCode();
-        assertEquals("5ALERT/18xwiki:XWiki.Foobar/42/true/22/true/" + hashCode,
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/0/e0/42/true/22/true/" + hashCode,
             this.defaultNotificationCacheManager.createCacheKey(notificationParameters2));
 
         assertNotEquals(notificationParameters, notificationParameters2);
@@ -178,7 +179,7 @@ public void createCacheKey()
         notificationParameters.onlyUnread = false;
 
         hashCode = notificationParameters.hashCode();
-        assertEquals("5EMAIL/19xwiki:XWiki.another/84/true/444/false/" + hashCode,
+        assertEquals("5EMAIL/19xwiki:XWiki.another/0/e0/84/true/444/false/" + hashCode,
             this.defaultNotificationCacheManager.createCacheKey(notificationParameters));
 
         notificationParameters = new NotificationParameters();
@@ -190,7 +191,7 @@ public void createCacheKey()
         notificationParameters.onlyUnread = false;
 
         hashCode = notificationParameters.hashCode();
-        assertEquals("5EMAIL/19xwiki:XWiki.another/84/false/444/false/" + hashCode,
+        assertEquals("5EMAIL/19xwiki:XWiki.another/0/e0/84/false/444/false/" + hashCode,
             this.defaultNotificationCacheManager.createCacheKey(notificationParameters));
 
         notificationParameters = new NotificationParameters();
@@ -200,7 +201,7 @@ public void createCacheKey()
         notificationParameters.onlyUnread = false;
 
         hashCode = notificationParameters.hashCode();
-        assertEquals("5EMAIL/19xwiki:XWiki.another/444/false/" + hashCode,
+        assertEquals("5EMAIL/19xwiki:XWiki.another/0/e0/444/false/" + hashCode,
             this.defaultNotificationCacheManager.createCacheKey(notificationParameters));
 
         notificationParameters = new NotificationParameters();
@@ -208,7 +209,53 @@ public void createCacheKey()
         notificationParameters.user = userReference2;
 
         hashCode = notificationParameters.hashCode();
-        assertEquals("5EMAIL/19xwiki:XWiki.another/0/null/" + hashCode,
+        assertEquals("5EMAIL/19xwiki:XWiki.another/0/e0/0/null/" + hashCode,
             this.defaultNotificationCacheManager.createCacheKey(notificationParameters));
     }
+
+    @Test
+    public void createCacheKeyAfterInvalidation()
+    {
+        DocumentReference userReference = new DocumentReference("xwiki", "XWiki", "Foobar");
+        when(this.entityReferenceSerializer.serialize(userReference)).thenReturn("xwiki:XWiki.Foobar");
+
+        NotificationParameters prefilteredParameters = new NotificationParameters();
+        prefilteredParameters.format = NotificationFormat.ALERT;
+        prefilteredParameters.user = userReference;
+        prefilteredParameters.filters = Collections.singletonList(new ForUserEventFilter(NotificationFormat.ALERT,
+            null));
+        int prefilteredHashCode = prefilteredParameters.hashCode();
+
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.format = NotificationFormat.ALERT;
+        parameters.user = userReference;
+        int hashCode = parameters.hashCode();
+
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/0/0/null/" + prefilteredHashCode,
+            this.defaultNotificationCacheManager.createCacheKey(prefilteredParameters));
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/0/e0/0/null/" + hashCode,
+            this.defaultNotificationCacheManager.createCacheKey(parameters));
+
+        // A new event only invalidates the results which are not computed from the event statuses
+        this.defaultNotificationCacheManager.flushEventCache();
+
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/0/0/null/" + prefilteredHashCode,
+            this.defaultNotificationCacheManager.createCacheKey(prefilteredParameters));
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/0/e1/0/null/" + hashCode,
+            this.defaultNotificationCacheManager.createCacheKey(parameters));
+
+        // A new status of another user doesn't invalidate anything
+        this.defaultNotificationCacheManager.flushUserCache(Collections.singleton("xwiki:XWiki.Other"));
+
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/0/0/null/" + prefilteredHashCode,
+            this.defaultNotificationCacheManager.createCacheKey(prefilteredParameters));
+
+        // A new status of the user invalidates all the results of the user
+        this.defaultNotificationCacheManager.flushUserCache(Collections.singleton("xwiki:XWiki.Foobar"));
+
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/1/0/null/" + prefilteredHashCode,
+            this.defaultNotificationCacheManager.createCacheKey(prefilteredParameters));
+        assertEquals("5ALERT/18xwiki:XWiki.Foobar/1/e1/0/null/" + hashCode,
+            this.defaultNotificationCacheManager.createCacheKey(parameters));
+    }
 }
@@ -20,7 +20,13 @@
 package org.xwiki.notifications.notifiers.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -41,8 +47,10 @@
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.eventstream.EntityEvent;
 import org.xwiki.eventstream.Event;
 import org.xwiki.eventstream.EventSearchResult;
+import org.xwiki.eventstream.EventStatus;
 import org.xwiki.eventstream.EventStore;
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.RecordableEventDescriptor;
@@ -56,6 +64,7 @@
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationException;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.user.UserException;
@@ -79,6 +88,8 @@ public class UserEventDispatcher implements Disposable
 {
     private static final long BATCH_SIZE = 100;
 
+    private static final int DISPATCH_BATCH_SIZE = 100;
+
     @Inject
     private UsersCache userCache;
 
@@ -88,6 +99,9 @@ public class UserEventDispatcher implements Disposable
     @Inject
     private UserEventManager userEventManager;
 
+    @Inject
+    private UserNotificationPreferenceIndex preferenceIndex;
+
     @Inject
     private NotificationConfiguration notificationConfiguration;
 
@@ -299,18 +313,17 @@ private void dispatchInContext(Event event)
         if (CollectionUtils.isNotEmpty(event.getTarget())) {
             // The event explicitly indicate with which entities the event is associated with
 
-            boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
+            Set<DocumentReference> users = new LinkedHashSet<>();
             for (String entity : event.getTarget()) {
                 DocumentReference entityReference = this.resolver.resolve(entity, event.getWiki());
                 UserReference userReference = this.documentReferenceUserReferenceResolver.resolve(entityReference);
 
                 try {
                     if (this.userManager.exists(userReference)) {
-                        dispatch(event, entityReference, mailEnabled);
+                        users.add(entityReference);
                     } else {
                         // Also recursively associate the members of the entity if it's a group
-                        this.groupManager.getMembers(entityReference, true)
-                            .forEach(userDocumentReference -> dispatch(event, userDocumentReference, mailEnabled));
+                        users.addAll(this.groupManager.getMembers(entityReference, true));
                     }
                 } catch (UserException e) {
                     this.logger.warn("Failed to verify if user [{}] exists. Cause: [{}]", userReference,
@@ -321,6 +334,9 @@ private void dispatchInContext(Event event)
                 }
             }
 
+            boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
+            dispatch(event, users, users, mailEnabled ? users : Collections.emptySet());
+
             // Remember we are done pre filtering this event
             this.events.prefilterEvent(event);
         } else {
@@ -336,79 +352,122 @@ private void dispatchInContext(Event event)
         }
     }
 
-    private void dispatch(Event event, DocumentReference user, boolean mailEnabled)
+    private void dispatch(Event event, List<DocumentReference> users)
     {
-        // Get the entity id
-        String entityId = this.entityReferenceSerializer.serialize(user);
-
-        // Make sure the event is not already pre filtered
-        // Make sure the user asked to be alerted about this event
-        if (!isStatusPrefiltered(event, entityId)
-            && this.userEventManager.isListening(event, user, NotificationFormat.ALERT)) {
-            // Associate the event with the user
-            saveEventStatus(event, entityId);
-        }
+        boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
 
-        // Make sure the notification module is allowed to send mails
-        // Make sure the event is not already pre filtered
-        // Make sure the user asked to receive mails about this event
-        if (mailEnabled && !isMailPrefiltered(event, entityId)
-            && this.userEventManager.isListening(event, user, NotificationFormat.EMAIL)) {
-            // Associate the event with the user
-            saveMailEntityEvent(event, entityId);
-        }
-    }
+        // Only evaluate the users which might be interested by the event
+        Set<DocumentReference> alertUsers = getCandidates(event, users, NotificationFormat.ALERT);
+        Set<DocumentReference> mailUsers =
+            mailEnabled ? getCandidates(event, users, NotificationFormat.EMAIL) : Collections.emptySet();
 
-    private boolean isStatusPrefiltered(Event event, String entityId)
-    {
-        return isPrefiltered(event, entityId, false);
+        dispatch(event, users, alertUsers, mailUsers);
+
+        // Remember we are done pre filtering this event
+        this.events.prefilterEvent(event);
     }
 
-    private boolean isMailPrefiltered(Event event, String entityId)
+    private void dispatch(Event event, Collection<DocumentReference> users, Set<DocumentReference> alertUsers,
+        Set<DocumentReference> mailUsers)
     {
-        return isPrefiltered(event, entityId, true);
+        // Handle the users by batch to limit the number of requests to the store without producing huge ones
+        List<DocumentReference> batch = new ArrayList<>(DISPATCH_BATCH_SIZE);
+        for (DocumentReference user : users) {
+            if (alertUsers.contains(user) || mailUsers.contains(user)) {
+                batch.add(user);
+
+                if (batch.size() == DISPATCH_BATCH_SIZE) {
+                    dispatchBatch(event, batch, alertUsers, mailUsers);
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            dispatchBatch(event, batch, alertUsers, mailUsers);
+        }
     }
 
-    private boolean isPrefiltered(Event event, String entityId, boolean mail)
+    private void dispatchBatch(Event event, List<DocumentReference> users, Set<DocumentReference> alertUsers,
+        Set<DocumentReference> mailUsers)
     {
-        SimpleEventQuery eventQuery = new SimpleEventQuery(0, 0);
+        // Get the entity ids
+        Map<String, DocumentReference> entities = new LinkedHashMap<>();
+        for (DocumentReference user : users) {
+            entities.put(this.entityReferenceSerializer.serialize(user), user);
+        }
 
-        eventQuery.eq(Event.FIELD_ID, event.getId());
+        // Find the users with which the event is already associated
+        Set<String> statusEntities = getStatusEntities(event, entities.keySet());
+        Set<String> mailEntities =
+            mailUsers.isEmpty() ? Collections.emptySet() : getMailEntities(event, entities.keySet());
+
+        List<EventStatus> statuses = new ArrayList<>();
+        List<EntityEvent> mails = new ArrayList<>();
+        for (Map.Entry<String, DocumentReference> entry : entities.entrySet()) {
+            String entityId = entry.getKey();
+            DocumentReference user = entry.getValue();
+
+            // Make sure the event is not already pre filtered
+            // Make sure the user asked to be alerted about this event
+            if (alertUsers.contains(user) && !statusEntities.contains(entityId)
+                && this.userEventManager.isListening(event, user, NotificationFormat.ALERT)) {
+                // Associate the event with the user
+                statuses.add(new DefaultEventStatus(event, entityId, false));
+            }
 
-        if (mail) {
-            eventQuery.withMail(entityId);
-        } else {
-            eventQuery.withStatus(entityId);
+            // Make sure the notification module is allowed to send mails
+            // Make sure the event is not already pre filtered
+            // Make sure the user asked to receive mails about this event
+            if (mailUsers.contains(user) && !mailEntities.contains(entityId)
+                && this.userEventManager.isListening(event, user, NotificationFormat.EMAIL)) {
+                // Associate the event with the user
+                mails.add(new DefaultEntityEvent(event, entityId));
+            }
         }
 
-        try (EventSearchResult result = this.events.search(eventQuery)) {
-            return result.getTotalHits() > 0;
-        } catch (Exception e) {
-            this.logger.error("Failed to check status for event [{}] and entity [{}]", event.getId(), entityId, e);
-
-            return false;
+        if (!statuses.isEmpty()) {
+            this.events.saveEventStatuses(statuses);
+        }
+        if (!mails.isEmpty()) {
+            this.events.saveMailEntityEvents(mails);
         }
     }
 
-    private void dispatch(Event event, List<DocumentReference> users)
+    private Set<String> getStatusEntities(Event event, Collection<String> entityIds)
     {
-        boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
+        try {
+            return this.events.getEventStatuses(List.of(event), entityIds).stream().map(EventStatus::getEntityId)
+                .collect(Collectors.toSet());
+        } catch (Exception e) {
+            this.logger.error("Failed to check statuses for event [{}]", event.getId(), e);
 
-        for (DocumentReference user : users) {
-            dispatch(event, user, mailEnabled);
+            return Collections.emptySet();
         }
-
-        // Remember we are done pre filtering this event
-        this.events.prefilterEvent(event);
     }
 
-    private void saveEventStatus(Event event, String entityId)
+    private Set<String> getMailEntities(Event event, Collection<String> entityIds)
     {
-        this.events.saveEventStatus(new DefaultEventStatus(event, entityId, false));
+        try {
+            return this.events.getMailEntityEvents(List.of(event), entityIds).stream()
+                .map(EntityEvent::getEntityId).collect(Collectors.toSet());
+        } catch (Exception e) {
+            this.logger.error("Failed to check mail statuses for event [{}]", event.getId(), e);
+
+            return Collections.emptySet();
+        }
     }
 
-    private void saveMailEntityEvent(Event event, String entityId)
+    private Set<DocumentReference> getCandidates(Event event, List<DocumentReference> users,
+        NotificationFormat format)
     {
-        this.events.saveMailEntityEvent(new DefaultEntityEvent(event, entityId));
+        try {
+            return this.preferenceIndex.getCandidates(event, users, format);
+        } catch (NotificationException e) {
+            this.logger.warn("Failed to select the users interested by the event with id [{}], evaluating all of them:"
+                + " {}", event.getId(), ExceptionUtils.getRootCauseMessage(e));
+
+            return new HashSet<>(users);
+        }
     }
 }
@@ -0,0 +1,457 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.EnumUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.filters.internal.user.EventUserFilter;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceManager;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+import org.xwiki.notifications.preferences.NotificationPreferenceProvider;
+import org.xwiki.notifications.preferences.internal.UserProfileNotificationPreferenceProvider;
+import org.xwiki.notifications.preferences.internal.WikiNotificationPreferenceProvider;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Keep in memory the notification preferences stored in the user profiles of each wiki, so that the users which might
+ * be interested by an event can be found without evaluating the preferences of every user of the wiki. The
+ * preferences of a wiki are loaded with a few queries the first time they are needed and are then maintained from the
+ * modifications of the {@code XWiki.Notifications.Code.NotificationPreferenceClass} objects (see
+ * {@link UserNotificationPreferenceIndexListener}).
+ * <p>
+ * The selected users are only candidates: the result is a superset of the users for which
+ * {@link UserEventManager#isListening(Event, DocumentReference, NotificationFormat)} returns {@code true}, which must
+ * still be called for each of them.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = UserNotificationPreferenceIndex.class)
+@Singleton
+public class UserNotificationPreferenceIndex
+{
+    /**
+     * The reference of the class holding the notification preferences.
+     */
+    public static final LocalDocumentReference NOTIFICATION_PREFERENCE_CLASS =
+        new LocalDocumentReference(Arrays.asList("XWiki", "Notifications", "Code"), "NotificationPreferenceClass");
+
+    private static final String EVENT_TYPE_FIELD = "eventType";
+
+    private static final String FORMAT_FIELD = "format";
+
+    private static final String NOTIFICATION_ENABLED_FIELD = "notificationEnabled";
+
+    private static final String CLASS_NAME = "XWiki.Notifications.Code.NotificationPreferenceClass";
+
+    private static final String GLOBAL_PREFERENCES = "XWiki.Notifications.Code.NotificationAdministration";
+
+    private static final String CLASS_NAME_PARAMETER = "className";
+
+    private static final String OBJECTS_QUERY = "select obj.id, obj.name from BaseObject obj "
+        + "where obj.className = :className and obj.name <> :globalPreferences";
+
+    private static final String STRING_PROPERTIES_QUERY = "select prop.id.id, prop.id.name, prop.value "
+        + "from BaseObject obj, StringProperty prop where obj.className = :className and obj.id = prop.id.id "
+        + "and prop.id.name in ('" + EVENT_TYPE_FIELD + "', '" + FORMAT_FIELD + "')";
+
+    private static final String ENABLED_PROPERTIES_QUERY = "select prop.id.id, prop.value "
+        + "from BaseObject obj, IntegerProperty prop where obj.className = :className and obj.id = prop.id.id "
+        + "and prop.id.name = '" + NOTIFICATION_ENABLED_FIELD + "'";
+
+    private static final String FOLLOWERS_QUERY = "select distinct nfp.owner from DefaultNotificationFilterPreference "
+        + "nfp where nfp.filterName = :filterName and nfp.enabled = true and nfp.filterType = :filterType "
+        + "and nfp.user in (:users) and nfp.%s = true";
+
+    private static final Set<String> INDEXED_PROVIDERS =
+        Set.of(UserProfileNotificationPreferenceProvider.NAME, WikiNotificationPreferenceProvider.NAME);
+
+    /**
+     * The notification preferences stored in the user profiles of a wiki.
+     *
+     * @version $Id$
+     */
+    private static final class WikiPreferences
+    {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * The enabled state of the preferences of each user, indexed by format and event type. A user which has
+         * preferences without event type is associated with an empty map.
+         */
+        private final Map<DocumentReference, Map<String, Boolean>> preferencesByUser = new HashMap<>();
+
+        private boolean loaded;
+    }
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private NotificationPreferenceManager notificationPreferenceManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    private final Map<String, WikiPreferences> wikis = new ConcurrentHashMap<>();
+
+    /**
+     * Select among the passed users the ones which might want to be notified about the passed event in the passed
+     * format. A user is selected when:
+     * <ul>
+     * <li>the user follows the user who triggered the event</li>
+     * <li>or the preference of the user for the type of the event is enabled</li>
+     * <li>or the user doesn't have any preference for the type of the event and the preference of the wiki of the
+     * user is enabled</li>
+     * <li>or neither the user nor its wiki have any notification preference</li>
+     * </ul>
+     *
+     * @param event the event to dispatch
+     * @param users the users to filter
+     * @param format the format of the notification
+     * @return the users which might want to be notified about the event
+     * @throws NotificationException when failing to load the preferences
+     */
+    public Set<DocumentReference> getCandidates(Event event, List<DocumentReference> users, NotificationFormat format)
+        throws NotificationException
+    {
+        // Preferences coming from other providers cannot be indexed
+        if (hasUnindexedProviders()) {
+            return new HashSet<>(users);
+        }
+
+        Set<DocumentReference> candidates = getFollowers(event, users, format);
+
+        String key = getKey(format, event.getType());
+        Map<WikiReference, Map<String, Boolean>> wikiPreferencesCache = new HashMap<>();
+        for (DocumentReference user : users) {
+            if (!candidates.contains(user)) {
+                Map<String, Boolean> wikiPreferences = wikiPreferencesCache.get(user.getWikiReference());
+                if (wikiPreferences == null) {
+                    wikiPreferences = getWikiPreferences(user.getWikiReference());
+                    wikiPreferencesCache.put(user.getWikiReference(), wikiPreferences);
+                }
+
+                if (isCandidate(getUserPreferences(user), wikiPreferences, key)) {
+                    candidates.add(user);
+                }
+            }
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Update the preferences of the passed document, when the preferences of its wiki are loaded.
+     *
+     * @param document the document which may have been added, modified or removed
+     */
+    public void update(XWikiDocument document)
+    {
+        if (document.getTranslation() != 0) {
+            // Translations don't hold objects
+            return;
+        }
+
+        DocumentReference user = document.getDocumentReference();
+        WikiPreferences preferences = this.wikis.get(user.getWikiReference().getName());
+
+        if (preferences != null && !GLOBAL_PREFERENCES.equals(this.localSerializer.serialize(user))) {
+            Map<String, Boolean> userPreferences = getPreferences(document);
+
+            preferences.lock.writeLock().lock();
+            try {
+                // Nothing to do if the preferences are not loaded yet: they will be when loading them.
+                if (preferences.loaded) {
+                    if (userPreferences != null) {
+                        preferences.preferencesByUser.put(user, userPreferences);
+                    } else {
+                        preferences.preferencesByUser.remove(user);
+                    }
+                }
+            } finally {
+                preferences.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Forget the preferences of the passed wiki.
+     *
+     * @param wiki the identifier of the wiki
+     */
+    public void remove(String wiki)
+    {
+        this.wikis.remove(wiki);
+    }
+
+    private boolean isCandidate(Map<String, Boolean> userPreferences, Map<String, Boolean> wikiPreferences,
+        String key)
+    {
+        // The preferences of the user take precedence over the ones of the wiki
+        if (userPreferences != null && userPreferences.containsKey(key)) {
+            return userPreferences.get(key);
+        }
+        if (wikiPreferences.containsKey(key)) {
+            return wikiPreferences.get(key);
+        }
+
+        // Users without any preference are notified about everything
+        return userPreferences == null && wikiPreferences.isEmpty();
+    }
+
+    private boolean hasUnindexedProviders()
+    {
+        for (ComponentDescriptor<NotificationPreferenceProvider> descriptor : this.componentManagerProvider.get()
+            .<NotificationPreferenceProvider>getComponentDescriptorList(NotificationPreferenceProvider.class)) {
+            if (!INDEXED_PROVIDERS.contains(descriptor.getRoleHint())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Set<DocumentReference> getFollowers(Event event, List<DocumentReference> users, NotificationFormat format)
+        throws NotificationException
+    {
+        Set<DocumentReference> followers = new HashSet<>();
+
+        if (event.getUser() != null && !users.isEmpty()) {
+            Set<DocumentReference> userSet = new HashSet<>(users);
+
+            // Depending on the configuration the filter preferences are stored in the main wiki or in the wiki of the
+            // user
+            Set<String> stores = new HashSet<>();
+            stores.add(this.wikiDescriptorManager.getMainWikiId());
+            users.forEach(user -> stores.add(user.getWikiReference().getName()));
+
+            String statement =
+                String.format(FOLLOWERS_QUERY, format == NotificationFormat.EMAIL ? "emailEnabled" : "alertEnabled");
+            List<String> followed =
+                List.of(this.serializer.serialize(event.getUser()), this.localSerializer.serialize(event.getUser()));
+            for (String store : stores) {
+                try {
+                    List<String> owners = this.queryManager.createQuery(statement, Query.HQL)
+                        .bindValue("filterName", EventUserFilter.FILTER_NAME)
+                        .bindValue("filterType", NotificationFilterType.INCLUSIVE).bindValue("users", followed)
+                        .setWiki(store).execute();
+
+                    for (String owner : owners) {
+                        DocumentReference follower = this.resolver.resolve(owner);
+                        if (userSet.contains(follower)) {
+                            followers.add(follower);
+                        }
+                    }
+                } catch (QueryException e) {
+                    throw new NotificationException(
+                        String.format("Failed to get the followers of [%s] in the wiki [%s]", event.getUser(), store),
+                        e);
+                }
+            }
+        }
+
+        return followers;
+    }
+
+    private Map<String, Boolean> getWikiPreferences(WikiReference wiki) throws NotificationException
+    {
+        Map<String, Boolean> preferences = new HashMap<>();
+
+        for (NotificationPreference preference : this.notificationPreferenceManager.getAllPreferences(wiki)) {
+            Object eventType = preference.getProperties().get(NotificationPreferenceProperty.EVENT_TYPE);
+            if (eventType != null) {
+                preferences.merge(getKey(preference.getFormat(), eventType.toString()),
+                    preference.isNotificationEnabled(), Boolean::logicalOr);
+            } else {
+                // Remember that the wiki has preferences
+                preferences.put("", Boolean.FALSE);
+            }
+        }
+
+        return preferences;
+    }
+
+    private Map<String, Boolean> getUserPreferences(DocumentReference user) throws NotificationException
+    {
+        WikiPreferences preferences = getLoadedWikiPreferences(user.getWikiReference().getName());
+
+        preferences.lock.readLock().lock();
+        try {
+            return preferences.preferencesByUser.get(user);
+        } finally {
+            preferences.lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Boolean> getPreferences(XWikiDocument document)
+    {
+        List<BaseObject> preferenceObjects = document.getXObjects(NOTIFICATION_PREFERENCE_CLASS);
+
+        Map<String, Boolean> preferences = null;
+        for (BaseObject preferenceObject : preferenceObjects) {
+            if (preferenceObject != null) {
+                if (preferences == null) {
+                    preferences = new HashMap<>();
+                }
+                addPreference(preferences, preferenceObject.getStringValue(EVENT_TYPE_FIELD),
+                    preferenceObject.getStringValue(FORMAT_FIELD),
+                    preferenceObject.getIntValue(NOTIFICATION_ENABLED_FIELD, 0) != 0);
+            }
+        }
+
+        return preferences;
+    }
+
+    private void addPreference(Map<String, Boolean> preferences, String eventType, String format, boolean enabled)
+    {
+        if (StringUtils.isNotBlank(eventType)) {
+            NotificationFormat notificationFormat = StringUtils.isNotBlank(format)
+                ? EnumUtils.getEnumIgnoreCase(NotificationFormat.class, format.trim()) : NotificationFormat.ALERT;
+            if (notificationFormat == null) {
+                // Don't let a broken preference prevent the notification of the other users
+                this.logger.warn("Ignoring the notification preference for event type [{}] with unknown format [{}]",
+                    eventType, format);
+            } else {
+                // When several preferences have the same format and event type, which one is used is not predictable
+                preferences.merge(getKey(notificationFormat, eventType), enabled, Boolean::logicalOr);
+            }
+        }
+    }
+
+    private String getKey(NotificationFormat format, String eventType)
+    {
+        return format.name() + ':' + eventType;
+    }
+
+    private WikiPreferences getLoadedWikiPreferences(String wiki) throws NotificationException
+    {
+        WikiPreferences preferences = this.wikis.computeIfAbsent(wiki, k -> new WikiPreferences());
+
+        preferences.lock.readLock().lock();
+        try {
+            if (preferences.loaded) {
+                return preferences;
+            }
+        } finally {
+            preferences.lock.readLock().unlock();
+        }
+
+        preferences.lock.writeLock().lock();
+        try {
+            // Check if it was loaded by another thread in the meantime
+            if (!preferences.loaded) {
+                load(wiki, preferences);
+            }
+        } catch (QueryException e) {
+            throw new NotificationException(
+                String.format("Failed to load the notification preferences of the wiki [%s]", wiki), e);
+        } finally {
+            preferences.lock.writeLock().unlock();
+        }
+
+        return preferences;
+    }
+
+    private void load(String wiki, WikiPreferences preferences) throws QueryException
+    {
+        WikiReference wikiReference = new WikiReference(wiki);
+
+        List<Object[]> objects = this.queryManager.createQuery(OBJECTS_QUERY, Query.HQL)
+            .bindValue(CLASS_NAME_PARAMETER, CLASS_NAME).bindValue("globalPreferences", GLOBAL_PREFERENCES)
+            .setWiki(wiki).execute();
+        List<Object[]> stringProperties = this.queryManager.createQuery(STRING_PROPERTIES_QUERY, Query.HQL)
+            .bindValue(CLASS_NAME_PARAMETER, CLASS_NAME).setWiki(wiki).execute();
+        List<Object[]> enabledProperties = this.queryManager.createQuery(ENABLED_PROPERTIES_QUERY, Query.HQL)
+            .bindValue(CLASS_NAME_PARAMETER, CLASS_NAME).setWiki(wiki).execute();
+
+        Map<Object, String> eventTypes = new HashMap<>();
+        Map<Object, String> formats = new HashMap<>();
+        for (Object[] property : stringProperties) {
+            (EVENT_TYPE_FIELD.equals(property[1]) ? eventTypes : formats).put(property[0], (String) property[2]);
+        }
+        Map<Object, Boolean> enabled = new HashMap<>();
+        for (Object[] property : enabledProperties) {
+            enabled.put(property[0], property[1] != null && ((Number) property[1]).intValue() != 0);
+        }
+
+        for (Object[] object : objects) {
+            DocumentReference user = this.resolver.resolve((String) object[1], wikiReference);
+            Map<String, Boolean> userPreferences =
+                preferences.preferencesByUser.computeIfAbsent(user, k -> new HashMap<>());
+            addPreference(userPreferences, eventTypes.get(object[0]), formats.get(object[0]),
+                enabled.getOrDefault(object[0], Boolean.FALSE));
+        }
+
+        preferences.loaded = true;
+    }
+}
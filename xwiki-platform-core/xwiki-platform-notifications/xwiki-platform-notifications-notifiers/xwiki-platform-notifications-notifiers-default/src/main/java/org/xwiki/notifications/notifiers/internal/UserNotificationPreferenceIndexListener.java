@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Maintain the {@link UserNotificationPreferenceIndex} based on the modifications of the
+ * {@code XWiki.Notifications.Code.NotificationPreferenceClass} objects.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component
+@Named(UserNotificationPreferenceIndexListener.NAME)
+@Singleton
+public class UserNotificationPreferenceIndexListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "UserNotificationPreferenceIndexListener";
+
+    @Inject
+    private UserNotificationPreferenceIndex index;
+
+    /**
+     * Default constructor.
+     */
+    public UserNotificationPreferenceIndexListener()
+    {
+        super(NAME, new WikiDeletedEvent(), new DocumentCreatedEvent(), new DocumentUpdatedEvent(),
+            new DocumentDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof WikiDeletedEvent) {
+            this.index.remove(((WikiDeletedEvent) event).getWikiId());
+        } else {
+            XWikiDocument document = (XWikiDocument) source;
+
+            if (hasPreferences(document) || hasPreferences(document.getOriginalDocument())) {
+                this.index.update(document);
+            }
+        }
+    }
+
+    private boolean hasPreferences(XWikiDocument document)
+    {
+        return document != null
+            && document.getXObject(UserNotificationPreferenceIndex.NOTIFICATION_PREFERENCE_CLASS) != null;
+    }
+}
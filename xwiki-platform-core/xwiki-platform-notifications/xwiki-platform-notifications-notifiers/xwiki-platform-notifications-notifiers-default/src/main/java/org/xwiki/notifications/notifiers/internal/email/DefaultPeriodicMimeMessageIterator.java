@@ -19,13 +19,22 @@
  */
 package org.xwiki.notifications.notifiers.internal.email;
 
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.mail.internet.MimeMessage;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -43,6 +52,10 @@
 
 /**
  * Default implementation of {@link PeriodicMimeMessageIterator}.
+ * <p>
+ * When enabled (see {@link org.xwiki.notifications.NotificationConfiguration#getEmailPoolSize()}), the notifications
+ * of the next users are searched in a pool of threads while the email of the current user is rendered. The emails are
+ * still generated in the order of the users.
  *
  * @version $Id$
  * @since 9.10RC1
@@ -65,19 +78,128 @@ public class DefaultPeriodicMimeMessageIterator extends AbstractMimeMessageItera
     @Named("document")
     private UserReferenceResolver<DocumentReference> userReferenceResolver;
 
+    @Inject
+    private PeriodicMimeMessageExecutor executor;
+
     private Date lastTrigger;
 
+    /**
+     * The user returned by the {@link SearchingUserIterator} and the search of its notifications.
+     */
+    private Pair<DocumentReference, Future<List<CompositeEvent>>> currentSearch;
+
+    private long searchTime;
+
+    private int userCount;
+
+    private int messageCount;
+
+    private long startTime;
+
+    private boolean finished;
+
+    /**
+     * Iterate over the users while searching the notifications of the next users in the thread pool.
+     */
+    private final class SearchingUserIterator implements Iterator<DocumentReference>
+    {
+        private final Iterator<DocumentReference> users;
+
+        private final int window;
+
+        private final Deque<Pair<DocumentReference, Future<List<CompositeEvent>>>> searches = new ArrayDeque<>();
+
+        private SearchingUserIterator(Iterator<DocumentReference> users, int window)
+        {
+            this.users = users;
+            this.window = window;
+        }
+
+        private void fill()
+        {
+            // Give enough work to the search threads while the current email is rendered
+            while (this.searches.size() < this.window && this.users.hasNext()) {
+                DocumentReference user = this.users.next();
+                this.searches.add(Pair.of(user, executor.submit(() -> searchCompositeEventList(user))));
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            fill();
+
+            return !this.searches.isEmpty();
+        }
+
+        @Override
+        public DocumentReference next()
+        {
+            fill();
+
+            if (this.searches.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            currentSearch = this.searches.poll();
+
+            return currentSearch.getKey();
+        }
+    }
+
     @Override
     public void initialize(NotificationUserIterator userIterator, Map<String, Object> factoryParameters,
         Date lastTrigger, DocumentReference templateReference)
     {
         this.lastTrigger = lastTrigger;
+        this.startTime = System.nanoTime();
+
+        Iterator<DocumentReference> users = userIterator;
+        if (this.executor.isEnabled()) {
+            users = new SearchingUserIterator(userIterator, this.executor.getPoolSize() * 2);
+        }
 
-        super.initialize(userIterator, factoryParameters, templateReference, userIterator.getInterval());
+        super.initialize(users, factoryParameters, templateReference, userIterator.getInterval());
     }
 
     @Override
     protected List<CompositeEvent> retrieveCompositeEventList(DocumentReference user) throws NotificationException
+    {
+        long start = System.nanoTime();
+        try {
+            if (this.currentSearch != null && this.currentSearch.getKey().equals(user)) {
+                try {
+                    return this.currentSearch.getValue().get();
+                } finally {
+                    this.currentSearch = null;
+                    this.executor.addSearchWait(System.nanoTime() - start);
+                }
+            }
+
+            try {
+                return searchCompositeEventList(user);
+            } finally {
+                this.executor.addSearch(System.nanoTime() - start);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NotificationException) {
+                throw (NotificationException) e.getCause();
+            }
+
+            throw new NotificationException(String.format("Failed to search the notifications of [%s]", user),
+                e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new NotificationException(
+                String.format("Interrupted while searching the notifications of [%s]", user), e);
+        } finally {
+            this.searchTime += System.nanoTime() - start;
+            this.userCount++;
+        }
+    }
+
+    private List<CompositeEvent> searchCompositeEventList(DocumentReference user) throws NotificationException
     {
         NotificationParameters notificationParameters = new NotificationParameters();
         notificationParameters.user = user;
@@ -91,4 +213,36 @@ protected List<CompositeEvent> retrieveCompositeEventList(DocumentReference user
         List<Event> rawEvents = this.notificationManager.getRawEvents(notificationParameters);
         return this.groupingEventManager.getCompositeEvents(rawEvents, userReference, NotificationFormat.EMAIL.name());
     }
+
+    @Override
+    public boolean hasNext()
+    {
+        boolean hasNext = super.hasNext();
+
+        if (!hasNext && !this.finished) {
+            this.finished = true;
+
+            this.logger.debug("Generated [{}] periodic notification emails for [{}] users in [{}] ms"
+                + " (searching notifications: [{}] ms, search threads: [{}])", this.messageCount, this.userCount,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startTime),
+                TimeUnit.NANOSECONDS.toMillis(this.searchTime), this.executor.getPoolSize());
+        }
+
+        return hasNext;
+    }
+
+    @Override
+    public MimeMessage next()
+    {
+        long start = System.nanoTime();
+        long previousSearchTime = this.searchTime;
+
+        try {
+            return super.next();
+        } finally {
+            // Don't count the search of the notifications of the next user (which is triggered by next())
+            this.executor.addMessage(System.nanoTime() - start - (this.searchTime - previousSearchTime));
+            this.messageCount++;
+        }
+    }
 }
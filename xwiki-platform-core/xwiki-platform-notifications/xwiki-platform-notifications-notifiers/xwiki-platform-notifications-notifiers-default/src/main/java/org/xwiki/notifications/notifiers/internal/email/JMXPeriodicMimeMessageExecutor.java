@@ -0,0 +1,77 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal.email;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expose the statistics of the generation of the periodic notification emails as JMX mbean.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class JMXPeriodicMimeMessageExecutor implements JMXPeriodicMimeMessageExecutorMBean
+{
+    private final PeriodicMimeMessageExecutor executor;
+
+    /**
+     * @param executor the executor
+     */
+    public JMXPeriodicMimeMessageExecutor(PeriodicMimeMessageExecutor executor)
+    {
+        this.executor = executor;
+    }
+
+    @Override
+    public int getPoolSize()
+    {
+        return this.executor.getPoolSize();
+    }
+
+    @Override
+    public long getSearchCount()
+    {
+        return this.executor.getSearchCount();
+    }
+
+    @Override
+    public long getSearchTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.executor.getSearchTime());
+    }
+
+    @Override
+    public long getSearchWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.executor.getSearchWaitTime());
+    }
+
+    @Override
+    public long getMessageCount()
+    {
+        return this.executor.getMessageCount();
+    }
+
+    @Override
+    public long getMessageTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.executor.getMessageTime());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal.email;
+
+/**
+ * Interface of the {@link JMXPeriodicMimeMessageExecutor} MBean.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public interface JMXPeriodicMimeMessageExecutorMBean
+{
+    /**
+     * @return the number of threads in which the notifications are searched
+     */
+    int getPoolSize();
+
+    /**
+     * @return the number of users for which the notifications have been searched
+     */
+    long getSearchCount();
+
+    /**
+     * @return the total time spent searching the notifications of the users, in milliseconds
+     */
+    long getSearchTime();
+
+    /**
+     * @return the total time spent by the threads generating the emails waiting for the result of the searches, in
+     *         milliseconds
+     */
+    long getSearchWaitTime();
+
+    /**
+     * @return the number of rendered emails
+     */
+    long getMessageCount();
+
+    /**
+     * @return the total time spent rendering the emails, in milliseconds
+     */
+    long getMessageTime();
+}
@@ -0,0 +1,238 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal.email;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.NotificationConfiguration;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * The thread pool in which the notifications of the users receiving the periodic emails are searched, and the
+ * statistics about the various stages of the generation of those emails (also exposed through JMX).
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = PeriodicMimeMessageExecutor.class)
+@Singleton
+public class PeriodicMimeMessageExecutor implements Initializable, Disposable
+{
+    private static final String MBEAN_NAME = "type=Notifications,name=periodicEmails";
+
+    @Inject
+    private NotificationConfiguration configuration;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    /**
+     * The threads in which the notifications are searched, {@code null} when they are searched by the thread
+     * generating the emails.
+     */
+    private ExecutorService executor;
+
+    private int poolSize;
+
+    private final LongAdder searchCount = new LongAdder();
+
+    private final LongAdder searchTime = new LongAdder();
+
+    private final LongAdder searchWaitTime = new LongAdder();
+
+    private final LongAdder messageCount = new LongAdder();
+
+    private final LongAdder messageTime = new LongAdder();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.poolSize = this.configuration.getEmailPoolSize();
+        if (this.poolSize > 1) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki periodic notification email search thread %d").daemon(true)
+                .priority(Thread.NORM_PRIORITY - 1).build();
+            this.executor = Executors.newFixedThreadPool(this.poolSize, factory);
+        }
+
+        this.jmxRegistration.registerMBean(new JMXPeriodicMimeMessageExecutor(this), MBEAN_NAME);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return {@code true} if the notifications are searched in a dedicated thread pool
+     */
+    public boolean isEnabled()
+    {
+        return this.executor != null;
+    }
+
+    /**
+     * @return the number of threads in which the notifications are searched
+     */
+    public int getPoolSize()
+    {
+        return this.executor != null ? this.poolSize : 1;
+    }
+
+    /**
+     * Search the notifications of a user in the thread pool. The search is executed in a new execution context
+     * targeting the same wiki and executed with the same user as the current context.
+     *
+     * @param <T> the type of the result of the search
+     * @param search the search to execute
+     * @return the result of the search
+     */
+    public <T> Future<T> submit(Callable<T> search)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String wiki = xcontext.getWikiId();
+        DocumentReference user = xcontext.getUserReference();
+
+        return this.executor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                XWikiContext searchContext = initializeContext();
+                searchContext.setWikiId(wiki);
+                searchContext.setUserReference(user);
+
+                return search.call();
+            } finally {
+                this.execution.removeContext();
+
+                addSearch(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private XWikiContext initializeContext() throws Exception
+    {
+        ExecutionContext executionContext = new ExecutionContext();
+        this.executionContextManager.initialize(executionContext);
+
+        return (XWikiContext) executionContext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
+    }
+
+    /**
+     * @param time the time spent searching the notifications of a user, in nanoseconds
+     */
+    public void addSearch(long time)
+    {
+        this.searchCount.increment();
+        this.searchTime.add(time);
+    }
+
+    /**
+     * @param time the time spent by the thread generating the emails waiting for the result of a search, in
+     *            nanoseconds
+     */
+    public void addSearchWait(long time)
+    {
+        this.searchWaitTime.add(time);
+    }
+
+    /**
+     * @param time the time spent rendering an email, in nanoseconds
+     */
+    public void addMessage(long time)
+    {
+        this.messageCount.increment();
+        this.messageTime.add(time);
+    }
+
+    /**
+     * @return the number of users for which the notifications have been searched
+     */
+    public long getSearchCount()
+    {
+        return this.searchCount.sum();
+    }
+
+    /**
+     * @return the total time spent searching the notifications of the users, in nanoseconds
+     */
+    public long getSearchTime()
+    {
+        return this.searchTime.sum();
+    }
+
+    /**
+     * @return the total time spent by the threads generating the emails waiting for the result of the searches, in
+     *         nanoseconds
+     */
+    public long getSearchWaitTime()
+    {
+        return this.searchWaitTime.sum();
+    }
+
+    /**
+     * @return the number of rendered emails
+     */
+    public long getMessageCount()
+    {
+        return this.messageCount.sum();
+    }
+
+    /**
+     * @return the total time spent rendering the emails, in nanoseconds
+     */
+    public long getMessageTime()
+    {
+        return this.messageTime.sum();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceManager;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+import org.xwiki.notifications.preferences.NotificationPreferenceProvider;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link UserNotificationPreferenceIndex}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class UserNotificationPreferenceIndexTest
+{
+    private static final WikiReference WIKI = new WikiReference("xwiki");
+
+    private static final DocumentReference USER1 = new DocumentReference("xwiki", "XWiki", "User1");
+
+    private static final DocumentReference USER2 = new DocumentReference("xwiki", "XWiki", "User2");
+
+    private static final DocumentReference USER3 = new DocumentReference("xwiki", "XWiki", "User3");
+
+    private static final DocumentReference FOLLOWER = new DocumentReference("xwiki", "XWiki", "Follower");
+
+    private static final DocumentReference FOLLOWED = new DocumentReference("xwiki", "XWiki", "Followed");
+
+    private static final List<DocumentReference> USERS = List.of(USER1, USER2, USER3, FOLLOWER);
+
+    @RegisterExtension
+    private LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @InjectMockComponents
+    private UserNotificationPreferenceIndex index;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    private NotificationPreferenceManager notificationPreferenceManager;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @MockComponent
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @MockComponent
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @MockComponent
+    @Named("context")
+    private ComponentManager contextComponentManager;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.wikiDescriptorManager.getMainWikiId()).thenReturn(WIKI.getName());
+        when(this.serializer.serialize(FOLLOWED)).thenReturn("xwiki:XWiki.Followed");
+        when(this.localSerializer.serialize(FOLLOWED)).thenReturn("XWiki.Followed");
+        when(this.localSerializer.serialize(USER3)).thenReturn("XWiki.User3");
+        when(this.resolver.resolve("XWiki.User1", WIKI)).thenReturn(USER1);
+        when(this.resolver.resolve("XWiki.User2", WIKI)).thenReturn(USER2);
+        when(this.resolver.resolve("xwiki:XWiki.Follower")).thenReturn(FOLLOWER);
+
+        // User1 enabled alerts for updates, User2 disabled alerts for creations
+        mockQuery("BaseObject obj where", List.of(new Object[] { 1L, "XWiki.User1" },
+            new Object[] { 2L, "XWiki.User2" }));
+        mockQuery("StringProperty", List.of(new Object[] { 1L, "eventType", "update" },
+            new Object[] { 2L, "eventType", "create" }, new Object[] { 2L, "format", "alert" }));
+        mockQuery("IntegerProperty", List.of(new Object[] { 1L, 1 }, new Object[] { 2L, 0 }));
+        mockQuery("DefaultNotificationFilterPreference", List.of("xwiki:XWiki.Follower"));
+
+        // The wiki enables alerts for creations and disables them for updates
+        List<NotificationPreference> wikiPreferences =
+            List.of(mockPreference("create", NotificationFormat.ALERT, true),
+                mockPreference("update", NotificationFormat.ALERT, false));
+        when(this.notificationPreferenceManager.getAllPreferences(WIKI)).thenReturn(wikiPreferences);
+    }
+
+    private void mockQuery(String statement, List<?> results) throws Exception
+    {
+        Query query = mock(Query.class);
+        when(query.bindValue(anyString(), any())).thenReturn(query);
+        when(query.setWiki(anyString())).thenReturn(query);
+        when(query.execute()).thenReturn((List<Object>) results);
+        when(this.queryManager.createQuery(argThat(s -> s != null && s.contains(statement)), eq(Query.HQL)))
+            .thenReturn(query);
+    }
+
+    private NotificationPreference mockPreference(String eventType, NotificationFormat format, boolean enabled)
+    {
+        NotificationPreference preference = mock(NotificationPreference.class);
+        when(preference.getProperties()).thenReturn(Map.of(NotificationPreferenceProperty.EVENT_TYPE, eventType));
+        when(preference.getFormat()).thenReturn(format);
+        when(preference.isNotificationEnabled()).thenReturn(enabled);
+
+        return preference;
+    }
+
+    private Event mockEvent(String type)
+    {
+        Event event = mock(Event.class);
+        when(event.getType()).thenReturn(type);
+        when(event.getUser()).thenReturn(FOLLOWED);
+
+        return event;
+    }
+
+    @Test
+    void getCandidates() throws Exception
+    {
+        assertEquals(Set.of(USER1, FOLLOWER),
+            this.index.getCandidates(mockEvent("update"), USERS, NotificationFormat.ALERT));
+        assertEquals(Set.of(USER1, USER3, FOLLOWER),
+            this.index.getCandidates(mockEvent("create"), USERS, NotificationFormat.ALERT));
+        // Nobody has any preference for this event type
+        assertEquals(Set.of(FOLLOWER), this.index.getCandidates(mockEvent("other"), USERS, NotificationFormat.ALERT));
+    }
+
+    @Test
+    void getCandidatesWithUnknownFormat() throws Exception
+    {
+        mockQuery("StringProperty", List.of(new Object[] { 1L, "eventType", "update" },
+            new Object[] { 2L, "eventType", "create" }, new Object[] { 2L, "format", "unknown" }));
+
+        // The preference of User2 is ignored so the one of the wiki applies
+        assertEquals(Set.of(USER1, USER2, USER3, FOLLOWER),
+            this.index.getCandidates(mockEvent("create"), USERS, NotificationFormat.ALERT));
+
+        assertEquals("Ignoring the notification preference for event type [create] with unknown format [unknown]",
+            this.logCapture.getMessage(0));
+    }
+
+    @Test
+    void getCandidatesWithoutAnyPreference() throws Exception
+    {
+        when(this.notificationPreferenceManager.getAllPreferences(WIKI)).thenReturn(Collections.emptyList());
+
+        assertEquals(Set.of(USER3, FOLLOWER),
+            this.index.getCandidates(mockEvent("other"), USERS, NotificationFormat.ALERT));
+    }
+
+    @Test
+    void getCandidatesWithUnindexedProvider() throws Exception
+    {
+        ComponentDescriptor<NotificationPreferenceProvider> descriptor = mock(ComponentDescriptor.class);
+        when(descriptor.getRoleHint()).thenReturn("custom");
+        when(this.contextComponentManager.<NotificationPreferenceProvider>getComponentDescriptorList(
+            NotificationPreferenceProvider.class)).thenReturn(List.of(descriptor));
+
+        assertEquals(Set.copyOf(USERS), this.index.getCandidates(mockEvent("update"), USERS, NotificationFormat.ALERT));
+    }
+
+    @Test
+    void update() throws Exception
+    {
+        // Load the preferences
+        assertEquals(Set.of(USER1, FOLLOWER),
+            this.index.getCandidates(mockEvent("update"), USERS, NotificationFormat.ALERT));
+
+        BaseObject preference = mock(BaseObject.class);
+        when(preference.getStringValue("eventType")).thenReturn("update");
+        when(preference.getStringValue("format")).thenReturn("");
+        when(preference.getIntValue("notificationEnabled", 0)).thenReturn(1);
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(USER3);
+        when(document.getXObjects(UserNotificationPreferenceIndex.NOTIFICATION_PREFERENCE_CLASS))
+            .thenReturn(List.of(preference));
+
+        this.index.update(document);
+
+        assertEquals(Set.of(USER1, USER3, FOLLOWER),
+            this.index.getCandidates(mockEvent("update"), USERS, NotificationFormat.ALERT));
+        // User3 now has preferences so it's not notified about everything anymore
+        assertEquals(Set.of(USER1, FOLLOWER),
+            this.index.getCandidates(mockEvent("create"), USERS, NotificationFormat.ALERT));
+
+        when(document.getXObjects(UserNotificationPreferenceIndex.NOTIFICATION_PREFERENCE_CLASS))
+            .thenReturn(Collections.emptyList());
+
+        this.index.update(document);
+
+        assertEquals(Set.of(USER1, USER3, FOLLOWER),
+            this.index.getCandidates(mockEvent("create"), USERS, NotificationFormat.ALERT));
+    }
+}
@@ -25,6 +25,8 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import javax.inject.Named;
@@ -72,6 +74,7 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -129,6 +132,9 @@
     @MockComponent
     private NotificationConfiguration notificationConfiguration;
 
+    @MockComponent
+    private PeriodicMimeMessageExecutor executor;
+
     @BeforeComponent
     void beforeComponent(MockitoComponentManager componentManager) throws Exception
     {
@@ -149,6 +155,27 @@ void beforeEach()
 
     @Test
     void test() throws Exception
+    {
+        assertIterator();
+    }
+
+    @Test
+    void testWithSearchThreads() throws Exception
+    {
+        when(this.executor.isEnabled()).thenReturn(true);
+        when(this.executor.getPoolSize()).thenReturn(2);
+        when(this.executor.submit(any())).then(invocation -> {
+            Callable<?> search = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(search.call());
+        });
+
+        assertIterator();
+
+        // The notifications of the user without a valid email are also searched
+        verify(this.executor, times(3)).submit(any());
+    }
+
+    private void assertIterator() throws Exception
     {
         Map<String, Object> factoryParameters = new HashMap<>();
 
@@ -291,5 +318,4 @@ void test() throws Exception
 
         assertEquals(this.iterator, this.iterator.iterator());
     }
-
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.notifications.rest.internal;
 
+import java.util.Collections;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -26,6 +28,7 @@
 import org.xwiki.bridge.event.WikiCreatedEvent;
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.eventstream.EventStatus;
 import org.xwiki.eventstream.events.EventStreamAddedEvent;
 import org.xwiki.eventstream.events.EventStreamDeletedEvent;
 import org.xwiki.eventstream.internal.events.EventStatusAddOrUpdatedEvent;
@@ -33,14 +36,21 @@
 import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
 import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
 import org.xwiki.notifications.notifiers.internal.DefaultNotificationCacheManager;
+import org.xwiki.notifications.notifiers.internal.NotificationCacheInvalidationEvent;
 import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceAddedEvent;
 import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceDeletedEvent;
 import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceUpdatedEvent;
 import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
 
 /**
  * A listener used to invalidate the notification event cache when a new event is stored.
+ * <p>
+ * The local events are converted to a {@link NotificationCacheInvalidationEvent} targeting only the users affected by
+ * the change (when it can be determined), which is also sent to the other members of the cluster. The users
+ * connected through {@link NotificationWebSocketEndpoint} receive their new number of unread notifications.
  * 
  * @version $Id$
  * @since 10.11.4
@@ -59,6 +69,15 @@ public class NotificationEventExecutorListener extends AbstractEventListener
     @Inject
     private DefaultNotificationCacheManager cache;
 
+    @Inject
+    private NotificationWebSocketPusher pusher;
+
+    @Inject
+    private ObservationManager observation;
+
+    @Inject
+    private RemoteObservationManagerContext remoteState;
+
     /**
      * The default constructor.
      */
@@ -68,12 +87,49 @@ public NotificationEventExecutorListener()
             new EventStreamDeletedEvent(), new NotificationPreferenceAddedEvent(),
             new NotificationPreferenceUpdatedEvent(), new NotificationPreferenceDeletedEvent(),
             new NotificationFilterPreferenceAddOrUpdatedEvent(), new NotificationFilterPreferenceDeletedEvent(),
-            new EventStatusAddOrUpdatedEvent(), new EventStatusDeletedEvent());
+            new EventStatusAddOrUpdatedEvent(), new EventStatusDeletedEvent(),
+            new NotificationCacheInvalidationEvent());
     }
 
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
-        this.cache.flushLongCache();
+        if (event instanceof NotificationCacheInvalidationEvent) {
+            invalidate((NotificationCacheInvalidationEvent) event);
+        } else if (!this.remoteState.isRemoteState()) {
+            // The other members of the cluster are notified through the invalidation event
+            this.observation.notify(toInvalidationEvent(event, source), null);
+        }
+    }
+
+    private NotificationCacheInvalidationEvent toInvalidationEvent(Event event, Object source)
+    {
+        if (event instanceof EventStreamAddedEvent) {
+            // The results computed from the prefiltered event statuses only change when the statuses are saved
+            return new NotificationCacheInvalidationEvent(Collections.emptySet(), true);
+        } else if ((event instanceof EventStatusAddOrUpdatedEvent || event instanceof EventStatusDeletedEvent)
+            && source instanceof EventStatus) {
+            return new NotificationCacheInvalidationEvent(
+                Collections.singleton(((EventStatus) source).getEntityId()), false);
+        }
+
+        return new NotificationCacheInvalidationEvent();
+    }
+
+    private void invalidate(NotificationCacheInvalidationEvent event)
+    {
+        if (event.getUsers() == null) {
+            this.cache.flushLongCache();
+
+            this.pusher.pushAll();
+        } else {
+            this.cache.flushUserCache(event.getUsers());
+            if (event.isNewEvent()) {
+                this.cache.flushEventCache();
+            }
+
+            // The users are notified of a new event when its statuses are saved
+            this.pusher.push(event.getUsers());
+        }
     }
 }
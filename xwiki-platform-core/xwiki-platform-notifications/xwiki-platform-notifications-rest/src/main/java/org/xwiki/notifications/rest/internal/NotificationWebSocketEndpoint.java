@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.rest.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import javax.websocket.CloseReason;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Session;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.websocket.AbstractXWikiEndpoint;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * A WebSocket end-point pushing the number of unread notifications to the current user, so that the notifications
+ * menu doesn't have to request it on each page load.
+ * 
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component
+@Named("notifications")
+@Singleton
+public class NotificationWebSocketEndpoint extends AbstractXWikiEndpoint
+{
+    @Inject
+    private NotificationConfiguration configuration;
+
+    @Inject
+    private NotificationWebSocketPusher pusher;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config)
+    {
+        this.context.run(session, () -> {
+            XWikiContext xcontext = this.xcontextProvider.get();
+            DocumentReference user = xcontext.getUserReference();
+
+            if (!this.configuration.isEnabled() || !this.configuration.isWebSocketEnabled()) {
+                close(session, CloseReason.CloseCodes.CANNOT_ACCEPT,
+                    "The notifications are not pushed through WebSocket.");
+            } else if (user == null) {
+                close(session, CloseReason.CloseCodes.CANNOT_ACCEPT,
+                    "We don't accept connections from guest users. Please login first.");
+            } else if (!this.pusher.register(this.serializer.serialize(user), xcontext.getWikiId(), session)) {
+                close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER,
+                    "The maximum number of connections is reached.");
+            }
+        });
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason)
+    {
+        this.pusher.unregister(session);
+    }
+
+    @Override
+    public void onError(Session session, Throwable throwable)
+    {
+        this.logger.debug("Error in the notifications WebSocket session. Root cause is [{}].",
+            ExceptionUtils.getRootCauseMessage(throwable));
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.rest.internal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.websocket.Session;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.notifiers.internal.DefaultNotificationCacheManager;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.notifications.sources.ParametrizedNotificationManager;
+import org.xwiki.notifications.sources.internal.DefaultNotificationParametersFactory;
+import org.xwiki.notifications.sources.internal.DefaultNotificationParametersFactory.ParametersKey;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Keep track of the WebSocket sessions opened by {@link NotificationWebSocketEndpoint} and push the number of unread
+ * notifications to the users when it changes.
+ * <p>
+ * The users affected by a change are only marked and a single thread regularly computes and sends their new count, so
+ * that a burst of event statuses produces only one message per user. A session never has more than one message in
+ * flight: a user whose previous message is still being sent is marked again and receives the latest count later.
+ * 
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = NotificationWebSocketPusher.class)
+@Singleton
+public class NotificationWebSocketPusher implements Initializable, Disposable
+{
+    /**
+     * The number of notifications counted, the menu displays "20+" above it.
+     */
+    private static final int MAX_COUNT = 21;
+
+    /**
+     * The delay between two pushes, in milliseconds.
+     */
+    private static final long PUSH_DELAY = 1000;
+
+    private static final String PROPERTY_USER = "xwiki.notifications.user";
+
+    private static final String PROPERTY_WIKI = "xwiki.notifications.wiki";
+
+    private static final String PROPERTY_SENDING = "xwiki.notifications.sending";
+
+    @Inject
+    private NotificationConfiguration configuration;
+
+    @Inject
+    private NotificationEventExecutor executor;
+
+    @Inject
+    private DefaultNotificationCacheManager cacheManager;
+
+    @Inject
+    private DefaultNotificationParametersFactory parametersFactory;
+
+    @Inject
+    private ParametrizedNotificationManager notificationManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, Set<Session>> sessions = new ConcurrentHashMap<>();
+
+    private final Set<String> modifiedUsers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        if (this.configuration.isEnabled() && this.configuration.isWebSocketEnabled()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("Notification WebSocket push").daemon(true)
+                    .priority(Thread.NORM_PRIORITY - 1).build());
+            this.scheduler.scheduleWithFixedDelay(this::pushModifiedUsers, PUSH_DELAY, PUSH_DELAY,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @param user the serialized reference of the user who opened the session
+     * @param wiki the wiki in which the unread notifications are counted
+     * @param session the WebSocket session to push the notifications to
+     * @return {@code true} if the session was registered, {@code false} if the maximum number of connections is
+     *         reached
+     */
+    public boolean register(String user, String wiki, Session session)
+    {
+        if (this.connectionCount.incrementAndGet() > this.configuration.getWebSocketMaxConnections()) {
+            this.connectionCount.decrementAndGet();
+
+            return false;
+        }
+
+        session.getUserProperties().put(PROPERTY_USER, user);
+        session.getUserProperties().put(PROPERTY_WIKI, wiki);
+        session.getUserProperties().put(PROPERTY_SENDING, new AtomicBoolean());
+
+        this.sessions.computeIfAbsent(user, key -> ConcurrentHashMap.newKeySet()).add(session);
+
+        // Send the current count to the new session
+        this.modifiedUsers.add(user);
+
+        return true;
+    }
+
+    /**
+     * @param session the closed WebSocket session
+     */
+    public void unregister(Session session)
+    {
+        String user = (String) session.getUserProperties().get(PROPERTY_USER);
+
+        if (user != null) {
+            this.sessions.computeIfPresent(user, (key, userSessions) -> {
+                if (userSessions.remove(session)) {
+                    this.connectionCount.decrementAndGet();
+                }
+
+                return userSessions.isEmpty() ? null : userSessions;
+            });
+        }
+    }
+
+    /**
+     * @return the number of opened WebSocket sessions
+     */
+    public int getConnectionCount()
+    {
+        return this.connectionCount.get();
+    }
+
+    /**
+     * Push the number of unread notifications to the passed users, if they are connected.
+     * 
+     * @param users the serialized references of the users whose notifications have changed
+     */
+    public void push(Collection<String> users)
+    {
+        for (String user : users) {
+            if (this.sessions.containsKey(user)) {
+                this.modifiedUsers.add(user);
+            }
+        }
+    }
+
+    /**
+     * Push the number of unread notifications to all the connected users.
+     */
+    public void pushAll()
+    {
+        this.modifiedUsers.addAll(this.sessions.keySet());
+    }
+
+    /**
+     * Send the number of unread notifications to the sessions of the users marked as modified.
+     */
+    void pushModifiedUsers()
+    {
+        for (String user : List.copyOf(this.modifiedUsers)) {
+            this.modifiedUsers.remove(user);
+
+            Set<Session> userSessions = this.sessions.get(user);
+            if (userSessions != null) {
+                try {
+                    pushUser(user, userSessions);
+                } catch (Exception e) {
+                    this.logger.warn("Failed to push the unread notifications of user [{}]. Root cause is [{}].", user,
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+    }
+
+    private void pushUser(String user, Set<Session> userSessions) throws Exception
+    {
+        // The same user can be connected from several wikis
+        Map<String, String> messages = new HashMap<>();
+
+        for (Session session : userSessions) {
+            AtomicBoolean sending = (AtomicBoolean) session.getUserProperties().get(PROPERTY_SENDING);
+
+            if (!session.isOpen()) {
+                unregister(session);
+            } else if (sending.compareAndSet(false, true)) {
+                try {
+                    send(user, session, messages, sending);
+                } catch (Exception e) {
+                    // Nothing is being sent so the completion handler won't reset the flag
+                    sending.set(false);
+
+                    throw e;
+                }
+            } else {
+                // The client is not consuming the previous message yet, it will get the latest count later
+                this.modifiedUsers.add(user);
+            }
+        }
+    }
+
+    private void send(String user, Session session, Map<String, String> messages, AtomicBoolean sending)
+        throws Exception
+    {
+        String wiki = (String) session.getUserProperties().get(PROPERTY_WIKI);
+        String message = messages.get(wiki);
+        if (message == null) {
+            message = String.format("{\"unread\":%d}", getUnreadCount(user, wiki));
+            messages.put(wiki, message);
+        }
+
+        session.getAsyncRemote().sendText(message, result -> {
+            sending.set(false);
+
+            if (!result.isOK()) {
+                this.logger.debug("Failed to push the unread notifications of user [{}]", user,
+                    result.getException());
+            }
+        });
+    }
+
+    private int getUnreadCount(String user, String wiki) throws Exception
+    {
+        try {
+            ExecutionContext executionContext = new ExecutionContext();
+            this.executionContextManager.initialize(executionContext);
+            XWikiContext xcontext = (XWikiContext) executionContext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
+            xcontext.setWikiId(wiki);
+            xcontext.setUserReference(this.documentReferenceResolver.resolve(user));
+
+            // Same parameters as the count requested by the notifications menu
+            Map<ParametersKey, String> parametersMap = new HashMap<>();
+            parametersMap.put(ParametersKey.USE_USER_PREFERENCES, Boolean.TRUE.toString());
+            parametersMap.put(ParametersKey.USER_ID, user);
+            parametersMap.put(ParametersKey.UNTIL_DATE_INCLUDED, Boolean.TRUE.toString());
+            parametersMap.put(ParametersKey.MAX_COUNT, String.valueOf(MAX_COUNT));
+            parametersMap.put(ParametersKey.CURRENT_WIKI, wiki);
+            parametersMap.put(ParametersKey.ONLY_UNREAD, Boolean.TRUE.toString());
+            NotificationParameters parameters = this.parametersFactory.createNotificationParameters(parametersMap);
+
+            // Go through the REST executor to share its cache and its limit on the number of searching threads
+            Object result = this.executor.submit(this.cacheManager.createCacheKey(parameters),
+                () -> this.notificationManager.getEvents(parameters), false, true, true);
+
+            return result instanceof List ? ((List<?>) result).size() : (Integer) result;
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+    }
+}
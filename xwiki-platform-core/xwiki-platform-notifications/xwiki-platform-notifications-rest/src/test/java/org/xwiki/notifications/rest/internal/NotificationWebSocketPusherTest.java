@@ -0,0 +1,167 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.rest.internal;
+
+import java.util.HashMap;
+import java.util.List;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link NotificationWebSocketPusher}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class NotificationWebSocketPusherTest
+{
+    private static final String USER = "xwiki:XWiki.User";
+
+    @InjectMockComponents
+    private NotificationWebSocketPusher pusher;
+
+    @MockComponent
+    private NotificationConfiguration configuration;
+
+    @MockComponent
+    private NotificationEventExecutor executor;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.configuration.getWebSocketMaxConnections()).thenReturn(1);
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        doAnswer(invocation -> {
+            ((ExecutionContext) invocation.getArgument(0)).setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, xcontext);
+            return null;
+        }).when(this.executionContextManager).initialize(any());
+    }
+
+    private Session mockSession(RemoteEndpoint.Async remote)
+    {
+        Session session = mock(Session.class);
+        when(session.getUserProperties()).thenReturn(new HashMap<>());
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAsyncRemote()).thenReturn(remote);
+
+        return session;
+    }
+
+    @Test
+    void registerAboveMaxConnections()
+    {
+        Session session1 = mockSession(mock(RemoteEndpoint.Async.class));
+        Session session2 = mockSession(mock(RemoteEndpoint.Async.class));
+
+        assertTrue(this.pusher.register(USER, "wiki", session1));
+        assertFalse(this.pusher.register(USER, "wiki", session2));
+        assertEquals(1, this.pusher.getConnectionCount());
+
+        this.pusher.unregister(session2);
+        assertEquals(1, this.pusher.getConnectionCount());
+
+        this.pusher.unregister(session1);
+        assertEquals(0, this.pusher.getConnectionCount());
+        assertTrue(this.pusher.register(USER, "wiki", session2));
+    }
+
+    @Test
+    void pushModifiedUsers() throws Exception
+    {
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        Session session = mockSession(remote);
+        when(this.executor.submit(any(), any(), eq(false), eq(true), eq(true))).thenReturn(3, 2);
+
+        this.pusher.register(USER, "wiki", session);
+
+        // The current count is sent to the new session
+        this.pusher.pushModifiedUsers();
+
+        ArgumentCaptor<SendHandler> handlerCaptor = ArgumentCaptor.forClass(SendHandler.class);
+        verify(remote).sendText(eq("{\"unread\":3}"), handlerCaptor.capture());
+
+        // The previous message is still being sent
+        this.pusher.push(List.of(USER, "xwiki:XWiki.Other"));
+        this.pusher.pushModifiedUsers();
+        verify(remote).sendText(anyString(), any(SendHandler.class));
+
+        // Only the latest count is sent once the previous message is sent
+        handlerCaptor.getValue().onResult(new SendResult());
+        this.pusher.pushModifiedUsers();
+        verify(remote).sendText(eq("{\"unread\":2}"), any(SendHandler.class));
+
+        // Nothing is sent when nothing changed
+        this.pusher.pushModifiedUsers();
+        verify(remote, times(2)).sendText(anyString(), any(SendHandler.class));
+    }
+
+    @Test
+    void pushModifiedUsersWhenUnreadCountFails() throws Exception
+    {
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        Session session = mockSession(remote);
+        when(this.executor.submit(any(), any(), eq(false), eq(true), eq(true)))
+            .thenThrow(new NotificationException("error")).thenReturn(2);
+
+        this.pusher.register(USER, "wiki", session);
+
+        // Nothing is sent when the count cannot be computed
+        this.pusher.pushModifiedUsers();
+        verify(remote, never()).sendText(anyString(), any(SendHandler.class));
+
+        // The session is not considered busy afterwards
+        this.pusher.push(List.of(USER));
+        this.pusher.pushModifiedUsers();
+        verify(remote).sendText(eq("{\"unread\":2}"), any(SendHandler.class));
+    }
+}
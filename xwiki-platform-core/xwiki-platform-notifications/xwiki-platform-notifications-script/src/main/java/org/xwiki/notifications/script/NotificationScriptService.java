@@ -35,6 +35,7 @@
 import org.xwiki.notifications.script.internal.NotificationScriptEventHelper;
 import org.xwiki.script.service.ScriptService;
 import org.xwiki.script.service.ScriptServiceManager;
+import org.xwiki.stability.Unstable;
 
 /**
  * Script services for the notifications.
@@ -124,6 +125,16 @@ public boolean areEmailsEnabled()
         return notificationConfiguration.areEmailsEnabled();
     }
 
+    /**
+     * @return true if the number of unread notifications is pushed to the current user through a WebSocket
+     * @since 15.7RC1
+     */
+    @Unstable
+    public boolean isWebSocketEnabled()
+    {
+        return notificationConfiguration.isWebSocketEnabled();
+    }
+
     /**
      * Save a status for the current user.
      * @param eventId id of the event
@@ -0,0 +1,240 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.async.internal;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.observation.event.AbstractAsynchronousEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+
+/**
+ * Process the events received by the {@link AbstractAsynchronousEventListener}s in a pool of threads.
+ * <p>
+ * Each thread has its own queue. The events with the same listener and ordering key always go to the same thread, so
+ * that they are processed in the order they were notified.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = AsynchronousEventListenerExecutor.class)
+@Singleton
+public class AsynchronousEventListenerExecutor implements Initializable, Disposable
+{
+    private static final List<String> CONTEXT_ENTRIES = Arrays.asList("user", "author", "wiki");
+
+    private static final String OBJECT_NAME = "org.xwiki.observation:type=AsynchronousEventListener,name=";
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configurationSource;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ContextStoreManager contextStore;
+
+    @Inject
+    private RemoteObservationManagerContext remoteContext;
+
+    @Inject
+    private Logger logger;
+
+    private ExecutorService[] executors;
+
+    private final ConcurrentMap<String, AsynchronousEventListenerStatistics> statistics = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int threads = this.configurationSource.getProperty("observation.asynchronous.threads", 2);
+
+        if (threads > 0) {
+            this.executors = new ExecutorService[threads];
+            ThreadFactory threadFactory = Executors.defaultThreadFactory();
+            for (int i = 0; i < threads; ++i) {
+                String threadName = "XWiki asynchronous event listener " + i;
+                this.executors[i] = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = threadFactory.newThread(runnable);
+                    thread.setName(threadName);
+                    thread.setDaemon(true);
+
+                    return thread;
+                });
+            }
+        }
+    }
+
+    /**
+     * @param listener the listener which received the event
+     * @param event the event triggered
+     * @param source the event source
+     * @param data the event data
+     */
+    public void execute(AbstractAsynchronousEventListener listener, Event event, Object source, Object data)
+    {
+        AsynchronousEventListenerStatistics listenerStatistics = getStatistics(listener.getName());
+
+        if (this.executors == null) {
+            process(listener, event, source, data, listenerStatistics);
+        } else {
+            Object key = listener.getOrderingKey(event, source, data);
+            ExecutorService executor =
+                this.executors[Math.floorMod(Objects.hash(listener.getName(), key), this.executors.length)];
+
+            // Remember a few standard things from the context
+            Map<String, Serializable> context;
+            try {
+                context = this.contextStore.save(CONTEXT_ENTRIES);
+            } catch (ComponentLookupException e) {
+                this.logger.error("Failed to save the context of the event [{}]", event, e);
+
+                context = null;
+            }
+            boolean remote = this.remoteContext.isRemoteState();
+            long queued = System.nanoTime();
+
+            listenerStatistics.queued();
+            executor.execute(() -> {
+                listenerStatistics.started(System.nanoTime() - queued);
+
+                processInContext(listener, event, source, data, listenerStatistics, context, remote);
+            });
+        }
+    }
+
+    private void processInContext(AbstractAsynchronousEventListener listener, Event event, Object source,
+        Object data, AsynchronousEventListenerStatistics listenerStatistics, Map<String, Serializable> context,
+        boolean remote)
+    {
+        try {
+            this.executionContextManager.initialize(new ExecutionContext());
+
+            if (context != null) {
+                this.contextStore.restore(context);
+            }
+            if (remote) {
+                this.remoteContext.pushRemoteState();
+            }
+
+            try {
+                process(listener, event, source, data, listenerStatistics);
+            } finally {
+                if (remote) {
+                    this.remoteContext.popRemoteState();
+                }
+            }
+        } catch (Exception e) {
+            this.logger.error("Failed to initialize the context of the event [{}] for listener [{}]", event,
+                listener.getName(), e);
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    private void process(AbstractAsynchronousEventListener listener, Event event, Object source, Object data,
+        AsynchronousEventListenerStatistics listenerStatistics)
+    {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            listener.processEvent(event, source, data);
+        } catch (Exception e) {
+            failed = true;
+
+            this.logger.error("Failed to process the event [{}] for listener [{}]", event, listener.getName(), e);
+        } finally {
+            listenerStatistics.processed(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * @param listenerName the name of the listener
+     * @return the statistics of the events processed by the listener
+     */
+    public AsynchronousEventListenerStatistics getStatistics(String listenerName)
+    {
+        return this.statistics.computeIfAbsent(listenerName, name -> {
+            AsynchronousEventListenerStatistics listenerStatistics = new AsynchronousEventListenerStatistics();
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(listenerStatistics,
+                    new ObjectName(OBJECT_NAME + ObjectName.quote(name)));
+            } catch (Exception e) {
+                this.logger.warn("Failed to register the statistics of the listener [{}] against the JMX Server",
+                    name, e);
+            }
+
+            return listenerStatistics;
+        });
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.executors != null) {
+            for (ExecutorService executor : this.executors) {
+                // Give a chance to the already notified events to be processed
+                executor.shutdown();
+            }
+        }
+
+        for (String name : this.statistics.keySet()) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(new ObjectName(OBJECT_NAME + ObjectName.quote(name)));
+            } catch (Exception e) {
+                this.logger.debug("Failed to unregister the statistics of the listener [{}] from the JMX Server",
+                    name, e);
+            }
+        }
+    }
+}
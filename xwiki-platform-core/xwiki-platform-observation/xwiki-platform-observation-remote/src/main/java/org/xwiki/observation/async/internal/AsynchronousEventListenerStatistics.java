@@ -0,0 +1,130 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.async.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of the events processed by an asynchronous listener.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class AsynchronousEventListenerStatistics implements AsynchronousEventListenerStatisticsMBean
+{
+    private final LongAdder processedEvents = new LongAdder();
+
+    private final LongAdder failedEvents = new LongAdder();
+
+    private final LongAdder pendingEvents = new LongAdder();
+
+    private final LongAdder waitTime = new LongAdder();
+
+    private final LongAccumulator maxWaitTime = new LongAccumulator(Long::max, 0);
+
+    private final LongAdder processingTime = new LongAdder();
+
+    private final LongAccumulator maxProcessingTime = new LongAccumulator(Long::max, 0);
+
+    /**
+     * An event was submitted to the pool of threads.
+     */
+    void queued()
+    {
+        this.pendingEvents.increment();
+    }
+
+    /**
+     * The processing of an event which was submitted to the pool of threads is starting.
+     * 
+     * @param waitNanos the time the event waited in the queue, in nanoseconds
+     */
+    void started(long waitNanos)
+    {
+        this.pendingEvents.decrement();
+        this.waitTime.add(waitNanos);
+        this.maxWaitTime.accumulate(waitNanos);
+    }
+
+    /**
+     * @param processingNanos the time spent processing the event, in nanoseconds
+     * @param failed {@code true} if the listener failed to process the event
+     */
+    void processed(long processingNanos, boolean failed)
+    {
+        this.processingTime.add(processingNanos);
+        this.maxProcessingTime.accumulate(processingNanos);
+        if (failed) {
+            this.failedEvents.increment();
+        }
+        this.processedEvents.increment();
+    }
+
+    @Override
+    public long getProcessedEvents()
+    {
+        return this.processedEvents.sum();
+    }
+
+    @Override
+    public long getFailedEvents()
+    {
+        return this.failedEvents.sum();
+    }
+
+    @Override
+    public long getPendingEvents()
+    {
+        return this.pendingEvents.sum();
+    }
+
+    @Override
+    public double getAverageWaitTime()
+    {
+        return average(this.waitTime);
+    }
+
+    @Override
+    public long getMaxWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitTime.get());
+    }
+
+    @Override
+    public double getAverageProcessingTime()
+    {
+        return average(this.processingTime);
+    }
+
+    @Override
+    public long getMaxProcessingTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxProcessingTime.get());
+    }
+
+    private double average(LongAdder nanos)
+    {
+        long count = this.processedEvents.sum();
+
+        return count > 0 ? nanos.sum() / 1000000D / count : 0;
+    }
+}
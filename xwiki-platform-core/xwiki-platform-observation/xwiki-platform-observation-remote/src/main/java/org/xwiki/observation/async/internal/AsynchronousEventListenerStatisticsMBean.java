@@ -0,0 +1,66 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.async.internal;
+
+/**
+ * The JMX view of the events processed by an asynchronous listener.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public interface AsynchronousEventListenerStatisticsMBean
+{
+    /**
+     * @return the number of events processed by the listener
+     */
+    long getProcessedEvents();
+
+    /**
+     * @return the number of events which failed to be processed by the listener
+     */
+    long getFailedEvents();
+
+    /**
+     * @return the number of events waiting to be processed by the listener
+     */
+    long getPendingEvents();
+
+    /**
+     * @return the average time between the notification of an event and the beginning of its processing, in
+     *         milliseconds
+     */
+    double getAverageWaitTime();
+
+    /**
+     * @return the maximum time between the notification of an event and the beginning of its processing, in
+     *         milliseconds
+     */
+    long getMaxWaitTime();
+
+    /**
+     * @return the average time spent processing an event, in milliseconds
+     */
+    double getAverageProcessingTime();
+
+    /**
+     * @return the maximum time spent processing an event, in milliseconds
+     */
+    long getMaxProcessingTime();
+}
@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.event;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.async.internal.AsynchronousEventListenerExecutor;
+import org.xwiki.observation.event.filter.EventFilter;
+import org.xwiki.observation.event.filter.FixedNameEventFilter;
+import org.xwiki.stability.Unstable;
+
+/**
+ * A version of {@link AbstractEventListener} for the listeners which don't need to be executed in the thread which
+ * triggered the event: the events are processed by a pool of threads so that the listener does not slow down the
+ * action which triggered the event (e.g. the save of a document).
+ * <p>
+ * The listener must not rely on the state of the event source or data changing after the event was notified. The
+ * processing thread gets a new execution context with the same wiki, user and author than the thread which triggered
+ * the event. The events with the same ordering key (see {@link #getOrderingKey(Event, Object, Object)}) are processed
+ * in the order they were notified.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Unstable
+public abstract class AbstractAsynchronousEventListener extends AbstractEventListener
+{
+    @Inject
+    private AsynchronousEventListenerExecutor executor;
+
+    /**
+     * @param name the listener's name. It's a free form text identifying this listener instance in a unique manner.
+     *            This name is used for some operations in {@link ObservationManager}.
+     * @param events the list of events this listener is configured to receive. This listener will be automatically
+     *            registered with this list of events against the {@link ObservationManager}. When an event occurs, for
+     *            each matching event in this list, the {@link #processEvent(Event, Object, Object)} method will be
+     *            called.
+     */
+    public AbstractAsynchronousEventListener(String name, List<? extends Event> events)
+    {
+        super(name, events);
+    }
+
+    /**
+     * @param name the listener's name. It's a free form text identifying this listener instance in a unique manner.
+     *            This name is used for some operations in {@link ObservationManager}.
+     * @param events the list of events this listener is configured to receive. This listener will be automatically
+     *            registered with this list of events against the {@link ObservationManager}. When an event occurs, for
+     *            each matching event in this list, the {@link #processEvent(Event, Object, Object)} method will be
+     *            called.
+     */
+    public AbstractAsynchronousEventListener(String name, Event... events)
+    {
+        super(name, events);
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        this.executor.execute(this, event, source, data);
+    }
+
+    /**
+     * The events with the same key are processed in the order they were notified, the others can be processed in
+     * parallel. By default the key is the name of the event filter when it's a fixed name (e.g. the reference of the
+     * document for the document events), which means that the events related to the same entity are processed in
+     * order.
+     *
+     * @param event the event triggered
+     * @param source the event source
+     * @param data the event data
+     * @return the key used to order the processing of the events, {@code null} to process the event in the same order
+     *         as all the other events with a {@code null} key
+     */
+    public Object getOrderingKey(Event event, Object source, Object data)
+    {
+        if (event instanceof FilterableEvent) {
+            EventFilter filter = ((FilterableEvent) event).getEventFilter();
+            if (filter instanceof FixedNameEventFilter) {
+                return filter.getFilter();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Handle the event from a thread of the pool, see {@link #onEvent(Event, Object, Object)} for details.
+     *
+     * @param event the event triggered. Can be used to differentiate different events if your Object supports several
+     *            events for example.
+     * @param source the event source i.e. the object for which the event was triggered. For example this would be the
+     *            document Object if the event is a document update event.
+     * @param data some additional and optional data passed that can be acted on.
+     */
+    public abstract void processEvent(Event event, Object source, Object data);
+}
@@ -0,0 +1,155 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.monitor;
+
+import java.beans.ConstructorProperties;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * The time spent by an event listener to handle a given type of event.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Unstable
+public class EventListenerStatistics
+{
+    private final String listener;
+
+    private final String event;
+
+    private final long count;
+
+    private final double totalTime;
+
+    private final double maxTime;
+
+    private final double percentile50;
+
+    private final double percentile90;
+
+    private final double percentile99;
+
+    /**
+     * @param listener the name of the listener
+     * @param event the class of the event
+     * @param count the number of events handled by the listener
+     * @param totalTime the total time spent handling the events, in milliseconds
+     * @param maxTime the maximum time spent handling an event, in milliseconds
+     * @param percentile50 the median time spent handling an event, in milliseconds
+     * @param percentile90 the 90th percentile of the time spent handling an event, in milliseconds
+     * @param percentile99 the 99th percentile of the time spent handling an event, in milliseconds
+     */
+    @ConstructorProperties({ "listener", "event", "count", "totalTime", "maxTime", "percentile50", "percentile90",
+        "percentile99" })
+    public EventListenerStatistics(String listener, String event, long count, double totalTime, double maxTime,
+        double percentile50, double percentile90, double percentile99)
+    {
+        this.listener = listener;
+        this.event = event;
+        this.count = count;
+        this.totalTime = totalTime;
+        this.maxTime = maxTime;
+        this.percentile50 = percentile50;
+        this.percentile90 = percentile90;
+        this.percentile99 = percentile99;
+    }
+
+    /**
+     * @return the name of the listener
+     */
+    public String getListener()
+    {
+        return this.listener;
+    }
+
+    /**
+     * @return the class of the event
+     */
+    public String getEvent()
+    {
+        return this.event;
+    }
+
+    /**
+     * @return the number of events handled by the listener
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * @return the total time spent handling the events, in milliseconds
+     */
+    public double getTotalTime()
+    {
+        return this.totalTime;
+    }
+
+    /**
+     * @return the average time spent handling an event, in milliseconds
+     */
+    public double getAverageTime()
+    {
+        return this.count > 0 ? this.totalTime / this.count : 0;
+    }
+
+    /**
+     * @return the maximum time spent handling an event, in milliseconds
+     */
+    public double getMaxTime()
+    {
+        return this.maxTime;
+    }
+
+    /**
+     * @return the median time spent handling an event, in milliseconds (approximated)
+     */
+    public double getPercentile50()
+    {
+        return this.percentile50;
+    }
+
+    /**
+     * @return the 90th percentile of the time spent handling an event, in milliseconds (approximated)
+     */
+    public double getPercentile90()
+    {
+        return this.percentile90;
+    }
+
+    /**
+     * @return the 99th percentile of the time spent handling an event, in milliseconds (approximated)
+     */
+    public double getPercentile99()
+    {
+        return this.percentile99;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s (%s): count=%d, total=%.3fms, max=%.3fms, p50=%.3fms, p90=%.3fms, p99=%.3fms",
+            this.listener, this.event, this.count, this.totalTime, this.maxTime, this.percentile50, this.percentile90,
+            this.percentile99);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.monitor.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.monitor.EventListenerStatistics;
+
+/**
+ * Measure the time spent by each event listener per type of event.
+ * <p>
+ * The listeners are wrapped in a {@link MonitoredEventListener} only when the monitor is enabled in the configuration
+ * so that it costs nothing otherwise. The wrapping happens once, when the application starts: replacing a listener in
+ * the {@link ObservationManager} is not atomic (it is removed before its wrapper is added) so doing it while events
+ * are flowing could make the listener miss some of them. As a consequence, enabling or disabling the monitor at
+ * runtime only resumes or pauses the measure on the listeners wrapped at startup.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = EventListenerMonitor.class)
+@Singleton
+public class EventListenerMonitor implements EventListenerMonitorMXBean, Initializable, Disposable
+{
+    private static final String OBJECT_NAME = "org.xwiki.observation:type=EventListenerMonitor";
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configurationSource;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    /**
+     * Lazily resolved since the monitor can be initialized while the observation manager is being initialized.
+     */
+    @Inject
+    private Provider<ObservationManager> observationManagerProvider;
+
+    @Inject
+    private Logger logger;
+
+    private volatile boolean enabled;
+
+    private final Map<String, MonitoredEventListener> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.enabled = this.configurationSource.getProperty("observation.monitor.enabled", false);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            this.logger.warn("Failed to register the event listener monitor against the JMX Server", e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled)
+    {
+        // Only toggle the measure: wrapping the listeners at runtime could make them miss events (see the class
+        // documentation)
+        this.enabled = enabled;
+    }
+
+    /**
+     * Wrap the event listener components which are not yet monitored. Should only be called when the application
+     * starts since a listener could miss the events sent while it's being replaced by its wrapper.
+     */
+    public void monitorListeners()
+    {
+        List<ComponentDescriptor<EventListener>> descriptors =
+            this.componentManager.getComponentDescriptorList((Type) EventListener.class);
+
+        ObservationManager observationManager = this.observationManagerProvider.get();
+        for (ComponentDescriptor<EventListener> descriptor : descriptors) {
+            EventListener componentListener;
+            try {
+                componentListener = this.componentManager.getInstance(EventListener.class, descriptor.getRoleHint());
+            } catch (ComponentLookupException e) {
+                this.logger.error("Failed to get the event listener [{}] to monitor", descriptor.getRoleHint(), e);
+
+                continue;
+            }
+
+            String name = componentListener.getName();
+            EventListener listener = observationManager.getListener(name);
+            if (listener != null && !(listener instanceof MonitoredEventListener)) {
+                MonitoredEventListener monitoredListener = new MonitoredEventListener(listener, this);
+                observationManager.removeListener(name);
+                // Keep the position of the listener in the notification order
+                observationManager.addListener(monitoredListener, descriptor.getRoleTypePriority());
+                this.listeners.put(name, monitoredListener);
+            }
+        }
+    }
+
+    @Override
+    public List<EventListenerStatistics> getStatistics()
+    {
+        List<EventListenerStatistics> statistics = new ArrayList<>();
+
+        for (MonitoredEventListener listener : this.listeners.values()) {
+            for (Map.Entry<Class<? extends Event>, LatencyHistogram> entry : listener.getHistograms().entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                statistics.add(new EventListenerStatistics(listener.getName(), entry.getKey().getName(),
+                    histogram.getCount(), histogram.getTotal(), histogram.getMax(), histogram.getPercentile(0.5),
+                    histogram.getPercentile(0.9), histogram.getPercentile(0.99)));
+            }
+        }
+
+        statistics.sort(Comparator.comparingDouble(EventListenerStatistics::getTotalTime).reversed());
+
+        return statistics;
+    }
+
+    @Override
+    public void reset()
+    {
+        for (MonitoredEventListener listener : this.listeners.values()) {
+            listener.getHistograms().clear();
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            this.logger.debug("Failed to unregister the event listener monitor from the JMX Server", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.monitor.internal;
+
+import java.util.List;
+
+import org.xwiki.observation.monitor.EventListenerStatistics;
+
+/**
+ * The JMX view of the time spent by the event listeners.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public interface EventListenerMonitorMXBean
+{
+    /**
+     * @return {@code true} if the time spent by the event listeners is measured
+     */
+    boolean isEnabled();
+
+    /**
+     * Resume or pause the measure. The listeners are only wrapped when the application starts, so enabling the monitor
+     * at runtime has no effect if it was disabled in the configuration at startup.
+     *
+     * @param enabled {@code true} to measure the time spent by the event listeners
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return the time spent by each listener per type of event, the most expensive first
+     */
+    List<EventListenerStatistics> getStatistics();
+
+    /**
+     * Forget the measured times.
+     */
+    void reset();
+}
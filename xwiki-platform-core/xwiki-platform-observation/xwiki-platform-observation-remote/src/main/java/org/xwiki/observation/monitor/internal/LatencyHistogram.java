@@ -0,0 +1,110 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.monitor.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Record durations in buckets of exponentially growing size (powers of 2 of microseconds) so that the percentiles can
+ * be approximated without keeping each duration.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class LatencyHistogram
+{
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    private static final double NANOS_PER_MILLI = 1000000D;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    /**
+     * @param nanos the duration to record, in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        long micros = nanos / 1000;
+        this.buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(micros));
+        this.count.increment();
+        this.total.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    /**
+     * @return the sum of the recorded durations, in milliseconds
+     */
+    public double getTotal()
+    {
+        return this.total.sum() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the maximum recorded duration, in milliseconds
+     */
+    public double getMax()
+    {
+        return this.max.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param percentile the percentile to compute, between 0 and 1
+     * @return the upper bound of the bucket containing the percentile, in milliseconds
+     */
+    public double getPercentile(double percentile)
+    {
+        long[] snapshot = new long[BUCKETS];
+        long snapshotCount = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            snapshot[i] = this.buckets.get(i);
+            snapshotCount += snapshot[i];
+        }
+
+        long target = (long) Math.ceil(percentile * snapshotCount);
+        long cumulated = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            cumulated += snapshot[i];
+            if (cumulated >= target && cumulated > 0) {
+                // The bucket i contains the durations lower than 2^i microseconds
+                double upperBound = i < Long.SIZE - 1 ? ((1L << i) - 1) / 1000D : Double.MAX_VALUE;
+
+                return Math.min(upperBound, getMax());
+            }
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.monitor.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Wrap an {@link EventListener} to measure the time it spends handling each type of event.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class MonitoredEventListener implements EventListener
+{
+    private final EventListener listener;
+
+    private final EventListenerMonitor monitor;
+
+    private final Map<Class<? extends Event>, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * @param listener the monitored listener
+     * @param monitor the monitor which decides if the time should be measured
+     */
+    public MonitoredEventListener(EventListener listener, EventListenerMonitor monitor)
+    {
+        this.listener = listener;
+        this.monitor = monitor;
+    }
+
+    /**
+     * @return the monitored listener
+     */
+    public EventListener getListener()
+    {
+        return this.listener;
+    }
+
+    /**
+     * @return the time spent by the listener per type of event
+     */
+    public Map<Class<? extends Event>, LatencyHistogram> getHistograms()
+    {
+        return this.histograms;
+    }
+
+    @Override
+    public String getName()
+    {
+        return this.listener.getName();
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return this.listener.getEvents();
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (this.monitor.isEnabled()) {
+            long start = System.nanoTime();
+            try {
+                this.listener.onEvent(event, source, data);
+            } finally {
+                this.histograms.computeIfAbsent(event.getClass(), k -> new LatencyHistogram())
+                    .record(System.nanoTime() - start);
+            }
+        } else {
+            this.listener.onEvent(event, source, data);
+        }
+    }
+}
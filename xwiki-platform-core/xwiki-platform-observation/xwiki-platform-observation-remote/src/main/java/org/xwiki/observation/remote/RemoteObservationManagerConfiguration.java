@@ -58,4 +58,49 @@ default String getId()
     {
         return null;
     }
+
+    /**
+     * @return the maximum time to wait before sending the remote events, in milliseconds, when they are sent by batch
+     *     to the other members of the cluster; {@code 0} or less to send each remote event in its own message
+     * @since 15.7RC1
+     */
+    @Unstable
+    default long getBatchDelay()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the size, in bytes (before compression), above which a batch of remote events is sent without waiting
+     *     for the batch delay
+     * @since 15.7RC1
+     */
+    @Unstable
+    default int getBatchMaxSize()
+    {
+        return 65536;
+    }
+
+    /**
+     * @return the number of threads used to notify the received remote events to the local listeners; {@code 0} or
+     *     less to notify them in the thread receiving them from the network
+     * @since 15.7RC1
+     */
+    @Unstable
+    default int getReceiverThreads()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum number of received remote events waiting to be notified by each of the
+     *     {@link #getReceiverThreads() receiver threads}; when a queue is full the reception of the following remote
+     *     events is blocked until the queue has room again
+     * @since 15.7RC1
+     */
+    @Unstable
+    default int getReceiverQueueSize()
+    {
+        return 10000;
+    }
 }
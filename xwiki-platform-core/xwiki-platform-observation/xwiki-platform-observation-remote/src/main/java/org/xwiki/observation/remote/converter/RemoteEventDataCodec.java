@@ -0,0 +1,60 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.converter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Write a {@link RemoteEventData} in a compact binary form when the remote events are sent by batch, instead of using
+ * the Java serialization. The component hint is written before the event to find back the codec when receiving it.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Role
+@Unstable
+public interface RemoteEventDataCodec
+{
+    /**
+     * @param remoteEvent the remote event to send
+     * @return {@code true} if this codec is able to write the passed remote event
+     */
+    boolean canEncode(RemoteEventData remoteEvent);
+
+    /**
+     * @param remoteEvent the remote event to send
+     * @param output the output to write the remote event to
+     * @throws IOException when failing to write the remote event
+     */
+    void encode(RemoteEventData remoteEvent, DataOutput output) throws IOException;
+
+    /**
+     * @param input the input to read the remote event from
+     * @return the received remote event
+     * @throws IOException when failing to read the remote event
+     */
+    RemoteEventData decode(DataInput input) throws IOException;
+}
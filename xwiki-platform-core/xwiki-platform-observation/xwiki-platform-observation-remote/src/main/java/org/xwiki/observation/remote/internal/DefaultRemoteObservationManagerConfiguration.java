@@ -83,6 +83,30 @@ public String getNetworkAdapter()
         return this.configurationSource.getProperty("observation.remote.networkadapter", "jgroups");
     }
 
+    @Override
+    public long getBatchDelay()
+    {
+        return this.configurationSource.getProperty("observation.remote.batch.delay", 0L);
+    }
+
+    @Override
+    public int getBatchMaxSize()
+    {
+        return this.configurationSource.getProperty("observation.remote.batch.maxSize", 65536);
+    }
+
+    @Override
+    public int getReceiverThreads()
+    {
+        return this.configurationSource.getProperty("observation.remote.receiver.threads", 0);
+    }
+
+    @Override
+    public int getReceiverQueueSize()
+    {
+        return this.configurationSource.getProperty("observation.remote.receiver.queueSize", 10000);
+    }
+
     @Override
     public String getId()
     {
@@ -0,0 +1,284 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.observation.event.AbstractFilterableEvent;
+import org.xwiki.observation.event.filter.FixedNameEventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManager;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
+
+/**
+ * Pass the remote events received from the network to the {@link RemoteObservationManager}, either directly or through
+ * a pool of threads so that a slow listener does not block the reception of the following remote events.
+ * <p>
+ * Each thread has its own queue. The remote events related to the same entity (identified by the fixed name filter of
+ * the event, which is the document reference for the document events) always go to the same thread, so that they are
+ * notified in the order they were received. The other remote events all go to the first thread.
+ * <p>
+ * The queues are bounded. When the queue of a thread is full, the thread receiving the remote events from the network
+ * is blocked until the queue has room again: running the notification in the receiving thread instead would break the
+ * order of the remote events related to the same entity, and dropping them would desynchronize the cluster.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = RemoteEventDispatcher.class)
+@Singleton
+public class RemoteEventDispatcher implements RemoteEventDispatcherMBean, Initializable, Disposable
+{
+    private static final String OBJECT_NAME = "org.xwiki.observation.remote:type=RemoteEventDispatcher";
+
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
+    /**
+     * Lazily resolved to avoid a cycle with the {@link RemoteObservationManager} initialization (which starts the
+     * channels).
+     */
+    @Inject
+    private Provider<RemoteObservationManager> remoteObservationManagerProvider;
+
+    @Inject
+    private Logger logger;
+
+    private ThreadPoolExecutor[] executors;
+
+    private int queueCapacity;
+
+    private final LongAdder receivedEvents = new LongAdder();
+
+    private final LongAdder pendingEvents = new LongAdder();
+
+    private final LongAdder notifiedEvents = new LongAdder();
+
+    private final LongAdder lag = new LongAdder();
+
+    private final LongAccumulator maxLag = new LongAccumulator(Long::max, 0);
+
+    private final LongAdder notificationTime = new LongAdder();
+
+    private final LongAdder blockedEvents = new LongAdder();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int threads = this.configuration.getReceiverThreads();
+
+        if (threads > 0) {
+            this.queueCapacity = Math.max(1, this.configuration.getReceiverQueueSize());
+            this.executors = new ThreadPoolExecutor[threads];
+            ThreadFactory threadFactory = Executors.defaultThreadFactory();
+            RejectedExecutionHandler blockingHandler = this::waitForQueue;
+            for (int i = 0; i < threads; ++i) {
+                String threadName = "XWiki remote events receiver " + i;
+                this.executors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(this.queueCapacity), runnable -> {
+                        Thread thread = threadFactory.newThread(runnable);
+                        thread.setName(threadName);
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }, blockingHandler);
+            }
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            } catch (Exception e) {
+                this.logger.warn("Failed to register the remote event dispatcher against the JMX Server", e);
+            }
+        }
+    }
+
+    /**
+     * @param remoteEvent the remote event received from the network
+     */
+    public void dispatch(RemoteEventData remoteEvent)
+    {
+        this.receivedEvents.increment();
+
+        if (this.executors == null) {
+            notify(remoteEvent, System.nanoTime());
+        } else {
+            long received = System.nanoTime();
+
+            this.pendingEvents.increment();
+            getExecutor(remoteEvent).execute(() -> {
+                this.pendingEvents.decrement();
+
+                notify(remoteEvent, received);
+            });
+        }
+    }
+
+    /**
+     * Called when the queue of a receiver thread is full: block the thread receiving the remote events from the network
+     * until the queue has room again.
+     */
+    private void waitForQueue(Runnable task, ThreadPoolExecutor executor)
+    {
+        if (executor.isShutdown()) {
+            // The dispatcher is being disposed, nothing will notify the remote event anymore
+            this.pendingEvents.decrement();
+
+            return;
+        }
+
+        this.blockedEvents.increment();
+        this.logger.warn("The queue of received remote events is full ([{}] events), the reception of the following"
+            + " remote events is blocked until the local listeners catch up", this.queueCapacity);
+
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            this.pendingEvents.decrement();
+            this.logger.error("Interrupted while waiting to queue the remote event", e);
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor(RemoteEventData remoteEvent)
+    {
+        String entity = null;
+        if (remoteEvent.getEvent() instanceof AbstractFilterableEvent) {
+            AbstractFilterableEvent event = (AbstractFilterableEvent) remoteEvent.getEvent();
+            if (event.getEventFilter() instanceof FixedNameEventFilter) {
+                entity = event.getEventFilter().getFilter();
+            }
+        }
+
+        return this.executors[entity != null ? Math.floorMod(entity.hashCode(), this.executors.length) : 0];
+    }
+
+    private void notify(RemoteEventData remoteEvent, long received)
+    {
+        long start = System.nanoTime();
+        long eventLag = TimeUnit.NANOSECONDS.toMillis(start - received);
+        this.lag.add(eventLag);
+        this.maxLag.accumulate(eventLag);
+
+        try {
+            this.remoteObservationManagerProvider.get().notify(remoteEvent);
+        } catch (Exception e) {
+            this.logger.error("Failed to notify remote event [{}]", remoteEvent, e);
+        } finally {
+            this.notificationTime.add(System.nanoTime() - start);
+            this.notifiedEvents.increment();
+        }
+
+        this.logger.debug("Notified remote event [{}] received [{}] ms before", remoteEvent, eventLag);
+    }
+
+    @Override
+    public long getReceivedEvents()
+    {
+        return this.receivedEvents.sum();
+    }
+
+    @Override
+    public long getPendingEvents()
+    {
+        return this.pendingEvents.sum();
+    }
+
+    @Override
+    public double getAverageLag()
+    {
+        long count = this.notifiedEvents.sum();
+
+        return count > 0 ? (double) this.lag.sum() / count : 0;
+    }
+
+    @Override
+    public long getMaxLag()
+    {
+        return this.maxLag.get();
+    }
+
+    @Override
+    public double getAverageNotificationTime()
+    {
+        long count = this.notifiedEvents.sum();
+
+        return count > 0 ? this.notificationTime.sum() / 1000000D / count : 0;
+    }
+
+    @Override
+    public int getQueueCapacity()
+    {
+        return this.queueCapacity;
+    }
+
+    @Override
+    public int[] getQueueSizes()
+    {
+        if (this.executors == null) {
+            return new int[0];
+        }
+
+        return Arrays.stream(this.executors).mapToInt(executor -> executor.getQueue().size()).toArray();
+    }
+
+    @Override
+    public long getBlockedEvents()
+    {
+        return this.blockedEvents.sum();
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.executors != null) {
+            for (ThreadPoolExecutor executor : this.executors) {
+                // Give a chance to the already received remote events to be notified
+                executor.shutdown();
+            }
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+            } catch (Exception e) {
+                this.logger.debug("Failed to unregister the remote event dispatcher from the JMX Server", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal;
+
+/**
+ * The JMX view of the remote events waiting to be notified to the local listeners.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public interface RemoteEventDispatcherMBean
+{
+    /**
+     * @return the number of remote events received
+     */
+    long getReceivedEvents();
+
+    /**
+     * @return the number of remote events waiting to be notified to the local listeners
+     */
+    long getPendingEvents();
+
+    /**
+     * @return the average time between the reception of a remote event and its notification, in milliseconds
+     */
+    double getAverageLag();
+
+    /**
+     * @return the maximum time between the reception of a remote event and its notification, in milliseconds
+     */
+    long getMaxLag();
+
+    /**
+     * @return the average time spent notifying a remote event to the local listeners, in milliseconds
+     */
+    double getAverageNotificationTime();
+
+    /**
+     * @return the maximum number of remote events waiting in the queue of each receiver thread
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return the number of remote events currently waiting in the queue of each receiver thread
+     */
+    int[] getQueueSizes();
+
+    /**
+     * @return the number of remote events whose reception was blocked because the queue of their receiver thread was
+     *     full
+     */
+    long getBlockedEvents();
+}
@@ -19,6 +19,8 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.io.IOException;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -32,11 +34,13 @@
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteObservationManager;
+import org.xwiki.observation.remote.internal.RemoteEventDispatcher;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
  * Default implementation of JGroupsReceiver. Receive remote events and send them as is to
- * {@link RemoteObservationManager} to be converted and injected as local events.
+ * {@link RemoteObservationManager} (through {@link RemoteEventDispatcher}) to be converted and injected as local
+ * events.
  *
  * @version $Id$
  * @since 2.0M3
@@ -59,6 +63,12 @@ public class DefaultJGroupsReceiver extends ReceiverAdapter implements JGroupsRe
     @Inject
     private ClassLoaderManager classLoaderManager;
 
+    @Inject
+    private RemoteEventFrameCodec frameCodec;
+
+    @Inject
+    private RemoteEventDispatcher dispatcher;
+
     /**
      * The logger to log.
      */
@@ -85,12 +95,31 @@ public RemoteObservationManager getRemoteObservationManager()
     public void receive(Message msg)
     {
         if (msg instanceof BytesMessage) {
-            RemoteEventData remoteEvent = (RemoteEventData) ((BytesMessage) msg)
-                .getObject(this.classLoaderManager.getURLClassLoader(null, false));
+            ClassLoader classLoader = this.classLoaderManager.getURLClassLoader(null, false);
+
+            if (this.frameCodec.isFrame(msg.getArray(), msg.getOffset(), msg.getLength())) {
+                receiveFrame(msg, classLoader);
+            } else {
+                RemoteEventData remoteEvent = (RemoteEventData) ((BytesMessage) msg).getObject(classLoader);
 
-            this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+                this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
 
-            getRemoteObservationManager().notify(remoteEvent);
+                this.dispatcher.dispatch(remoteEvent);
+            }
+        }
+    }
+
+    private void receiveFrame(Message msg, ClassLoader classLoader)
+    {
+        try {
+            for (RemoteEventData remoteEvent : this.frameCodec.read(msg.getArray(), msg.getOffset(),
+                msg.getLength(), classLoader)) {
+                this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+
+                this.dispatcher.dispatch(remoteEvent);
+            }
+        } catch (IOException e) {
+            this.logger.error("Failed to read a batch of remote events from [{}]", msg.getSrc(), e);
         }
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.jgroups.Message;
+import org.jgroups.Receiver;
+import org.jgroups.View;
+import org.jgroups.util.MessageBatch;
+
+/**
+ * Count the messages received by a channel before passing them to the {@link Receiver} associated with it.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class JGroupsChannelReceiver implements Receiver
+{
+    private final Receiver receiver;
+
+    private final JGroupsChannelStatistics statistics;
+
+    /**
+     * @param receiver the receiver associated with the channel
+     * @param statistics the statistics of the channel
+     */
+    public JGroupsChannelReceiver(Receiver receiver, JGroupsChannelStatistics statistics)
+    {
+        this.receiver = receiver;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void receive(Message msg)
+    {
+        this.statistics.addReceived(msg.getLength());
+
+        this.receiver.receive(msg);
+    }
+
+    @Override
+    public void receive(MessageBatch batch)
+    {
+        for (Message msg : batch) {
+            this.statistics.addReceived(msg.getLength());
+        }
+
+        this.receiver.receive(batch);
+    }
+
+    @Override
+    public void viewAccepted(View newView)
+    {
+        this.receiver.viewAccepted(newView);
+    }
+
+    @Override
+    public void block()
+    {
+        this.receiver.block();
+    }
+
+    @Override
+    public void unblock()
+    {
+        this.receiver.unblock();
+    }
+
+    @Override
+    public void getState(OutputStream output) throws Exception
+    {
+        this.receiver.getState(output);
+    }
+
+    @Override
+    public void setState(InputStream input) throws Exception
+    {
+        this.receiver.setState(input);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count the messages sent and received by a JGroups channel.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class JGroupsChannelStatistics implements JGroupsChannelStatisticsMBean
+{
+    private final LongAdder sentEvents = new LongAdder();
+
+    private final LongAdder sentMessages = new LongAdder();
+
+    private final LongAdder sentBytes = new LongAdder();
+
+    private final LongAdder receivedMessages = new LongAdder();
+
+    private final LongAdder receivedBytes = new LongAdder();
+
+    /**
+     * @param events the number of remote events in the sent message
+     * @param bytes the size of the sent message
+     */
+    public void addSent(int events, int bytes)
+    {
+        this.sentEvents.add(events);
+        this.sentMessages.increment();
+        this.sentBytes.add(bytes);
+    }
+
+    /**
+     * @param bytes the size of the received message
+     */
+    public void addReceived(int bytes)
+    {
+        this.receivedMessages.increment();
+        this.receivedBytes.add(bytes);
+    }
+
+    @Override
+    public long getSentEvents()
+    {
+        return this.sentEvents.sum();
+    }
+
+    @Override
+    public long getSentMessages()
+    {
+        return this.sentMessages.sum();
+    }
+
+    @Override
+    public long getSentBytes()
+    {
+        return this.sentBytes.sum();
+    }
+
+    @Override
+    public long getReceivedMessages()
+    {
+        return this.receivedMessages.sum();
+    }
+
+    @Override
+    public long getReceivedBytes()
+    {
+        return this.receivedBytes.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("sent: [%d] events in [%d] messages ([%d] bytes), received: [%d] messages ([%d] bytes)",
+            getSentEvents(), getSentMessages(), getSentBytes(), getReceivedMessages(), getReceivedBytes());
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+/**
+ * The JMX view of the messages sent and received by a JGroups channel.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public interface JGroupsChannelStatisticsMBean
+{
+    /**
+     * @return the number of remote events sent
+     */
+    long getSentEvents();
+
+    /**
+     * @return the number of messages sent (a message contains several remote events when they are sent by batch)
+     */
+    long getSentMessages();
+
+    /**
+     * @return the number of bytes sent
+     */
+    long getSentBytes();
+
+    /**
+     * @return the number of messages received
+     */
+    long getReceivedMessages();
+
+    /**
+     * @return the number of bytes received
+     */
+    long getReceivedBytes();
+}
@@ -19,17 +19,23 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.jgroups.BytesMessage;
 import org.jgroups.Global;
@@ -47,10 +53,15 @@
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteEventException;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
  * JGroups based implementation of {@link NetworkAdapter}.
+ * <p>
+ * When a batch delay is configured the remote events are not sent right away but accumulated (see
+ * {@link RemoteEventFrameCodec}) and sent in a single compressed message when the delay expires or when the batch
+ * becomes too big.
  *
  * @version $Id$
  * @since 2.0RC1
@@ -77,30 +88,148 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
     @Inject
     private Logger logger;
 
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
+    @Inject
+    private RemoteEventFrameCodec frameCodec;
+
     /**
      * The network channels.
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<>();
 
+    /**
+     * The statistics of the network channels.
+     */
+    private Map<String, JGroupsChannelStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * The remote events waiting to be sent.
+     */
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+
+    private int batchCount;
+
+    private boolean batchScheduled;
+
+    private ScheduledExecutorService batchScheduler;
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
         this.logger.debug("Send JGroups remote event [{}]", remoteEvent.toString());
 
-        // Send the message to the whole group
-        Message message = new BytesMessage(null,  remoteEvent);
+        long batchDelay = this.configuration.getBatchDelay();
+        if (batchDelay > 0) {
+            addToBatch(remoteEvent, batchDelay);
+        } else {
+            // Send the message to the whole group
+            send(new BytesMessage(null, remoteEvent), 1, remoteEvent);
+        }
+    }
 
+    private void send(Message message, int eventCount, Object description)
+    {
         // Send message to JGroups channels
         for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
             try {
                 entry.getValue().send(message);
+
+                JGroupsChannelStatistics channelStatistics = this.statistics.get(entry.getKey());
+                if (channelStatistics != null) {
+                    channelStatistics.addSent(eventCount, message.getLength());
+                }
             } catch (Exception e) {
-                this.logger.error("Failed to send message [{}] to the channel [{}]", remoteEvent.toString(),
+                this.logger.error("Failed to send message [{}] to the channel [{}]", description.toString(),
                     entry.getKey(), e);
             }
         }
     }
 
+    private void addToBatch(RemoteEventData remoteEvent, long batchDelay)
+    {
+        byte[] bytes;
+        try {
+            bytes = this.frameCodec.write(remoteEvent);
+        } catch (Exception e) {
+            this.logger.error("Failed to write remote event [{}]", remoteEvent, e);
+
+            return;
+        }
+
+        synchronized (this.batch) {
+            this.batch.write(bytes, 0, bytes.length);
+            this.batchCount++;
+
+            if (this.batch.size() >= this.configuration.getBatchMaxSize()) {
+                flushBatch();
+            } else if (!this.batchScheduled) {
+                this.batchScheduled = true;
+                getBatchScheduler().schedule(this::flushScheduledBatch, batchDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private ScheduledExecutorService getBatchScheduler()
+    {
+        if (this.batchScheduler == null) {
+            ThreadFactory threadFactory = Executors.defaultThreadFactory();
+            this.batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = threadFactory.newThread(runnable);
+                thread.setName("XWiki remote events batch");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        return this.batchScheduler;
+    }
+
+    private void flushScheduledBatch()
+    {
+        synchronized (this.batch) {
+            this.batchScheduled = false;
+
+            flushBatch();
+        }
+    }
+
+    /**
+     * Send the remote events waiting in the batch. The caller must hold the lock on {@link #batch} (which is kept while
+     * sending to make sure the batches are sent in the order the remote events were produced).
+     */
+    private void flushBatch()
+    {
+        if (this.batchCount > 0) {
+            int count = this.batchCount;
+            byte[] frame;
+            try {
+                frame = this.frameCodec.createFrame(count, this.batch.toByteArray(), this.batch.size());
+            } catch (IOException e) {
+                this.logger.error("Failed to create a batch of [{}] remote events", count, e);
+
+                return;
+            } finally {
+                this.batch.reset();
+                this.batchCount = 0;
+            }
+
+            send(new BytesMessage(null, frame), count, String.format("batch of %d remote events", count));
+        }
+    }
+
+    /**
+     * @param channelId the identifier of the channel
+     * @return the statistics of the channel, {@code null} if the channel is not started
+     * @since 15.7RC1
+     */
+    public JGroupsChannelStatisticsMBean getStatistics(String channelId)
+    {
+        return this.statistics.get(channelId);
+    }
+
     @Override
     public void startChannel(String channelId) throws RemoteEventException
     {
@@ -109,10 +238,12 @@ public void startChannel(String channelId) throws RemoteEventException
         }
 
         JChannel channel;
+        JGroupsChannelStatistics channelStatistics = new JGroupsChannelStatistics();
         try {
-            channel = createChannel(channelId);
+            channel = createChannel(channelId, channelStatistics);
             channel.connect("event");
 
+            this.statistics.put(channelId, channelStatistics);
             this.channels.put(channelId, channel);
         } catch (Exception e) {
             throw new RemoteEventException("Failed to create channel [" + channelId + "]", e);
@@ -122,6 +253,7 @@ public void startChannel(String channelId) throws RemoteEventException
         try {
             MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
             JmxConfigurator.registerChannel(channel, mbs, channel.getClusterName());
+            mbs.registerMBean(channelStatistics, getStatisticsName(channelId));
         } catch (Exception e) {
             this.logger.warn("Failed to register channel [" + channelId + "] against the JMX Server", e);
         }
@@ -138,14 +270,23 @@ public void stopChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException(MessageFormat.format("Channel [{0}] is not started", channelId));
         }
 
+        // Don't lose the remote events waiting to be sent
+        synchronized (this.batch) {
+            flushBatch();
+        }
+
         channel.close();
 
         this.channels.remove(channelId);
+        JGroupsChannelStatistics channelStatistics = this.statistics.remove(channelId);
+
+        this.logger.debug("Channel [{}] statistics: {}", channelId, channelStatistics);
 
         // Unregister the channel from the JMX Server
         try {
             MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
             JmxConfigurator.unregister(channel, mbs, channel.getClusterName());
+            mbs.unregisterMBean(getStatisticsName(channelId));
         } catch (Exception e) {
             this.logger.warn("Failed to unregister channel [{}] from the JMX Server", channelId, e);
         }
@@ -153,14 +294,21 @@ public void stopChannel(String channelId) throws RemoteEventException
         this.logger.info("Channel [{}] stopped", channelId);
     }
 
+    private ObjectName getStatisticsName(String channelId) throws Exception
+    {
+        return new ObjectName("org.xwiki.observation.remote:type=JGroupsChannelStatistics,channel="
+            + ObjectName.quote(channelId));
+    }
+
     /**
      * Create a new channel.
      *
      * @param channelId the identifier of the channel to create
+     * @param channelStatistics the statistics of the channel to create
      * @return the new channel
      * @throws Exception failed to create new channel
      */
-    private JChannel createChannel(String channelId) throws Exception
+    private JChannel createChannel(String channelId, JGroupsChannelStatistics channelStatistics) throws Exception
     {
         // load configuration
         ProtocolStackConfigurator channelConf = loadChannelConfiguration(channelId);
@@ -176,7 +324,7 @@ private JChannel createChannel(String channelId) throws Exception
         // create channel
         JChannel channel = new JChannel(channelConf);
 
-        channel.setReceiver(channelReceiver);
+        channel.setReceiver(new JGroupsChannelReceiver(channelReceiver, channelStatistics));
         channel.setDiscardOwnMessages(true);
 
         return channel;
@@ -226,11 +374,33 @@ private InputStream getChannelConfiguration(String channelId) throws IOException
     @Override
     public void stopAllChannels() throws RemoteEventException
     {
+        // Don't lose the remote events waiting to be sent
+        synchronized (this.batch) {
+            flushBatch();
+
+            if (this.batchScheduler != null) {
+                this.batchScheduler.shutdownNow();
+                this.batchScheduler = null;
+                this.batchScheduled = false;
+            }
+        }
+
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
             channelEntry.getValue().close();
+
+            this.logger.debug("Channel [{}] statistics: {}", channelEntry.getKey(),
+                this.statistics.get(channelEntry.getKey()));
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(getStatisticsName(channelEntry.getKey()));
+            } catch (Exception e) {
+                this.logger.debug("Failed to unregister the statistics of channel [{}] from the JMX Server",
+                    channelEntry.getKey(), e);
+            }
         }
 
         this.channels.clear();
+        this.statistics.clear();
 
         this.logger.info("All channels stopped");
     }
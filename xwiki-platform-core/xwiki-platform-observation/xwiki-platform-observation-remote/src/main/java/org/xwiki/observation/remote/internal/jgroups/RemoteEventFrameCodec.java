@@ -0,0 +1,196 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jgroups.util.Util;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventDataCodec;
+
+/**
+ * Write and read the frames containing a batch of remote events.
+ * <p>
+ * A frame starts with {@link #MAGIC} (which cannot be the first byte of an object serialized by JGroups) followed by
+ * the compressed list of remote events. Each remote event is written with the hint of the {@link RemoteEventDataCodec}
+ * used to encode it (an empty hint meaning Java serialization) and its length, so that a remote event which cannot be
+ * read does not prevent reading the following ones.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = RemoteEventFrameCodec.class)
+@Singleton
+public class RemoteEventFrameCodec
+{
+    /**
+     * The bytes identifying a frame (followed by the version of the format).
+     */
+    private static final byte[] MAGIC = {'X', 'W', 'R', 'E', 1};
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * @param remoteEvent the remote event to write
+     * @return the bytes to add to the batch
+     * @throws IOException when failing to write the remote event
+     */
+    public byte[] write(RemoteEventData remoteEvent) throws IOException
+    {
+        String hint = "";
+        byte[] bytes = null;
+        for (Map.Entry<String, RemoteEventDataCodec> entry : getCodecs().entrySet()) {
+            if (entry.getValue().canEncode(remoteEvent)) {
+                ByteArrayOutputStream codecStream = new ByteArrayOutputStream();
+                entry.getValue().encode(remoteEvent, new DataOutputStream(codecStream));
+                hint = entry.getKey();
+                bytes = codecStream.toByteArray();
+
+                break;
+            }
+        }
+
+        if (bytes == null) {
+            try {
+                bytes = Util.objectToByteBuffer(remoteEvent);
+            } catch (Exception e) {
+                throw new IOException("Failed to serialize the remote event", e);
+            }
+        }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(bytes.length + hint.length() + 6);
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeUTF(hint);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+
+        return stream.toByteArray();
+    }
+
+    private Map<String, RemoteEventDataCodec> getCodecs()
+    {
+        try {
+            return this.componentManager.getInstanceMap(RemoteEventDataCodec.class);
+        } catch (ComponentLookupException e) {
+            this.logger.error("Failed to lookup the remote event codecs", e);
+
+            return Map.of();
+        }
+    }
+
+    /**
+     * @param count the number of remote events in the batch
+     * @param events the remote events written with {@link #write(RemoteEventData)}
+     * @param length the number of bytes to use in {@code events}
+     * @return the frame to send
+     * @throws IOException when failing to compress the remote events
+     */
+    public byte[] createFrame(int count, byte[] events, int length) throws IOException
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(length / 2);
+        stream.write(MAGIC);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(stream, deflater))) {
+            output.writeInt(count);
+            output.write(events, 0, length);
+        } finally {
+            deflater.end();
+        }
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * @param array the message content
+     * @param offset the offset of the message content in the array
+     * @param length the length of the message content
+     * @return {@code true} if the message is a frame
+     */
+    public boolean isFrame(byte[] array, int offset, int length)
+    {
+        return array != null && length >= MAGIC.length
+            && Arrays.equals(array, offset, offset + MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * @param array the message content
+     * @param offset the offset of the message content in the array
+     * @param length the length of the message content
+     * @param classLoader the class loader to use to read the serialized remote events
+     * @return the remote events contained in the frame
+     * @throws IOException when failing to read the frame
+     */
+    public List<RemoteEventData> read(byte[] array, int offset, int length, ClassLoader classLoader)
+        throws IOException
+    {
+        try (DataInputStream input = new DataInputStream(new InflaterInputStream(
+            new ByteArrayInputStream(array, offset + MAGIC.length, length - MAGIC.length)))) {
+            int count = input.readInt();
+            List<RemoteEventData> remoteEvents = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                String hint = input.readUTF();
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+
+                try {
+                    remoteEvents.add(read(hint, bytes, classLoader));
+                } catch (Exception e) {
+                    this.logger.error("Failed to read a remote event written with codec [{}]", hint, e);
+                }
+            }
+
+            return remoteEvents;
+        }
+    }
+
+    private RemoteEventData read(String hint, byte[] bytes, ClassLoader classLoader) throws Exception
+    {
+        if (hint.isEmpty()) {
+            return Util.objectFromByteBuffer(bytes, 0, bytes.length, classLoader);
+        }
+
+        RemoteEventDataCodec codec = this.componentManager.getInstance(RemoteEventDataCodec.class, hint);
+
+        return codec.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.script;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.monitor.EventListenerStatistics;
+import org.xwiki.observation.monitor.internal.EventListenerMonitor;
+import org.xwiki.script.service.ScriptService;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Script oriented access to the observation statistics.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component
+@Named("observation")
+@Singleton
+@Unstable
+public class ObservationScriptService implements ScriptService
+{
+    @Inject
+    private EventListenerMonitor monitor;
+
+    /**
+     * @return {@code true} if the time spent by the event listeners is measured (see the
+     *         {@code observation.monitor.enabled} configuration property)
+     */
+    public boolean isMonitorEnabled()
+    {
+        return this.monitor.isEnabled();
+    }
+
+    /**
+     * @return the time spent by each event listener per type of event, the most expensive first
+     */
+    public List<EventListenerStatistics> getListenerStatistics()
+    {
+        return this.monitor.getStatistics();
+    }
+}
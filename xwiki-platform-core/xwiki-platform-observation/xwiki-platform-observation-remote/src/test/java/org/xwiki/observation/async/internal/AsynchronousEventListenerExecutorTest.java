@@ -0,0 +1,149 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.async.internal;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.observation.event.AbstractAsynchronousEventListener;
+import org.xwiki.observation.event.AbstractFilterableEvent;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AsynchronousEventListenerExecutor}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class AsynchronousEventListenerExecutorTest
+{
+    static class EntityEvent extends AbstractFilterableEvent
+    {
+        private static final long serialVersionUID = 1L;
+
+        EntityEvent(String entity)
+        {
+            super(entity);
+        }
+    }
+
+    static class TestListener extends AbstractAsynchronousEventListener
+    {
+        final List<String> entity1 = Collections.synchronizedList(new ArrayList<>());
+
+        final List<String> entity2 = Collections.synchronizedList(new ArrayList<>());
+
+        TestListener(String name)
+        {
+            super(name, new EntityEvent(null));
+        }
+
+        @Override
+        public void processEvent(Event event, Object source, Object data)
+        {
+            if (data == null) {
+                throw new RuntimeException("error");
+            }
+
+            String entity = ((EntityEvent) event).getEventFilter().getFilter();
+            (entity.equals("entity1") ? this.entity1 : this.entity2).add((String) data);
+        }
+    }
+
+    @InjectMockComponents
+    private AsynchronousEventListenerExecutor executor;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configurationSource;
+
+    @MockComponent
+    private ContextStoreManager contextStore;
+
+    @MockComponent
+    private RemoteObservationManagerContext remoteContext;
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.configurationSource.getProperty("observation.asynchronous.threads", 2)).thenReturn(4);
+    }
+
+    @Test
+    void executeInOrderPerEntity() throws Exception
+    {
+        Map<String, Serializable> context = Map.of("wiki", "wiki");
+        when(this.contextStore.save(anyCollection())).thenReturn(context);
+        when(this.remoteContext.isRemoteState()).thenReturn(true);
+
+        TestListener listener = new TestListener("ordered");
+        List<String> expected = IntStream.range(0, 100).mapToObj(String::valueOf).collect(Collectors.toList());
+        for (String data : expected) {
+            this.executor.execute(listener, new EntityEvent("entity1"), null, data);
+            this.executor.execute(listener, new EntityEvent("entity2"), null, data);
+        }
+
+        // The context of the thread which notified the event is restored
+        verify(this.contextStore, timeout(10000).times(200)).restore(context);
+        verify(this.remoteContext, timeout(10000).times(200)).popRemoteState();
+
+        assertEquals(expected, listener.entity1);
+        assertEquals(expected, listener.entity2);
+        assertEquals(200, this.executor.getStatistics("ordered").getProcessedEvents());
+        assertEquals(0, this.executor.getStatistics("ordered").getPendingEvents());
+    }
+
+    @Test
+    void executeWithFailingListener() throws Exception
+    {
+        when(this.remoteContext.isRemoteState()).thenReturn(true);
+
+        TestListener listener = new TestListener("failing");
+        this.executor.execute(listener, new EntityEvent("entity1"), null, null);
+        this.executor.execute(listener, new EntityEvent("entity1"), null, "data");
+
+        // The failure of the first event does not prevent the processing of the next one
+        verify(this.remoteContext, timeout(10000).times(2)).popRemoteState();
+
+        assertEquals(List.of("data"), listener.entity1);
+        assertEquals(1, this.executor.getStatistics("failing").getFailedEvents());
+    }
+}
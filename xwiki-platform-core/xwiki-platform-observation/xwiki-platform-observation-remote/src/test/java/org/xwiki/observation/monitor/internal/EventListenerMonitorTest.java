@@ -0,0 +1,180 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.monitor.internal;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.ApplicationStartedEvent;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.monitor.EventListenerStatistics;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link EventListenerMonitor}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class EventListenerMonitorTest
+{
+    private static final int PRIORITY = 42;
+
+    @InjectMockComponents
+    private EventListenerMonitor monitor;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configurationSource;
+
+    @MockComponent
+    private ObservationManager observationManager;
+
+    private ComponentManager componentManager;
+
+    private EventListener listener;
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.configurationSource.getProperty("observation.monitor.enabled", false)).thenReturn(true);
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.componentManager = mock(ComponentManager.class);
+        ReflectionUtils.setFieldValue(this.monitor, "componentManager", this.componentManager);
+
+        this.listener = mock(EventListener.class);
+        when(this.listener.getName()).thenReturn("listener");
+        ComponentDescriptor<EventListener> descriptor = mock(ComponentDescriptor.class);
+        when(descriptor.getRoleHint()).thenReturn("hint");
+        when(descriptor.getRoleTypePriority()).thenReturn(PRIORITY);
+        when(this.componentManager.<EventListener>getComponentDescriptorList((Type) EventListener.class))
+            .thenReturn(List.of(descriptor));
+        when(this.componentManager.getInstance(EventListener.class, "hint")).thenReturn(this.listener);
+        when(this.observationManager.getListener("listener")).thenReturn(this.listener);
+    }
+
+    @Test
+    void monitorListeners()
+    {
+        this.monitor.monitorListeners();
+
+        ArgumentCaptor<EventListener> captor = ArgumentCaptor.forClass(EventListener.class);
+        verify(this.observationManager).removeListener("listener");
+        // The wrapper keeps the priority of the listener
+        verify(this.observationManager).addListener(captor.capture(), eq(PRIORITY));
+        MonitoredEventListener monitoredListener = (MonitoredEventListener) captor.getValue();
+        assertSame(this.listener, monitoredListener.getListener());
+
+        Event event = new ApplicationStartedEvent();
+        monitoredListener.onEvent(event, null, null);
+        monitoredListener.onEvent(event, null, null);
+        verify(this.listener, times(2)).onEvent(event, null, null);
+
+        List<EventListenerStatistics> statistics = this.monitor.getStatistics();
+        assertEquals(1, statistics.size());
+        assertEquals("listener", statistics.get(0).getListener());
+        assertEquals(ApplicationStartedEvent.class.getName(), statistics.get(0).getEvent());
+        assertEquals(2, statistics.get(0).getCount());
+
+        // Already monitored listeners are not wrapped again
+        when(this.observationManager.getListener("listener")).thenReturn(monitoredListener);
+        this.monitor.monitorListeners();
+        verify(this.observationManager).addListener(monitoredListener, PRIORITY);
+
+        // Disabled monitoring does not measure anything
+        this.monitor.reset();
+        this.monitor.setEnabled(false);
+        monitoredListener.onEvent(event, null, null);
+        verify(this.listener, times(3)).onEvent(event, null, null);
+        assertTrue(this.monitor.getStatistics().isEmpty());
+    }
+
+    @Test
+    void monitorListenersWhenListenerNotRegistered()
+    {
+        when(this.observationManager.getListener("listener")).thenReturn(null);
+
+        this.monitor.monitorListeners();
+
+        verify(this.observationManager, never()).removeListener("listener");
+    }
+
+    @Test
+    void setEnabledDoesNotWrapListeners()
+    {
+        this.monitor.setEnabled(false);
+        this.monitor.setEnabled(true);
+
+        assertTrue(this.monitor.isEnabled());
+        // Replacing the listeners at runtime could make them miss events
+        verify(this.observationManager, never()).removeListener("listener");
+        verify(this.observationManager, never()).addListener(any(), anyInt());
+    }
+
+    @Test
+    void histogramPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; ++i) {
+            // 1 millisecond
+            histogram.record(1000000);
+        }
+        // 1 second
+        histogram.record(1000000000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1099, histogram.getTotal());
+        // The 1ms durations fall in the [512us, 1023us] bucket
+        assertEquals(1.023, histogram.getPercentile(0.5));
+        assertEquals(1.023, histogram.getPercentile(0.99));
+        assertEquals(1000, histogram.getPercentile(1));
+    }
+}
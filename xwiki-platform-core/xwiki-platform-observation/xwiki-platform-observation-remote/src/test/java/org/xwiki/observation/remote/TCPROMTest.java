@@ -23,14 +23,19 @@
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.xwiki.logging.event.LogEvent;
 import org.xwiki.observation.EventListener;
+import org.xwiki.observation.remote.internal.jgroups.JGroupsChannelStatisticsMBean;
+import org.xwiki.observation.remote.internal.jgroups.JGroupsNetworkAdapter;
 import org.xwiki.observation.remote.test.AbstractROMTestCase;
 import org.xwiki.observation.remote.test.TestEvent;
 import org.xwiki.test.annotation.AllComponents;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -92,4 +97,41 @@ void serializableEvent() throws InterruptedException
         verify(localListener).onEvent(same(event), same(unserializable), same(unserializable));
         verify(remoteListener).onEvent(eq(event), eq("some source"), eq("some data"));
     }
+
+    /**
+     * Validate sharing a batch of events between two instances of {@link RemoteObservationManager}.
+     */
+    @Test
+    void batchedEvents() throws Exception
+    {
+        getConfigurationSource1().setProperty("observation.remote.batch.delay", 100L);
+
+        EventListener remoteListener = mock(EventListener.class, "remote");
+
+        TestEvent event = new TestEvent();
+
+        when(remoteListener.getName()).thenReturn("mylistener");
+        when(remoteListener.getEvents()).thenReturn(Arrays.asList(event));
+
+        getObservationManager2().addListener(remoteListener);
+
+        getObservationManager1().notify(event, "source1", "data1");
+        getObservationManager1().notify(event, "source2", "data2");
+        getObservationManager1().notify(event, "source3", "data3");
+
+        // Make sure JGroups has enough time to send the message
+        Thread.sleep(1000);
+
+        InOrder inOrder = inOrder(remoteListener);
+        inOrder.verify(remoteListener).onEvent(eq(event), eq("source1"), eq("data1"));
+        inOrder.verify(remoteListener).onEvent(eq(event), eq("source2"), eq("data2"));
+        inOrder.verify(remoteListener).onEvent(eq(event), eq("source3"), eq("data3"));
+
+        // The 3 events were sent in a single message
+        JGroupsChannelStatisticsMBean statistics =
+            ((JGroupsNetworkAdapter) getComponentManager1().getInstance(NetworkAdapter.class, "jgroups"))
+                .getStatistics("tcp");
+        assertEquals(3, statistics.getSentEvents());
+        assertEquals(1, statistics.getSentMessages());
+    }
 }
@@ -0,0 +1,159 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.observation.event.AbstractFilterableEvent;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManager;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link RemoteEventDispatcher}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class RemoteEventDispatcherTest
+{
+    static class EntityEvent extends AbstractFilterableEvent
+    {
+        private static final long serialVersionUID = 1L;
+
+        EntityEvent(String entity)
+        {
+            super(entity);
+        }
+    }
+
+    @InjectMockComponents
+    private RemoteEventDispatcher dispatcher;
+
+    @MockComponent
+    private RemoteObservationManagerConfiguration configuration;
+
+    @MockComponent
+    private RemoteObservationManager remoteObservationManager;
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.configuration.getReceiverThreads()).thenReturn(4);
+        when(this.configuration.getReceiverQueueSize()).thenReturn(1);
+    }
+
+    @Test
+    void dispatchInOrderPerEntity() throws Exception
+    {
+        List<String> entity1 = Collections.synchronizedList(new ArrayList<>());
+        List<String> entity2 = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            RemoteEventData remoteEvent = invocation.getArgument(0);
+            String entity = ((EntityEvent) remoteEvent.getEvent()).getEventFilter().getFilter();
+            (entity.equals("entity1") ? entity1 : entity2).add((String) remoteEvent.getData());
+            return null;
+        }).when(this.remoteObservationManager).notify(any(RemoteEventData.class));
+
+        List<String> expected = IntStream.range(0, 100).mapToObj(String::valueOf).collect(Collectors.toList());
+        for (String data : expected) {
+            this.dispatcher.dispatch(new RemoteEventData(new EntityEvent("entity1"), null, data));
+            this.dispatcher.dispatch(new RemoteEventData(new EntityEvent("entity2"), null, data));
+        }
+
+        verify(this.remoteObservationManager, timeout(10000).times(200)).notify(any(RemoteEventData.class));
+
+        assertEquals(expected, entity1);
+        assertEquals(expected, entity2);
+        assertEquals(200, this.dispatcher.getReceivedEvents());
+    }
+
+    @Test
+    void dispatchWithFailingListener() throws Exception
+    {
+        doAnswer(invocation -> {
+            throw new RuntimeException("error");
+        }).when(this.remoteObservationManager).notify(any(RemoteEventData.class));
+
+        this.dispatcher.dispatch(new RemoteEventData(new EntityEvent("entity"), null, null));
+        this.dispatcher.dispatch(new RemoteEventData(new EntityEvent("entity"), null, null));
+
+        // The failure of the first notification does not prevent the next one
+        verify(this.remoteObservationManager, timeout(10000).times(2)).notify(any(RemoteEventData.class));
+    }
+
+    @Test
+    void dispatchBlockedWhenQueueIsFull() throws Exception
+    {
+        CountDownLatch listenerLatch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            listenerLatch.await();
+            return null;
+        }).when(this.remoteObservationManager).notify(any(RemoteEventData.class));
+
+        // The first event is being notified and the second one fills the queue
+        this.dispatcher.dispatch(new RemoteEventData(new EntityEvent("entity"), null, null));
+        verify(this.remoteObservationManager, timeout(10000)).notify(any(RemoteEventData.class));
+        this.dispatcher.dispatch(new RemoteEventData(new EntityEvent("entity"), null, null));
+
+        assertEquals(1, this.dispatcher.getQueueCapacity());
+        assertEquals(4, this.dispatcher.getQueueSizes().length);
+        assertEquals(1, Arrays.stream(this.dispatcher.getQueueSizes()).sum());
+
+        // The third event blocks the receiver until the queue has room again
+        CountDownLatch dispatchedLatch = new CountDownLatch(1);
+        Thread receiver = new Thread(() -> {
+            this.dispatcher.dispatch(new RemoteEventData(new EntityEvent("entity"), null, null));
+            dispatchedLatch.countDown();
+        });
+        receiver.start();
+
+        assertFalse(dispatchedLatch.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(1, this.dispatcher.getBlockedEvents());
+
+        listenerLatch.countDown();
+
+        assertTrue(dispatchedLatch.await(10, TimeUnit.SECONDS));
+        verify(this.remoteObservationManager, timeout(10000).times(3)).notify(any(RemoteEventData.class));
+        assertArrayEquals(new int[4], this.dispatcher.getQueueSizes());
+    }
+}
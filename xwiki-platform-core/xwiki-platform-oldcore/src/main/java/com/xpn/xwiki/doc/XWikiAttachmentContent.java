@@ -24,6 +24,8 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Optional;
 
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.disk.DiskFileItem;
@@ -353,6 +355,20 @@ public long getLongSize()
         return this.file != null ? this.file.getSize() : -1;
     }
 
+    /**
+     * Give access to the file holding the content when it's stored as is on the filesystem, so that it can be sent
+     * without going through {@link #getContentInputStream()} (e.g. using {@link java.nio.channels.FileChannel}).
+     *
+     * @return the file containing exactly the content of the attachment, or {@link Optional#empty()} if the content is
+     *         not stored in a file which can be read directly
+     * @since 15.7RC1
+     */
+    @Unstable
+    public Optional<Path> getContentPath()
+    {
+        return Optional.empty();
+    }
+
     /**
      * Set the owner document in order to propagate the content dirty flag.
      *
@@ -0,0 +1,228 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.AbstractDocumentEvent;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.localization.LocaleUtils;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.observation.event.filter.AlwaysMatchingEventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventDataCodec;
+
+/**
+ * Write the remote document events produced by {@link DocumentEventConverter} in a compact binary form, which is a lot
+ * smaller than their Java serialization.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component
+@Singleton
+@Named("document")
+public class DocumentRemoteEventDataCodec implements RemoteEventDataCodec
+{
+    private static final List<Class<? extends AbstractDocumentEvent>> EVENTS =
+        List.of(DocumentCreatedEvent.class, DocumentUpdatedEvent.class, DocumentDeletedEvent.class);
+
+    private static final List<String> SOURCE_KEYS = List.of(AbstractXWikiEventConverter.DOC_VERSION,
+        AbstractXWikiEventConverter.DOC_LANGUAGE, AbstractXWikiEventConverter.ORIGDOC_VERSION,
+        AbstractXWikiEventConverter.ORIGDOC_LANGUAGE);
+
+    private static final List<String> DATA_KEYS =
+        List.of(AbstractXWikiEventConverter.CONTEXT_WIKI, AbstractXWikiEventConverter.CONTEXT_USER);
+
+    private static final byte ABSENT = 0;
+
+    private static final byte NULL = 1;
+
+    private static final byte PRESENT = 2;
+
+    @Override
+    public boolean canEncode(RemoteEventData remoteEvent)
+    {
+        Serializable event = remoteEvent.getEvent();
+        if (event == null || !EVENTS.contains(event.getClass())) {
+            return false;
+        }
+
+        // The event must be re-created identical from its document reference
+        AbstractDocumentEvent documentEvent = (AbstractDocumentEvent) event;
+        if (documentEvent.isCanceled() || (documentEvent.getDocumentReference() == null
+            && !(documentEvent.getEventFilter() instanceof AlwaysMatchingEventFilter))) {
+            return false;
+        }
+
+        return remoteEvent.getSource() instanceof Map && remoteEvent.getData() instanceof Map
+            && isSource((Map<?, ?>) remoteEvent.getSource()) && isStringMap((Map<?, ?>) remoteEvent.getData(),
+                DATA_KEYS);
+    }
+
+    private boolean isSource(Map<?, ?> source)
+    {
+        Object reference = source.get(AbstractXWikiEventConverter.DOC_NAME);
+        if (!(reference instanceof DocumentReference)) {
+            return false;
+        }
+
+        Map<?, ?> otherValues = new HashMap<>(source);
+        otherValues.remove(AbstractXWikiEventConverter.DOC_NAME);
+
+        return isStringMap(otherValues, SOURCE_KEYS);
+    }
+
+    private boolean isStringMap(Map<?, ?> map, List<String> keys)
+    {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!keys.contains(entry.getKey()) || (entry.getValue() != null && !(entry.getValue() instanceof String))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void encode(RemoteEventData remoteEvent, DataOutput output) throws IOException
+    {
+        AbstractDocumentEvent event = (AbstractDocumentEvent) remoteEvent.getEvent();
+        output.writeByte(EVENTS.indexOf(event.getClass()));
+        output.writeBoolean(event.getDocumentReference() != null);
+        if (event.getDocumentReference() != null) {
+            writeDocumentReference(event.getDocumentReference(), output);
+        }
+
+        Map<?, ?> source = (Map<?, ?>) remoteEvent.getSource();
+        writeDocumentReference((DocumentReference) source.get(AbstractXWikiEventConverter.DOC_NAME), output);
+        writeStringMap(source, SOURCE_KEYS, output);
+
+        writeStringMap((Map<?, ?>) remoteEvent.getData(), DATA_KEYS, output);
+    }
+
+    private void writeDocumentReference(DocumentReference reference, DataOutput output) throws IOException
+    {
+        output.writeUTF(reference.getWikiReference().getName());
+        List<EntityReference> spaces = reference.getLastSpaceReference().getReversedReferenceChain();
+        // The first element of the chain is the wiki
+        output.writeShort(spaces.size() - 1);
+        for (EntityReference space : spaces.subList(1, spaces.size())) {
+            output.writeUTF(space.getName());
+        }
+        output.writeUTF(reference.getName());
+        writeString(reference.getLocale() != null ? reference.getLocale().toString() : null, output);
+    }
+
+    private void writeStringMap(Map<?, ?> map, List<String> keys, DataOutput output) throws IOException
+    {
+        for (String key : keys) {
+            if (!map.containsKey(key)) {
+                output.writeByte(ABSENT);
+            } else {
+                writeString((String) map.get(key), output);
+            }
+        }
+    }
+
+    private void writeString(String value, DataOutput output) throws IOException
+    {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else {
+            output.writeByte(PRESENT);
+            output.writeUTF(value);
+        }
+    }
+
+    @Override
+    public RemoteEventData decode(DataInput input) throws IOException
+    {
+        int eventIndex = input.readByte();
+        DocumentReference eventReference = input.readBoolean() ? readDocumentReference(input) : null;
+        AbstractDocumentEvent event = createEvent(EVENTS.get(eventIndex), eventReference);
+
+        HashMap<String, Serializable> source = new HashMap<>();
+        source.put(AbstractXWikiEventConverter.DOC_NAME, readDocumentReference(input));
+        readStringMap(source, SOURCE_KEYS, input);
+
+        HashMap<String, Serializable> data = new HashMap<>();
+        readStringMap(data, DATA_KEYS, input);
+
+        return new RemoteEventData(event, source, data);
+    }
+
+    private AbstractDocumentEvent createEvent(Class<? extends AbstractDocumentEvent> eventClass,
+        DocumentReference reference)
+    {
+        if (eventClass == DocumentCreatedEvent.class) {
+            return reference != null ? new DocumentCreatedEvent(reference) : new DocumentCreatedEvent();
+        } else if (eventClass == DocumentUpdatedEvent.class) {
+            return reference != null ? new DocumentUpdatedEvent(reference) : new DocumentUpdatedEvent();
+        } else {
+            return reference != null ? new DocumentDeletedEvent(reference) : new DocumentDeletedEvent();
+        }
+    }
+
+    private DocumentReference readDocumentReference(DataInput input) throws IOException
+    {
+        String wiki = input.readUTF();
+        int spaceCount = input.readShort();
+        List<String> spaces = new ArrayList<>(spaceCount);
+        for (int i = 0; i < spaceCount; ++i) {
+            spaces.add(input.readUTF());
+        }
+        String name = input.readUTF();
+        String locale = readString(input);
+
+        return new DocumentReference(wiki, spaces, name, locale != null ? LocaleUtils.toLocale(locale) : null);
+    }
+
+    private void readStringMap(Map<String, Serializable> map, List<String> keys, DataInput input) throws IOException
+    {
+        for (String key : keys) {
+            byte type = input.readByte();
+            if (type == NULL) {
+                map.put(key, null);
+            } else if (type == PRESENT) {
+                map.put(key, input.readUTF());
+            }
+        }
+    }
+
+    private String readString(DataInput input) throws IOException
+    {
+        return input.readByte() == PRESENT ? input.readUTF() : null;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+
+/**
+ * Give a rough estimation of the heap retained by a {@link XWikiDocument} instance. The goal is not to be accurate but
+ * to be cheap to compute and proportional to the actual size of the document.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public final class DocumentSizeEstimator
+{
+    /**
+     * The estimated cost of an empty document (fields, references, dates, etc.).
+     */
+    private static final long DOCUMENT_OVERHEAD = 2048;
+
+    /**
+     * The estimated cost of an empty object.
+     */
+    private static final long OBJECT_OVERHEAD = 256;
+
+    /**
+     * The estimated cost of a property without its value.
+     */
+    private static final long PROPERTY_OVERHEAD = 128;
+
+    /**
+     * The estimated cost of an attachment metadata (the content is not kept in memory).
+     */
+    private static final long ATTACHMENT_OVERHEAD = 512;
+
+    /**
+     * The estimated cost of any value which is not a String or a List.
+     */
+    private static final long VALUE_OVERHEAD = 16;
+
+    /**
+     * The parsed content (XDOM) cached in the document is generally several times bigger than the content itself.
+     */
+    private static final long XDOM_FACTOR = 8;
+
+    private DocumentSizeEstimator()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param document the document
+     * @return the estimated number of bytes retained by the document
+     */
+    public static long estimate(XWikiDocument document)
+    {
+        long size = DOCUMENT_OVERHEAD;
+
+        size += estimate(document.getContent()) * (1 + XDOM_FACTOR);
+        size += estimate(document.getTitle());
+        size += estimate(document.getXClassXML());
+
+        for (List<BaseObject> objects : document.getXObjects().values()) {
+            for (BaseObject object : objects) {
+                if (object != null) {
+                    size += estimate(object);
+                }
+            }
+        }
+
+        for (XWikiAttachment attachment : document.getAttachmentList()) {
+            size += ATTACHMENT_OVERHEAD + estimate(attachment.getFilename()) + estimate(attachment.getMimeType());
+        }
+
+        return size;
+    }
+
+    private static long estimate(BaseObject object)
+    {
+        long size = OBJECT_OVERHEAD;
+
+        for (Object field : object.getFieldList()) {
+            size += PROPERTY_OVERHEAD;
+            if (field instanceof BaseProperty) {
+                size += estimateValue(((BaseProperty<?>) field).getValue());
+            }
+        }
+
+        return size;
+    }
+
+    private static long estimateValue(Object value)
+    {
+        if (value instanceof String) {
+            return estimate((String) value);
+        } else if (value instanceof Collection) {
+            long size = VALUE_OVERHEAD;
+            for (Object item : (Collection<?>) value) {
+                size += VALUE_OVERHEAD + estimateValue(item);
+            }
+
+            return size;
+        }
+
+        return VALUE_OVERHEAD;
+    }
+
+    private static long estimate(String value)
+    {
+        // Consider the worst case where each character is stored on 2 bytes
+        return value != null ? value.length() * 2L : 0;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+/**
+ * Expose the statistics of the document cache as a JMX resource.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class JMXDocumentCache implements JMXDocumentCacheMBean
+{
+    private final MonitoredDocumentCache cache;
+
+    /**
+     * @param cache the monitored cache
+     */
+    public JMXDocumentCache(MonitoredDocumentCache cache)
+    {
+        this.cache = cache;
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.cache.getHits();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.cache.getMisses();
+    }
+
+    @Override
+    public double getHitRatio()
+    {
+        long hits = getHits();
+        long total = hits + getMisses();
+
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return this.cache.getEvictions();
+    }
+
+    @Override
+    public long getEstimatedSize()
+    {
+        return this.cache.getEstimatedSize();
+    }
+
+    @Override
+    public long getMemoryCapacity()
+    {
+        return Math.max(this.cache.getMemoryCapacity(), 0);
+    }
+
+    @Override
+    public int getSize()
+    {
+        return this.cache.getTrackedEntries();
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        this.cache.resetStatistics();
+    }
+
+    @Override
+    public void clear()
+    {
+        this.cache.removeAll();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+/**
+ * An interface used to expose the statistics of the document cache as a JMX resource.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public interface JMXDocumentCacheMBean
+{
+    /**
+     * @return the number of times a document was found in the cache
+     */
+    long getHits();
+
+    /**
+     * @return the number of times a document was not found in the cache
+     */
+    long getMisses();
+
+    /**
+     * @return the ratio of document loads served by the cache
+     */
+    double getHitRatio();
+
+    /**
+     * @return the number of documents removed from the cache to respect the memory capacity
+     */
+    long getEvictions();
+
+    /**
+     * @return the total estimated number of bytes used by the cached documents, 0 if the cache is not memory bounded
+     */
+    long getEstimatedSize();
+
+    /**
+     * @return the maximum estimated number of bytes the cached documents are allowed to use, 0 if not limited
+     */
+    long getMemoryCapacity();
+
+    /**
+     * @return the number of documents in the cache, 0 if the cache is not memory bounded
+     */
+    int getSize();
+
+    /**
+     * Reset the hits, misses and evictions counters.
+     */
+    void resetStatistics();
+
+    /**
+     * Clear the whole cache.
+     */
+    void clear();
+}
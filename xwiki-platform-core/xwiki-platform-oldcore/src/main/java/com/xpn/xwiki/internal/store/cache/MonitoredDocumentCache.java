@@ -0,0 +1,311 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * A wrapper around the document cache which keeps statistics about its usage and, when a memory capacity is provided,
+ * evicts the least recently used documents as soon as the total estimated size of the cached documents exceeds it.
+ * <p>
+ * The number of entries of the wrapped cache is still limited by its own configuration.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class MonitoredDocumentCache implements Cache<XWikiDocument>, CacheEntryListener<XWikiDocument>
+{
+    private final Cache<XWikiDocument> cache;
+
+    private final long memoryCapacity;
+
+    /**
+     * The cached documents and their estimated size, in access order.
+     */
+    private final LinkedHashMap<String, TrackedDocument> sizes = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long totalSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param cache the actual cache
+     * @param memoryCapacity the maximum estimated number of bytes the cached documents are allowed to use, 0 or less
+     *            to not limit it
+     */
+    public MonitoredDocumentCache(Cache<XWikiDocument> cache, long memoryCapacity)
+    {
+        this.cache = cache;
+        this.memoryCapacity = memoryCapacity;
+
+        if (isMemoryBounded()) {
+            // Be notified of the entries evicted by the cache itself
+            this.cache.addCacheEntryListener(this);
+        }
+    }
+
+    /**
+     * @return true if the total estimated size of the cached documents is limited
+     */
+    public boolean isMemoryBounded()
+    {
+        return this.memoryCapacity > 0;
+    }
+
+    /**
+     * @return the maximum estimated number of bytes the cached documents are allowed to use, 0 or less if not limited
+     */
+    public long getMemoryCapacity()
+    {
+        return this.memoryCapacity;
+    }
+
+    /**
+     * @return the total estimated number of bytes used by the cached documents (only computed when the cache is memory
+     *         bounded)
+     */
+    public synchronized long getEstimatedSize()
+    {
+        return this.totalSize;
+    }
+
+    /**
+     * @return the number of documents currently tracked in the cache (only computed when the cache is memory bounded)
+     */
+    public synchronized int getTrackedEntries()
+    {
+        return this.sizes.size();
+    }
+
+    /**
+     * @return the number of times a document was found in the cache
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of times a document was not found in the cache
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return the number of documents removed from the cache to respect the memory capacity
+     */
+    public long getEvictions()
+    {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Reset the hits, misses and evictions counters.
+     */
+    public void resetStatistics()
+    {
+        this.hits.reset();
+        this.misses.reset();
+        this.evictions.reset();
+    }
+
+    @Override
+    public void set(String key, XWikiDocument value)
+    {
+        this.cache.set(key, value);
+
+        if (isMemoryBounded()) {
+            track(key, value);
+        }
+    }
+
+    @Override
+    public XWikiDocument get(String key)
+    {
+        XWikiDocument document = this.cache.get(key);
+
+        if (document != null) {
+            this.hits.increment();
+
+            if (isMemoryBounded()) {
+                synchronized (this) {
+                    // Update the access order
+                    this.sizes.get(key);
+                }
+            }
+        } else {
+            this.misses.increment();
+        }
+
+        return document;
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        this.cache.remove(key);
+
+        untrack(key);
+    }
+
+    @Override
+    public void removeAll()
+    {
+        this.cache.removeAll();
+
+        synchronized (this) {
+            this.sizes.clear();
+            this.totalSize = 0;
+        }
+    }
+
+    @Override
+    public void addCacheEntryListener(CacheEntryListener<XWikiDocument> listener)
+    {
+        this.cache.addCacheEntryListener(listener);
+    }
+
+    @Override
+    public void removeCacheEntryListener(CacheEntryListener<XWikiDocument> listener)
+    {
+        this.cache.removeCacheEntryListener(listener);
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.cache.dispose();
+    }
+
+    @Override
+    public void cacheEntryAdded(CacheEntryEvent<XWikiDocument> event)
+    {
+        // Also track the entries which were not added through this wrapper
+        track(event.getEntry().getKey(), event.getEntry().getValue());
+    }
+
+    @Override
+    public void cacheEntryRemoved(CacheEntryEvent<XWikiDocument> event)
+    {
+        // The event can be received after the entry was replaced, in which case the new document should stay tracked
+        untrack(event.getEntry().getKey(), event.getEntry().getValue());
+    }
+
+    @Override
+    public void cacheEntryModified(CacheEntryEvent<XWikiDocument> event)
+    {
+        track(event.getEntry().getKey(), event.getEntry().getValue());
+    }
+
+    private void track(String key, XWikiDocument document)
+    {
+        if (document == null) {
+            return;
+        }
+
+        synchronized (this) {
+            TrackedDocument previous = this.sizes.get(key);
+            if (previous != null && previous.document == document) {
+                // Already tracked
+                return;
+            }
+
+            long size = DocumentSizeEstimator.estimate(document);
+            this.sizes.put(key, new TrackedDocument(document, size));
+            this.totalSize += previous != null ? size - previous.size : size;
+        }
+
+        evict(key);
+    }
+
+    private synchronized void untrack(String key)
+    {
+        untrack(key, null);
+    }
+
+    private synchronized void untrack(String key, XWikiDocument document)
+    {
+        TrackedDocument tracked = this.sizes.get(key);
+        if (tracked != null && (document == null || tracked.document == document)) {
+            this.sizes.remove(key);
+            this.totalSize -= tracked.size;
+        }
+    }
+
+    private void evict(String currentKey)
+    {
+        while (true) {
+            String eldestKey;
+            synchronized (this) {
+                if (this.totalSize <= this.memoryCapacity) {
+                    return;
+                }
+
+                eldestKey = getEldestKey(currentKey);
+                if (eldestKey == null) {
+                    return;
+                }
+
+                untrack(eldestKey);
+            }
+
+            this.cache.remove(eldestKey);
+            this.evictions.increment();
+        }
+    }
+
+    private String getEldestKey(String currentKey)
+    {
+        // Never evict the document which was just added, even if it's bigger than the whole capacity
+        for (String key : this.sizes.keySet()) {
+            if (!key.equals(currentKey)) {
+                return key;
+            }
+        }
+
+        return null;
+    }
+
+    private static final class TrackedDocument
+    {
+        private final XWikiDocument document;
+
+        private final long size;
+
+        TrackedDocument(XWikiDocument document, long size)
+        {
+            this.document = document;
+            this.size = size;
+        }
+    }
+}
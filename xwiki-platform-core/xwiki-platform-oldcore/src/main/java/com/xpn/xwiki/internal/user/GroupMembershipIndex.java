@@ -0,0 +1,240 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.user;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.mandatory.XWikiGroupsDocumentInitializer;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Keep in memory the direct group memberships of each wiki, so that the groups of a member can be found without
+ * querying the database. The memberships of a wiki are loaded with a single query the first time they are needed and
+ * are then maintained from the modifications of the {@code XWiki.XWikiGroups} objects (see
+ * {@link GroupMembershipIndexListener}).
+ * <p>
+ * The members are resolved relatively to the group document, so a member stored as {@code user} or
+ * {@code XWiki.user} in a group of the wiki {@code wiki} is indexed as {@code wiki:XWiki.user}.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = GroupMembershipIndex.class)
+@Singleton
+public class GroupMembershipIndex
+{
+    private static final String MEMBER_FIELD = "member";
+
+    private static final String MEMBERSHIPS_QUERY = "select distinct obj.name, prop.value from BaseObject obj, "
+        + "StringProperty prop where obj.className = 'XWiki.XWikiGroups' and obj.id = prop.id.id "
+        + "and prop.id.name = '" + MEMBER_FIELD + "'";
+
+    /**
+     * The direct group memberships of a wiki.
+     *
+     * @version $Id$
+     */
+    private static final class WikiMemberships
+    {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<DocumentReference, Set<DocumentReference>> groupsByMember = new HashMap<>();
+
+        private final Map<DocumentReference, Set<DocumentReference>> membersByGroup = new HashMap<>();
+
+        private boolean loaded;
+
+        private void add(DocumentReference group, DocumentReference member)
+        {
+            this.groupsByMember.computeIfAbsent(member, k -> new HashSet<>()).add(group);
+            this.membersByGroup.computeIfAbsent(group, k -> new HashSet<>()).add(member);
+        }
+
+        private void setMembers(DocumentReference group, Set<DocumentReference> members)
+        {
+            Set<DocumentReference> previousMembers = this.membersByGroup.remove(group);
+            if (previousMembers != null) {
+                for (DocumentReference member : previousMembers) {
+                    Set<DocumentReference> groups = this.groupsByMember.get(member);
+                    groups.remove(group);
+                    if (groups.isEmpty()) {
+                        this.groupsByMember.remove(member);
+                    }
+                }
+            }
+
+            for (DocumentReference member : members) {
+                add(group, member);
+            }
+        }
+    }
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    private final Map<String, WikiMemberships> wikis = new ConcurrentHashMap<>();
+
+    /**
+     * @param member the reference of the user or group, as it's stored in the groups of the wiki
+     * @param wiki the identifier of the wiki where to search the groups
+     * @return the groups of the passed wiki which explicitly contain the passed member
+     * @throws QueryException when failing to load the group memberships of the wiki
+     */
+    public Collection<DocumentReference> getGroups(DocumentReference member, String wiki) throws QueryException
+    {
+        WikiMemberships memberships = getWikiMemberships(wiki);
+
+        memberships.lock.readLock().lock();
+        try {
+            Set<DocumentReference> groups = memberships.groupsByMember.get(member);
+
+            return groups != null ? new HashSet<>(groups) : Collections.emptySet();
+        } finally {
+            memberships.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Update the members of the passed document, when the group memberships of its wiki are loaded.
+     *
+     * @param document the document which may have been added, modified or removed as a group
+     */
+    public void update(XWikiDocument document)
+    {
+        if (document.getTranslation() != 0) {
+            // Translations don't hold objects
+            return;
+        }
+
+        DocumentReference group = document.getDocumentReference();
+        WikiMemberships memberships = this.wikis.get(group.getWikiReference().getName());
+
+        if (memberships != null) {
+            Set<DocumentReference> members = getMembers(document);
+
+            memberships.lock.writeLock().lock();
+            try {
+                // Nothing to do if the memberships are not loaded yet: they will be when loading them.
+                if (memberships.loaded) {
+                    memberships.setMembers(group, members);
+                }
+            } finally {
+                memberships.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Forget the group memberships of the passed wiki.
+     *
+     * @param wiki the identifier of the wiki
+     */
+    public void remove(String wiki)
+    {
+        this.wikis.remove(wiki);
+    }
+
+    private Set<DocumentReference> getMembers(XWikiDocument document)
+    {
+        List<BaseObject> memberObjects =
+            document.getXObjects(XWikiGroupsDocumentInitializer.XWIKI_GROUPS_DOCUMENT_REFERENCE);
+
+        Set<DocumentReference> members = new HashSet<>(memberObjects.size());
+        for (BaseObject memberObject : memberObjects) {
+            if (memberObject != null) {
+                String memberString = memberObject.getStringValue(MEMBER_FIELD);
+                if (StringUtils.isNotEmpty(memberString)) {
+                    members.add(this.resolver.resolve(memberString, document.getDocumentReference()));
+                }
+            }
+        }
+
+        return members;
+    }
+
+    private WikiMemberships getWikiMemberships(String wiki) throws QueryException
+    {
+        WikiMemberships memberships = this.wikis.computeIfAbsent(wiki, k -> new WikiMemberships());
+
+        memberships.lock.readLock().lock();
+        try {
+            if (memberships.loaded) {
+                return memberships;
+            }
+        } finally {
+            memberships.lock.readLock().unlock();
+        }
+
+        memberships.lock.writeLock().lock();
+        try {
+            // Check if it was loaded by another thread in the meantime
+            if (!memberships.loaded) {
+                load(wiki, memberships);
+            }
+        } finally {
+            memberships.lock.writeLock().unlock();
+        }
+
+        return memberships;
+    }
+
+    private void load(String wiki, WikiMemberships memberships) throws QueryException
+    {
+        WikiReference wikiReference = new WikiReference(wiki);
+
+        List<Object[]> results =
+            this.queryManager.createQuery(MEMBERSHIPS_QUERY, Query.HQL).setWiki(wiki).execute();
+
+        for (Object[] result : results) {
+            String memberString = (String) result[1];
+            if (StringUtils.isNotEmpty(memberString)) {
+                DocumentReference group = this.resolver.resolve((String) result[0], wikiReference);
+                memberships.add(group, this.resolver.resolve(memberString, group));
+            }
+        }
+
+        memberships.loaded = true;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.user;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.security.authorization.cache.SecurityCache;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.mandatory.XWikiGroupsDocumentInitializer;
+
+/**
+ * Maintain the {@link GroupMembershipIndex} based on the modifications of the {@code XWiki.XWikiGroups} objects.
+ * <p>
+ * Document events are used instead of object events because the latter are sent after the caches are invalidated.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component
+@Named(GroupMembershipIndexListener.NAME)
+@Singleton
+// The index must be up to date before the group caches and the security cache are invalidated, otherwise they could be
+// filled again with the previous memberships
+@Priority(SecurityCache.CACHE_INVALIDATION_PRIORITY - 2)
+public class GroupMembershipIndexListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "com.xpn.xwiki.internal.user.GroupMembershipIndexListener";
+
+    @Inject
+    private GroupMembershipIndex index;
+
+    /**
+     * Default constructor.
+     */
+    public GroupMembershipIndexListener()
+    {
+        super(NAME, new WikiDeletedEvent(), new DocumentCreatedEvent(), new DocumentUpdatedEvent(),
+            new DocumentDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof WikiDeletedEvent) {
+            this.index.remove(((WikiDeletedEvent) event).getWikiId());
+        } else {
+            XWikiDocument document = (XWikiDocument) source;
+
+            if (isGroup(document) || isGroup(document.getOriginalDocument())) {
+                this.index.update(document);
+            }
+        }
+    }
+
+    private boolean isGroup(XWikiDocument document)
+    {
+        return document != null
+            && document.getXObject(XWikiGroupsDocumentInitializer.XWIKI_GROUPS_DOCUMENT_REFERENCE) != null;
+    }
+}
@@ -35,9 +35,11 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
@@ -55,6 +57,8 @@
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
+import com.xpn.xwiki.internal.store.cache.JMXDocumentCache;
+import com.xpn.xwiki.internal.store.cache.MonitoredDocumentCache;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
 
@@ -69,10 +73,12 @@
 @Named("cache")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 public class XWikiCacheStore extends AbstractXWikiStore
-    implements XWikiCacheStoreInterface, EventListener, Initializable
+    implements XWikiCacheStoreInterface, EventListener, Initializable, Disposable
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiCacheStore.class);
 
+    private static final String MBEAN_NAME = "type=DocumentCache,name=xwiki.store.pagecache";
+
     /**
      * Used to know if a received event is a local or remote one.
      */
@@ -92,6 +98,9 @@ public class XWikiCacheStore extends AbstractXWikiStore
     @Inject
     private CacheManager cacheManager;
 
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
     @Inject
     @Named("xwikicfg")
     private ConfigurationSource configuration;
@@ -100,6 +109,8 @@ public class XWikiCacheStore extends AbstractXWikiStore
 
     private Cache<XWikiDocument> cache;
 
+    private MonitoredDocumentCache monitoredCache;
+
     private Cache<Boolean> pageExistCache;
 
     /**
@@ -145,6 +156,14 @@ public void initialize() throws InitializationException
         initListener();
     }
 
+    @Override
+    public void dispose()
+    {
+        if (this.jmxRegistration != null && this.monitoredCache != null) {
+            this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+        }
+    }
+
     @Override
     public String getName()
     {
@@ -166,8 +185,20 @@ private void initListener()
     private void initCache() throws CacheException
     {
         int pageCacheCapacity = this.configuration.getProperty("xwiki.store.cache.capacity", 500);
-        this.cache =
-            this.cacheManager.createNewCache(new LRUCacheConfiguration("xwiki.store.pagecache", pageCacheCapacity));
+        long pageCacheMemoryCapacity = this.configuration.getProperty("xwiki.store.cache.memorycapacity", 0L);
+        MonitoredDocumentCache previousCache = this.monitoredCache;
+        this.monitoredCache = new MonitoredDocumentCache(
+            this.cacheManager.createNewCache(new LRUCacheConfiguration("xwiki.store.pagecache", pageCacheCapacity)),
+            pageCacheMemoryCapacity);
+        this.cache = this.monitoredCache;
+
+        // Expose the statistics of the new document cache (the deprecated constructor has no JMX registration)
+        if (this.jmxRegistration != null) {
+            if (previousCache != null) {
+                this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+            }
+            this.jmxRegistration.registerMBean(new JMXDocumentCache(this.monitoredCache), MBEAN_NAME);
+        }
 
         int pageExistCacheCapacity = this.configuration.getProperty("xwiki.store.cache.pageexistcapacity", 10000);
         this.pageExistCache = this.cacheManager
@@ -31,6 +31,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -48,6 +49,7 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.collections4.map.ReferenceMap;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -106,9 +108,15 @@
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.BaseStringProperty;
+import com.xpn.xwiki.objects.DateProperty;
+import com.xpn.xwiki.objects.DoubleProperty;
+import com.xpn.xwiki.objects.FloatProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
 import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.ListProperty;
+import com.xpn.xwiki.objects.LongProperty;
 import com.xpn.xwiki.objects.PropertyInterface;
+import com.xpn.xwiki.objects.StringListProperty;
 import com.xpn.xwiki.objects.StringProperty;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.objects.classes.PropertyClass;
@@ -127,6 +135,22 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface, Initializable
 {
+    /**
+     * The maximum number of identifiers passed to a single "in" clause when loading object properties.
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private static final String IDS = "ids";
+
+    /**
+     * The property types which can be loaded in batch, associated with the name of the field holding their value.
+     */
+    private static final Map<String, String> BATCHED_PROPERTY_VALUE_FIELDS =
+        Map.of(StringProperty.class.getName(), "value", LargeStringProperty.class.getName(), "value",
+            IntegerProperty.class.getName(), "value", LongProperty.class.getName(), "value",
+            FloatProperty.class.getName(), "value", DoubleProperty.class.getName(), "value",
+            DateProperty.class.getName(), "value", StringListProperty.class.getName(), "textValue");
+
     @Inject
     private Logger logger;
 
@@ -1076,16 +1100,8 @@ public XWikiDocument loadXWikiDoc(XWikiDocument defaultDocument, XWikiContext in
                             BaseObject.class);
                         query.setParameter("name", doc.getFullName());
 
-                        Iterator<BaseObject> it = query.list().iterator();
-
-                        EntityReference localGroupEntityReference = new EntityReference("XWikiGroups",
-                            EntityType.DOCUMENT, new EntityReference("XWiki", EntityType.SPACE));
-                        DocumentReference groupsDocumentReference = new DocumentReference(context.getWikiId(),
-                            localGroupEntityReference.getParent().getName(), localGroupEntityReference.getName());
-
-                        boolean hasGroups = false;
-                        while (it.hasNext()) {
-                            BaseObject object = it.next();
+                        List<BaseObject> objects = new ArrayList<>();
+                        for (BaseObject object : query.list()) {
                             DocumentReference classReference = object.getXClassReference();
 
                             if (classReference == null) {
@@ -1114,40 +1130,14 @@ public XWikiDocument loadXWikiDoc(XWikiDocument defaultDocument, XWikiContext in
                                 object = newobject;
                             }
 
-                            if (classReference.equals(groupsDocumentReference)) {
-                                // Groups objects are handled differently.
-                                hasGroups = true;
-                            } else {
-                                loadXWikiCollectionInternal(object, doc, context, false, true);
-                            }
-                            doc.setXObject(object.getNumber(), object);
+                            objects.add(object);
                         }
 
-                        // AFAICT this was added as an emergency patch because loading of objects has proven
-                        // too slow and the objects which cause the most overhead are the XWikiGroups objects
-                        // as each group object (each group member) would otherwise cost 2 database queries.
-                        // This will do every group member in a single query.
-                        if (hasGroups) {
-                            Query<Object[]> query2 = session.createQuery(
-                                "select bobject.number, prop.value from StringProperty as prop,"
-                                    + "BaseObject as bobject where bobject.name = :name and bobject.className='XWiki.XWikiGroups' "
-                                    + "and bobject.id=prop.id.id and prop.id.name='member' order by bobject.number",
-                                Object[].class);
-                            query2.setParameter("name", doc.getFullName());
-
-                            Iterator<Object[]> it2 = query2.list().iterator();
-                            while (it2.hasNext()) {
-                                Object[] result = it2.next();
-                                Integer number = (Integer) result[0];
-                                String member = (String) result[1];
-                                BaseObject obj =
-                                    BaseClass.newCustomClassInstance(groupsDocumentReference, true, context);
-                                obj.setDocumentReference(doc.getDocumentReference());
-                                obj.setXClassReference(localGroupEntityReference);
-                                obj.setNumber(number.intValue());
-                                obj.setStringValue("member", member);
-                                doc.setXObject(obj.getNumber(), obj);
-                            }
+                        // Load the properties of all the objects in a few queries instead of a few queries per object
+                        loadXWikiObjectsProperties(objects, doc, session, context);
+
+                        for (BaseObject object : objects) {
+                            doc.setXObject(object.getNumber(), object);
                         }
                     }
 
@@ -1643,6 +1633,140 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
 
     }
 
+    /**
+     * Load the properties of the passed objects using a fixed number of queries: one to find the name and type of all
+     * the properties and then one per property type table. Objects which cannot be loaded that way (custom mapping,
+     * relational lists, unknown property types, inconsistent property tables) fall back on the standard per object
+     * loading.
+     *
+     * @param objects the objects to load
+     * @param doc the document containing the objects
+     * @param session the current Hibernate session
+     * @param context the XWiki context
+     * @throws XWikiException when failing to load the properties
+     */
+    void loadXWikiObjectsProperties(List<BaseObject> objects, XWikiDocument doc, Session session,
+        XWikiContext context) throws XWikiException
+    {
+        Map<Long, BaseObject> batchedObjects = new HashMap<>();
+        for (BaseObject object : objects) {
+            if (isCustomMapped(object, doc, context)) {
+                loadXWikiCollectionInternal(object, doc, context, false, true);
+            } else {
+                batchedObjects.put(object.getId(), object);
+            }
+        }
+
+        if (batchedObjects.isEmpty()) {
+            return;
+        }
+
+        // Find the name and type of all the properties
+        Map<Long, Map<String, String>> propertyTypes = new HashMap<>();
+        Map<String, Set<Long>> objectIdsByType = new HashMap<>();
+        for (List<Long> ids : ListUtils.partition(new ArrayList<>(batchedObjects.keySet()), LOAD_BATCH_SIZE)) {
+            Query<Object[]> query = session.createQuery("select prop.id.id, prop.id.name, prop.classType"
+                + " from BaseProperty as prop where prop.id.id in (:ids)", Object[].class);
+            query.setParameter(IDS, ids);
+            for (Object[] result : query.list()) {
+                Long id = (Long) result[0];
+                String classType = (String) result[2];
+                propertyTypes.computeIfAbsent(id, k -> new LinkedHashMap<>()).put((String) result[1], classType);
+                objectIdsByType.computeIfAbsent(classType, k -> new LinkedHashSet<>()).add(id);
+            }
+        }
+
+        // Load the values of all the properties, one property table at a time
+        Map<Long, Map<String, BaseProperty>> loadedProperties = new HashMap<>();
+        for (Map.Entry<String, Set<Long>> entry : objectIdsByType.entrySet()) {
+            String classType = entry.getKey();
+            String valueField = BATCHED_PROPERTY_VALUE_FIELDS.get(classType);
+            if (valueField == null) {
+                // Not supported, the corresponding objects will be loaded one by one
+                continue;
+            }
+
+            for (List<Long> ids : ListUtils.partition(new ArrayList<>(entry.getValue()), LOAD_BATCH_SIZE)) {
+                Query<Object[]> query = session.createQuery("select prop.id.id, prop.id.name, prop." + valueField
+                    + " from " + classType + " as prop where prop.id.id in (:ids)", Object[].class);
+                query.setParameter(IDS, ids);
+                for (Object[] result : query.list()) {
+                    Long id = (Long) result[0];
+                    String name = (String) result[1];
+                    // Make sure the value is coming from the table matching the declared type of the property
+                    if (classType.equals(propertyTypes.get(id).get(name))) {
+                        BaseProperty property = createLoadedProperty(batchedObjects.get(id), name, classType,
+                            result[2]);
+                        loadedProperties.computeIfAbsent(id, k -> new HashMap<>()).put(name, property);
+                    }
+                }
+            }
+        }
+
+        // Assemble the objects
+        for (BaseObject object : objects) {
+            if (batchedObjects.containsKey(object.getId())) {
+                Map<String, String> types = propertyTypes.getOrDefault(object.getId(), Collections.emptyMap());
+                Map<String, BaseProperty> properties =
+                    loadedProperties.getOrDefault(object.getId(), Collections.emptyMap());
+                if (properties.size() == types.size()) {
+                    for (String name : types.keySet()) {
+                        object.addField(name, properties.get(name));
+                    }
+                } else {
+                    loadXWikiCollectionInternal(object, doc, context, false, true);
+                }
+            }
+        }
+    }
+
+    private boolean isCustomMapped(BaseObject object, XWikiDocument doc, XWikiContext context)
+    {
+        if (!context.getWiki().hasCustomMappings()) {
+            return false;
+        }
+
+        BaseClass bclass;
+        if (!object.getXClassReference().equals(object.getDocumentReference())) {
+            bclass = object.getXClass(context);
+        } else {
+            // We need to get it from the document otherwise we will go in an endless loop
+            bclass = doc.getXClass();
+        }
+
+        return bclass != null && bclass.hasCustomMapping();
+    }
+
+    private BaseProperty createLoadedProperty(BaseObject object, String name, String classType, Object value)
+        throws XWikiException
+    {
+        BaseProperty property;
+        try {
+            property = (BaseProperty) Class.forName(classType).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT,
+                String.format("Failed to create property [%s] of type [%s] for object [%s]", name, classType,
+                    object.getReference()),
+                e);
+        }
+
+        property.setObject(object);
+        property.setName(name);
+        if (property instanceof StringListProperty) {
+            ((StringListProperty) property).setTextValue((String) value);
+        } else if (property instanceof BaseStringProperty && value == null) {
+            // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
+            // safe to assume that a retrieved NULL value should actually be an empty string.
+            property.setValue("");
+        } else {
+            property.setValue(value);
+        }
+        property.setValueDirty(false);
+
+        return property;
+    }
+
     /**
      * @deprecated This is internal to XWikiHibernateStore and may be removed in the future.
      */
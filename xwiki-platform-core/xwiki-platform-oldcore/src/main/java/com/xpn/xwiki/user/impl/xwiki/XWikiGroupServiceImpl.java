@@ -21,6 +21,7 @@
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -48,6 +49,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.user.GroupMembershipIndex;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.store.XWikiStoreInterface;
 import com.xpn.xwiki.user.api.XWikiGroupService;
@@ -746,40 +748,29 @@ public Collection<String> getAllGroupsNamesForMember(String member, int nb, int
     public Collection<DocumentReference> getAllGroupsReferencesForMember(DocumentReference memberReference, int limit,
         int offset, XWikiContext context) throws XWikiException
     {
-        Collection<DocumentReference> groupReferences = null;
+        DocumentReference indexedMemberReference;
+        if (XWikiRightService.isGuest(memberReference)) {
+            // The guest user is always the one of the current wiki
+            indexedMemberReference =
+                new DocumentReference(context.getWikiId(), DEFAULT_MEMBER_SPACE, XWikiRightService.GUEST_USER);
+        } else {
+            indexedMemberReference = memberReference;
+        }
 
-        List<String> groupNames;
+        List<DocumentReference> groups;
         try {
-            Query query;
-            if (XWikiRightService.isGuest(memberReference)) {
-                query = context.getWiki().getStore().getQueryManager().getNamedQuery("listGroupsForUser")
-                    .bindValue("username", XWikiRightService.GUEST_USER_FULLNAME)
-                    .bindValue("shortname", XWikiRightService.GUEST_USER_FULLNAME)
-                    .bindValue("veryshortname", XWikiRightService.GUEST_USER);
-            } else if (memberReference.getWikiReference().getName().equals(context.getWikiId())
-                || (memberReference.getLastSpaceReference().getName().equals("XWiki")
-                    && memberReference.getName().equals(XWikiRightService.GUEST_USER))) {
-                query = context.getWiki().getStore().getQueryManager().getNamedQuery("listGroupsForUser")
-                    .bindValue("username", this.entityReferenceSerializer.serialize(memberReference))
-                    .bindValue("shortname", this.localWikiEntityReferenceSerializer.serialize(memberReference))
-                    .bindValue("veryshortname", memberReference.getName());
-            } else {
-                query = context.getWiki().getStore().getQueryManager().getNamedQuery("listGroupsForUserInOtherWiki")
-                    .bindValue("prefixedmembername", this.entityReferenceSerializer.serialize(memberReference));
-            }
-
-            query.setOffset(offset);
-            query.setLimit(limit);
-
-            groupNames = query.execute();
+            groups = new ArrayList<>(
+                Utils.getComponent(GroupMembershipIndex.class).getGroups(indexedMemberReference, context.getWikiId()));
         } catch (QueryException ex) {
             throw new XWikiException(0, 0, ex.getMessage(), ex);
         }
 
-        groupReferences = new HashSet<DocumentReference>(groupNames.size());
-        for (String groupName : groupNames) {
-            groupReferences.add(this.currentMixedDocumentReferenceResolver.resolve(groupName));
-        }
+        // Sort the groups to get stable pages
+        groups.sort(Comparator.comparing(DocumentReference::toString));
+        int fromIndex = Math.min(Math.max(offset, 0), groups.size());
+        int toIndex = limit > 0 ? Math.min(fromIndex + limit, groups.size()) : groups.size();
+
+        Collection<DocumentReference> groupReferences = new HashSet<>(groups.subList(fromIndex, toIndex));
 
         // If the 'XWiki.XWikiAllGroup' is implicit, all users/groups except XWikiGuest and XWikiAllGroup
         // itself are part of it.
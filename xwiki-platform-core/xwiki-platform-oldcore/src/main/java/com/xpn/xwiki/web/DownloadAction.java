@@ -21,6 +21,12 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -59,6 +65,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.util.Util;
@@ -105,6 +112,18 @@ public class DownloadAction extends XWikiAction
     /** The name of the HTTP Header that signals a byte-range request. */
     private static final String RANGE_HEADER_NAME = "Range";
 
+    /** The name of the HTTP Header that makes a byte-range request conditional. */
+    private static final String IF_RANGE_HEADER_NAME = "If-Range";
+
+    /** The name of the HTTP Header containing the entity tags known by the client. */
+    private static final String IF_NONE_MATCH_HEADER_NAME = "If-None-Match";
+
+    /** The name of the HTTP Header containing the entity tag of the sent content. */
+    private static final String ETAG_HEADER_NAME = "ETag";
+
+    /** The prefix of a weak entity tag. */
+    private static final String WEAK_ETAG_PREFIX = "W/";
+
     /** The format of a valid range header. */
     private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=([0-9]+)?-([0-9]+)?");
 
@@ -173,15 +192,14 @@ public String render(XWikiContext context) throws XWikiException
                     args);
             }
 
-            long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
-            long lastModifiedOnServer = attachment.getDate().getTime();
-            if (lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer) {
+            if (isNotModified(attachment, request)) {
+                response.setHeader(ETAG_HEADER_NAME, getETag(attachment));
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
                 return null;
             }
 
             // Sending the content of the attachment
-            if (request.getHeader(RANGE_HEADER_NAME) != null) {
+            if (request.getHeader(RANGE_HEADER_NAME) != null && isRangeApplicable(attachment, request)) {
                 try {
                     if (sendPartialContent(attachment, request, response, context)) {
                         return null;
@@ -205,6 +223,87 @@ protected boolean supportRedirections()
         return true;
     }
 
+    /**
+     * Check if the client already has the current content of the attachment. As indicated by the HTTP specification,
+     * the {@code If-None-Match} header takes precedence over the {@code If-Modified-Since} header.
+     *
+     * @param attachment the attachment being downloaded
+     * @param request the current client request
+     * @return {@code true} if a {@code 304 NOT MODIFIED} response should be sent
+     */
+    private boolean isNotModified(XWikiAttachment attachment, XWikiRequest request)
+    {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER_NAME);
+        if (ifNoneMatch != null) {
+            return matchesETag(ifNoneMatch, getETag(attachment));
+        }
+
+        long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
+        long lastModifiedOnServer = attachment.getDate().getTime();
+        return lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer;
+    }
+
+    /**
+     * @param ifNoneMatch the value of the {@code If-None-Match} header
+     * @param etag the entity tag of the attachment
+     * @return {@code true} if one of the listed entity tags matches (using the weak comparison) the passed one
+     */
+    private boolean matchesETag(String ifNoneMatch, String etag)
+    {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+
+        for (String clientETag : ifNoneMatch.split(",")) {
+            if (StringUtils.removeStart(clientETag.trim(), WEAK_ETAG_PREFIX).equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check the {@code If-Range} header, if any, to know if the client still has the content it wants to resume. When
+     * it's not the case the whole content must be sent instead of the requested range.
+     *
+     * @param attachment the attachment being downloaded
+     * @param request the current client request
+     * @return {@code true} if the requested range can be sent
+     */
+    private boolean isRangeApplicable(XWikiAttachment attachment, XWikiRequest request)
+    {
+        String ifRange = request.getHeader(IF_RANGE_HEADER_NAME);
+        if (ifRange == null) {
+            return true;
+        }
+
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith(WEAK_ETAG_PREFIX)) {
+            // If-Range requires the strong comparison so a weak entity tag never matches.
+            return ifRange.equals(getETag(attachment));
+        }
+
+        try {
+            // HTTP dates have a precision of one second.
+            return request.getDateHeader(IF_RANGE_HEADER_NAME) / 1000 == attachment.getDate().getTime() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compute a strong entity tag for the content of the attachment. A new version of the attachment is created (with
+     * a new date) each time its content is modified, and an attachment deleted and created again gets a new date.
+     *
+     * @param attachment the attachment being downloaded
+     * @return the entity tag (including the quotes) of the attachment content
+     */
+    private String getETag(XWikiAttachment attachment)
+    {
+        return String.format("\"%s-%d\"", attachment.getVersion(), attachment.getDate().getTime());
+    }
+
     private void throwNotFoundException(String filename) throws XWikiException
     {
         String message =
@@ -273,9 +372,6 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
         final XWikiResponse response, final XWikiContext context) throws XWikiException, IOException
     {
         if (start >= 0 && start < attachment.getContentLongSize(context)) {
-            InputStream data = attachment.getContentInputStream(context);
-            data = new BoundedInputStream(data, end + 1);
-            data.skip(start);
             setCommonHeaders(attachment, request, response, context);
             response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
             if ((end - start + 1L) < Integer.MAX_VALUE) {
@@ -283,7 +379,12 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
             }
             response.setHeader("Content-Range",
                 "bytes " + start + "-" + end + SEPARATOR + attachment.getContentLongSize(context));
-            IOUtils.copyLarge(data, response.getOutputStream());
+            if (!sendContentFile(attachment, start, end - start + 1, response)) {
+                try (InputStream data = new BoundedInputStream(attachment.getContentInputStream(context), end + 1)) {
+                    data.skip(start);
+                    IOUtils.copyLarge(data, response.getOutputStream());
+                }
+            }
         } else {
             response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
         }
@@ -305,8 +406,10 @@ protected void sendContent(final XWikiAttachment attachment, final XWikiRequest
         try {
             setCommonHeaders(attachment, request, response, context);
             setContentLength(response, attachment.getContentLongSize(context));
-            stream = attachment.getContentInputStream(context);
-            IOUtils.copy(stream, response.getOutputStream());
+            if (!sendContentFile(attachment, 0, attachment.getContentLongSize(context), response)) {
+                stream = attachment.getContentInputStream(context);
+                IOUtils.copyLarge(stream, response.getOutputStream());
+            }
         } catch (IOException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
                 XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION, "Exception while sending response", e);
@@ -317,6 +420,54 @@ protected void sendContent(final XWikiAttachment attachment, final XWikiRequest
         }
     }
 
+    /**
+     * Send a part of the attachment content directly from the file holding it, when the attachment store provides one.
+     * The file is read at the requested position, without reading and skipping its beginning. This is not a zero-copy
+     * transfer: the servlet API only gives access to an output stream, so the bytes are still copied through the
+     * buffer of the channel wrapping it.
+     *
+     * @param attachment the attachment to get content from
+     * @param start the first byte to send
+     * @param length the number of bytes to send
+     * @param response the response to write to
+     * @return {@code true} if the content was sent, {@code false} if the content is not stored in a file (anymore)
+     * @throws IOException if the file cannot be read or the response cannot be written
+     */
+    private boolean sendContentFile(XWikiAttachment attachment, long start, long length, XWikiResponse response)
+        throws IOException
+    {
+        XWikiAttachmentContent content = attachment.getAttachment_content();
+        Optional<Path> path = content != null ? content.getContentPath() : Optional.empty();
+        if (path.isEmpty()) {
+            return false;
+        }
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path.get(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // The file was removed in the meantime (e.g. an evicted thumbnail), let the content input stream handle it
+            return false;
+        }
+
+        try (channel) {
+            // The output channel is not closed since it would close the response output stream.
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, output);
+                if (transferred <= 0) {
+                    // The end of the file was reached.
+                    break;
+                }
+                position += transferred;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * @return the filename of the attachment or null if the URL didn't point to an attachment
      */
@@ -496,6 +647,7 @@ private void setCommonHeaders(final XWikiAttachment attachment, final XWikiReque
         response.addHeader("Content-disposition", dispType + "; filename*=utf-8''" + ofilename);
 
         response.setDateHeader("Last-Modified", attachment.getDate().getTime());
+        response.setHeader(ETAG_HEADER_NAME, getETag(attachment));
         // Advertise that downloads can be resumed
         response.setHeader("Accept-Ranges", "bytes");
     }
@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.DocumentVersionRangeDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link DocumentRemoteEventDataCodec}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class DocumentRemoteEventDataCodecTest
+{
+    private static final DocumentReference REFERENCE =
+        new DocumentReference("wiki", List.of("space1", "space.2"), "page", Locale.FRENCH);
+
+    @InjectMockComponents
+    private DocumentRemoteEventDataCodec codec;
+
+    private RemoteEventData encodeDecode(RemoteEventData remoteEvent) throws Exception
+    {
+        assertTrue(this.codec.canEncode(remoteEvent));
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.codec.encode(remoteEvent, new DataOutputStream(stream));
+
+        return this.codec.decode(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    }
+
+    @Test
+    void encodeDecode() throws Exception
+    {
+        HashMap<String, Serializable> source = new HashMap<>();
+        source.put(AbstractXWikiEventConverter.DOC_NAME, REFERENCE);
+        source.put(AbstractXWikiEventConverter.DOC_VERSION, "2.1");
+        source.put(AbstractXWikiEventConverter.DOC_LANGUAGE, "fr");
+        source.put(AbstractXWikiEventConverter.ORIGDOC_VERSION, "1.1");
+        source.put(AbstractXWikiEventConverter.ORIGDOC_LANGUAGE, "fr");
+        HashMap<String, Serializable> data = new HashMap<>();
+        data.put(AbstractXWikiEventConverter.CONTEXT_WIKI, "wiki");
+        data.put(AbstractXWikiEventConverter.CONTEXT_USER, null);
+
+        DocumentUpdatedEvent event = new DocumentUpdatedEvent(REFERENCE);
+        RemoteEventData remoteEvent = encodeDecode(new RemoteEventData(event, source, data));
+
+        DocumentUpdatedEvent decodedEvent = (DocumentUpdatedEvent) remoteEvent.getEvent();
+        assertEquals(REFERENCE, decodedEvent.getDocumentReference());
+        assertEquals(event.getEventFilter().getFilter(), decodedEvent.getEventFilter().getFilter());
+        assertEquals(source, remoteEvent.getSource());
+        assertEquals(data, remoteEvent.getData());
+    }
+
+    @Test
+    void encodeDecodeNewDocument() throws Exception
+    {
+        Map<String, Serializable> source = Map.of(AbstractXWikiEventConverter.DOC_NAME, REFERENCE);
+        Map<String, Serializable> data = Map.of(AbstractXWikiEventConverter.CONTEXT_WIKI, "wiki",
+            AbstractXWikiEventConverter.CONTEXT_USER, "XWiki.User");
+
+        RemoteEventData remoteEvent =
+            encodeDecode(new RemoteEventData(new DocumentUpdatedEvent(), (Serializable) source, (Serializable) data));
+
+        assertTrue(remoteEvent.getEvent() instanceof DocumentUpdatedEvent);
+        assertNull(((DocumentUpdatedEvent) remoteEvent.getEvent()).getDocumentReference());
+        assertEquals(source, remoteEvent.getSource());
+        assertEquals(data, remoteEvent.getData());
+    }
+
+    @Test
+    void canEncode()
+    {
+        HashMap<String, Serializable> source = new HashMap<>();
+        source.put(AbstractXWikiEventConverter.DOC_NAME, REFERENCE);
+        HashMap<String, Serializable> data = new HashMap<>();
+
+        assertFalse(this.codec.canEncode(new RemoteEventData(new DocumentVersionRangeDeletedEvent(), source, data)));
+
+        source.put("other", "value");
+        assertFalse(this.codec.canEncode(new RemoteEventData(new DocumentUpdatedEvent(REFERENCE), source, data)));
+    }
+}
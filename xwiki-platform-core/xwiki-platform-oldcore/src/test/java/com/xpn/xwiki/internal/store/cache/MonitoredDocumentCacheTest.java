@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheEntry;
+import org.xwiki.cache.event.CacheEntryEvent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link MonitoredDocumentCache}.
+ *
+ * @version $Id$
+ */
+class MonitoredDocumentCacheTest
+{
+    private Cache<XWikiDocument> cache;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.cache = mock(Cache.class);
+    }
+
+    private XWikiDocument mockDocument(int contentLength)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getContent()).thenReturn(StringUtils.repeat('a', contentLength));
+
+        return document;
+    }
+
+    private CacheEntryEvent<XWikiDocument> mockEvent(String key, XWikiDocument document)
+    {
+        CacheEntry<XWikiDocument> entry = mock(CacheEntry.class);
+        when(entry.getKey()).thenReturn(key);
+        when(entry.getValue()).thenReturn(document);
+        CacheEntryEvent<XWikiDocument> event = mock(CacheEntryEvent.class);
+        when(event.getEntry()).thenReturn(entry);
+
+        return event;
+    }
+
+    @Test
+    void statistics()
+    {
+        MonitoredDocumentCache monitoredCache = new MonitoredDocumentCache(this.cache, 0);
+        XWikiDocument document = mockDocument(10);
+        when(this.cache.get("key")).thenReturn(document);
+
+        assertSame(document, monitoredCache.get("key"));
+        assertSame(document, monitoredCache.get("key"));
+        assertEquals(null, monitoredCache.get("other"));
+
+        assertEquals(2, monitoredCache.getHits());
+        assertEquals(1, monitoredCache.getMisses());
+        assertEquals(0.6, new JMXDocumentCache(monitoredCache).getHitRatio(), 0.1);
+
+        monitoredCache.set("key", document);
+
+        // Sizes are not tracked when the cache is not memory bounded
+        assertEquals(0, monitoredCache.getEstimatedSize());
+        verify(this.cache, never()).addCacheEntryListener(any());
+    }
+
+    @Test
+    void evictLeastRecentlyUsedWhenMemoryCapacityIsExceeded()
+    {
+        XWikiDocument document1 = mockDocument(1000);
+        XWikiDocument document2 = mockDocument(1000);
+        XWikiDocument document3 = mockDocument(1000);
+        long size = DocumentSizeEstimator.estimate(document1);
+
+        MonitoredDocumentCache monitoredCache = new MonitoredDocumentCache(this.cache, size * 2);
+        verify(this.cache).addCacheEntryListener(monitoredCache);
+
+        monitoredCache.set("document1", document1);
+        monitoredCache.set("document2", document2);
+        assertEquals(size * 2, monitoredCache.getEstimatedSize());
+
+        // Access the first document so that the second one becomes the least recently used
+        when(this.cache.get("document1")).thenReturn(document1);
+        monitoredCache.get("document1");
+
+        monitoredCache.set("document3", document3);
+
+        verify(this.cache).remove("document2");
+        verify(this.cache, never()).remove("document1");
+        assertEquals(size * 2, monitoredCache.getEstimatedSize());
+        assertEquals(2, monitoredCache.getTrackedEntries());
+        assertEquals(1, monitoredCache.getEvictions());
+
+        monitoredCache.remove("document1");
+
+        assertEquals(size, monitoredCache.getEstimatedSize());
+
+        monitoredCache.removeAll();
+
+        assertEquals(0, monitoredCache.getEstimatedSize());
+    }
+
+    @Test
+    void estimatedSizeFollowsCacheEvents()
+    {
+        XWikiDocument document1 = mockDocument(1000);
+        XWikiDocument document2 = mockDocument(2000);
+        long size1 = DocumentSizeEstimator.estimate(document1);
+        long size2 = DocumentSizeEstimator.estimate(document2);
+
+        MonitoredDocumentCache monitoredCache = new MonitoredDocumentCache(this.cache, Long.MAX_VALUE);
+
+        monitoredCache.set("key", document1);
+        assertEquals(size1, monitoredCache.getEstimatedSize());
+
+        // The document is replaced without going through the wrapper
+        monitoredCache.cacheEntryModified(mockEvent("key", document2));
+        assertEquals(size2, monitoredCache.getEstimatedSize());
+
+        // A late notification about the replaced document does not untrack the new one
+        monitoredCache.cacheEntryRemoved(mockEvent("key", document1));
+        assertEquals(size2, monitoredCache.getEstimatedSize());
+        assertEquals(1, monitoredCache.getTrackedEntries());
+
+        // The document is evicted by the cache itself
+        monitoredCache.cacheEntryRemoved(mockEvent("key", document2));
+        assertEquals(0, monitoredCache.getEstimatedSize());
+        assertEquals(0, monitoredCache.getTrackedEntries());
+
+        // A document added directly to the cache is tracked too
+        monitoredCache.cacheEntryAdded(mockEvent("other", document1));
+        assertEquals(size1, monitoredCache.getEstimatedSize());
+    }
+}
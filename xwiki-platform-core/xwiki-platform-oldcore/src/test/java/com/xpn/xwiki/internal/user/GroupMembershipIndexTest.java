@@ -0,0 +1,130 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.user;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.test.annotation.ComponentList;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.mandatory.XWikiGroupsDocumentInitializer;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link GroupMembershipIndex}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ComponentList(GroupMembershipIndex.class)
+@ReferenceComponentList
+class GroupMembershipIndexTest
+{
+    private static final DocumentReference USER = new DocumentReference("wiki", "XWiki", "user");
+
+    private static final DocumentReference GLOBAL_USER = new DocumentReference("xwiki", "XWiki", "user");
+
+    private static final DocumentReference GROUP_1 = new DocumentReference("wiki", "XWiki", "group1");
+
+    private static final DocumentReference GROUP_2 = new DocumentReference("wiki", "XWiki", "group2");
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private GroupMembershipIndex index;
+
+    private Query query;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.query = mock(Query.class);
+        when(this.oldcore.getQueryManager().createQuery(anyString(), eq(Query.HQL))).thenReturn(this.query);
+        when(this.query.setWiki(any())).thenReturn(this.query);
+        when(this.query.execute()).thenReturn(Arrays.asList(new Object[] { "XWiki.group1", "XWiki.user" },
+            new Object[] { "XWiki.group2", "wiki:XWiki.group1" }, new Object[] { "XWiki.group2", "xwiki:XWiki.user" },
+            new Object[] { "XWiki.group2", "" }));
+
+        this.index = this.oldcore.getMocker().getInstance(GroupMembershipIndex.class);
+    }
+
+    @Test
+    void getGroups() throws Exception
+    {
+        assertEquals(Set.of(GROUP_1), this.index.getGroups(USER, "wiki"));
+        assertEquals(Set.of(GROUP_2), this.index.getGroups(GROUP_1, "wiki"));
+        assertEquals(Set.of(GROUP_2), this.index.getGroups(GLOBAL_USER, "wiki"));
+        assertEquals(Collections.emptySet(), this.index.getGroups(GROUP_2, "wiki"));
+
+        // The memberships are loaded only once
+        verify(this.query).execute();
+    }
+
+    @Test
+    void update() throws Exception
+    {
+        assertEquals(Set.of(GROUP_1), this.index.getGroups(USER, "wiki"));
+
+        XWikiDocument group3 = new XWikiDocument(new DocumentReference("wiki", "XWiki", "group3"));
+        group3.newXObject(XWikiGroupsDocumentInitializer.XWIKI_GROUPS_DOCUMENT_REFERENCE,
+            this.oldcore.getXWikiContext()).setStringValue("member", "XWiki.user");
+        this.index.update(group3);
+
+        assertEquals(Set.of(GROUP_1, group3.getDocumentReference()), this.index.getGroups(USER, "wiki"));
+
+        // Group 1 has no members anymore
+        this.index.update(new XWikiDocument(GROUP_1));
+
+        assertEquals(Set.of(group3.getDocumentReference()), this.index.getGroups(USER, "wiki"));
+        assertEquals(Set.of(GROUP_2), this.index.getGroups(GLOBAL_USER, "wiki"));
+
+        verify(this.query).execute();
+    }
+
+    @Test
+    void remove() throws Exception
+    {
+        assertEquals(Set.of(GROUP_1), this.index.getGroups(USER, "wiki"));
+
+        this.index.remove("wiki");
+
+        assertEquals(Set.of(GROUP_1), this.index.getGroups(USER, "wiki"));
+
+        verify(this.query, times(2)).execute();
+    }
+}
@@ -67,6 +67,7 @@
 import com.xpn.xwiki.internal.store.hibernate.HibernateStore;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
 import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.StringProperty;
 
@@ -349,6 +350,55 @@ void saveObjectWithPropertyTypeChange() throws Exception
         verify(session).save(property);
     }
 
+    @Test
+    void loadXWikiObjectsPropertiesInBatch() throws Exception
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        DocumentReference classReference = new DocumentReference("wiki", "XWiki", "XWikiGroups");
+        BaseObject object1 = new BaseObject();
+        object1.setDocumentReference(documentReference);
+        object1.setXClassReference(classReference);
+        object1.setNumber(0);
+        BaseObject object2 = new BaseObject();
+        object2.setDocumentReference(documentReference);
+        object2.setXClassReference(classReference);
+        object2.setNumber(1);
+
+        Query<Object[]> typesQuery = mock(Query.class);
+        when(this.session.createQuery("select prop.id.id, prop.id.name, prop.classType"
+            + " from BaseProperty as prop where prop.id.id in (:ids)", Object[].class)).thenReturn(typesQuery);
+        when(typesQuery.list()).thenReturn(Arrays.asList(
+            new Object[] {object1.getId(), "member", StringProperty.class.getName()},
+            new Object[] {object2.getId(), "member", StringProperty.class.getName()},
+            new Object[] {object2.getId(), "count", IntegerProperty.class.getName()}));
+
+        Query<Object[]> stringsQuery = mock(Query.class);
+        when(this.session.createQuery("select prop.id.id, prop.id.name, prop.value from "
+            + StringProperty.class.getName() + " as prop where prop.id.id in (:ids)", Object[].class))
+                .thenReturn(stringsQuery);
+        when(stringsQuery.list()).thenReturn(Arrays.asList(new Object[] {object1.getId(), "member", "XWiki.Admin"},
+            new Object[] {object2.getId(), "member", null}));
+
+        Query<Object[]> integersQuery = mock(Query.class);
+        when(this.session.createQuery("select prop.id.id, prop.id.name, prop.value from "
+            + IntegerProperty.class.getName() + " as prop where prop.id.id in (:ids)", Object[].class))
+                .thenReturn(integersQuery);
+        when(integersQuery.list())
+            .thenReturn(Collections.singletonList(new Object[] {object2.getId(), "count", 42}));
+
+        this.store.loadXWikiObjectsProperties(Arrays.asList(object1, object2), mock(XWikiDocument.class),
+            this.session, this.xcontext);
+
+        assertEquals("XWiki.Admin", object1.getStringValue("member"));
+        assertEquals("", object2.getStringValue("member"));
+        assertEquals(42, object2.getIntValue("count"));
+        assertFalse(((BaseProperty) object1.get("member")).isValueDirty());
+
+        verify(typesQuery).setParameter(eq("ids"), any());
+        verify(stringsQuery).setParameter(eq("ids"), any());
+        verify(integersQuery).setParameter(eq("ids"), any());
+    }
+
     @Test
     void existsWithRootLocale() throws Exception
     {
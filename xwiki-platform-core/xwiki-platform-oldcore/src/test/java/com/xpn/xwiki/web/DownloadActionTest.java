@@ -21,11 +21,14 @@
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Optional;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
@@ -66,6 +69,7 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -150,12 +154,36 @@ public void before() throws Exception
     }
 
     // Helpers for the tests
-    private void createAttachment(Date d, String name) throws IOException
+    private XWikiAttachment createAttachment(Date d, String name) throws IOException
     {
         XWikiAttachment filetxt = new XWikiAttachment(this.document, name);
         filetxt.setContent(new ByteArrayInputStream(this.fileContent));
         filetxt.setDate(d);
         this.document.getAttachmentList().add(filetxt);
+
+        return filetxt;
+    }
+
+    private void createFileAttachment(Date d) throws IOException
+    {
+        File file = new File(this.oldcore.getTemporaryDirectory(), DEFAULT_FILE_NAME);
+        Files.write(file.toPath(), this.fileContent);
+
+        XWikiAttachment filetxt = new XWikiAttachment(this.document, DEFAULT_FILE_NAME);
+        XWikiAttachmentContent content = mock(XWikiAttachmentContent.class);
+        when(content.getAttachment()).thenReturn(filetxt);
+        // The content should be read from the file and not from the stream
+        when(content.getContentInputStream()).thenReturn(new ByteArrayInputStream(new byte[] {}));
+        when(content.getLongSize()).thenReturn((long) this.fileContent.length);
+        when(content.getContentPath()).thenReturn(Optional.of(file.toPath()));
+        filetxt.setAttachment_content(content);
+        filetxt.setDate(d);
+        this.document.getAttachmentList().add(filetxt);
+    }
+
+    private String getETag(XWikiAttachment attachment)
+    {
+        return "\"" + attachment.getVersion() + '-' + attachment.getDate().getTime() + '"';
     }
 
     private void setRequestExpectations(String uri, String id, String forceDownload, String range, long modifiedSince,
@@ -273,6 +301,50 @@ void downloadWhenIfModifiedSinceAfter() throws XWikiException, IOException
         assertNull(this.action.render(this.oldcore.getXWikiContext()));
     }
 
+    @Test
+    void downloadWhenIfNoneMatchSame() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        XWikiAttachment attachment = createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", W/" + getETag(attachment));
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(this.response).setHeader("ETag", getETag(attachment));
+        verify(this.response, never()).getOutputStream();
+    }
+
+    @Test
+    void downloadWhenIfNoneMatchDifferent() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        XWikiAttachment attachment = createAttachment(d, DEFAULT_FILE_NAME);
+        // If-None-Match takes precedence over If-Modified-Since
+        setRequestExpectations(DEFAULT_URI, null, null, null, d.getTime(), DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"1.1-0\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verify(this.response).setHeader("ETag", getETag(attachment));
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    void downloadFromFile() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createFileAttachment(d);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
     @Test
     void downloadWhenMissingFile() throws XWikiException
     {
@@ -567,6 +639,54 @@ void downloadWhenValidStartRange() throws XWikiException, IOException
         verifyOutputExpectations(0, 4);
     }
 
+    @Test
+    void downloadWhenValidRangeFromFile() throws XWikiException, IOException
+    {
+        // This test expects bytes 3, 4 and 5 from the file.
+        Date d = new Date();
+        createFileAttachment(d);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=3-5", -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setHeader("Content-Range", "bytes 3-5/" + DownloadActionTest.this.fileContent.length);
+        verifyResponseExpectations(d.getTime(), 3);
+        verifyOutputExpectations(3, 6);
+    }
+
+    @Test
+    void downloadWhenIfRangeSame() throws XWikiException, IOException
+    {
+        // This test expects bytes 3, 4 and 5 from the file.
+        Date d = new Date();
+        XWikiAttachment attachment = createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=3-5", -1l, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-Range")).thenReturn(getETag(attachment));
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verifyResponseExpectations(d.getTime(), 3);
+        verifyOutputExpectations(3, 6);
+    }
+
+    @Test
+    void downloadWhenIfRangeDifferent() throws XWikiException, IOException
+    {
+        // The content changed since the client got the beginning of the file, so the whole file is expected.
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=3-5", -1l, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-Range")).thenReturn("\"1.1-0\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
     @Test
     void downloadWhenValidMiddleRange() throws XWikiException, IOException
     {
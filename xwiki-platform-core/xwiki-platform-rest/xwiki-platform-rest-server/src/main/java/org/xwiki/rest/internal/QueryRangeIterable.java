@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+
+/**
+ * Iterates the results of a query in the specified range (start, number), like {@link RangeIterable} does for a list,
+ * but executes the query by batches while iterating so that the results are never all loaded in memory at once.
+ *
+ * @param <T> the type of the query results
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class QueryRangeIterable<T> implements Iterable<T>
+{
+    /**
+     * The maximum number of results fetched by each execution of the query.
+     */
+    static final int BATCH_SIZE = 100;
+
+    private final Query query;
+
+    private final int start;
+
+    private final int number;
+
+    /**
+     * @param query the query to execute
+     * @param start the offset of the first result to iterate
+     * @param number the maximum number of results to iterate, all the results are iterated if lower or equal to 0
+     */
+    public QueryRangeIterable(Query query, int start, int number)
+    {
+        this.query = query;
+        this.start = Math.max(start, 0);
+        this.number = number;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new Iterator<T>()
+        {
+            private int offset = QueryRangeIterable.this.start;
+
+            private int remaining = QueryRangeIterable.this.number > 0 ? QueryRangeIterable.this.number : -1;
+
+            private Iterator<T> batch = Collections.emptyIterator();
+
+            private boolean last;
+
+            @Override
+            public boolean hasNext()
+            {
+                if (!this.batch.hasNext() && !this.last) {
+                    fetchNextBatch();
+                }
+
+                return this.batch.hasNext();
+            }
+
+            @Override
+            public T next()
+            {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return this.batch.next();
+            }
+
+            private void fetchNextBatch()
+            {
+                int limit = this.remaining < 0 ? BATCH_SIZE : Math.min(BATCH_SIZE, this.remaining);
+
+                List<T> results;
+                try {
+                    results = QueryRangeIterable.this.query.setOffset(this.offset).setLimit(limit).execute();
+                } catch (QueryException e) {
+                    throw new IllegalStateException("Failed to query the database.", e);
+                }
+
+                this.offset += results.size();
+                if (this.remaining > 0) {
+                    this.remaining -= results.size();
+                }
+                this.last = results.size() < limit || this.remaining == 0;
+                this.batch = results.iterator();
+            }
+        };
+    }
+}
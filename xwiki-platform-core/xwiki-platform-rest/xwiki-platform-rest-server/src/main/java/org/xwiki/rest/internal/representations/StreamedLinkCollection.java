@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.xwiki.rest.model.jaxb.Link;
+
+/**
+ * A collection resource whose elements are produced while the response is written instead of being collected in the
+ * model first, so that listing a lot of entities doesn't require to keep all of them in memory and the client receives
+ * the first elements as soon as they are available.
+ *
+ * @param <E> the type of the streamed elements
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public interface StreamedLinkCollection<E>
+{
+    /**
+     * Receives the elements of the collection as they are produced.
+     *
+     * @param <E> the type of the streamed elements
+     */
+    @FunctionalInterface
+    interface ElementConsumer<E>
+    {
+        /**
+         * @param element the next element of the collection
+         * @throws IOException when failing to write the element in the response
+         */
+        void accept(E element) throws IOException;
+    }
+
+    /**
+     * Produces the elements of the collection.
+     *
+     * @param <E> the type of the streamed elements
+     */
+    @FunctionalInterface
+    interface ElementProducer<E>
+    {
+        /**
+         * @param consumer the consumer to pass the elements to, in order
+         * @throws Exception when failing to produce the elements
+         */
+        void produce(ElementConsumer<E> consumer) throws Exception;
+    }
+
+    /**
+     * @return the links of the collection, written before the elements
+     */
+    List<Link> getLinks();
+
+    /**
+     * @return the name of the XML root element of the collection
+     */
+    String getRootElementName();
+
+    /**
+     * @return the name of the XML element of each streamed element
+     */
+    String getElementName();
+
+    /**
+     * @return the name of the JSON property holding the array of streamed elements
+     */
+    String getElementsPropertyName();
+
+    /**
+     * Produce the elements of the collection. This is called while writing the response, once.
+     *
+     * @param consumer the consumer to pass the elements to, in order
+     * @throws Exception when failing to produce the elements
+     */
+    void produceElements(ElementConsumer<E> consumer) throws Exception;
+}
@@ -0,0 +1,189 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.restlet.ext.jackson.JacksonRepresentation;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rest.XWikiRestComponent;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes the {@link StreamedLinkCollection} representations, element by element as they are produced, in the same XML
+ * and JSON formats as the corresponding model classes.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component
+@Named("org.xwiki.rest.internal.representations.StreamedLinkCollectionWriter")
+@Provider
+@Produces({ MediaType.APPLICATION_XML, MediaType.TEXT_XML, MediaType.APPLICATION_JSON })
+@Singleton
+public class StreamedLinkCollectionWriter
+    implements MessageBodyWriter<StreamedLinkCollection<?>>, XWikiRestComponent, Initializable
+{
+    private static final String NAMESPACE = "http://www.xwiki.org";
+
+    private static final QName LINK = new QName(NAMESPACE, "link");
+
+    private JAXBContext jaxbContext;
+
+    private XMLOutputFactory xmlOutputFactory;
+
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter objectWriter;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            Package modelPackage = ObjectFactory.class.getPackage();
+            this.jaxbContext = JAXBContext.newInstance(modelPackage.getName(), ObjectFactory.class.getClassLoader());
+        } catch (JAXBException e) {
+            throw new InitializationException("Failed to create the JAXB context of the REST model", e);
+        }
+
+        this.xmlOutputFactory = XMLOutputFactory.newInstance();
+
+        // Use the same configuration as the JSON converter used for the other representations.
+        this.objectMapper =
+            new JacksonRepresentation<>(org.restlet.data.MediaType.APPLICATION_JSON, new Object()).getObjectMapper();
+        // The servlet output stream takes care of sending the content by chunks.
+        this.objectWriter = this.objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return StreamedLinkCollection.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(StreamedLinkCollection<?> collection, Class<?> type, Type genericType,
+        Annotation[] annotations, MediaType mediaType)
+    {
+        // Unknown until all the elements are produced.
+        return -1;
+    }
+
+    @Override
+    public void writeTo(StreamedLinkCollection<?> collection, Class<?> type, Type genericType,
+        Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+        OutputStream entityStream) throws IOException, WebApplicationException
+    {
+        try {
+            if (MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType)) {
+                writeJSON(collection, entityStream);
+            } else {
+                writeXML(collection, entityStream);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to write the streamed collection", e);
+        }
+    }
+
+    private <E> void writeJSON(StreamedLinkCollection<E> collection, OutputStream entityStream) throws Exception
+    {
+        JsonGenerator generator = this.objectMapper.getFactory().createGenerator(entityStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        generator.writeStartObject();
+        generator.writeFieldName("links");
+        this.objectWriter.writeValue(generator, collection.getLinks());
+        generator.writeArrayFieldStart(collection.getElementsPropertyName());
+        collection.produceElements(element -> this.objectWriter.writeValue(generator, element));
+        generator.writeEndArray();
+        generator.writeEndObject();
+
+        generator.close();
+    }
+
+    private <E> void writeXML(StreamedLinkCollection<E> collection, OutputStream entityStream) throws Exception
+    {
+        String encoding = StandardCharsets.UTF_8.name();
+        XMLStreamWriter writer = this.xmlOutputFactory.createXMLStreamWriter(entityStream, encoding);
+        Marshaller marshaller = this.jaxbContext.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+
+        writer.writeStartDocument(encoding, "1.0");
+        writer.setDefaultNamespace(NAMESPACE);
+        writer.writeStartElement(NAMESPACE, collection.getRootElementName());
+        writer.writeDefaultNamespace(NAMESPACE);
+
+        for (Link link : collection.getLinks()) {
+            marshaller.marshal(new JAXBElement<>(LINK, Link.class, link), writer);
+        }
+
+        QName elementName = new QName(NAMESPACE, collection.getElementName());
+        collection.produceElements(element -> writeXMLElement(elementName, element, marshaller, writer));
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+
+        // Doesn't close the response output stream.
+        writer.close();
+    }
+
+    private <E> void writeXMLElement(QName name, E element, Marshaller marshaller, XMLStreamWriter writer)
+        throws IOException
+    {
+        @SuppressWarnings("unchecked")
+        Class<E> elementClass = (Class<E>) element.getClass();
+
+        try {
+            marshaller.marshal(new JAXBElement<>(name, elementClass, element), writer);
+        } catch (JAXBException e) {
+            throw new IOException(String.format("Failed to write the element [%s]", element), e);
+        }
+    }
+}
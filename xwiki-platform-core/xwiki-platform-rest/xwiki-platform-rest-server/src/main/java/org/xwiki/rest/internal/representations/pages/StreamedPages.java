@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.pages;
+
+import org.xwiki.rest.internal.representations.StreamedLinkCollection;
+import org.xwiki.rest.model.jaxb.PageSummary;
+import org.xwiki.rest.model.jaxb.Pages;
+
+/**
+ * {@link Pages} whose page summaries are produced while the response is written. The list returned by
+ * {@link #getPageSummaries()} is not used.
+ *
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class StreamedPages extends Pages implements StreamedLinkCollection<PageSummary>
+{
+    private final ElementProducer<PageSummary> producer;
+
+    /**
+     * @param producer produces the page summaries
+     */
+    public StreamedPages(ElementProducer<PageSummary> producer)
+    {
+        this.producer = producer;
+    }
+
+    @Override
+    public String getRootElementName()
+    {
+        return "pages";
+    }
+
+    @Override
+    public String getElementName()
+    {
+        return "pageSummary";
+    }
+
+    @Override
+    public String getElementsPropertyName()
+    {
+        return "pageSummaries";
+    }
+
+    @Override
+    public void produceElements(ElementConsumer<PageSummary> consumer) throws Exception
+    {
+        this.producer.produce(consumer);
+    }
+}
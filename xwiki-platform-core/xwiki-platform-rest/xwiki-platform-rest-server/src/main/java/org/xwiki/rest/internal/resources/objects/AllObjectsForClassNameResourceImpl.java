@@ -19,7 +19,7 @@
  */
 package org.xwiki.rest.internal.resources.objects;
 
-import java.util.List;
+import java.net.URI;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -29,13 +29,16 @@
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.QueryRangeIterable;
 import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.internal.representations.objects.StreamedObjects;
 import org.xwiki.rest.model.jaxb.ObjectSummary;
 import org.xwiki.rest.model.jaxb.Objects;
 import org.xwiki.rest.resources.objects.AllObjectsForClassNameResource;
 import org.xwiki.security.authorization.ContextualAuthorizationManager;
 import org.xwiki.security.authorization.Right;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.api.Document;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseObject;
@@ -54,49 +57,50 @@ public class AllObjectsForClassNameResourceImpl extends XWikiResource implements
     public Objects getObjects(String wikiName, String className, Integer start, Integer number, String order,
             Boolean withPrettyNames) throws XWikiRestException
     {
-        String database = Utils.getXWikiContext(componentManager).getWikiId();
-
         try {
-            Objects objects = new Objects();
-
-            Utils.getXWikiContext(componentManager).setWikiId(wikiName);
-
-            String query = "select doc, obj from BaseObject as obj, XWikiDocument as doc "
+            String statement = "select doc, obj from BaseObject as obj, XWikiDocument as doc "
                 + "where obj.name=doc.fullName and obj.className=:className";
+            // The objects are queried by batches so they need a total order to not be skipped or returned twice
             if ("date".equals(order)) {
-                query += " order by doc.date desc";
+                statement += " order by doc.date desc, doc.fullName, obj.number";
+            } else {
+                statement += " order by doc.fullName, obj.number";
             }
 
-            List<Object> queryResult = null;
-            queryResult =
-                    queryManager.createQuery(query, Query.XWQL).bindValue("className", className).setLimit(number)
-                            .setOffset(start).execute();
+            Query query = queryManager.createQuery(statement, Query.XWQL).bindValue("className", className);
+            URI baseUri = uriInfo.getBaseUri();
 
-            for (Object object : queryResult) {
-                Object[] fields = (Object[]) object;
-                XWikiDocument xwikiDocument = (XWikiDocument) fields[0];
-                xwikiDocument.setDatabase(wikiName);
+            // The objects are queried by batches and written while the response is sent, so that listing all the
+            // objects of a class doesn't require to keep all of them in memory.
+            return new StreamedObjects(output -> {
+                XWikiContext xcontext = Utils.getXWikiContext(componentManager);
+                String database = xcontext.getWikiId();
 
-                if (authorization.hasAccess(Right.VIEW, xwikiDocument.getDocumentReference())) {
+                try {
+                    xcontext.setWikiId(wikiName);
 
-                    Document doc = new Document(xwikiDocument, Utils.getXWikiContext(componentManager));
+                    for (Object[] fields : new QueryRangeIterable<Object[]>(query, start, number)) {
+                        XWikiDocument xwikiDocument = (XWikiDocument) fields[0];
+                        xwikiDocument.setDatabase(wikiName);
 
-                    BaseObject xwikiObject = (BaseObject) fields[1];
+                        if (authorization.hasAccess(Right.VIEW, xwikiDocument.getDocumentReference())) {
+                            Document doc = new Document(xwikiDocument, xcontext);
 
-                    ObjectSummary objectSummary = DomainObjectFactory
-                        .createObjectSummary(objectFactory, uriInfo.getBaseUri(), Utils.getXWikiContext(
-                            componentManager), doc, xwikiObject, false, Utils.getXWikiApi(componentManager),
-                            withPrettyNames);
+                            BaseObject xwikiObject = (BaseObject) fields[1];
 
-                    objects.getObjectSummaries().add(objectSummary);
-                }
-            }
+                            ObjectSummary objectSummary = DomainObjectFactory.createObjectSummary(objectFactory,
+                                baseUri, xcontext, doc, xwikiObject, false, Utils.getXWikiApi(componentManager),
+                                withPrettyNames);
 
-            return objects;
+                            output.accept(objectSummary);
+                        }
+                    }
+                } finally {
+                    xcontext.setWikiId(database);
+                }
+            });
         } catch (Exception e) {
             throw new XWikiRestException(e);
-        } finally {
-            Utils.getXWikiContext(componentManager).setWikiId(database);
         }
     }
 }
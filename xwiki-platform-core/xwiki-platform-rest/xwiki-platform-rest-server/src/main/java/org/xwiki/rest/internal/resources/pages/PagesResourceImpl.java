@@ -19,6 +19,7 @@
  */
 package org.xwiki.rest.internal.resources.pages;
 
+import java.net.URI;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -30,10 +31,14 @@
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.QueryRangeIterable;
 import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.internal.representations.pages.StreamedPages;
 import org.xwiki.rest.model.jaxb.Pages;
 import org.xwiki.rest.resources.pages.PagesResource;
 
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.api.Document;
 
 /**
@@ -48,23 +53,19 @@ public Pages getPages(String wikiName, String spaceName, Integer start, Integer
             String parentFilterExpression, String order, Boolean withPrettyNames)
             throws XWikiRestException
     {
-        String database = Utils.getXWikiContext(componentManager).getWikiId();
         List<String> spaces = parseSpaceSegments(spaceName);
         String spaceId = Utils.getLocalSpaceId(spaces);
 
-        Pages pages = objectFactory.createPages();
-
         try {
-            Utils.getXWikiContext(componentManager).setWikiId(wikiName);
-
+            // The pages are queried by batches so they need a total order (the named query is ordered by name)
             Query query = ("date".equals(order)) ? queryManager.createQuery(
-                    "select doc.name from Document doc where doc.space=:space and language='' order by doc.date desc",
+                    "select doc.name from Document doc where doc.space=:space and language='' "
+                        + "order by doc.date desc, doc.name",
                     "xwql") : queryManager.getNamedQuery("getSpaceDocsName");
 
             /* Use an explicit query to improve performance */
-            List<String> pageNames =
-                    query.addFilter(componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden"))
-                        .bindValue("space", spaceId).setOffset(start).setLimit(number).execute();
+            query.addFilter(componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden"))
+                .bindValue("space", spaceId);
 
             Pattern parentFilter = null;
             if (parentFilterExpression != null) {
@@ -75,42 +76,56 @@ public Pages getPages(String wikiName, String spaceName, Integer start, Integer
                 }
             }
 
-            for (String pageName : pageNames) {
-                String pageFullName = Utils.getPageId(wikiName, spaces, pageName);
+            URI baseUri = uriInfo.getBaseUri();
+            Pattern pageParentFilter = parentFilter;
 
-                if (!Utils.getXWikiApi(componentManager).exists(pageFullName)) {
-                    getLogger().warn("Page [{}] appears to be in space [{}] but no information is available.", pageName,
-                        spaceId);
-                } else {
-                    Document doc = Utils.getXWikiApi(componentManager).getDocument(pageFullName);
+            /* The pages are queried by batches and written while the response is sent, so that listing a space with a
+             * lot of pages doesn't require to keep all of them in memory. */
+            return new StreamedPages(output -> {
+                XWikiContext xcontext = Utils.getXWikiContext(componentManager);
+                String database = xcontext.getWikiId();
 
-                    /* We only add pages we have the right to access */
-                    if (doc != null) {
-                        boolean add = true;
+                try {
+                    xcontext.setWikiId(wikiName);
 
-                        Document parent = Utils.getParentDocument(doc, Utils.getXWikiApi(componentManager));
+                    for (String pageName : new QueryRangeIterable<String>(query, start, number)) {
+                        String pageFullName = Utils.getPageId(wikiName, spaces, pageName);
 
-                        if (parentFilter != null) {
-                            String parentId = "";
-                            if (parent != null && !parent.isNew()) {
-                                parentId = parent.getPrefixedFullName();
-                            }
-                            add = parentFilter.matcher(parentId).matches();
-                        }
+                        if (!Utils.getXWikiApi(componentManager).exists(pageFullName)) {
+                            getLogger().warn("Page [{}] appears to be in space [{}] but no information is available.",
+                                pageName, spaceId);
+                        } else {
+                            Document doc = Utils.getXWikiApi(componentManager).getDocument(pageFullName);
 
-                        if (add) {
-                            pages.getPageSummaries().add(DomainObjectFactory.createPageSummary(objectFactory,
-                                    uriInfo.getBaseUri(), doc, Utils.getXWikiApi(componentManager), withPrettyNames));
+                            /* We only add pages we have the right to access */
+                            if (doc != null && matchesParent(doc, pageParentFilter)) {
+                                output.accept(DomainObjectFactory.createPageSummary(objectFactory, baseUri, doc,
+                                    Utils.getXWikiApi(componentManager), withPrettyNames));
+                            }
                         }
                     }
+                } finally {
+                    xcontext.setWikiId(database);
                 }
-            }
+            });
         } catch (Exception e) {
             throw new XWikiRestException(e);
-        } finally {
-            Utils.getXWikiContext(componentManager).setWikiId(database);
+        }
+    }
+
+    private boolean matchesParent(Document doc, Pattern parentFilter) throws XWikiException
+    {
+        if (parentFilter == null) {
+            return true;
+        }
+
+        Document parent = Utils.getParentDocument(doc, Utils.getXWikiApi(componentManager));
+
+        String parentId = "";
+        if (parent != null && !parent.isNew()) {
+            parentId = parent.getPrefixedFullName();
         }
 
-        return pages;
+        return parentFilter.matcher(parentId).matches();
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.query.Query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link QueryRangeIterable}.
+ *
+ * @version $Id$
+ */
+class QueryRangeIterableTest
+{
+    private final List<Integer> data = IntStream.range(0, 250).boxed().collect(Collectors.toList());
+
+    private final Query query = mock(Query.class);
+
+    private int offset;
+
+    private int limit;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.query.setOffset(anyInt())).then(invocation -> {
+            this.offset = invocation.getArgument(0);
+            return this.query;
+        });
+        when(this.query.setLimit(anyInt())).then(invocation -> {
+            this.limit = invocation.getArgument(0);
+            return this.query;
+        });
+        when(this.query.execute()).then(invocation -> new ArrayList<>(
+            this.data.subList(Math.min(this.offset, this.data.size()),
+                Math.min(this.offset + this.limit, this.data.size()))));
+    }
+
+    private List<Integer> iterate(int start, int number)
+    {
+        List<Integer> results = new ArrayList<>();
+        new QueryRangeIterable<Integer>(this.query, start, number).forEach(results::add);
+        return results;
+    }
+
+    @Test
+    void iterateAll() throws Exception
+    {
+        assertEquals(this.data, iterate(0, -1));
+
+        // 3 batches of results, the last one being incomplete.
+        verify(this.query, times(3)).execute();
+        verify(this.query).setOffset(200);
+        verify(this.query, times(3)).setLimit(QueryRangeIterable.BATCH_SIZE);
+    }
+
+    @Test
+    void iterateRange() throws Exception
+    {
+        assertEquals(this.data.subList(10, 160), iterate(10, 150));
+
+        verify(this.query, times(2)).execute();
+        verify(this.query).setOffset(10);
+        verify(this.query).setOffset(110);
+        verify(this.query).setLimit(50);
+    }
+
+    @Test
+    void iterateRangeOutOfBounds() throws Exception
+    {
+        assertEquals(this.data.subList(200, 250), iterate(200, 100));
+        assertEquals(List.of(), iterate(300, 10));
+    }
+
+    @Test
+    void iterateWithoutNext() throws Exception
+    {
+        new QueryRangeIterable<Integer>(this.query, 0, -1).iterator();
+
+        verify(this.query, never()).execute();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+import javax.xml.bind.JAXBContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.restlet.ext.jackson.JacksonRepresentation;
+import org.xwiki.rest.internal.representations.pages.StreamedPages;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+import org.xwiki.rest.model.jaxb.PageSummary;
+import org.xwiki.rest.model.jaxb.Pages;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link StreamedLinkCollectionWriter}.
+ *
+ * @version $Id$
+ */
+class StreamedLinkCollectionWriterTest
+{
+    private final StreamedLinkCollectionWriter writer = new StreamedLinkCollectionWriter();
+
+    private final Link link = new Link().withHref("http://host/xwiki/rest/wikis/xwiki").withRel("self");
+
+    private final List<PageSummary> summaries = List.of(new PageSummary().withId("xwiki:Space.Page1").withName("Page1"),
+        new PageSummary().withId("xwiki:Space.Page2").withName("Page2").withTitle("Title"));
+
+    private final StreamedPages streamedPages = new StreamedPages(output -> {
+        for (PageSummary summary : this.summaries) {
+            output.accept(summary);
+        }
+    });
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.writer.initialize();
+
+        this.streamedPages.getLinks().add(this.link);
+    }
+
+    private String write(StreamedLinkCollection<?> collection, MediaType mediaType) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        this.writer.writeTo(collection, collection.getClass(), collection.getClass(), null, mediaType, null, output);
+        return output.toString("UTF-8");
+    }
+
+    @Test
+    void isWriteable()
+    {
+        assertTrue(this.writer.isWriteable(StreamedPages.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(this.writer.isWriteable(Pages.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+    }
+
+    @Test
+    void writeJSON() throws Exception
+    {
+        Pages pages = new Pages().withLinks(this.link).withPageSummaries(this.summaries);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        // Same JSON as the one produced for the non streamed model.
+        assertEquals(objectMapper.readTree(new JacksonRepresentation<>(pages).getText()),
+            objectMapper.readTree(write(this.streamedPages, MediaType.APPLICATION_JSON_TYPE)));
+    }
+
+    @Test
+    void writeXML() throws Exception
+    {
+        String xml = write(this.streamedPages, MediaType.APPLICATION_XML_TYPE);
+
+        Pages pages = (Pages) JAXBContext.newInstance(ObjectFactory.class.getPackage().getName()).createUnmarshaller()
+            .unmarshal(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+        assertEquals(1, pages.getLinks().size());
+        assertEquals(this.link.getHref(), pages.getLinks().get(0).getHref());
+        assertEquals(2, pages.getPageSummaries().size());
+        assertEquals("xwiki:Space.Page1", pages.getPageSummaries().get(0).getId());
+        assertEquals("Title", pages.getPageSummaries().get(1).getTitle());
+    }
+
+    @Test
+    void writeWhenProducerFails()
+    {
+        StreamedPages failingPages = new StreamedPages(output -> {
+            throw new IllegalStateException("Failed to query the database.");
+        });
+
+        IOException exception =
+            assertThrows(IOException.class, () -> write(failingPages, MediaType.APPLICATION_JSON_TYPE));
+        assertEquals("Failed to query the database.", exception.getCause().getMessage());
+    }
+}
@@ -19,14 +19,30 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.bridge.internal.DocumentContextExecutor;
@@ -44,6 +60,7 @@
 import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.job.JobException;
 import org.xwiki.job.JobExecutor;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.search.solr.internal.api.IndexingUserConfig;
@@ -67,6 +84,11 @@
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
  * processes the queue.
+ * <p>
+ * The extraction of the data to index (which involves loading and often rendering the documents) can be delegated to a
+ * pool of threads (see {@link SolrConfiguration#getIndexerThreads()}) but the result of the extractions is always sent
+ * to the Solr instance by the index thread, in the order of the queue, so that two operations on the same entity are
+ * never applied in the wrong order.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -101,6 +123,20 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * The future to complete once the operations queued before have been committed.
+         */
+        public CompletableFuture<Void> flushed;
+
+        /**
+         * @param flushed the future to complete once the operations queued before have been committed
+         */
+        public IndexQueueEntry(CompletableFuture<Void> flushed)
+        {
+            this.flushed = flushed;
+            this.operation = IndexOperation.FLUSH;
+        }
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -136,6 +172,9 @@ public String toString()
                 case STOP:
                     str = "STOP";
                     break;
+                case FLUSH:
+                    str = "FLUSH";
+                    break;
                 default:
                     str = "";
                     break;
@@ -167,6 +206,11 @@ public String toString()
          */
         public IndexOperation operation;
 
+        /**
+         * The future to complete once the operations queued before have been committed.
+         */
+        public CompletableFuture<Void> flushed;
+
         /**
          * @param reference the reference of the entity to index.
          * @param recurse also apply operation to reference children.
@@ -178,6 +222,15 @@ public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperat
             this.recurse = recurse;
             this.operation = operation;
         }
+
+        /**
+         * @param flushed the future to complete once the operations queued before have been committed
+         */
+        public ResolveQueueEntry(CompletableFuture<Void> flushed)
+        {
+            this.flushed = flushed;
+            this.operation = IndexOperation.FLUSH;
+        }
     }
 
     /**
@@ -203,13 +256,16 @@ public void runInternal()
 
                 if (queueEntry == RESOLVE_QUEUE_ENTRY_STOP) {
                     // Stop the index thread: clear the queue and send the stop signal without blocking.
-                    indexQueue.clear();
+                    clearIndexQueue();
                     indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
                     break;
                 }
 
                 try {
-                    if (queueEntry.operation == IndexOperation.INDEX) {
+                    if (queueEntry.operation == IndexOperation.FLUSH) {
+                        // Keep the marker after the entries resolved so far
+                        indexQueue.put(new IndexQueueEntry(queueEntry.flushed));
+                    } else if (queueEntry.operation == IndexOperation.INDEX) {
                         Iterable<EntityReference> references;
                         if (queueEntry.recurse) {
                             references = solrRefereceResolver.getReferences(queueEntry.reference);
@@ -250,6 +306,11 @@ public void runInternal()
     private static final IndexQueueEntry INDEX_QUEUE_ENTRY_STOP =
         new IndexQueueEntry((String) null, IndexOperation.STOP);
 
+    /**
+     * The name of the JMX bean exposing the state of the indexer.
+     */
+    private static final String MBEAN_NAME = "type=Solr,name=indexer";
+
     /**
      * Logging framework.
      */
@@ -301,6 +362,9 @@ public void runInternal()
     @Inject
     private Provider<XWikiContext> xWikiContextProvider;
 
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
     /**
      * The queue of index operation to perform.
      */
@@ -331,6 +395,37 @@ public void runInternal()
      */
     private volatile int batchSize;
 
+    /**
+     * The threads in which the data to index is extracted, {@code null} when it's extracted by the index thread.
+     */
+    private ExecutorService extractionExecutor;
+
+    /**
+     * The maximum number of entries taken from the index queue which are waiting to be sent to the Solr instance.
+     */
+    private int extractionWindow;
+
+    /**
+     * The number of entries taken from the index queue which are not yet sent to the Solr instance.
+     */
+    private volatile int pendingSize;
+
+    private final AtomicInteger runningExtractions = new AtomicInteger();
+
+    private final LongAdder extractionCount = new LongAdder();
+
+    private final LongAdder extractionTime = new LongAdder();
+
+    private final LongAdder indexedCount = new LongAdder();
+
+    private final LongAdder deletedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder commitCount = new LongAdder();
+
+    private final LongAdder commitTime = new LongAdder();
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -338,6 +433,17 @@ public void initialize() throws InitializationException
         this.resolveQueue = new LinkedBlockingQueue<>();
         this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
 
+        // Create the extraction threads
+        int threads = this.configuration.getIndexerThreads();
+        if (threads > 1) {
+            BasicThreadFactory factory =
+                new BasicThreadFactory.Builder().namingPattern("XWiki Solr index extraction thread %d").daemon(true)
+                    .priority(Thread.NORM_PRIORITY - 1).build();
+            this.extractionExecutor = Executors.newFixedThreadPool(threads, factory);
+        }
+        // Give enough work to the extraction threads while the index thread waits for the oldest extraction
+        this.extractionWindow = threads * 2;
+
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
         this.resolveThread.setName("XWiki Solr resolve thread");
@@ -351,6 +457,9 @@ public void initialize() throws InitializationException
         this.indexThread.setDaemon(true);
         this.indexThread.start();
         this.indexThread.setPriority(Thread.NORM_PRIORITY - 1);
+
+        // Expose the state of the indexer
+        this.jmxRegistration.registerMBean(new JMXSolrIndexer(this), MBEAN_NAME);
     }
 
     @Override
@@ -361,15 +470,40 @@ public void dispose() throws ComponentLifecycleException
 
         // Stop the resolve thread. Clear the queue and send the stop signal without blocking. We know that the resolve
         // queue will remain empty after the clear call because we set the disposed flag above.
-        this.resolveQueue.clear();
+        clearResolveQueue();
         this.resolveQueue.offer(RESOLVE_QUEUE_ENTRY_STOP);
 
         // Stop the index thread. Clear the queue and send the stop signal without blocking. There should be enough
         // space in the index queue before the special stop entry is added as long the the index queue capacity is
         // greater than 1. In the worse case, the clear call will unblock the resolve thread (which was waiting because
         // the index queue was full) and just one entry will be added to the queue before the special stop entry.
-        this.indexQueue.clear();
+        clearIndexQueue();
         this.indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
+
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+    }
+
+    private void clearResolveQueue()
+    {
+        List<ResolveQueueEntry> entries = new ArrayList<>();
+        this.resolveQueue.drainTo(entries);
+
+        // Don't let anyone wait for a flush which will never happen
+        entries.stream().filter(entry -> entry.flushed != null).forEach(entry -> cancelFlush(entry.flushed));
+    }
+
+    private void clearIndexQueue()
+    {
+        List<IndexQueueEntry> entries = new ArrayList<>();
+        this.indexQueue.drainTo(entries);
+
+        // Don't let anyone wait for a flush which will never happen
+        entries.stream().filter(entry -> entry.flushed != null).forEach(entry -> cancelFlush(entry.flushed));
+    }
+
+    private void cancelFlush(CompletableFuture<Void> flushed)
+    {
+        flushed.completeExceptionally(new SolrIndexerException("The Solr indexer has been stopped"));
     }
 
     @Override
@@ -395,6 +529,11 @@ public void run()
             }
         }
 
+        // Stop the extraction threads
+        if (this.extractionExecutor != null) {
+            this.extractionExecutor.shutdownNow();
+        }
+
         this.logger.debug("Stop SOLR indexer thread");
     }
 
@@ -407,51 +546,48 @@ public void run()
      */
     private boolean processBatch(IndexQueueEntry queueEntry)
     {
+        // The entries for which the extraction has been started, in the order of the queue
+        Deque<Pair<IndexQueueEntry, Future<LengthSolrInputDocument>>> pending = new ArrayDeque<>();
+
         int length = 0;
 
         for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
             if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
                 // Discard the current batch and stop the indexing thread.
+                pending.forEach(entry -> entry.getValue().cancel(false));
+                this.pendingSize = 0;
+
                 return false;
             }
 
-            IndexOperation operation = batchEntry.operation;
-
-            // For the current contiguous operations queue, group the changes
-            try {
-                ExecutionContext executionContext = new ExecutionContext();
-                this.ecim.initialize(executionContext);
-                XWikiContext xcontext = (XWikiContext) executionContext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
-                xcontext.setUserReference(indexingUserConfig.getIndexingUserReference());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
-
-                    ++this.batchSize;
+            if (batchEntry.operation == IndexOperation.FLUSH) {
+                // Apply and commit everything which was queued before the marker
+                while (!pending.isEmpty()) {
+                    length = apply(pending.poll(), length);
+                    this.pendingSize = pending.size();
                 }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
+                flush(batchEntry.flushed);
+                length = 0;
+
+                continue;
             }
 
-            // Commit the index changes so that they become available to queries. This is a costly operation and that is
-            // the reason why we perform it at the end of the batch.
-            if (shouldCommit(length, this.batchSize)) {
-                commit();
-                length = 0;
+            pending.add(Pair.of(batchEntry, extract(batchEntry)));
+
+            // Apply the finished extractions, making sure to respect the order of the queue. Also wait for the oldest
+            // extraction when too many entries are pending.
+            while (!pending.isEmpty()
+                && (pending.size() > this.extractionWindow || pending.peek().getValue().isDone())) {
+                length = apply(pending.poll(), length);
             }
+
+            this.pendingSize = pending.size();
+        }
+
+        // Apply what's left
+        while (!pending.isEmpty()) {
+            length = apply(pending.poll(), length);
+            this.pendingSize = pending.size();
         }
 
         // Commit what's left
@@ -462,15 +598,136 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * Start extracting the data to index for the passed entry.
+     * 
+     * @param queueEntry the entry to extract
+     * @return the result of the extraction
+     */
+    private Future<LengthSolrInputDocument> extract(IndexQueueEntry queueEntry)
+    {
+        if (queueEntry.operation != IndexOperation.INDEX) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        FutureTask<LengthSolrInputDocument> task = new FutureTask<>(() -> {
+            long start = System.nanoTime();
+            try {
+                return executeInContext(() -> getSolrDocument(queueEntry.reference));
+            } finally {
+                this.runningExtractions.decrementAndGet();
+                this.extractionCount.increment();
+                this.extractionTime.add(System.nanoTime() - start);
+            }
+        });
+
+        this.runningExtractions.incrementAndGet();
+        if (this.extractionExecutor != null) {
+            this.extractionExecutor.execute(task);
+        } else {
+            task.run();
+        }
+
+        return task;
+    }
+
+    /**
+     * Send the result of an entry to the Solr instance and commit if needed.
+     * 
+     * @param entry the entry and the result of its extraction
+     * @param length the current length of the batch
+     * @return the new length of the batch
+     */
+    private int apply(Pair<IndexQueueEntry, Future<LengthSolrInputDocument>> entry, int length)
+    {
+        int batchLength = length;
+
+        IndexQueueEntry queueEntry = entry.getKey();
+        try {
+            if (IndexOperation.INDEX.equals(queueEntry.operation)) {
+                LengthSolrInputDocument solrDocument = entry.getValue().get();
+                if (solrDocument != null) {
+                    this.solrInstance.add(solrDocument);
+                    batchLength += solrDocument.getLength();
+                    ++this.batchSize;
+                    this.indexedCount.increment();
+                }
+            } else if (IndexOperation.DELETE.equals(queueEntry.operation)) {
+                executeInContext(() -> {
+                    if (queueEntry.reference == null) {
+                        this.solrInstance.deleteByQuery(queueEntry.deleteQuery);
+                    } else {
+                        this.solrInstance.delete(this.solrRefereceResolver.getId(queueEntry.reference));
+                    }
+
+                    return null;
+                });
+
+                ++this.batchSize;
+                this.deletedCount.increment();
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted while processing entry [{}]", queueEntry, e);
+            this.failedCount.increment();
+
+            // Let the index thread stop
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", queueEntry, e.getCause());
+            this.failedCount.increment();
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", queueEntry, e);
+            this.failedCount.increment();
+        }
+
+        // Commit the index changes so that they become available to queries. This is a costly operation and that is
+        // the reason why we perform it at the end of the batch.
+        if (shouldCommit(batchLength, this.batchSize)) {
+            commit();
+            batchLength = 0;
+        }
+
+        return batchLength;
+    }
+
+    private <T> T executeInContext(Callable<T> callable) throws Exception
+    {
+        try {
+            ExecutionContext executionContext = new ExecutionContext();
+            this.ecim.initialize(executionContext);
+            XWikiContext xcontext = (XWikiContext) executionContext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
+            xcontext.setUserReference(this.indexingUserConfig.getIndexingUserReference());
+
+            return callable.call();
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    private void flush(CompletableFuture<Void> flushed)
+    {
+        if (this.batchSize == 0 || commit()) {
+            flushed.complete(null);
+        } else {
+            flushed.completeExceptionally(new SolrIndexerException("Failed to commit index changes"));
+        }
+    }
+
     /**
      * Commit.
+     * 
+     * @return {@code true} if the changes were committed, {@code false} if they were rolled back
      */
-    private void commit()
+    private boolean commit()
     {
+        boolean committed = true;
+
+        long start = System.nanoTime();
         try {
             solrInstance.commit();
         } catch (Exception e) {
             this.logger.error("Failed to commit index changes to the Solr server. Rolling back.", e);
+            committed = false;
 
             try {
                 solrInstance.rollback();
@@ -481,6 +738,11 @@ private void commit()
         }
 
         this.batchSize = 0;
+
+        this.commitCount.increment();
+        this.commitTime.add(System.nanoTime() - start);
+
+        return committed;
     }
 
     /**
@@ -563,6 +825,26 @@ public void delete(EntityReference reference, boolean recurse)
         addToQueue(reference, recurse, IndexOperation.DELETE);
     }
 
+    @Override
+    public CompletableFuture<Void> flush()
+    {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+        if (this.disposed) {
+            cancelFlush(flushed);
+        } else {
+            // Go through the resolve queue to stay after the entries which are not resolved yet
+            try {
+                this.resolveQueue.put(new ResolveQueueEntry(flushed));
+            } catch (InterruptedException e) {
+                flushed.completeExceptionally(e);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return flushed;
+    }
+
     /**
      * Add a list of references to the index queue, all having the same operation.
      * 
@@ -585,7 +867,72 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        return this.indexQueue.size() + this.resolveQueue.size() + this.pendingSize + this.batchSize;
+    }
+
+    int getResolveQueueSize()
+    {
+        return this.resolveQueue.size();
+    }
+
+    int getIndexQueueSize()
+    {
+        return this.indexQueue.size();
+    }
+
+    int getPendingSize()
+    {
+        return this.pendingSize;
+    }
+
+    int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    int getExtractionThreads()
+    {
+        return this.extractionExecutor != null ? this.configuration.getIndexerThreads() : 1;
+    }
+
+    int getRunningExtractions()
+    {
+        return this.runningExtractions.get();
+    }
+
+    long getExtractionCount()
+    {
+        return this.extractionCount.sum();
+    }
+
+    long getExtractionTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.extractionTime.sum());
+    }
+
+    long getIndexedCount()
+    {
+        return this.indexedCount.sum();
+    }
+
+    long getDeletedCount()
+    {
+        return this.deletedCount.sum();
+    }
+
+    long getFailedCount()
+    {
+        return this.failedCount.sum();
+    }
+
+    long getCommitCount()
+    {
+        return this.commitCount.sum();
+    }
+
+    long getCommitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.commitTime.sum());
     }
 
     @Override
@@ -42,5 +42,12 @@
     /**
      * Stop indexing thread.
      */
-    STOP
+    STOP,
+
+    /**
+     * Commit the operations queued before and notify the waiting caller.
+     * 
+     * @since 15.7RC1
+     */
+    FLUSH
 }
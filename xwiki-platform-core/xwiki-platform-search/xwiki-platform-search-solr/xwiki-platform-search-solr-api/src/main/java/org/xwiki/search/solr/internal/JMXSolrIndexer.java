@@ -0,0 +1,117 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+/**
+ * Expose the state of the Solr indexer as JMX mbean.
+ * 
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class JMXSolrIndexer implements JMXSolrIndexerMBean
+{
+    private final DefaultSolrIndexer indexer;
+
+    /**
+     * @param indexer the indexer
+     */
+    public JMXSolrIndexer(DefaultSolrIndexer indexer)
+    {
+        this.indexer = indexer;
+    }
+
+    @Override
+    public int getResolveQueueSize()
+    {
+        return this.indexer.getResolveQueueSize();
+    }
+
+    @Override
+    public int getIndexQueueSize()
+    {
+        return this.indexer.getIndexQueueSize();
+    }
+
+    @Override
+    public int getPendingSize()
+    {
+        return this.indexer.getPendingSize();
+    }
+
+    @Override
+    public int getBatchSize()
+    {
+        return this.indexer.getBatchSize();
+    }
+
+    @Override
+    public int getExtractionThreads()
+    {
+        return this.indexer.getExtractionThreads();
+    }
+
+    @Override
+    public int getRunningExtractions()
+    {
+        return this.indexer.getRunningExtractions();
+    }
+
+    @Override
+    public long getExtractionCount()
+    {
+        return this.indexer.getExtractionCount();
+    }
+
+    @Override
+    public long getExtractionTime()
+    {
+        return this.indexer.getExtractionTime();
+    }
+
+    @Override
+    public long getIndexedCount()
+    {
+        return this.indexer.getIndexedCount();
+    }
+
+    @Override
+    public long getDeletedCount()
+    {
+        return this.indexer.getDeletedCount();
+    }
+
+    @Override
+    public long getFailedCount()
+    {
+        return this.indexer.getFailedCount();
+    }
+
+    @Override
+    public long getCommitCount()
+    {
+        return this.indexer.getCommitCount();
+    }
+
+    @Override
+    public long getCommitTime()
+    {
+        return this.indexer.getCommitTime();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+/**
+ * An interface used to expose the state of the Solr indexer as a JMX resource.
+ * 
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public interface JMXSolrIndexerMBean
+{
+    /**
+     * @return the number of references waiting to be resolved
+     */
+    int getResolveQueueSize();
+
+    /**
+     * @return the number of resolved entries waiting to be indexed
+     */
+    int getIndexQueueSize();
+
+    /**
+     * @return the number of entries taken from the index queue which are not yet sent to the Solr instance
+     */
+    int getPendingSize();
+
+    /**
+     * @return the number of entries sent to the Solr instance but not yet committed
+     */
+    int getBatchSize();
+
+    /**
+     * @return the number of threads used to extract the data to index
+     */
+    int getExtractionThreads();
+
+    /**
+     * @return the number of extractions currently running
+     */
+    int getRunningExtractions();
+
+    /**
+     * @return the total number of extractions since the indexer was started
+     */
+    long getExtractionCount();
+
+    /**
+     * @return the total time spent extracting the data to index, in milliseconds
+     */
+    long getExtractionTime();
+
+    /**
+     * @return the total number of documents sent to the Solr instance
+     */
+    long getIndexedCount();
+
+    /**
+     * @return the total number of delete operations sent to the Solr instance
+     */
+    long getDeletedCount();
+
+    /**
+     * @return the total number of entries which failed to be indexed
+     */
+    long getFailedCount();
+
+    /**
+     * @return the total number of commits
+     */
+    long getCommitCount();
+
+    /**
+     * @return the total time spent committing, in milliseconds
+     */
+    long getCommitTime();
+}
@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.internal.api;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.search.solr.internal.job.IndexerJob;
@@ -60,6 +62,16 @@
      */
     int getQueueSize();
 
+    /**
+     * Add a marker to the queue which is completed once all the operations queued before it have been applied and
+     * committed to the Solr index.
+     * 
+     * @return the future completed once the operations queued before the marker have been committed, or completed
+     *         exceptionally if the commit failed or the indexer was stopped
+     * @since 15.7RC1
+     */
+    CompletableFuture<Void> flush();
+
     /**
      * Start an indexing with specific criteria.
      * 
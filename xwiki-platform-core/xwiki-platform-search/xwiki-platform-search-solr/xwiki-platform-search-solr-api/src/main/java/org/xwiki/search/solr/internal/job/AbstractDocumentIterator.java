@@ -19,6 +19,9 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.Date;
+
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 
 /**
@@ -40,6 +43,21 @@
      */
     protected EntityReference rootReference;
 
+    /**
+     * Specifies the last document to skip. If {@code null} then the iteration starts from the beginning.
+     * 
+     * @since 15.7RC1
+     */
+    protected DocumentReference startAfter;
+
+    /**
+     * Specifies the date after which the iterated documents have been modified. If {@code null} then all the documents
+     * are iterated.
+     * 
+     * @since 15.7RC1
+     */
+    protected Date modifiedSince;
+
     @Override
     public void remove()
     {
@@ -51,4 +69,16 @@ public void setRootReference(EntityReference rootReference)
     {
         this.rootReference = rootReference;
     }
+
+    @Override
+    public void setStartAfter(DocumentReference startAfter)
+    {
+        this.startAfter = startAfter;
+    }
+
+    @Override
+    public void setModifiedSince(Date modifiedSince)
+    {
+        this.modifiedSince = modifiedSince;
+    }
 }
@@ -23,6 +23,7 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -116,6 +117,16 @@ public class DatabaseDocumentIterator extends AbstractDocumentIterator<String>
      */
     private Query countQuery;
 
+    /**
+     * The query used to fetch the documents from the database in the wiki of the {@link #startAfter} document.
+     */
+    private Query startQuery;
+
+    /**
+     * The query used to count the documents from the database in the wiki of the {@link #startAfter} document.
+     */
+    private Query startCountQuery;
+
     /**
      * The query filter used to count the documents from the database.
      */
@@ -155,7 +166,8 @@ public long size()
             getQuery();
 
             for (String wikiName : getWikis()) {
-                size += (long) countQuery.setWiki(wikiName).execute().get(0);
+                size += (long) (isStartWiki(wikiName) ? startCountQuery : countQuery).setWiki(wikiName).execute()
+                    .get(0);
             }
         } catch (QueryException e) {
             throw new IllegalStateException("Failed to count the documents.", e);
@@ -198,7 +210,8 @@ private void fetchNextResults()
             // We use basic pagination (absolute offset) because we don't expect the database to change too much while
             // the synchronization takes place. Also, the database is used as the reference store, meaning that we
             // update the Solr index to match the database, not the other way around.
-            results = getQuery().setWiki(wiki).setOffset(offset).execute();
+            Query wikiQuery = isStartWiki(wiki) ? getStartQuery() : getQuery();
+            results = wikiQuery.setWiki(wiki).setOffset(offset).execute();
             offset += LIMIT;
         } catch (QueryException e) {
             throw new IllegalStateException("Failed to query the database.", e);
@@ -212,40 +225,110 @@ private void fetchNextResults()
     private Query getQuery() throws QueryException
     {
         if (query == null) {
-            // This iterator must have the same order as the SolrDocumentIterator, otherwise the synchronization fails.
-            String select = "select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc";
-            String orderBy = " order by doc.space, doc.name, doc.language";
-
-            EntityReference spaceReference = null;
-            EntityReference documentReference = null;
-            if (rootReference != null) {
-                spaceReference = rootReference.extractReference(EntityType.SPACE);
-                documentReference = rootReference.extractReference(EntityType.DOCUMENT);
+            String whereClause = getWhereClause(false);
+            query = createQuery(whereClause, false);
+            countQuery = createCountQuery(whereClause, query);
+
+            if (startAfter != null) {
+                whereClause = getWhereClause(true);
+                startQuery = createQuery(whereClause, true);
+                startCountQuery = createCountQuery(whereClause, startQuery);
             }
+        }
+        return query;
+    }
 
-            String whereClause = "";
-            if (spaceReference != null) {
-                whereClause += " where doc.space = :space";
-                if (documentReference != null) {
-                    whereClause += " and doc.name = :name";
+    /**
+     * @return the query used to fetch the documents which come after {@link #startAfter} in its wiki
+     * @throws QueryException if creating the query fails
+     */
+    private Query getStartQuery() throws QueryException
+    {
+        getQuery();
+
+        return startQuery;
+    }
+
+    private String getWhereClause(boolean start)
+    {
+        List<String> constraints = new ArrayList<>();
+
+        if (rootReference != null) {
+            if (rootReference.extractReference(EntityType.SPACE) != null) {
+                constraints.add("doc.space = :space");
+                if (rootReference.extractReference(EntityType.DOCUMENT) != null) {
+                    constraints.add("doc.name = :name");
                 }
             }
+        }
+
+        if (modifiedSince != null) {
+            constraints.add("doc.date > :modifiedSince");
+        }
+
+        if (start) {
+            // This must follow the order of the query.
+            constraints.add("(doc.space > :startSpace or (doc.space = :startSpace and (doc.name > :startName"
+                + " or (doc.name = :startName and doc.language > :startLocale))))");
+        }
 
-            query = queryManager.createQuery(select + whereClause + orderBy, Query.HQL).setLimit(LIMIT);
-            countQuery = queryManager.createQuery(whereClause, Query.HQL).addFilter(countFilter);
+        return constraints.isEmpty() ? "" : " where " + StringUtils.join(constraints, " and ");
+    }
+
+    private Query createQuery(String whereClause, boolean start) throws QueryException
+    {
+        // This iterator must have the same order as the SolrDocumentIterator, otherwise the synchronization fails.
+        String select = "select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc";
+        String orderBy = " order by doc.space, doc.name, doc.language";
+
+        Query documentQuery = queryManager.createQuery(select + whereClause + orderBy, Query.HQL).setLimit(LIMIT);
 
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (rootReference != null) {
+            EntityReference spaceReference = rootReference.extractReference(EntityType.SPACE);
             if (spaceReference != null) {
-                query.bindValue("space", this.localEntityReferenceSerializer.serialize(spaceReference));
+                parameters.put("space", this.localEntityReferenceSerializer.serialize(spaceReference));
+                EntityReference documentReference = rootReference.extractReference(EntityType.DOCUMENT);
                 if (documentReference != null) {
-                    query.bindValue("name", documentReference.getName());
+                    parameters.put("name", documentReference.getName());
                 }
             }
+        }
+        if (modifiedSince != null) {
+            parameters.put("modifiedSince", modifiedSince);
+        }
+        if (start) {
+            parameters.put("startSpace",
+                this.localEntityReferenceSerializer.serialize(startAfter.getLastSpaceReference()));
+            parameters.put("startName", startAfter.getName());
+            parameters.put("startLocale", startAfter.getLocale() != null ? startAfter.getLocale().toString() : "");
+        }
 
-            for (Map.Entry<String, Object> parameter : query.getNamedParameters().entrySet()) {
-                countQuery.bindValue(parameter.getKey(), parameter.getValue());
-            }
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            documentQuery.bindValue(parameter.getKey(), parameter.getValue());
         }
-        return query;
+
+        return documentQuery;
+    }
+
+    private Query createCountQuery(String whereClause, Query documentQuery) throws QueryException
+    {
+        Query documentCountQuery = queryManager.createQuery(whereClause, Query.HQL).addFilter(countFilter);
+
+        for (Map.Entry<String, Object> parameter : documentQuery.getNamedParameters().entrySet()) {
+            documentCountQuery.bindValue(parameter.getKey(), parameter.getValue());
+        }
+
+        return documentCountQuery;
+    }
+
+    /**
+     * @param wikiName the name of a wiki
+     * @return {@code true} if the passed wiki contains the {@link #startAfter} document
+     */
+    private boolean isStartWiki(String wikiName)
+    {
+        return startAfter != null && startAfter.getWikiReference().getName().equals(wikiName);
     }
 
     /**
@@ -263,23 +346,30 @@ private String getNextWiki()
 
     /**
      * If the root entity is not specified then all the available wikis are returned. Otherwise only the wiki
-     * corresponding to the root entity is returned.
+     * corresponding to the root entity is returned. The wikis which come before the wiki of the {@link #startAfter}
+     * document are skipped.
      * 
      * @return the list of wikis to iterate
      */
     private List<String> getWikis()
     {
+        List<String> wikis;
         if (rootReference == null) {
-            List<String> wikis;
             try {
                 wikis = new ArrayList<String>(wikiDescriptorManager.getAllIds());
             } catch (WikiManagerException e) {
                 throw new IllegalStateException("Failed to get the list of available wikis.", e);
             }
-
-            return wikis;
         } else {
-            return Arrays.asList(rootReference.extractReference(EntityType.WIKI).getName());
+            wikis = new ArrayList<>(Arrays.asList(rootReference.extractReference(EntityType.WIKI).getName()));
         }
+
+        if (startAfter != null) {
+            // Skip the wikis which have already been iterated.
+            String startWiki = startAfter.getWikiReference().getName();
+            wikis.removeIf(wikiName -> wikiName.compareTo(startWiki) < 0);
+        }
+
+        return wikis;
     }
 }
@@ -19,6 +19,7 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.Date;
 import java.util.Iterator;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -45,6 +46,24 @@
      */
     void setRootReference(EntityReference rootReference);
 
+    /**
+     * Skip all the documents which come before the specified document (included), in the order of the iteration. This
+     * allows to resume an iteration which has been interrupted.
+     * 
+     * @param startAfter the last document which should be skipped, {@code null} to iterate from the beginning
+     * @since 15.7RC1
+     */
+    void setStartAfter(DocumentReference startAfter);
+
+    /**
+     * Limit the iterator to the documents which have been modified after the specified date.
+     * 
+     * @param modifiedSince the date after which the documents have been modified, {@code null} to iterate all the
+     *            documents
+     * @since 15.7RC1
+     */
+    void setModifiedSince(Date modifiedSince);
+
     /**
      * @return estimate the size of the iterated store for showing progress information
      */
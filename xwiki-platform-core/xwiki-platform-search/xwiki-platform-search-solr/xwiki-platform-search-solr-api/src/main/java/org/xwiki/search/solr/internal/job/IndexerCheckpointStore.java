@@ -0,0 +1,302 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Properties;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+/**
+ * Persist the progress of the synchronizations between the database and the Solr index so that an interrupted
+ * synchronization can be resumed and so that a synchronization can be limited to the documents modified since the
+ * previous one.
+ * <p>
+ * The progress is stored outside of the Solr index (which can be remote), so each saved state also remembers a document
+ * which was indexed at the time, to be checked against the Solr index before the state is used: if the Solr index was
+ * reset or replaced since then, the document is not found and the state is ignored.
+ * 
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = IndexerCheckpointStore.class)
+@Singleton
+public class IndexerCheckpointStore
+{
+    /**
+     * The state of an interrupted synchronization.
+     * 
+     * @version $Id$
+     */
+    public static final class Checkpoint
+    {
+        private final DocumentReference reference;
+
+        private final Date startDate;
+
+        private final Date modifiedSince;
+
+        /**
+         * @param reference the last document handled by the synchronization
+         * @param startDate the date at which the synchronization started
+         * @param modifiedSince the date after which the synchronized documents have been modified, {@code null} if
+         *            all the documents are synchronized
+         */
+        public Checkpoint(DocumentReference reference, Date startDate, Date modifiedSince)
+        {
+            this.reference = reference;
+            this.startDate = startDate;
+            this.modifiedSince = modifiedSince;
+        }
+
+        /**
+         * @return the last document handled by the synchronization
+         */
+        public DocumentReference getReference()
+        {
+            return this.reference;
+        }
+
+        /**
+         * @return the date at which the synchronization started
+         */
+        public Date getStartDate()
+        {
+            return this.startDate;
+        }
+
+        /**
+         * @return the date after which the synchronized documents have been modified, {@code null} if all the
+         *         documents are synchronized
+         */
+        public Date getModifiedSince()
+        {
+            return this.modifiedSince;
+        }
+    }
+
+    private static final String PROPERTY_REFERENCE = "reference";
+
+    private static final String PROPERTY_LOCALE = "locale";
+
+    private static final String PROPERTY_START_DATE = "startDate";
+
+    private static final String PROPERTY_MODIFIED_SINCE = "modifiedSince";
+
+    private static final String PROPERTY_LAST_SYNCHRONIZATION = "lastSynchronization";
+
+    private static final String PROPERTY_LAST_SYNCHRONIZATION_REFERENCE = "lastSynchronizationReference";
+
+    private static final String PROPERTY_LAST_SYNCHRONIZATION_LOCALE = "lastSynchronizationLocale";
+
+    private static final String FARM = "farm";
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * @param rootReference the root reference of the synchronization
+     * @return the state of the interrupted synchronization, {@code null} if the last synchronization was not
+     *         interrupted
+     */
+    public synchronized Checkpoint getCheckpoint(EntityReference rootReference)
+    {
+        Properties properties = load(rootReference);
+
+        DocumentReference documentReference = getReference(properties, PROPERTY_REFERENCE, PROPERTY_LOCALE);
+        if (documentReference == null) {
+            return null;
+        }
+
+        return new Checkpoint(documentReference, getDate(properties, PROPERTY_START_DATE),
+            getDate(properties, PROPERTY_MODIFIED_SINCE));
+    }
+
+    /**
+     * @param rootReference the root reference of the synchronization
+     * @param checkpoint the state of the running synchronization
+     */
+    public synchronized void setCheckpoint(EntityReference rootReference, Checkpoint checkpoint)
+    {
+        Properties properties = load(rootReference);
+
+        setReference(properties, PROPERTY_REFERENCE, PROPERTY_LOCALE, checkpoint.getReference());
+        setDate(properties, PROPERTY_START_DATE, checkpoint.getStartDate());
+        setDate(properties, PROPERTY_MODIFIED_SINCE, checkpoint.getModifiedSince());
+
+        save(rootReference, properties);
+    }
+
+    /**
+     * @param rootReference the root reference of the synchronization
+     * @return the date at which the last complete synchronization started, {@code null} if there is none
+     */
+    public synchronized Date getLastSynchronizationDate(EntityReference rootReference)
+    {
+        return getDate(load(rootReference), PROPERTY_LAST_SYNCHRONIZATION);
+    }
+
+    /**
+     * @param rootReference the root reference of the synchronization
+     * @return a document which was indexed when the last complete synchronization ended, {@code null} if there is none
+     */
+    public synchronized DocumentReference getLastSynchronizationReference(EntityReference rootReference)
+    {
+        return getReference(load(rootReference), PROPERTY_LAST_SYNCHRONIZATION_REFERENCE,
+            PROPERTY_LAST_SYNCHRONIZATION_LOCALE);
+    }
+
+    /**
+     * Remove the checkpoint of the synchronization and remember the date at which it started.
+     * 
+     * @param rootReference the root reference of the synchronization
+     * @param startDate the date at which the synchronization started
+     * @param indexedReference a document indexed by the synchronization, used to check later that the Solr index was
+     *            not reset since then, {@code null} to keep the one of the previous synchronization
+     */
+    public synchronized void setCompleted(EntityReference rootReference, Date startDate,
+        DocumentReference indexedReference)
+    {
+        Properties properties = load(rootReference);
+
+        properties.remove(PROPERTY_REFERENCE);
+        properties.remove(PROPERTY_LOCALE);
+        properties.remove(PROPERTY_START_DATE);
+        properties.remove(PROPERTY_MODIFIED_SINCE);
+        setDate(properties, PROPERTY_LAST_SYNCHRONIZATION, startDate);
+        if (indexedReference != null) {
+            setReference(properties, PROPERTY_LAST_SYNCHRONIZATION_REFERENCE, PROPERTY_LAST_SYNCHRONIZATION_LOCALE,
+                indexedReference);
+        }
+
+        save(rootReference, properties);
+    }
+
+    private DocumentReference getReference(Properties properties, String referenceKey, String localeKey)
+    {
+        String reference = properties.getProperty(referenceKey);
+        if (reference == null) {
+            return null;
+        }
+
+        DocumentReference documentReference = this.resolver.resolve(reference);
+        String locale = properties.getProperty(localeKey);
+        if (StringUtils.isNotEmpty(locale)) {
+            documentReference = new DocumentReference(documentReference, LocaleUtils.toLocale(locale));
+        }
+
+        return documentReference;
+    }
+
+    private void setReference(Properties properties, String referenceKey, String localeKey,
+        DocumentReference reference)
+    {
+        properties.setProperty(referenceKey, this.serializer.serialize(reference));
+        Locale locale = reference.getLocale();
+        properties.setProperty(localeKey, locale != null ? locale.toString() : "");
+    }
+
+    private Date getDate(Properties properties, String key)
+    {
+        String date = properties.getProperty(key);
+
+        return date != null ? new Date(Long.parseLong(date)) : null;
+    }
+
+    private void setDate(Properties properties, String key, Date date)
+    {
+        if (date != null) {
+            properties.setProperty(key, String.valueOf(date.getTime()));
+        } else {
+            properties.remove(key);
+        }
+    }
+
+    private File getFile(EntityReference rootReference)
+    {
+        String name;
+        if (rootReference == null) {
+            name = FARM;
+        } else {
+            name = rootReference.getType().getLowerCase() + '-'
+                + URLEncoder.encode(this.serializer.serialize(rootReference), StandardCharsets.UTF_8);
+        }
+
+        // Not necessarily removed with the Solr index (which can be remote), see the class documentation.
+        return new File(this.environment.getPermanentDirectory(), "cache/solr/indexer/" + name + ".properties");
+    }
+
+    private Properties load(EntityReference rootReference)
+    {
+        Properties properties = new Properties();
+
+        File file = getFile(rootReference);
+        if (file.exists()) {
+            try (InputStream stream = Files.newInputStream(file.toPath())) {
+                properties.load(stream);
+            } catch (IOException e) {
+                this.logger.warn("Failed to read the Solr synchronization checkpoint from [{}]", file, e);
+            }
+        }
+
+        return properties;
+    }
+
+    private void save(EntityReference rootReference, Properties properties)
+    {
+        File file = getFile(rootReference);
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (OutputStream stream = Files.newOutputStream(file.toPath())) {
+                properties.store(stream, null);
+            }
+        } catch (IOException e) {
+            this.logger.warn("Failed to write the Solr synchronization checkpoint to [{}]", file, e);
+        }
+    }
+}
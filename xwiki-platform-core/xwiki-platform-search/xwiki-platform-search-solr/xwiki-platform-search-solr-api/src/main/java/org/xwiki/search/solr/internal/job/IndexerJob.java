@@ -20,10 +20,15 @@
 package org.xwiki.search.solr.internal.job;
 
 import java.util.Arrays;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
@@ -36,7 +41,10 @@
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.search.solr.internal.job.DiffDocumentIterator.Action;
+import org.xwiki.search.solr.internal.job.IndexerCheckpointStore.Checkpoint;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
 
 /**
  * Provide progress information and store logging of an advanced indexing.
@@ -59,6 +67,11 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
      */
     private static final JobGroupPath GROUP = new JobGroupPath(Arrays.asList("solr", "indexer"));
 
+    /**
+     * The number of documents handled between two checkpoints.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
     /**
      * Used to send documents to index or delete to/from Solr index.
      */
@@ -76,6 +89,25 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
     @Inject
     private EntityReferenceSerializer<String> entityReferenceSerializer;
 
+    @Inject
+    private transient IndexerCheckpointStore checkpointStore;
+
+    @Inject
+    private transient SolrInstance solrInstance;
+
+    @Inject
+    private transient SolrReferenceResolver solrReferenceResolver;
+
+    /**
+     * The date at which the synchronization started (or the interrupted synchronization it resumes).
+     */
+    private Date startDate;
+
+    /**
+     * The date after which the synchronized documents have been modified.
+     */
+    private Date modifiedSince;
+
     @Override
     public String getType()
     {
@@ -106,11 +138,36 @@ protected void runInternal() throws Exception
 
     /**
      * Update the Solr index to match the current state of the database.
+     * 
+     * @throws InterruptedException if interrupted while waiting for the indexer
      */
-    private void updateSolrIndex()
+    private void updateSolrIndex() throws InterruptedException
     {
+        EntityReference rootReference = getRequest().getRootReference();
+
         DiffDocumentIterator<String> iterator = new DiffDocumentIterator<>(this.solrIterator, this.databaseIterator);
-        iterator.setRootReference(getRequest().getRootReference());
+        iterator.setRootReference(rootReference);
+
+        this.startDate = new Date();
+        this.modifiedSince = getRequest().getModifiedSince();
+        if (this.modifiedSince == null && getRequest().isIncremental()) {
+            this.modifiedSince = getLastSynchronizationDate(rootReference);
+        }
+
+        Checkpoint checkpoint = getCheckpoint(rootReference);
+        if (checkpoint != null) {
+            this.logger.info("Resume the synchronization of the Solr index after document [{}].",
+                checkpoint.getReference());
+            iterator.setStartAfter(checkpoint.getReference());
+            if (checkpoint.getStartDate() != null) {
+                this.startDate = checkpoint.getStartDate();
+            }
+        }
+
+        if (this.modifiedSince != null) {
+            this.logger.info("Synchronize the documents modified after [{}].", this.modifiedSince);
+            iterator.setModifiedSince(this.modifiedSince);
+        }
 
         this.progressManager.pushLevelProgress(2, this);
 
@@ -124,20 +181,28 @@ private void updateSolrIndex()
             // Index
 
             this.progressManager.startStep(this);
-            updateSolrIndex(progressSize, iterator);
+            DocumentReference lastIndexed = updateSolrIndex(progressSize, iterator);
             this.progressManager.endStep(this);
+
+            setCompleted(rootReference, lastIndexed);
         } finally {
             this.progressManager.popLevelProgress(this);
         }
     }
 
-    private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iterator)
+    private DocumentReference updateSolrIndex(int progressSize, DiffDocumentIterator<String> iterator)
+        throws InterruptedException
     {
         this.progressManager.pushLevelProgress(progressSize, this);
 
         try {
             long[] counter = new long[Action.values().length];
 
+            DocumentReference checkpointCandidate = null;
+            CompletableFuture<Void> checkpointFlush = null;
+            DocumentReference lastIndexed = null;
+            int handled = 0;
+
             while (iterator.hasNext()) {
                 this.progressManager.startStep(this);
 
@@ -154,14 +219,132 @@ private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iter
 
                 counter[entry.getValue().ordinal()]++;
 
+                // A deleted document cannot be used to check that the checkpoint matches the Solr index.
+                if (entry.getValue() != Action.DELETE) {
+                    lastIndexed = entry.getKey();
+                }
+
+                if (++handled % CHECKPOINT_INTERVAL == 0) {
+                    checkpoint(checkpointCandidate, checkpointFlush, handled);
+                    checkpointCandidate = lastIndexed;
+                    // Everything sent to the indexer so far (including the candidate) is queued before the marker
+                    checkpointFlush = checkpointCandidate != null ? this.indexer.flush() : null;
+                }
+
                 this.progressManager.endStep(this);
             }
 
             this.logger.info(
                 "{} documents added, {} deleted and {} updated during the synchronization of the Solr index.",
                 counter[Action.ADD.ordinal()], counter[Action.DELETE.ordinal()], counter[Action.UPDATE.ordinal()]);
+
+            return lastIndexed;
         } finally {
             this.progressManager.popLevelProgress(this);
         }
     }
+
+    /**
+     * Save the checkpoint candidate selected at the previous interval, once it's been committed to the Solr index.
+     * 
+     * @param candidate the last document handled at the previous interval
+     * @param flushed the marker queued right after the documents handled at the previous interval
+     * @param handled the number of documents handled so far
+     * @throws InterruptedException if interrupted while waiting for the indexer
+     */
+    private void checkpoint(DocumentReference candidate, CompletableFuture<Void> flushed, int handled)
+        throws InterruptedException
+    {
+        if (candidate != null) {
+            // The marker is completed only once all the operations queued before it have been committed
+            try {
+                flushed.get();
+            } catch (ExecutionException e) {
+                this.logger.warn("Skipped the Solr synchronization checkpoint [{}]: {}", candidate,
+                    ExceptionUtils.getRootCauseMessage(e));
+
+                return;
+            }
+
+            this.checkpointStore.setCheckpoint(getRequest().getRootReference(),
+                new Checkpoint(candidate, this.startDate, this.modifiedSince));
+
+            this.logger.debug("Saved the Solr synchronization checkpoint [{}] after [{}] documents.", candidate,
+                handled);
+        }
+    }
+
+    /**
+     * Remember that the synchronization is complete, once everything it sent to the indexer has been committed.
+     * 
+     * @param rootReference the root reference of the synchronization
+     * @param lastIndexed the last document handled by the synchronization which is expected to be indexed
+     * @throws InterruptedException if interrupted while waiting for the indexer
+     */
+    private void setCompleted(EntityReference rootReference, DocumentReference lastIndexed)
+        throws InterruptedException
+    {
+        if (lastIndexed != null) {
+            // The document is used to check that the Solr index was not reset before the next incremental
+            // synchronization so it must actually be indexed
+            try {
+                this.indexer.flush().get();
+            } catch (ExecutionException e) {
+                this.logger.warn("Failed to commit the end of the synchronization of the Solr index: {}",
+                    ExceptionUtils.getRootCauseMessage(e));
+
+                return;
+            }
+        }
+
+        this.checkpointStore.setCompleted(rootReference, this.startDate, lastIndexed);
+    }
+
+    private Date getLastSynchronizationDate(EntityReference rootReference)
+    {
+        Date lastSynchronizationDate = this.checkpointStore.getLastSynchronizationDate(rootReference);
+
+        // Make sure the last synchronization matches the current Solr index (it could have been reset since then,
+        // in which case all the documents need to be synchronized).
+        if (lastSynchronizationDate != null
+            && !isIndexed(this.checkpointStore.getLastSynchronizationReference(rootReference))) {
+            this.logger.info("The Solr index changed since the last synchronization, synchronize all the documents.");
+
+            return null;
+        }
+
+        return lastSynchronizationDate;
+    }
+
+    private boolean isIndexed(DocumentReference reference)
+    {
+        if (reference != null) {
+            try {
+                return this.solrInstance.get(this.solrReferenceResolver.getId(reference)) != null;
+            } catch (Exception e) {
+                this.logger.warn("Failed to check if the document [{}] is indexed: {}", reference,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        return false;
+    }
+
+    private Checkpoint getCheckpoint(EntityReference rootReference)
+    {
+        if (!getRequest().isResume()) {
+            return null;
+        }
+
+        Checkpoint checkpoint = this.checkpointStore.getCheckpoint(rootReference);
+
+        // The documents before the checkpoint are not iterated so the interrupted synchronization must have been
+        // targeting the same documents.
+        if (checkpoint == null || !Objects.equals(checkpoint.getModifiedSince(), this.modifiedSince)) {
+            return null;
+        }
+
+        // Make sure the checkpoint matches the current Solr index (it could have been reset since then).
+        return isIndexed(checkpoint.getReference()) ? checkpoint : null;
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.Date;
+
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.xwiki.job.AbstractRequest;
@@ -53,6 +55,21 @@ public class IndexerRequest extends AbstractRequest
      */
     private boolean removeMissing = true;
 
+    /**
+     * @see #isResume()
+     */
+    private boolean resume = true;
+
+    /**
+     * @see #isIncremental()
+     */
+    private boolean incremental;
+
+    /**
+     * @see #getModifiedSince()
+     */
+    private Date modifiedSince;
+
     /**
      * The default constructor.
      */
@@ -118,6 +135,73 @@ public void setRemoveMissing(boolean removeMissing)
         this.removeMissing = removeMissing;
     }
 
+    /**
+     * @return if true and the previous synchronization of the same root reference was interrupted, the synchronization
+     *         starts where the previous one stopped
+     * @since 15.7RC1
+     */
+    public boolean isResume()
+    {
+        return this.resume;
+    }
+
+    /**
+     * @param resume if true and the previous synchronization of the same root reference was interrupted, the
+     *            synchronization starts where the previous one stopped
+     * @since 15.7RC1
+     */
+    public void setResume(boolean resume)
+    {
+        this.resume = resume;
+    }
+
+    /**
+     * @return if true and no explicit {@link #getModifiedSince() date} is provided, only the documents modified since
+     *         the last complete synchronization of the same root reference are synchronized (all the documents are
+     *         synchronized if the Solr index was reset since then); see {@link #getModifiedSince()} for the limits
+     * @since 15.7RC1
+     */
+    public boolean isIncremental()
+    {
+        return this.incremental;
+    }
+
+    /**
+     * @param incremental if true and no explicit {@link #getModifiedSince() date} is provided, only the documents
+     *            modified since the last complete synchronization of the same root reference are synchronized (all the
+     *            documents are synchronized if the Solr index was reset since then); see {@link #getModifiedSince()}
+     *            for the limits
+     * @since 15.7RC1
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+    }
+
+    /**
+     * @return if not {@code null}, only the documents modified after this date are synchronized; the deleted documents
+     *         are generally not removed from the index in that case (deleting a document doesn't modify its indexed
+     *         version, which is only removed if it was itself indexed after this date), so a full synchronization is
+     *         still needed to clean them
+     * @since 15.7RC1
+     */
+    public Date getModifiedSince()
+    {
+        return this.modifiedSince;
+    }
+
+    /**
+     * @param modifiedSince if not {@code null}, only the documents modified after this date are synchronized; the
+     *            deleted documents are generally not removed from the index in that case (deleting a document doesn't
+     *            modify its indexed version, which is only removed if it was itself indexed after this date), so a full
+     *            synchronization is still needed to clean them
+     * @since 15.7RC1
+     */
+    public void setModifiedSince(Date modifiedSince)
+    {
+        this.modifiedSince = modifiedSince;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -136,6 +220,9 @@ public boolean equals(Object o)
             .append(overwrite, that.overwrite)
             .append(removeMissing, that.removeMissing)
             .append(rootReference, that.rootReference)
+            .append(resume, that.resume)
+            .append(incremental, that.incremental)
+            .append(modifiedSince, that.modifiedSince)
             .isEquals();
     }
 
@@ -147,6 +234,9 @@ public int hashCode()
             .append(rootReference)
             .append(overwrite)
             .append(removeMissing)
+            .append(resume)
+            .append(incremental)
+            .append(modifiedSince)
             .toHashCode();
     }
 }
@@ -39,6 +39,7 @@
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
 import org.xwiki.search.solr.internal.api.SolrInstance;
@@ -85,6 +86,10 @@ public class SolrDocumentIterator extends AbstractDocumentIterator<String>
     @Inject
     private DocumentReferenceResolver<SolrDocument> solrDocumentReferenceResolver;
 
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localEntityReferenceSerializer;
+
     @Override
     public boolean hasNext()
     {
@@ -144,6 +149,12 @@ private SolrQuery getQuery() throws SolrIndexerException
             query.setFields(FieldUtils.WIKI, FieldUtils.SPACES, FieldUtils.NAME, FieldUtils.DOCUMENT_LOCALE,
                 FieldUtils.VERSION);
             query.addFilterQuery(FieldUtils.TYPE + ':' + EntityType.DOCUMENT.name());
+            if (modifiedSince != null) {
+                query.addFilterQuery(FieldUtils.DATE + ":{" + modifiedSince.toInstant() + " TO *]");
+            }
+            if (startAfter != null) {
+                query.addFilterQuery(getStartAfterQuery());
+            }
             // This iterator must have the same order as the database iterator, otherwise the synchronization fails.
             // Note that we had two options:
             // (A) Sort the Solr index only by id and enable docValues on the id field to improve the speed. But then we
@@ -169,4 +180,27 @@ private SolrQuery getQuery() throws SolrIndexerException
         }
         return query;
     }
+
+    /**
+     * @return the filter query matching the documents which come after {@link #startAfter}, following the order used
+     *         to sort the documents
+     */
+    private String getStartAfterQuery()
+    {
+        String wiki = quote(startAfter.getWikiReference().getName());
+        String space = quote(this.localEntityReferenceSerializer.serialize(startAfter.getLastSpaceReference()));
+        String name = quote(startAfter.getName());
+        String locale = quote(startAfter.getLocale() != null ? startAfter.getLocale().toString() : "");
+
+        return String.format(
+            "%1$s:{%2$s TO *] OR (%1$s:%2$s AND (%3$s:{%4$s TO *] OR (%3$s:%4$s AND (%5$s:{%6$s TO *]"
+                + " OR (%5$s:%6$s AND %7$s:{%8$s TO *])))))",
+            FieldUtils.WIKI, wiki, FieldUtils.SPACE_EXACT, space, FieldUtils.NAME_EXACT, name,
+            FieldUtils.DOCUMENT_LOCALE, locale);
+    }
+
+    private String quote(String value)
+    {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
 }
@@ -22,6 +22,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -222,6 +223,78 @@ void iterateOneWiki() throws Exception
         verify(countQuery).bindValue("name", "C");
     }
 
+    @Test
+    void iterateAfterCheckpoint() throws Exception
+    {
+        Query emptyQuery = mock(Query.class);
+        when(emptyQuery.execute()).thenReturn(Collections.emptyList());
+
+        DocumentReference chessMainWelcome =
+            createDocumentReference("chess", Arrays.asList("Main"), "Welcome", Locale.ENGLISH);
+        DocumentReference chessXWikiSyntaxLinks =
+            createDocumentReference("chess", Arrays.asList("XWiki", "Syntax"), "Links", Locale.FRENCH);
+        DocumentReference tennisMainWelcome =
+            createDocumentReference("tennis", Arrays.asList("Main"), "Welcome", Locale.ENGLISH);
+
+        Query chessQuery = mock(Query.class);
+        when(chessQuery.setOffset(0)).thenReturn(chessQuery);
+        when(chessQuery.setOffset(100)).thenReturn(emptyQuery);
+        when(chessQuery.execute())
+            .thenReturn(Collections.singletonList(new Object[] { "XWiki.Syntax", "Links", "fr", "2.5" }));
+
+        Query tennisQuery = mock(Query.class);
+        when(tennisQuery.setOffset(0)).thenReturn(tennisQuery);
+        when(tennisQuery.setOffset(100)).thenReturn(emptyQuery);
+        when(tennisQuery.execute())
+            .thenReturn(Collections.singletonList(new Object[] { "Main", "Welcome", "en", "2.1" }));
+
+        Date modifiedSince = new Date();
+
+        String select = "select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc";
+        String orderBy = " order by doc.space, doc.name, doc.language";
+        String whereClause = " where doc.date > :modifiedSince";
+        String startWhereClause = whereClause + " and (doc.space > :startSpace or (doc.space = :startSpace"
+            + " and (doc.name > :startName or (doc.name = :startName and doc.language > :startLocale))))";
+
+        Query query = mock(Query.class);
+        when(query.setLimit(anyInt())).thenReturn(query);
+        when(query.getNamedParameters()).thenReturn(Collections.emptyMap());
+        when(query.setWiki("tennis")).thenReturn(tennisQuery);
+        when(this.queryManager.createQuery(select + whereClause + orderBy, Query.HQL)).thenReturn(query);
+
+        Query startQuery = mock(Query.class);
+        when(startQuery.setLimit(anyInt())).thenReturn(startQuery);
+        when(startQuery.getNamedParameters()).thenReturn(Collections.emptyMap());
+        when(startQuery.setWiki("chess")).thenReturn(chessQuery);
+        when(this.queryManager.createQuery(select + startWhereClause + orderBy, Query.HQL)).thenReturn(startQuery);
+
+        Query countQuery = mock(Query.class);
+        when(countQuery.addFilter(this.countQueryFilter)).thenReturn(countQuery);
+        when(this.queryManager.createQuery(whereClause, Query.HQL)).thenReturn(countQuery);
+        when(this.queryManager.createQuery(startWhereClause, Query.HQL)).thenReturn(countQuery);
+
+        DocumentIterator<String> iterator = this.databaseIterator;
+        iterator.setStartAfter(chessMainWelcome);
+        iterator.setModifiedSince(modifiedSince);
+
+        List<Pair<DocumentReference, String>> actualResults = new ArrayList<>();
+        while (iterator.hasNext()) {
+            actualResults.add(iterator.next());
+        }
+
+        List<Pair<DocumentReference, String>> expectedResults = new ArrayList<>();
+        expectedResults.add(new ImmutablePair<>(chessXWikiSyntaxLinks, "2.5"));
+        expectedResults.add(new ImmutablePair<>(tennisMainWelcome, "2.1"));
+
+        assertEquals(expectedResults, actualResults);
+
+        verify(query).bindValue("modifiedSince", modifiedSince);
+        verify(startQuery).bindValue("modifiedSince", modifiedSince);
+        verify(startQuery).bindValue("startSpace", "Main");
+        verify(startQuery).bindValue("startName", "Welcome");
+        verify(startQuery).bindValue("startLocale", "en");
+    }
+
     private DocumentReference createDocumentReference(String wiki, List<String> spaces, String name, Locale locale)
     {
         DocumentReference documentReference = new DocumentReference(wiki, spaces, name);
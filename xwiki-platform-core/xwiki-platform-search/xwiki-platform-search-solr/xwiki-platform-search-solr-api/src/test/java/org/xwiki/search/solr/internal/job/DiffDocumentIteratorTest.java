@@ -24,6 +24,7 @@
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
@@ -78,6 +79,16 @@ public void setRootReference(EntityReference rootReference)
         {
         }
 
+        @Override
+        public void setStartAfter(DocumentReference startAfter)
+        {
+        }
+
+        @Override
+        public void setModifiedSince(Date modifiedSince)
+        {
+        }
+
         @Override
         public long size()
         {
@@ -19,8 +19,13 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of current user in the current context. It replaces
@@ -80,4 +85,30 @@
      * @return {@code true} if the user has the specified right on the entity, {@code false} otherwise
      */
     boolean hasAccess(Right right, EntityReference entityReference);
+
+    /**
+     * Verifies if access identified by {@code right} on each of the given entities would be allowed in the current
+     * context and return those on which the access is allowed. The result is the same as calling
+     * {@link #hasAccess(Right, EntityReference)} for each entity, but implementations are free to share the evaluation
+     * of the entities having common ancestors.
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param <T> the type of the entity references
+     * @param right the right to check
+     * @param entityReferences the entities on which to check the right
+     * @return the entities on which the access is allowed, in the order of the passed collection
+     * @since 15.7RC1
+     */
+    @Unstable
+    default <T extends EntityReference> List<T> filterAccessible(Right right, Collection<T> entityReferences)
+    {
+        List<T> accessibleReferences = new ArrayList<>();
+        for (T entityReference : entityReferences) {
+            if (hasAccess(right, entityReference)) {
+                accessibleReferences.add(entityReference);
+            }
+        }
+
+        return accessibleReferences;
+    }
 }
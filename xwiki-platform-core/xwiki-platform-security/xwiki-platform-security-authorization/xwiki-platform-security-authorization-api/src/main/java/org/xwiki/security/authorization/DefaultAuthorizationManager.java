@@ -19,9 +19,14 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -125,6 +130,41 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public <T extends EntityReference> List<T> filterAccessible(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        if (isSuperAdmin(userReference)) {
+            return new ArrayList<>(entityReferences);
+        }
+
+        if (right == null || right == Right.ILLEGAL || (!right.isReadOnly() && xwikiBridge.isWikiReadOnly())
+            || (userReference == null && xwikiBridge.needsAuthentication(right))) {
+            return new ArrayList<>();
+        }
+
+        Map<EntityReference, SecurityAccess> accesses;
+        try {
+            accesses = getAccess(securityReferenceFactory.newUserReference(userReference), entityReferences);
+        } catch (Exception e) {
+            this.logger.error(String.format("Failed to load rights for user [%s] on [%s] entities.",
+                (userReference == null) ? AuthorizationException.NULL_USER : userReference, entityReferences.size()),
+                e);
+            return new ArrayList<>();
+        }
+
+        List<T> accessibleReferences = new ArrayList<>();
+        for (T entityReference : entityReferences) {
+            RuleState access = accesses.get(entityReference).get(right);
+            logAccess(access, userReference, entityReference, right, "bulk access inquiry", true);
+            if (access == RuleState.ALLOW) {
+                accessibleReferences.add(entityReference);
+            }
+        }
+
+        return accessibleReferences;
+    }
+
     /**
      * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
@@ -271,6 +311,96 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
         return access;
     }
 
+    /**
+     * Obtain the access for the user on each of the given entities. The access found at a hierarchy level is shared by
+     * all the entities below that level without rules, and the entries missing from the cache are loaded in a single
+     * batch.
+     *
+     * @param user The user identity.
+     * @param entityReferences The entities.
+     * @return the access of the user, indexed by entity.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     */
+    private Map<EntityReference, SecurityAccess> getAccess(UserSecurityReference user,
+        Collection<? extends EntityReference> entityReferences) throws AuthorizationException
+    {
+        Map<EntityReference, SecurityReference> entities = new LinkedHashMap<>();
+        // The access of the hierarchy levels already evaluated.
+        Map<SecurityReference, SecurityAccess> levelAccesses = new HashMap<>();
+        // The entities whose access needs to be loaded, with the levels that share their access.
+        Map<SecurityReference, List<SecurityReference>> missingEntities = new LinkedHashMap<>();
+
+        for (EntityReference entityReference : entityReferences) {
+            SecurityReference entity = securityReferenceFactory.newEntityReference(entityReference);
+            entities.put(entityReference, entity);
+            if (!levelAccesses.containsKey(entity) && !missingEntities.containsKey(entity)) {
+                List<SecurityReference> levels = new ArrayList<>();
+                SecurityAccess access = getCachedAccess(user, entity, levelAccesses, levels);
+                if (access != null) {
+                    levels.forEach(level -> levelAccesses.put(level, access));
+                } else {
+                    missingEntities.put(entity, levels);
+                }
+            }
+        }
+
+        if (!missingEntities.isEmpty()) {
+            Map<SecurityReference, SecurityAccessEntry> accessEntries =
+                securityCacheLoader.load(user, missingEntities.keySet());
+
+            this.logger.debug("Loaded [{}] new entries for user {} into cache", accessEntries.size(), user);
+
+            for (Map.Entry<SecurityReference, List<SecurityReference>> entry : missingEntities.entrySet()) {
+                SecurityAccess access = accessEntries.get(entry.getKey()).getAccess();
+                entry.getValue().forEach(level -> levelAccesses.put(level, access));
+            }
+        }
+
+        Map<EntityReference, SecurityAccess> accesses = new HashMap<>();
+        entities.forEach((entityReference, entity) -> accesses.put(entityReference, levelAccesses.get(entity)));
+        return accesses;
+    }
+
+    /**
+     * Obtain the access for the user on the given entity from the already evaluated levels or from the cache, without
+     * loading anything.
+     *
+     * @param user The user identity.
+     * @param entity The entity.
+     * @param levelAccesses The access of the hierarchy levels already evaluated.
+     * @param levels Filled with the hierarchy levels, starting with the entity, that share the access of the entity.
+     *     Only levels of the wiki of the entity are added.
+     * @return the access, or {@code null} if it needs to be loaded.
+     */
+    private SecurityAccess getCachedAccess(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccess> levelAccesses, List<SecurityReference> levels)
+    {
+        for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
+            SecurityAccess access = levelAccesses.get(ref);
+            if (access != null) {
+                return access;
+            }
+            // The access of a wiki does not apply to the entities of its subwikis.
+            if (ref.getWikiReference().equals(entity.getWikiReference())) {
+                levels.add(ref);
+            }
+            if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
+                // Skip search on entity types that will obviously have empty/useless list of rules.
+                continue;
+            }
+            SecurityRuleEntry entry = securityCache.get(ref);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.isEmpty()) {
+                SecurityAccessEntry accessEntry = securityCache.get(user, ref);
+                return accessEntry != null ? accessEntry.getAccess() : null;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Log access conclusion.
      * @param access The ALLOW or DENY state
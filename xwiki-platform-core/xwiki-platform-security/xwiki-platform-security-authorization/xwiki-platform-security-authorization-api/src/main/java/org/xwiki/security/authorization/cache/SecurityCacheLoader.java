@@ -19,11 +19,16 @@
  */
 package org.xwiki.security.authorization.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.UserSecurityReference;
 import org.xwiki.security.authorization.AuthorizationException;
 import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.stability.Unstable;
 
 /**
  * Loads access and rule entries into the security cache.
@@ -49,4 +54,26 @@
      */
     SecurityAccessEntry load(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException;
+
+    /**
+     * Load the cache with the required entries to look up the access
+     * for a given user on each of the given entities.
+     *
+     * @param user The user to check access for.
+     * @param entities The entities to check access to.
+     * @return The resulting access level for the user at each entity, indexed by entity.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs.
+     * @since 15.7RC1
+     */
+    @Unstable
+    default Map<SecurityReference, SecurityAccessEntry> load(UserSecurityReference user,
+        Collection<SecurityReference> entities) throws AuthorizationException
+    {
+        Map<SecurityReference, SecurityAccessEntry> accessEntries = new LinkedHashMap<>();
+        for (SecurityReference entity : entities) {
+            accessEntries.put(entity, load(user, entity));
+        }
+
+        return accessEntries;
+    }
 }
@@ -83,14 +83,15 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private Logger logger;
 
-    /** Fair read-write lock used for fair scheduling of cache access. */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
+    /** Number of locks used to guard the cache entries. */
+    private static final int LOCK_STRIPES = 64;
 
-    /** Fair read lock. */
-    private final Lock readLock = readWriteLock.readLock();
-
-    /** Fair write lock. */
-    private final Lock writeLock = readWriteLock.writeLock();
+    /**
+     * Fair read-write locks used for fair scheduling of cache access. Each key is guarded by one of them so that
+     * entries with different keys can be read and inserted concurrently. Removing entries cascades to children guarded
+     * by any lock, so it requires all the write locks.
+     */
+    private final ReadWriteLock[] locks = newLocks();
 
     private final ReadWriteLock invalidationReadWriteLock = new ReentrantReadWriteLock(true);
 
@@ -145,8 +146,45 @@ public void initialize() throws InitializationException
         cache = newCache();
     }
 
+    private static ReadWriteLock[] newLocks()
+    {
+        ReadWriteLock[] result = new ReadWriteLock[LOCK_STRIPES];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = new ReentrantReadWriteLock(true);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param key the key of an entry
+     * @return the lock guarding the entry with the passed key
+     */
+    private ReadWriteLock getLock(String key)
+    {
+        return this.locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+    }
+
+    private void lockAll()
+    {
+        // Always acquire the locks in the same order to avoid dead locks.
+        for (ReadWriteLock lock : this.locks) {
+            lock.writeLock().lock();
+        }
+    }
+
+    private void unlockAll()
+    {
+        for (int i = this.locks.length - 1; i >= 0; --i) {
+            this.locks[i].writeLock().unlock();
+        }
+    }
+
     /**
      * Cache entry.
+     * <p>
+     * The parents of an entry are looked up without locking when it's created: the lock guarding the new entry is
+     * held, which prevents any removal, and locking another key could lead to dead locks with a concurrent insertion.
      */
     private class SecurityCacheEntry
     {
@@ -181,7 +219,7 @@ public void initialize() throws InitializationException
             this.entry = entry;
             SecurityReference parentReference = entry.getReference().getParentSecurityReference();
             if (parentReference != null) {
-                SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
+                SecurityCacheEntry parent = DefaultSecurityCache.this.getParentEntry(parentReference);
                 if (parent == null) {
                     throw new ParentEntryEvictedException(String.format(
                         "The parent with reference [%s] for entry [%s] is no longer available in the cache",
@@ -206,13 +244,13 @@ public void initialize() throws InitializationException
         SecurityCacheEntry(SecurityShadowEntry entry) throws ParentEntryEvictedException
         {
             this.entry = entry;
-            SecurityCacheEntry parent1 = DefaultSecurityCache.this.getEntry(entry.getReference());
+            SecurityCacheEntry parent1 = DefaultSecurityCache.this.getParentEntry(entry.getReference());
             if (parent1 == null) {
                 throw new ParentEntryEvictedException(String.format(
                     "The parent entry with reference [%s] for entry [%s] is no longer available in the cache", parent1,
                     entry));
             }
-            SecurityCacheEntry parent2 = DefaultSecurityCache.this.getEntry(entry.getWikiReference());
+            SecurityCacheEntry parent2 = DefaultSecurityCache.this.getParentEntry(entry.getWikiReference());
             if (parent2 == null) {
                 throw new ParentEntryEvictedException(String.format(
                     "The wiki entry with reference [%s] for entry [%s] is no longer available in the cache", parent2,
@@ -235,7 +273,7 @@ public void initialize() throws InitializationException
         {
             this.entry = entry;
             boolean isSelf = entry.getReference().equals(entry.getUserReference());
-            SecurityCacheEntry parent1 = DefaultSecurityCache.this.getEntry(entry.getReference());
+            SecurityCacheEntry parent1 = DefaultSecurityCache.this.getParentEntry(entry.getReference());
             if (parent1 == null) {
                 throw new ParentEntryEvictedException(String.format(
                     "The first parent with reference [%s] for the entry [%s] with wiki [%s] is no longer "
@@ -243,8 +281,8 @@ public void initialize() throws InitializationException
                     entry.getReference(), entry, wiki));
             }
             SecurityCacheEntry parent2 = (isSelf) ? parent1
-                : (wiki != null) ? DefaultSecurityCache.this.getShadowEntry(entry.getUserReference(), wiki)
-                    : DefaultSecurityCache.this.getEntry(entry.getUserReference());
+                : (wiki != null) ? DefaultSecurityCache.this.getParentShadowEntry(entry.getUserReference(), wiki)
+                    : DefaultSecurityCache.this.getParentEntry(entry.getUserReference());
             if (parent2 == null) {
                 throw new ParentEntryEvictedException(String.format(
                     "The second parent with reference [%s] for the entry [%s] with wiki [%s] is no longer available "
@@ -306,7 +344,7 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
             if (parentSize > 0) {
                 if (parentReference != null) {
                     this.parents = new ArrayList<>(parentSize);
-                    SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
+                    SecurityCacheEntry parent = DefaultSecurityCache.this.getParentEntry(parentReference);
                     if (parent == null) {
                         throw new ParentEntryEvictedException(String.format(
                             "The parent with reference [%s] required by entry [%s] with groups [%s]"
@@ -343,8 +381,9 @@ private Collection<SecurityCacheEntry> getParentGroups(Collection<GroupSecurityR
             Collection<SecurityCacheEntry> result = new ArrayList<>(groups.size());
             for (GroupSecurityReference group : groups) {
                 SecurityCacheEntry parent = (entry instanceof SecurityShadowEntry && group.isGlobal())
-                    ? DefaultSecurityCache.this.getShadowEntry(group, ((SecurityShadowEntry) entry).getWikiReference())
-                    : DefaultSecurityCache.this.getEntry(group);
+                    ? DefaultSecurityCache.this.getParentShadowEntry(group,
+                        ((SecurityShadowEntry) entry).getWikiReference())
+                    : DefaultSecurityCache.this.getParentEntry(group);
                 if (parent == null) {
                     throw new ParentEntryEvictedException(String
                         .format("The parent with reference [%s] is no longer available in the cache", parentReference));
@@ -454,7 +493,9 @@ public void dispose()
         {
             if (!disposed) {
                 DefaultSecurityCache.this.cache.remove(getKey());
-                DefaultSecurityCache.this.internalEntries.remove(getKey());
+                synchronized (DefaultSecurityCache.this.internalEntries) {
+                    DefaultSecurityCache.this.internalEntries.remove(getKey());
+                }
                 disposed = true;
 
                 disconnectFromParents();
@@ -475,8 +516,13 @@ protected void disconnectFromParents()
 
         private void disposeChildren()
         {
-            if (children != null) {
-                for (SecurityCacheEntry child : children) {
+            Collection<SecurityCacheEntry> currentChildren;
+            synchronized (this) {
+                currentChildren = children != null ? new ArrayList<>(children) : null;
+            }
+
+            if (currentChildren != null) {
+                for (SecurityCacheEntry child : currentChildren) {
                     if (!child.disposed) {
                         if (logger.isDebugEnabled()) {
                             logger.debug("Cascaded removal of entry [{}] from cache.", child.getKey());
@@ -485,16 +531,19 @@ private void disposeChildren()
                     }
                 }
                 // Avoid the extra work of the garbage collector by clearing the set.
-                children.clear();
+                synchronized (this) {
+                    children.clear();
+                }
             }
         }
 
         /**
-         * Add a children to this cache entry.
+         * Add a children to this cache entry. Children can be added concurrently by insertions guarded by different
+         * locks.
          * 
          * @param entry the children entry to add.
          */
-        private void addChild(SecurityCacheEntry entry)
+        private synchronized void addChild(SecurityCacheEntry entry)
         {
             if (this.children == null) {
                 // Use a weak set to avoid that upper entries in the hierarchy prevent their children from being
@@ -509,7 +558,7 @@ private void addChild(SecurityCacheEntry entry)
          * 
          * @param entry the children entry to remove.
          */
-        private void removeChild(SecurityCacheEntry entry)
+        private synchronized void removeChild(SecurityCacheEntry entry)
         {
             if (this.children != null) {
                 this.children.remove(entry);
@@ -659,9 +708,34 @@ private SecurityCacheEntry getShadowEntry(SecurityReference userReference, Secur
         return getInternal(getShadowEntryKey(userReference, wiki));
     }
 
+    /**
+     * Same as {@link #getEntry(SecurityReference)} but without locking, to be used while inserting an entry.
+     *
+     * @param reference the reference requested.
+     * @return a security cache entry corresponding to given reference, null if none is available in the cache.
+     */
+    private SecurityCacheEntry getParentEntry(SecurityReference reference)
+    {
+        return getInternalUnlocked(getEntryKey(reference));
+    }
+
+    /**
+     * Same as {@link #getShadowEntry(SecurityReference, SecurityReference)} but without locking, to be used while
+     * inserting an entry.
+     *
+     * @param userReference the user reference requested.
+     * @param wiki the wiki context of the shadow reference to retrieve.
+     * @return a security cache entry corresponding to the given user and reference, null if none is available in the
+     *         cache.
+     */
+    private SecurityCacheEntry getParentShadowEntry(SecurityReference userReference, SecurityReference wiki)
+    {
+        return getInternalUnlocked(getShadowEntryKey(userReference, wiki));
+    }
+
     /**
      * Get a security cache entry from the cache or the internal map. In the latter case, the entry is re-inserted
-     * into the cache. This method can be called without locking, it uses the read lock internally.
+     * into the cache. This method can be called without locking, it uses the read lock of the key internally.
      *
      * @param key the key of the entry to retrieve
      * @throws IllegalStateException if the entry has been disposed (this should never happen)
@@ -669,33 +743,47 @@ private SecurityCacheEntry getShadowEntry(SecurityReference userReference, Secur
      */
     private SecurityCacheEntry getInternal(String key)
     {
+        Lock readLock = getLock(key).readLock();
         readLock.lock();
         try {
-            SecurityCacheEntry result = cache.get(key);
-            if (result == null) {
-                // Try to get the entry from the internal map which may have, e.g., parents that are no longer in the
-                // cache but still referenced by entries in the cache.
-                // Synchronize to avoid concurrent modification of the map as get() may trigger the eviction of
-                // garbage collected entries. All other operations are done under the write lock.
-                synchronized (this.internalEntries) {
-                    result = this.internalEntries.get(key);
-                }
+            return getInternalUnlocked(key);
+        } finally {
+            readLock.unlock();
+        }
+    }
 
-                if (result != null) {
-                    // Try re-inserting the entry into the cache to give it another chance of being stored directly.
-                    this.cache.set(key, result);
-                }
+    /**
+     * Same as {@link #getInternal(String)} but without locking. The caller must hold a lock preventing the removal of
+     * entries.
+     *
+     * @param key the key of the entry to retrieve
+     * @throws IllegalStateException if the entry has been disposed (this should never happen)
+     * @return the entry corresponding to the given key, null if none is available in the cache
+     */
+    private SecurityCacheEntry getInternalUnlocked(String key)
+    {
+        SecurityCacheEntry result = cache.get(key);
+        if (result == null) {
+            // Try to get the entry from the internal map which may have, e.g., parents that are no longer in the
+            // cache but still referenced by entries in the cache.
+            // Synchronize to avoid concurrent modification of the map as get() may trigger the eviction of
+            // garbage collected entries, and as entries guarded by different locks can be added concurrently.
+            synchronized (this.internalEntries) {
+                result = this.internalEntries.get(key);
             }
 
-            if (result != null && result.disposed) {
-                throw new IllegalCacheStateException(
-                    String.format("Entry [%s] has been disposed without being removed from the cache.", result));
+            if (result != null) {
+                // Try re-inserting the entry into the cache to give it another chance of being stored directly.
+                this.cache.set(key, result);
             }
+        }
 
-            return result;
-        } finally {
-            readLock.unlock();
+        if (result != null && result.disposed) {
+            throw new IllegalCacheStateException(
+                String.format("Entry [%s] has been disposed without being removed from the cache.", result));
         }
+
+        return result;
     }
 
     /**
@@ -717,7 +805,8 @@ private boolean isAlreadyInserted(String key, SecurityEntry entry) throws Confli
     private boolean isAlreadyInserted(String key, SecurityEntry entry, Collection<GroupSecurityReference> groups)
         throws ConflictingInsertionException, ParentEntryEvictedException
     {
-        SecurityCacheEntry oldEntry = getInternal(key);
+        // The write lock of the key is held by the caller.
+        SecurityCacheEntry oldEntry = getInternalUnlocked(key);
         if (oldEntry != null) {
             if (!oldEntry.getEntry().equals(entry)) {
                 // Another thread has inserted an entry which is different from this entry!
@@ -754,12 +843,14 @@ private void addEntry(String key, SecurityCacheEntry entry)
         // layer for access entries, this is not the purpose of the internal entries map. Instead, the size of the
         // cache should be increased if this is desired.
         if (!(entry.getEntry() instanceof SecurityAccessEntry)) {
-            this.internalEntries.put(key, entry);
+            synchronized (this.internalEntries) {
+                this.internalEntries.put(key, entry);
+            }
         }
 
         if (entry.disposed) {
-            // This should never happen as entries cannot be disposed while being added to the cache as both
-            // operations require the write lock. However, if it happens, there is a serious bug in the code so
+            // This should never happen as entries cannot be disposed while being added to the cache as disposing
+            // requires all the write locks. However, if it happens, there is a serious bug in the code so
             // better fail with an exception.
             throw new IllegalCacheStateException(
                 String.format("Entry [%s] has been disposed while being added to the cache.", entry));
@@ -801,6 +892,7 @@ private void add(SecurityEntry entry, Collection<GroupSecurityReference> groups)
     {
         String key = getEntryKey(entry);
 
+        Lock writeLock = getLock(key).writeLock();
         writeLock.lock();
         try {
             if (isAlreadyInserted(key, entry, groups)) {
@@ -864,6 +956,7 @@ private void internalAdd(SecurityAccessEntry entry, SecurityReference wiki)
     {
         String key = getEntryKey(entry);
 
+        Lock writeLock = getLock(key).writeLock();
         writeLock.lock();
         try {
             if (isAlreadyInserted(key, entry)) {
@@ -927,7 +1020,7 @@ public void remove(UserSecurityReference user, SecurityReference entity)
         this.invalidationWriteLock.lock();
 
         try {
-            writeLock.lock();
+            lockAll();
             try {
                 SecurityCacheEntry entry = getEntry(user, entity);
                 if (entry != null) {
@@ -937,7 +1030,7 @@ public void remove(UserSecurityReference user, SecurityReference entity)
                     entry.dispose();
                 }
             } finally {
-                writeLock.unlock();
+                unlockAll();
             }
         } finally {
             this.invalidationWriteLock.unlock();
@@ -950,7 +1043,7 @@ public void remove(SecurityReference entity)
         this.invalidationWriteLock.lock();
 
         try {
-            writeLock.lock();
+            lockAll();
             try {
                 SecurityCacheEntry entry = getEntry(entity);
                 if (entry != null) {
@@ -960,7 +1053,7 @@ public void remove(SecurityReference entity)
                     entry.dispose();
                 }
             } finally {
-                writeLock.unlock();
+                unlockAll();
             }
         } finally {
             this.invalidationWriteLock.unlock();
@@ -24,9 +24,12 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -35,6 +38,7 @@
 
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
 import org.xwiki.security.GroupSecurityReference;
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.UserSecurityReference;
@@ -154,7 +158,32 @@ public SecurityAccessEntry load(UserSecurityReference user, SecurityReference en
         this.rulesInvalidator.suspend();
 
         try {
-            return loadRequiredEntries(user, entity);
+            return loadRequiredEntries(user, entity, null);
+        } finally {
+            this.rulesInvalidator.resume();
+        }
+    }
+
+    @Override
+    public Map<SecurityReference, SecurityAccessEntry> load(UserSecurityReference user,
+        Collection<SecurityReference> entities) throws AuthorizationException
+    {
+        // See load(UserSecurityReference, SecurityReference) for the reason of this lock, which is taken only once
+        // for the whole batch.
+        this.rulesInvalidator.suspend();
+
+        try {
+            Map<SecurityReference, SecurityAccessEntry> accessEntries = new LinkedHashMap<>();
+            // The access entries settled during this batch, indexed by the entity they are stored at, so that entities
+            // sharing the same lowest non-empty rule entry are settled only once.
+            Map<SecurityReference, SecurityAccessEntry> settledEntries = new HashMap<>();
+            for (SecurityReference entity : entities) {
+                if (!accessEntries.containsKey(entity)) {
+                    accessEntries.put(entity, loadRequiredEntries(user, entity, settledEntries));
+                }
+            }
+
+            return accessEntries;
         } finally {
             this.rulesInvalidator.resume();
         }
@@ -166,11 +195,13 @@ public SecurityAccessEntry load(UserSecurityReference user, SecurityReference en
      * 
      * @param user The user to check access for.
      * @param entity The entity to check access to.
+     * @param settledEntries The access entries already settled for the user, indexed by the entity they are stored
+     *     at, or {@code null} when not loading a batch of entities.
      * @return The resulting access for the user on the entity.
      * @throws org.xwiki.security.authorization.AuthorizationException On error.
      */
-    private SecurityAccessEntry loadRequiredEntries(UserSecurityReference user, SecurityReference entity)
-        throws AuthorizationException
+    private SecurityAccessEntry loadRequiredEntries(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccessEntry> settledEntries) throws AuthorizationException
     {
         // No entity, return default rights for user in its wiki
         if (entity == null) {
@@ -182,8 +213,36 @@ private SecurityAccessEntry loadRequiredEntries(UserSecurityReference user, Secu
         // Retrieve rules for the entity from the cache
         Deque<SecurityRuleEntry> ruleEntries = getRules(entity);
 
-        // Evaluate, store and return the access right
-        return loadAccessEntries(user, entity, ruleEntries);
+        if (settledEntries == null) {
+            // Evaluate, store and return the access right
+            return loadAccessEntries(user, entity, ruleEntries);
+        }
+
+        // The access is the same for all the entities sharing the same lowest level with rules
+        SecurityReference accessReference = getAccessReference(ruleEntries);
+        SecurityAccessEntry accessEntry = settledEntries.get(accessReference);
+        if (accessEntry == null) {
+            accessEntry = loadAccessEntries(user, entity, ruleEntries);
+            settledEntries.put(accessReference, accessEntry);
+        }
+
+        return accessEntry;
+    }
+
+    /**
+     * @param ruleEntries The rule entries of all the hierarchy levels of an entity, starting with the entity itself.
+     * @return The reference of the lowest level having rules, or the reference of the wiki of the entity when none of
+     *     the levels up to that wiki has rules. This is where the access entry settled from these rules is stored.
+     */
+    private SecurityReference getAccessReference(Deque<SecurityRuleEntry> ruleEntries)
+    {
+        for (SecurityRuleEntry entry : ruleEntries) {
+            if (!entry.isEmpty() || entry.getReference().getType() == EntityType.WIKI) {
+                return entry.getReference();
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -21,6 +21,7 @@
 package org.xwiki.security.authorization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -923,4 +924,52 @@ void unregister() throws AuthorizationException
 
         assertEquals(ILLEGAL, Right.toRight("foo"));
     }
+
+    @Test
+    void filterAccessible() throws Exception
+    {
+        initialiseWikiMock("inheritancePolicyForNoAdminFarmAccess");
+
+        List<DocumentReference> documents = new ArrayList<>();
+        for (String space : new String[] { "any space", "spaceDenyA", "spaceAllowA" }) {
+            for (String document : new String[] { "any document", "docAllowA", "docDenyA" }) {
+                documents.add(getXDoc(document, space));
+                documents.add(getDoc(document, space, "wikiNoRules"));
+                documents.add(getDoc(document, space, "wikiDenyA"));
+            }
+        }
+
+        // Evaluate the documents in a single batch while the cache is still empty.
+        List<DocumentReference> accessibleDocuments =
+            this.authorizationManager.filterAccessible(VIEW, getXUser("userA"), documents);
+
+        List<DocumentReference> expectedDocuments = new ArrayList<>();
+        for (DocumentReference document : documents) {
+            if (this.authorizationManager.hasAccess(VIEW, getXUser("userA"), document)) {
+                expectedDocuments.add(document);
+            }
+        }
+        assertEquals(expectedDocuments, accessibleDocuments);
+        assertTrue(accessibleDocuments.contains(getXDoc("docAllowA", "spaceDenyA")));
+        assertFalse(accessibleDocuments.contains(getXDoc("docDenyA", "any space")));
+
+        for (Right right : values()) {
+            for (DocumentReference user : Arrays.asList(getXUser("userA"), null)) {
+                List<DocumentReference> expected = new ArrayList<>();
+                for (DocumentReference document : documents) {
+                    if (this.authorizationManager.hasAccess(right, user, document)) {
+                        expected.add(document);
+                    }
+                }
+                assertEquals(expected, this.authorizationManager.filterAccessible(right, user, documents),
+                    String.format("Unexpected [%s] access for [%s].", right, getUserReadableName(user)));
+            }
+        }
+
+        assertEquals(documents,
+            this.authorizationManager.filterAccessible(PROGRAM, getXUser(AuthorizationManager.SUPERADMIN_USER),
+                documents));
+        assertEquals(Collections.emptyList(),
+            this.authorizationManager.filterAccessible(ILLEGAL, getXUser("userA"), documents));
+    }
 }
@@ -28,6 +28,11 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -859,6 +864,66 @@ public boolean keepAccess(SecurityAccessEntry entry)
         });
     }
 
+    @Test
+    void concurrentInsertions() throws Exception
+    {
+        int wikiCount = 16;
+        int documentCount = 50;
+
+        // Prepare the entries of several wikis
+        List<List<SecurityRuleEntry>> wikiEntries = new ArrayList<>();
+        for (int i = 0; i < wikiCount; ++i) {
+            WikiReference wikiReference = new WikiReference("concurrentwiki" + i);
+            SpaceReference spaceReference = new SpaceReference("space", wikiReference);
+
+            List<SecurityRuleEntry> entries = new ArrayList<>();
+            entries.add(mockSecurityRuleEntry(factory.newEntityReference(wikiReference)));
+            entries.add(mockSecurityRuleEntry(factory.newEntityReference(spaceReference)));
+            for (int j = 0; j < documentCount; ++j) {
+                entries.add(mockSecurityRuleEntry(
+                    factory.newEntityReference(new DocumentReference("page" + j, spaceReference))));
+            }
+            wikiEntries.add(entries);
+        }
+
+        // Insert and read the entries of each wiki from a different thread
+        ExecutorService executor = Executors.newFixedThreadPool(wikiCount);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (List<SecurityRuleEntry> entries : wikiEntries) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (SecurityRuleEntry entry : entries) {
+                        this.securityCache.add(entry);
+                        assertSame(entry, this.securityCache.get(entry.getReference()));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            for (Future<Void> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Removing a wiki should remove only its own entries
+        this.securityCache.remove(wikiEntries.get(0).get(0).getReference());
+
+        for (int i = 0; i < wikiCount; ++i) {
+            for (SecurityRuleEntry entry : wikiEntries.get(i)) {
+                if (i == 0) {
+                    assertNull(this.securityCache.get(entry.getReference()));
+                } else {
+                    assertSame(entry, this.securityCache.get(entry.getReference()));
+                }
+            }
+        }
+    }
+
     @Test
     void testKeyCollisions() throws Exception
     {
@@ -19,8 +19,11 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -122,6 +125,33 @@ private boolean hasAccess(Right right, DocumentReference user, EntityReference e
         return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
     }
 
+    @Override
+    public <T extends EntityReference> List<T> filterAccessible(Right right, Collection<T> entityReferences)
+    {
+        if (CONTENT_AUTHOR_RIGHTS.contains(right)) {
+            // The user depends on the entity for these rights.
+            return ContextualAuthorizationManager.super.filterAccessible(right, entityReferences);
+        }
+
+        List<EntityReference> fullReferences = new ArrayList<>(entityReferences.size());
+        for (T entityReference : entityReferences) {
+            fullReferences.add(getFullReference(entityReference));
+        }
+
+        Set<EntityReference> accessibleFullReferences = new HashSet<>(this.authorizationManager
+            .filterAccessible(right, this.xcontextProvider.get().getUserReference(), fullReferences));
+
+        List<T> accessibleReferences = new ArrayList<>();
+        int index = 0;
+        for (T entityReference : entityReferences) {
+            if (accessibleFullReferences.contains(fullReferences.get(index++))) {
+                accessibleReferences.add(entityReference);
+            }
+        }
+
+        return accessibleReferences;
+    }
+
     private EntityReference getFullReference(EntityReference reference)
     {
         return reference != null ? this.resolver.resolve(reference, reference.getType()) : null;
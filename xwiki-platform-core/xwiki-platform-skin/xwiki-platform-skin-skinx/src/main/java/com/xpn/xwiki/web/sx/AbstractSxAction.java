@@ -20,11 +20,21 @@
 package com.xpn.xwiki.web.sx;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
+import org.xwiki.skinx.internal.SkinExtensionContent;
+import org.xwiki.skinx.internal.SkinExtensionContentCache;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -58,14 +68,26 @@ public abstract class AbstractSxAction extends XWikiAction
     /** What http header parameter is used to specify when the cache should expire. */
     private static final String CACHE_EXPIRES_HEADER = "Expires";
 
-    /** The response will be sent to the browser as a byte array in this character set. */
-    private static final String RESPONSE_CHARACTER_SET = "UTF-8";
+    /** What http header parameter is used by the client to specify the supported compressions. */
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    private static final String GZIP_ENCODING = "gzip";
+
+    private static final String COLOR_THEME_PREFERENCE = "colorTheme";
+
+    /**
+     * The request parameters which don't affect the content of a document skin extension, besides the document version
+     * and the locale which are already part of the cache variant.
+     */
+    private static final Set<String> IGNORED_VARIANT_PARAMETERS = Set.of("language", "docVersion");
 
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
 
     private DebugConfiguration debugConfiguration;
 
+    private SkinExtensionContentCache contentCache;
+
     /** @return the logging object of the concrete subclass. */
     protected abstract Logger getLogger();
 
@@ -83,8 +105,6 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
     {
         XWikiResponse response = context.getResponse();
 
-        String extensionContent = sxSource.getContent();
-
         response.setContentType(sxType.getContentType());
 
         if (sxSource.getLastModifiedDate() > 0) {
@@ -106,18 +126,169 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (getDebugConfiguration().isMinify()) {
-            extensionContent = compress(extensionContent, sxType.getCompressor(), context);
+        // The content of the document skin extensions which can be cached by the clients is also cached on the server
+        // side since evaluating and minifying it is expensive
+        SkinExtensionContentCache contentCache = getContentCache();
+        String cacheVariant = null;
+        if (sxSource instanceof SxDocumentSource && cachePolicy != CachePolicy.FORBID && contentCache.isEnabled()) {
+            cacheVariant = getCacheVariant((SxDocumentSource) sxSource, sxType, context);
+        }
+
+        SkinExtensionContent content = null;
+        if (cacheVariant != null) {
+            content = contentCache.get(context.getDoc().getDocumentReference(), cacheVariant);
+            if (content != null && content.getSourceMap() != null) {
+                restoreSourceMap(content.getSourceMap(), context);
+            }
+        }
+
+        if (content == null) {
+            String extensionContent = sxSource.getContent();
+
+            String sourceMap = null;
+            if (getDebugConfiguration().isMinify()) {
+                SxCompressor compressor = sxType.getCompressor();
+                extensionContent = compress(extensionContent, compressor, context);
+                sourceMap = getSourceMap(compressor);
+            }
+
+            if (cacheVariant != null) {
+                content = new SkinExtensionContent(extensionContent.getBytes(StandardCharsets.UTF_8), sourceMap);
+                contentCache.set(context.getDoc().getDocumentReference(), cacheVariant, content);
+            } else {
+                writeContent(extensionContent.getBytes(StandardCharsets.UTF_8), response);
+
+                return;
+            }
+        }
+
+        // The cached content is sent compressed when the client supports it
+        response.addHeader("Vary", ACCEPT_ENCODING_HEADER);
+        if (acceptsGzip(context.getRequest().getHeader(ACCEPT_ENCODING_HEADER))) {
+            response.setHeader("Content-Encoding", GZIP_ENCODING);
+            writeContent(content.getGzippedContent(), response);
+        } else {
+            writeContent(content.getContent(), response);
         }
+    }
 
+    private void writeContent(byte[] content, XWikiResponse response)
+    {
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
         } catch (IOException ex) {
             getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
         }
     }
 
+    /**
+     * @param acceptEncoding the value of the {@code Accept-Encoding} request header
+     * @return {@code true} if the client accepts gzip compressed content (with a quality value above 0)
+     */
+    static boolean acceptsGzip(String acceptEncoding)
+    {
+        float gzipQuality = -1;
+        float anyQuality = -1;
+
+        if (acceptEncoding != null) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parameters = coding.split(";");
+                String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+                if (GZIP_ENCODING.equals(name) || "x-gzip".equals(name)) {
+                    gzipQuality = Math.max(gzipQuality, getQuality(parameters));
+                } else if ("*".equals(name)) {
+                    anyQuality = getQuality(parameters);
+                }
+            }
+        }
+
+        // An explicit gzip coding takes precedence over the wildcard
+        return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
+    }
+
+    private static float getQuality(String[] parameters)
+    {
+        for (int i = 1; i < parameters.length; ++i) {
+            String parameter = parameters[i].trim();
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // Consider an invalid quality value as not acceptable
+                    return 0;
+                }
+            }
+        }
+
+        // The default quality value
+        return 1;
+    }
+
+    /**
+     * @param sxSource the document skin extension
+     * @param sxType the type of extension
+     * @param context the XWiki context
+     * @return the identifier of everything which can affect the content of the document skin extension, besides the
+     *         document itself
+     */
+    private String getCacheVariant(SxDocumentSource sxSource, Extension sxType, XWikiContext context)
+    {
+        String colorTheme = context.getWiki().getUserPreference(COLOR_THEME_PREFERENCE, context);
+
+        // The parsed content can depend on the current user and on the request parameters (e.g. the color theme can
+        // be passed in the query string), while the request parameters taken into account by the action itself (e.g.
+        // minify) are already part of the variant
+        String user = "";
+        String parameters = "";
+        if (sxSource.isParsed()) {
+            user = String.valueOf(context.getUserReference());
+            parameters = getVariantParameters(context.getRequest().getParameterMap());
+        }
+
+        return String.join("\n", sxType.getClassName(), context.getDoc().getVersion(),
+            context.getWiki().getSkin(context), String.valueOf(context.getLocale()), colorTheme,
+            String.valueOf(getDebugConfiguration().isMinify()), parameters, user);
+    }
+
+    /**
+     * @param parameters the request parameters
+     * @return the request parameters which can affect the content of a parsed skin extension, in a stable order (so
+     *         that the same parameters in a different order produce the same variant)
+     */
+    static String getVariantParameters(Map<String, String[]> parameters)
+    {
+        return new TreeMap<>(parameters).entrySet().stream()
+            .filter(entry -> !IGNORED_VARIANT_PARAMETERS.contains(entry.getKey()))
+            .map(entry -> entry.getKey() + '=' + Arrays.toString(entry.getValue()))
+            .collect(Collectors.joining("&"));
+    }
+
+    /**
+     * @param compressor the compressor which was just used to minify the content of the extension
+     * @return the source map produced by the compressor, {@code null} if none
+     * @since 15.7RC1
+     */
+    @Unstable
+    protected String getSourceMap(SxCompressor compressor)
+    {
+        return null;
+    }
+
+    /**
+     * Called when the content of the extension is taken from the cache instead of being minified again, to give a
+     * chance to handle the source map produced when the content was minified.
+     * 
+     * @param sourceMap the source map produced when the cached content was minified
+     * @param context the XWiki context
+     * @since 15.7RC1
+     */
+    @Unstable
+    protected void restoreSourceMap(String sourceMap, XWikiContext context)
+    {
+        // Nothing to do by default
+    }
+
     protected String compress(String source, SxCompressor compressor, XWikiContext context)
     {
         return compressor.compress(source);
@@ -147,6 +318,15 @@ public String render(XWikiContext context) throws XWikiException
         return null;
     }
 
+    private SkinExtensionContentCache getContentCache()
+    {
+        if (this.contentCache == null) {
+            this.contentCache = Utils.getComponent(SkinExtensionContentCache.class);
+        }
+
+        return this.contentCache;
+    }
+
     protected DebugConfiguration getDebugConfiguration()
     {
         if (this.debugConfiguration == null) {
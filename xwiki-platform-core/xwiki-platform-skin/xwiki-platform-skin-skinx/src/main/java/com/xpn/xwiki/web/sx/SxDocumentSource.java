@@ -167,6 +167,24 @@ public String getContent()
         return resultBuilder.toString();
     }
 
+    /**
+     * @return {@code true} if the content of at least one of the extension objects is parsed, in which case it can
+     *         depend on the current user
+     */
+    boolean isParsed()
+    {
+        List<BaseObject> objects = this.document.getObjects(this.extension.getClassName());
+        if (objects != null) {
+            for (BaseObject sxObj : objects) {
+                if (sxObj != null && sxObj.getIntValue(PARSE_CONTENT_PROPERTY_NAME) == 1) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     @Override
     public long getLastModifiedDate()
     {
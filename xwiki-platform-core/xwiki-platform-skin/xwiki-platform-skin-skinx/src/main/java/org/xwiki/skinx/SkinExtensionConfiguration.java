@@ -20,6 +20,7 @@
 package org.xwiki.skinx;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration options for skin extensions.
@@ -48,4 +49,17 @@
      *         of JavaScript in strict mode for browsers that supports it, {@code false} otherwise
      */
     boolean shouldRunJavaScriptInStrictMode();
+
+    /**
+     * The final (evaluated and minified) content of the document skin extensions is cached on the server side, per
+     * document version, skin, locale and color theme, so that it's not computed again for each request.
+     * 
+     * @return the maximum number of documents for which the skin extension content is cached, 0 to disable the cache
+     * @since 15.7RC1
+     */
+    @Unstable
+    default int getContentCacheSize()
+    {
+        return 0;
+    }
 }
@@ -47,4 +47,10 @@ public boolean shouldRunJavaScriptInStrictMode()
     {
         return this.xwikiProperties.getProperty("skinx.jsStrictModeEnabled", false);
     }
+
+    @Override
+    public int getContentCacheSize()
+    {
+        return this.xwikiProperties.getProperty("skinx.contentCache.size", 500);
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The final content of a skin extension, as sent to the client, along with its gzipped version.
+ * 
+ * @version $Id$
+ * @since 15.7RC1
+ */
+public class SkinExtensionContent
+{
+    private final byte[] content;
+
+    private final byte[] gzippedContent;
+
+    private final String sourceMap;
+
+    /**
+     * @param content the content to send to the client
+     * @param sourceMap the source map produced when minifying the content, {@code null} if none
+     */
+    public SkinExtensionContent(byte[] content, String sourceMap)
+    {
+        this.content = content;
+        this.gzippedContent = gzip(content);
+        this.sourceMap = sourceMap;
+    }
+
+    private static byte[] gzip(byte[] content)
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            // Cannot happen when writing in memory
+            throw new UncheckedIOException(e);
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * @return the content to send to the client
+     */
+    public byte[] getContent()
+    {
+        return this.content;
+    }
+
+    /**
+     * @return the gzipped content to send to the clients which accept it
+     */
+    public byte[] getGzippedContent()
+    {
+        return this.gzippedContent;
+    }
+
+    /**
+     * @return the source map produced when minifying the content, {@code null} if none
+     */
+    public String getSourceMap()
+    {
+        return this.sourceMap;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.skinx.SkinExtensionConfiguration;
+
+/**
+ * Cache the final content of the document skin extensions. The entries are grouped per document so that they can be
+ * all invalidated when the document is modified or deleted, each document having one entry per variant (version of
+ * the document, skin, locale, color theme, etc.).
+ * <p>
+ * The number of variants kept per document is bounded (the least recently used variant is forgotten first) since some
+ * of them depend on the request parameters or on the current user.
+ * 
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component(roles = SkinExtensionContentCache.class)
+@Singleton
+public class SkinExtensionContentCache implements Initializable, Disposable
+{
+    /**
+     * The maximum number of variants cached for each document.
+     */
+    static final int MAX_VARIANTS = 32;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private SkinExtensionConfiguration configuration;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<Map<String, SkinExtensionContent>> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int size = this.configuration.getContentCacheSize();
+        if (size > 0) {
+            try {
+                this.cache = this.cacheManager.createNewCache(new LRUCacheConfiguration("skinx.content", size));
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to create the skin extension content cache", e);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the skin extension content should be cached
+     */
+    public boolean isEnabled()
+    {
+        return this.cache != null;
+    }
+
+    /**
+     * @param documentReference the reference of the document containing the skin extension
+     * @param variant the identifier of the context in which the content was produced
+     * @return the cached content, {@code null} if none
+     */
+    public SkinExtensionContent get(DocumentReference documentReference, String variant)
+    {
+        Map<String, SkinExtensionContent> variants = this.cache.get(this.serializer.serialize(documentReference));
+
+        return variants != null ? variants.get(variant) : null;
+    }
+
+    /**
+     * @param documentReference the reference of the document containing the skin extension
+     * @param variant the identifier of the context in which the content was produced
+     * @param content the content to cache
+     */
+    public void set(DocumentReference documentReference, String variant, SkinExtensionContent content)
+    {
+        String key = this.serializer.serialize(documentReference);
+
+        Map<String, SkinExtensionContent> variants = this.cache.get(key);
+        if (variants == null) {
+            variants = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75F, true)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SkinExtensionContent> eldest)
+                {
+                    return size() > MAX_VARIANTS;
+                }
+            });
+            this.cache.set(key, variants);
+        }
+
+        variants.put(variant, content);
+    }
+
+    /**
+     * @param documentReference the reference of the document for which to forget the skin extension content
+     */
+    public void remove(DocumentReference documentReference)
+    {
+        if (this.cache != null) {
+            this.cache.remove(this.serializer.serialize(documentReference));
+        }
+    }
+
+    /**
+     * Forget all the cached skin extension content.
+     */
+    public void removeAll()
+    {
+        if (this.cache != null) {
+            this.cache.removeAll();
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.cache != null) {
+            this.cache.dispose();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Invalidate the cached skin extension content when a skin extension is modified or deleted, and all of it when a skin
+ * or a color theme (which may be used by any skin extension) is modified or deleted.
+ * 
+ * @version $Id$
+ * @since 15.7RC1
+ */
+@Component
+@Named(SkinExtensionContentCacheListener.NAME)
+@Singleton
+public class SkinExtensionContentCacheListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.skinx.internal.SkinExtensionContentCacheListener";
+
+    private static final List<LocalDocumentReference> SKIN_EXTENSION_CLASSES =
+        List.of(new LocalDocumentReference("XWiki", "StyleSheetExtension"),
+            new LocalDocumentReference("XWiki", "JavaScriptExtension"));
+
+    private static final List<LocalDocumentReference> GLOBAL_CLASSES =
+        List.of(new LocalDocumentReference("XWiki", "XWikiSkins"),
+            new LocalDocumentReference("ColorThemes", "ColorThemeClass"),
+            new LocalDocumentReference("FlamingoThemesCode", "ThemeClass"));
+
+    @Inject
+    private SkinExtensionContentCache cache;
+
+    /**
+     * Default constructor.
+     */
+    public SkinExtensionContentCacheListener()
+    {
+        super(NAME, new DocumentUpdatedEvent(), new DocumentDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        XWikiDocument document = (XWikiDocument) source;
+        XWikiDocument originalDocument = document.getOriginalDocument();
+
+        if (hasObject(document, originalDocument, GLOBAL_CLASSES)) {
+            this.cache.removeAll();
+        } else if (hasObject(document, originalDocument, SKIN_EXTENSION_CLASSES)) {
+            this.cache.remove(document.getDocumentReference());
+        }
+    }
+
+    private boolean hasObject(XWikiDocument document, XWikiDocument originalDocument,
+        List<LocalDocumentReference> classReferences)
+    {
+        for (LocalDocumentReference classReference : classReferences) {
+            if (!document.getXObjects(classReference).isEmpty()
+                || (originalDocument != null && !originalDocument.getXObjects(classReference).isEmpty())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
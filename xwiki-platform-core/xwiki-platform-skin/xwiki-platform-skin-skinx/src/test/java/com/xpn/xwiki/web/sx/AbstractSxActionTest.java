@@ -0,0 +1,67 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+class AbstractSxActionTest
+{
+    @Test
+    void acceptsGzip()
+    {
+        assertFalse(AbstractSxAction.acceptsGzip(null));
+        assertFalse(AbstractSxAction.acceptsGzip("identity"));
+        assertFalse(AbstractSxAction.acceptsGzip("gzip;q=0, deflate"));
+        assertFalse(AbstractSxAction.acceptsGzip("gzip; q=0.0, *"));
+        assertFalse(AbstractSxAction.acceptsGzip("*;q=0"));
+
+        assertTrue(AbstractSxAction.acceptsGzip("gzip"));
+        assertTrue(AbstractSxAction.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(AbstractSxAction.acceptsGzip("br, *"));
+    }
+
+    @Test
+    void getVariantParameters()
+    {
+        assertEquals("", AbstractSxAction.getVariantParameters(Map.of()));
+
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        parameters.put("language", new String[] {"fr"});
+        parameters.put("docVersion", new String[] {"1.1"});
+        parameters.put("colorTheme", new String[] {"XWiki.DefaultColorTheme"});
+        parameters.put("a", new String[] {"1", "2"});
+
+        // The parameters already part of the variant are ignored and the order doesn't matter
+        assertEquals("a=[1, 2]&colorTheme=[XWiki.DefaultColorTheme]",
+            AbstractSxAction.getVariantParameters(parameters));
+    }
+}
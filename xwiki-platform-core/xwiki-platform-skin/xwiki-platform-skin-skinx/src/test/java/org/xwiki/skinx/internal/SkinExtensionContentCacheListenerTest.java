@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link SkinExtensionContentCacheListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class SkinExtensionContentCacheListenerTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "Space", "Page");
+
+    @InjectMockComponents
+    private SkinExtensionContentCacheListener listener;
+
+    @MockComponent
+    private SkinExtensionContentCache cache;
+
+    private XWikiDocument mockDocument(LocalDocumentReference classReference)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(DOCUMENT_REFERENCE);
+        when(document.getXObjects(any(LocalDocumentReference.class))).thenReturn(List.of());
+        if (classReference != null) {
+            when(document.getXObjects(classReference)).thenReturn(List.of(mock(BaseObject.class)));
+        }
+
+        return document;
+    }
+
+    @Test
+    void onSkinExtensionUpdated()
+    {
+        XWikiDocument document = mockDocument(new LocalDocumentReference("XWiki", "StyleSheetExtension"));
+
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT_REFERENCE), document, null);
+
+        verify(this.cache).remove(DOCUMENT_REFERENCE);
+        verify(this.cache, never()).removeAll();
+    }
+
+    @Test
+    void onSkinExtensionRemoved()
+    {
+        XWikiDocument document = mockDocument(null);
+        XWikiDocument originalDocument = mockDocument(new LocalDocumentReference("XWiki", "JavaScriptExtension"));
+        when(document.getOriginalDocument()).thenReturn(originalDocument);
+
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT_REFERENCE), document, null);
+
+        verify(this.cache).remove(DOCUMENT_REFERENCE);
+    }
+
+    @Test
+    void onColorThemeUpdated()
+    {
+        XWikiDocument document = mockDocument(new LocalDocumentReference("FlamingoThemesCode", "ThemeClass"));
+
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT_REFERENCE), document, null);
+
+        verify(this.cache).removeAll();
+    }
+
+    @Test
+    void onOtherDocumentUpdated()
+    {
+        XWikiDocument document = mockDocument(null);
+
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT_REFERENCE), document, null);
+
+        verify(this.cache, never()).remove(any());
+        verify(this.cache, never()).removeAll();
+    }
+}